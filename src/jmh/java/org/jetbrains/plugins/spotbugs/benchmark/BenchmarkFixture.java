@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.benchmark;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.testFramework.EdtTestUtil;
+import com.intellij.testFramework.fixtures.IdeaProjectTestFixture;
+import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
+import com.intellij.testFramework.fixtures.JavaCodeInsightTestFixture;
+import com.intellij.testFramework.fixtures.JavaTestFixtureFactory;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.intellij.testFramework.fixtures.TestFixtureBuilder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A light Java project (the same as used by the tests, see {@link LightJavaCodeInsightFixtureTestCase})
+ * for benchmarks of code which needs a {@link Project}. Create it in a {@code @Setup(Level.Trial)} method
+ * and dispose it in the matching {@code @TearDown}.
+ */
+public final class BenchmarkFixture {
+
+	@NotNull
+	private final JavaCodeInsightTestFixture fixture;
+
+	public BenchmarkFixture() {
+		final TestFixtureBuilder<IdeaProjectTestFixture> builder =
+				IdeaTestFixtureFactory.getFixtureFactory().createLightFixtureBuilder(LightJavaCodeInsightFixtureTestCase.JAVA_8);
+		fixture = JavaTestFixtureFactory.getFixtureFactory().createCodeInsightFixture(builder.getFixture());
+		EdtTestUtil.runInEdtAndWait(fixture::setUp);
+	}
+
+	@NotNull
+	public JavaCodeInsightTestFixture getFixture() {
+		return fixture;
+	}
+
+	@NotNull
+	public Project getProject() {
+		return fixture.getProject();
+	}
+
+	@NotNull
+	public Module getModule() {
+		return fixture.getModule();
+	}
+
+	public void dispose() {
+		EdtTestUtil.runInEdtAndWait(fixture::tearDown);
+	}
+}
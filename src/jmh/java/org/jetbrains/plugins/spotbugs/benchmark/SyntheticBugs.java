@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.benchmark;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugPattern;
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.SourceLineAnnotation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.core.Bug;
+import org.jetbrains.plugins.spotbugs.core.BugStore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates reproducible (seeded) synthetic bugs which look like the result of a real analysis:
+ * the bug patterns are the ones of the SpotBugs core plugin, about five bugs per class,
+ * twenty classes per package and some bugs in inner classes.
+ */
+public final class SyntheticBugs {
+
+	private static final int BUGS_PER_CLASS = 5;
+	private static final int CLASSES_PER_PACKAGE = 20;
+
+	private SyntheticBugs() {
+	}
+
+	@NotNull
+	public static List<Bug> create(final int count, final long seed) {
+		final Random random = new Random(seed);
+		final List<BugPattern> patterns = getBugPatterns();
+		final BugStore bugStore = new BugStore(new SortedBugCollection());
+		final int classCount = Math.max(1, count / BUGS_PER_CLASS);
+		final List<Bug> ret = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			final int classIndex = random.nextInt(classCount);
+			String className = "org.example.p" + classIndex / CLASSES_PER_PACKAGE + ".Class" + classIndex;
+			if (random.nextInt(7) == 0) {
+				className += "$Inner";
+			}
+			final int startLine = 1 + random.nextInt(500);
+			final BugInstance bugInstance = createBugInstance(random, patterns, className, startLine, startLine + random.nextInt(10));
+			ret.add(new Bug(null, bugStore, bugStore.add(bugInstance)));
+		}
+		return ret;
+	}
+
+	/**
+	 * @param className  binary name of the primary class, the source file is derived from it
+	 * @param methodName primary method, {@code null} for a class level bug
+	 */
+	@NotNull
+	public static BugInstance createBugInstance(
+			@NotNull final Random random,
+			@NotNull final List<BugPattern> patterns,
+			@NotNull final String className,
+			@Nullable final String methodName,
+			final int startLine,
+			final int endLine
+	) {
+		final BugPattern pattern = patterns.get(random.nextInt(patterns.size()));
+		final int priority = Priorities.HIGH_PRIORITY + random.nextInt(Priorities.LOW_PRIORITY);
+		final BugInstance ret = new BugInstance(pattern.getType(), priority);
+		ret.addClass(className);
+		if (methodName != null) {
+			ret.addMethod(className, methodName, "()V", false);
+		}
+		ret.addSourceLine(new SourceLineAnnotation(className, getSourceFileName(className), startLine, endLine, -1, -1));
+		return ret;
+	}
+
+	@NotNull
+	private static BugInstance createBugInstance(
+			@NotNull final Random random,
+			@NotNull final List<BugPattern> patterns,
+			@NotNull final String className,
+			final int startLine,
+			final int endLine
+	) {
+		final String methodName = random.nextInt(3) == 0 ? null : "method" + random.nextInt(20);
+		return createBugInstance(random, patterns, className, methodName, startLine, endLine);
+	}
+
+	/**
+	 * @return the non deprecated bug patterns of the loaded SpotBugs plugins, in a stable order
+	 */
+	@NotNull
+	public static List<BugPattern> getBugPatterns() {
+		final List<BugPattern> ret = new ArrayList<>();
+		for (final BugPattern pattern : DetectorFactoryCollection.instance().getBugPatterns()) {
+			if (!pattern.isDeprecated()) {
+				ret.add(pattern);
+			}
+		}
+		ret.sort(Comparator.comparing(BugPattern::getType));
+		return ret;
+	}
+
+	@NotNull
+	private static String getSourceFileName(@NotNull final String className) {
+		String simpleName = className.substring(className.lastIndexOf('.') + 1);
+		final int inner = simpleName.indexOf('$');
+		if (inner != -1) {
+			simpleName = simpleName.substring(0, inner);
+		}
+		return simpleName + ".java";
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.common.util;
+
+import org.jetbrains.plugins.spotbugs.benchmark.SyntheticBugs;
+import org.jetbrains.plugins.spotbugs.core.Bug;
+import org.jetbrains.plugins.spotbugs.gui.tree.GroupBy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computing the group path of every bug, as done for each bug added to the tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BugInstanceUtilBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	public int bugCount;
+
+	@Param({"BugCategory", "Class", "Package", "Priority", "BugRank"})
+	public GroupBy primaryGroup;
+
+	private List<Bug> bugs;
+	private GroupBy[] groupBy;
+
+	@Setup
+	public void setUp() {
+		bugs = SyntheticBugs.create(bugCount, 42);
+		groupBy = GroupBy.getSortOrderGroup(primaryGroup);
+	}
+
+	@Benchmark
+	public void getGroupPath(final Blackhole blackhole) {
+		for (final Bug bug : bugs) {
+			blackhole.consume(BugInstanceUtil.getGroupPath(bug, groupBy.length, groupBy));
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.EdtTestUtil;
+import edu.umd.cs.findbugs.BugPattern;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.jetbrains.plugins.spotbugs.benchmark.BenchmarkFixture;
+import org.jetbrains.plugins.spotbugs.benchmark.SyntheticBugs;
+import org.jetbrains.plugins.spotbugs.common.ExtendedProblemDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The problem lookup of {@code BugAnnotator} and {@code BugsLineMarkerProvider}: one
+ * {@link ProblemCacheService#getProblems} call for every element of a file with {@value #METHOD_COUNT} methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProblemCacheServiceBenchmark {
+
+	private static final int METHOD_COUNT = 1000;
+	private static final String CLASS_NAME = "org.example.Sample";
+
+	@Param({"100", "1000", "10000"})
+	public int problemCount;
+
+	private BenchmarkFixture fixture;
+	private ProblemCacheService problemCache;
+	private PsiFile psiFile;
+	private PsiElement[] elements;
+	private List<ExtendedProblemDescriptor> descriptors;
+
+	@Setup
+	public void setUp() {
+		fixture = new BenchmarkFixture();
+		EdtTestUtil.runInEdtAndWait(() -> {
+			final PsiClass psiClass = fixture.getFixture().addClass(createSource());
+			psiFile = psiClass.getContainingFile();
+			elements = PsiTreeUtil.collectElements(psiFile, element -> true);
+		});
+
+		final Random random = new Random(42);
+		final List<BugPattern> patterns = SyntheticBugs.getBugPatterns();
+		final BugStore bugStore = new BugStore(new SortedBugCollection());
+		problemCache = new ProblemCacheService(fixture.getProject());
+		descriptors = new ArrayList<>(problemCount);
+		for (int i = 0; i < problemCount; i++) {
+			final int method = random.nextInt(METHOD_COUNT);
+			final int line = getStatementLine(method);
+			final int index = bugStore.add(SyntheticBugs.createBugInstance(random, patterns, CLASS_NAME, "method" + method, line, line));
+			final Bug bug = new Bug(null, bugStore, index);
+			final ExtendedProblemDescriptor descriptor = new ExtendedProblemDescriptor(psiFile, bug);
+			descriptors.add(descriptor);
+			problemCache.addProblem(descriptor);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		fixture.dispose();
+	}
+
+	/**
+	 * Highlighting an unchanged file again, the problem elements are already resolved.
+	 */
+	@Benchmark
+	public int lookup() {
+		return ReadAction.compute(this::lookupAll);
+	}
+
+	/**
+	 * Highlighting after the problems of the file changed (f. e. new bugs were reported).
+	 */
+	@Benchmark
+	public int lookupAfterChange() {
+		final ExtendedProblemDescriptor descriptor = descriptors.get(0);
+		problemCache.removeProblem(descriptor);
+		problemCache.addProblem(descriptor);
+		return ReadAction.compute(this::lookupAll);
+	}
+
+	private int lookupAll() {
+		int ret = 0;
+		for (final PsiElement element : elements) {
+			ret += problemCache.getProblems(psiFile, element).size();
+		}
+		return ret;
+	}
+
+	private static String createSource() {
+		final StringBuilder ret = new StringBuilder();
+		ret.append("package org.example;\n");
+		ret.append("\n");
+		ret.append("public class Sample {\n");
+		for (int i = 0; i < METHOD_COUNT; i++) {
+			ret.append("\tpublic void method").append(i).append("() {\n");
+			ret.append("\t\tSystem.out.println(").append(i).append(");\n");
+			ret.append("\t}\n");
+		}
+		ret.append("}\n");
+		return ret.toString();
+	}
+
+	/**
+	 * @return the one based line of the statement in {@code method<i>} of {@link #createSource()}
+	 */
+	private static int getStatementLine(final int method) {
+		return 5 + 3 * method;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.config.ProjectFilterSettings;
+import org.jetbrains.plugins.spotbugs.benchmark.BenchmarkFixture;
+import org.jetbrains.plugins.spotbugs.benchmark.SyntheticBugs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Throughput of {@link Reporter#doReportBug}, i.e. filtering, collecting and queueing the bugs for the tool window.
+ * Every invocation reports {@value #BUG_COUNT} bugs to a new reporter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReporterBenchmark {
+
+	private static final int BUG_COUNT = 10000;
+
+	@Param({"true", "false"})
+	public boolean filterLowPriority;
+
+	private BenchmarkFixture fixture;
+	private List<BugInstance> bugs;
+	private ProjectFilterSettings projectFilterSettings;
+	private Reporter reporter;
+
+	@Setup
+	public void setUp() {
+		fixture = new BenchmarkFixture();
+		bugs = new ArrayList<>(BUG_COUNT);
+		for (final Bug bug : SyntheticBugs.create(BUG_COUNT, 42)) {
+			bugs.add(bug.getInstance());
+		}
+		projectFilterSettings = ProjectFilterSettings.createDefault();
+		if (!filterLowPriority) {
+			projectFilterSettings.setMinPriority(ProjectFilterSettings.LOW_PRIORITY);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void createReporter() {
+		reporter = new Reporter(
+				fixture.getProject(),
+				fixture.getModule(),
+				new SortedBugCollection(),
+				projectFilterSettings,
+				new EmptyProgressIndicator(),
+				new AtomicBoolean(),
+				new AnalysisTimings(),
+				0,
+				null
+		);
+	}
+
+	@TearDown
+	public void tearDown() {
+		fixture.dispose();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BUG_COUNT)
+	public Reporter doReportBug() {
+		for (final BugInstance bug : bugs) {
+			reporter.doReportBug(bug);
+		}
+		return reporter;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.gui.tree.model;
+
+import com.intellij.testFramework.EdtTestUtil;
+import org.jetbrains.plugins.spotbugs.benchmark.BenchmarkFixture;
+import org.jetbrains.plugins.spotbugs.benchmark.SyntheticBugs;
+import org.jetbrains.plugins.spotbugs.core.Bug;
+import org.jetbrains.plugins.spotbugs.gui.tree.GroupBy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the bug tree from scratch, with and without the batching of {@link GroupTreeModel#addNodes}.
+ * The synthetic classes do not exist in the project, so every leaf pays for one failed PSI class lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GroupTreeModelBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	public int bugCount;
+
+	@Param({"BugCategory", "Class", "Package", "Priority", "BugRank"})
+	public GroupBy primaryGroup;
+
+	private BenchmarkFixture fixture;
+	private List<Bug> bugs;
+	private GroupBy[] groupBy;
+
+	@Setup
+	public void setUp() {
+		fixture = new BenchmarkFixture();
+		bugs = SyntheticBugs.create(bugCount, 42);
+		groupBy = GroupBy.getSortOrderGroup(primaryGroup);
+	}
+
+	@TearDown
+	public void tearDown() {
+		fixture.dispose();
+	}
+
+	@Benchmark
+	public GroupTreeModel addNodes() {
+		final GroupTreeModel ret = createModel();
+		EdtTestUtil.runInEdtAndWait(() -> ret.addNodes(bugs));
+		return ret;
+	}
+
+	@Benchmark
+	public GroupTreeModel addNode() {
+		final GroupTreeModel ret = createModel();
+		EdtTestUtil.runInEdtAndWait(() -> {
+			for (final Bug bug : bugs) {
+				ret.addNode(bug);
+			}
+		});
+		return ret;
+	}
+
+	private GroupTreeModel createModel() {
+		return new GroupTreeModel(new RootNode(fixture.getProject().getName()), groupBy, fixture.getProject());
+	}
+}
@@ -102,6 +102,11 @@ public final class AnalyzeChangelistFiles extends AbstractAnalyzeAction {
 		}
 
 		new FindBugsStarter(project, "Running SpotBugs analysis for changelist(s) '" + sb.toString() + "'...") {
+			@Override
+			protected boolean isMergeResult() {
+				return true;
+			}
+
 			@Override
 			protected void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final Consumer<CompileScope> consumer) {
 				consumer.consume(createFilesCompileScope(compilerManager, files));
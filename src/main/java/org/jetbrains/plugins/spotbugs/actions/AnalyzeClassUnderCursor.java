@@ -74,6 +74,11 @@ public final class AnalyzeClassUnderCursor extends AbstractAnalyzeAction {
 		final PsiClass psiClass = IdeaUtilImpl.getCurrentClass(e.getDataContext());
 
 		new FindBugsStarter(project, "Running SpotBugs analysis for current class...") {
+			@Override
+			protected boolean isMergeResult() {
+				return true;
+			}
+
 			@Override
 			protected void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final Consumer<CompileScope> consumer) {
 				consumer.consume(createFilesCompileScope(compilerManager, new VirtualFile[]{selectedFile}));
@@ -30,7 +30,7 @@ import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.util.Consumer;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.*;
-import org.jetbrains.plugins.spotbugs.collectors.RecurseFileCollector;
+import org.jetbrains.plugins.spotbugs.collectors.ClassFileCollector;
 import org.jetbrains.plugins.spotbugs.core.*;
 import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
@@ -97,12 +97,13 @@ public abstract class AnalyzeModuleFiles extends AbstractAnalyzeAction {
 
 				indicator.setText("Collecting files for analysis...");
 				final FindBugsProject findBugsProject = projects.get(module, includeTests && compilerOutputPathForTests != null);
-				final int[] count = new int[1];
-				RecurseFileCollector.addFiles(project, indicator, findBugsProject, new File(compilerOutputPath.getCanonicalPath()), count);
+				final ClassFileCollector collector = new ClassFileCollector(project, indicator);
+				collector.add(findBugsProject, new File(compilerOutputPath.getCanonicalPath()));
 
 				if (compilerOutputPathForTests != null) {
-					RecurseFileCollector.addFiles(project, indicator, findBugsProject, new File(compilerOutputPathForTests.getCanonicalPath()), count);
+					collector.add(findBugsProject, new File(compilerOutputPathForTests.getCanonicalPath()));
 				}
+				collector.collect();
 				return true;
 			}
 		}.start();
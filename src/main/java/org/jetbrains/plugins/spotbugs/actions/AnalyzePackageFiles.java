@@ -38,7 +38,7 @@ import com.intellij.util.Consumer;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.jetbrains.plugins.spotbugs.collectors.RecurseFileCollector;
+import org.jetbrains.plugins.spotbugs.collectors.ClassFileCollector;
 import org.jetbrains.plugins.spotbugs.common.util.IdeaUtilImpl;
 import org.jetbrains.plugins.spotbugs.core.FindBugsProject;
 import org.jetbrains.plugins.spotbugs.core.FindBugsProjects;
@@ -110,8 +110,9 @@ public final class AnalyzePackageFiles extends AbstractAnalyzeAction {
 				}
 				indicator.setText("Collecting files for analysis...");
 				final FindBugsProject findBugsProject = projects.get(module, isTest);
-				final int[] count = new int[1];
-				RecurseFileCollector.addFiles(project, indicator, findBugsProject, outputPath, count);
+				final ClassFileCollector collector = new ClassFileCollector(project, indicator);
+				collector.add(findBugsProject, outputPath);
+				collector.collect();
 				return true;
 			}
 		}.start();
@@ -33,7 +33,7 @@ import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.util.Consumer;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.plugins.spotbugs.collectors.RecurseFileCollector;
+import org.jetbrains.plugins.spotbugs.collectors.ClassFileCollector;
 import org.jetbrains.plugins.spotbugs.core.FindBugsProject;
 import org.jetbrains.plugins.spotbugs.core.FindBugsProjects;
 import org.jetbrains.plugins.spotbugs.core.FindBugsStarter;
@@ -111,11 +111,12 @@ public abstract class AnalyzeProjectFiles extends AbstractAnalyzeAction {
 				}
 
 				indicator.setText("Collecting files for analysis...");
-				final int[] count = new int[1];
+				final ClassFileCollector collector = new ClassFileCollector(project, indicator);
 				for (final Pair.NonNull<Module, VirtualFile> compilerOutputPath : compilerOutputPaths) {
 					final FindBugsProject findBugsProject = projects.get(compilerOutputPath.getFirst(), includeTests);
-					RecurseFileCollector.addFiles(project, indicator, findBugsProject, new File(compilerOutputPath.getSecond().getCanonicalPath()), count);
+					collector.add(findBugsProject, new File(compilerOutputPath.getSecond().getCanonicalPath()));
 				}
+				collector.collect();
 				return true;
 			}
 		}.start();
@@ -27,11 +27,11 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import edu.umd.cs.findbugs.*;
 import net.sf.saxon.TransformerFactoryImpl;
-import org.dom4j.Document;
-import org.dom4j.io.DocumentSource;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
 import org.jetbrains.plugins.spotbugs.common.util.*;
 import org.jetbrains.plugins.spotbugs.core.*;
@@ -40,18 +40,36 @@ import org.jetbrains.plugins.spotbugs.gui.toolwindow.view.ToolWindowPanel;
 import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
 import javax.xml.transform.*;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.*;
 import java.io.*;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 public final class ExportBugCollection extends AbstractAction {
 
 	private static final Logger LOGGER = Logger.getInstance(ExportBugCollection.class);
 	private static final String FINDBUGS_PLAIN_XSL = "plain.xsl";
 
+	/**
+	 * XSLT is not streamable: Saxon builds the whole source tree of a bug collection before the transformation
+	 * starts. The HTML exports run one at a time so the module exports do not hold several trees at once.
+	 */
+	private static final Object HTML_EXPORT_LOCK = new Object();
+
+	/**
+	 * Upper bound of the bugs whose bug collections are rebuilt at the same time by the module exports; a module
+	 * with more bugs is exported alone.
+	 */
+	private static final int MAX_REBUILT_BUG_COUNT = 20000;
+
 	@Override
 	void updateImpl(
 			@NotNull final AnActionEvent e,
@@ -126,9 +144,14 @@ public final class ExportBugCollection extends AbstractAction {
 						finalExportDir = new File(exportDirPath, dirName);
 						FileUtilFb.mkdirs(finalExportDir);
 					}
-					final boolean multiModule = result.getResults().size() > 1;
+					// a module can have two stores after a merge, they are exported into one file
+					final Map<edu.umd.cs.findbugs.Project, List<BugStore>> resultsByModule = result.getResultsByModule();
+					final boolean multiModule = resultsByModule.size() > 1;
+					final Templates htmlTemplates = exportHtml ? newHtmlTemplates() : null;
 
-					for (final Map.Entry<edu.umd.cs.findbugs.Project, SortedBugCollection> entry : result.getResults().entrySet()) {
+					final Semaphore rebuiltBugs = new Semaphore(MAX_REBUILT_BUG_COUNT, true);
+					final List<Callable<Void>> exports = new ArrayList<>();
+					for (final Map.Entry<edu.umd.cs.findbugs.Project, List<BugStore>> entry : resultsByModule.entrySet()) {
 						final String fileName;
 						if (createSubDir) {
 							if (multiModule && entry.getKey() instanceof FindBugsProject) {
@@ -139,15 +162,26 @@ public final class ExportBugCollection extends AbstractAction {
 						} else {
 							fileName = "spotbugs-result-" + entry.getKey().getProjectName() + "_" + currentTime;
 						}
-						exportImpl(
-								entry.getValue(),
-								finalExportDir,
-								fileName,
-								exportXml,
-								exportHtml,
-								openInBrowser
-						);
+						final File exportDir = finalExportDir;
+						final int permits = Math.min(getBugCount(entry.getValue()), MAX_REBUILT_BUG_COUNT);
+						exports.add(() -> {
+							rebuiltBugs.acquire(permits);
+							try {
+								exportImpl(
+										toBugCollection(entry.getValue()),
+										exportDir,
+										fileName,
+										exportXml,
+										htmlTemplates,
+										openInBrowser
+								);
+							} finally {
+								rebuiltBugs.release(permits);
+							}
+							return null;
+						});
 					}
+					invokeAll(exports);
 				} catch (final Exception e) {
 					throw ErrorUtil.toUnchecked(e);
 				}
@@ -155,12 +189,63 @@ public final class ExportBugCollection extends AbstractAction {
 		}.queue();
 	}
 
-	private void exportImpl(
+	/**
+	 * Runs the given exports, one per module, on a bounded worker pool.
+	 * Each export rebuilds the bug collection of its module from the compact bug store; the exports only run
+	 * together while their modules have at most {@link #MAX_REBUILT_BUG_COUNT} bugs, so the peak heap does not
+	 * grow with the number of threads. The HTML transformations are serialized, see {@link #HTML_EXPORT_LOCK}.
+	 */
+	private static void invokeAll(@NotNull final List<Callable<Void>> exports) throws Exception {
+		if (exports.size() == 1) {
+			exports.get(0).call();
+			return;
+		}
+		final int threadCount = Math.min(exports.size(), Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("SpotBugs Export", threadCount);
+		try {
+			for (final Future<Void> future : executor.invokeAll(exports)) {
+				try {
+					future.get();
+				} catch (final ExecutionException e) {
+					final Throwable cause = e.getCause();
+					if (cause instanceof Exception) {
+						throw (Exception) cause;
+					}
+					throw ErrorUtil.toUnchecked(cause);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static int getBugCount(@NotNull final List<BugStore> bugStores) {
+		int ret = 0;
+		for (final BugStore bugStore : bugStores) {
+			ret += bugStore.getBugCount();
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the bugs of the stores of a module with the metadata of the first store, which is the store of the
+	 * whole module if the module was analyzed before a merge
+	 */
+	@NotNull
+	private static SortedBugCollection toBugCollection(@NotNull final List<BugStore> bugStores) {
+		final SortedBugCollection ret = bugStores.get(0).toBugCollection();
+		for (int i = 1; i < bugStores.size(); i++) {
+			bugStores.get(i).addTo(ret);
+		}
+		return ret;
+	}
+
+	private static void exportImpl(
 			@NotNull final SortedBugCollection bugCollection,
 			@NotNull final File exportDir,
 			@NotNull final String fileName,
 			final boolean exportXml,
-			final boolean exportHtml,
+			@Nullable final Templates htmlTemplates,
 			final boolean openInBrowser
 	) throws Exception {
 		final boolean withMessages = bugCollection.getWithMessages();
@@ -170,9 +255,9 @@ public final class ExportBugCollection extends AbstractAction {
 				final File xml = new File(exportDir, fileName + ".xml");
 				exportXml(bugCollection, xml.getPath());
 			}
-			if (exportHtml) {
+			if (htmlTemplates != null) {
 				final File html = new File(exportDir, fileName + ".html");
-				exportHtml(bugCollection, html);
+				exportHtml(bugCollection, htmlTemplates, html);
 				if (openInBrowser) {
 					openInBrowser(html);
 				}
@@ -182,37 +267,49 @@ public final class ExportBugCollection extends AbstractAction {
 		}
 	}
 
-	private void exportXml(@NotNull final BugCollection bugCollection, @NotNull final String fileName) throws IOException {
+	private static void exportXml(@NotNull final BugCollection bugCollection, @NotNull final String fileName) throws IOException {
 		// Issue 77: workaround internal FindBugs NPE
 		// As of my point of view, the NPE is a FindBugs bug
 		bugCollection.writeXML(fileName);
 	}
 
-	private void exportHtml(@NotNull final BugCollection bugCollection, @NotNull final File file) throws IOException, TransformerException {
-		final Document document = bugCollection.toDocument();
+	/**
+	 * Compiles the HTML stylesheet once; {@link Templates} are thread safe and shared by all module exports.
+	 */
+	@NotNull
+	private static Templates newHtmlTemplates() throws IOException, TransformerException {
 		final InputStream stylesheet = getStylesheetStream(FINDBUGS_PLAIN_XSL);
 		try {
 			final Source xsl = new StreamSource(stylesheet);
 			xsl.setSystemId(FINDBUGS_PLAIN_XSL);
+			return new TransformerFactoryImpl().newTemplates(xsl);
+		} finally {
+			IoUtil.safeClose(stylesheet);
+		}
+	}
+
+	/**
+	 * The XML of the bug collection is pushed as SAX events into the transformer, which builds its (compact) source
+	 * tree from them; the dom4j document of {@link BugCollection#toDocument()} is not needed.
+	 */
+	private static void exportHtml(
+			@NotNull final BugCollection bugCollection,
+			@NotNull final Templates templates,
+			@NotNull final File file
+	) throws IOException, TransformerException {
 
-			// Create a transformer using the stylesheet
-			final TransformerFactoryImpl transformerFactory = new TransformerFactoryImpl();
-			final Transformer transformer = transformerFactory.newTransformer(xsl);
-
-			// Source document is the XML generated from the BugCollection
-			final Source source = new DocumentSource(document);
-
-			// Write result to output stream
-			final OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
-			try {
-				final Result result = new StreamResult(writer);
-				// Do the transformation
-				transformer.transform(source, result);
-			} finally {
-				IoUtil.safeClose(writer);
+		final TransformerHandler handler = new TransformerFactoryImpl().newTransformerHandler(templates);
+
+		// Write result to output stream
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+		try {
+			handler.setResult(new StreamResult(writer));
+			// Do the transformation once the bug collection is written
+			synchronized (HTML_EXPORT_LOCK) {
+				bugCollection.writeXML(new ContentHandlerXMLOutput(handler));
 			}
 		} finally {
-			IoUtil.safeClose(stylesheet);
+			IoUtil.safeClose(writer);
 		}
 	}
 
@@ -19,33 +19,51 @@
  */
 package org.jetbrains.plugins.spotbugs.actions;
 
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.*;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.wm.ToolWindow;
-import com.intellij.util.containers.TransferToEDTQueue;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import edu.umd.cs.findbugs.*;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.dom4j.DocumentException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.common.*;
+import org.jetbrains.plugins.spotbugs.common.util.ErrorUtil;
+import org.jetbrains.plugins.spotbugs.common.util.IoUtil;
 import org.jetbrains.plugins.spotbugs.core.*;
 import org.jetbrains.plugins.spotbugs.gui.common.*;
 import org.jetbrains.plugins.spotbugs.gui.toolwindow.view.ToolWindowPanel;
 import org.jetbrains.plugins.spotbugs.messages.MessageBusManager;
 import org.jetbrains.plugins.spotbugs.tasks.BackgroundableTask;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.*;
+import java.util.zip.GZIPInputStream;
 
 public final class ImportBugCollection extends AbstractAction {
 
 	private static final Logger LOGGER = Logger.getInstance(ImportBugCollection.class);
+	private static final int IMPORT_BUFFER_SIZE = 64 * 1024;
 
 	@Override
 	void updateImpl(
@@ -71,7 +89,7 @@ public final class ImportBugCollection extends AbstractAction {
 		final DialogBuilder dialogBuilder = new DialogBuilder(project);
 		dialogBuilder.addOkAction();
 		dialogBuilder.addCancelAction();
-		dialogBuilder.setTitle("Import previous saved bug collection xml");
+		dialogBuilder.setTitle("Import previous saved bug collection xml (optionally gzip compressed)");
 
 		final WorkspaceSettings workspaceSettings = WorkspaceSettings.getInstance(project);
 		String exportDir = StringUtil.isEmptyOrSpaces(workspaceSettings.exportBugCollectionDirectory) ? FindBugsPluginConstants.DEFAULT_EXPORT_DIR : workspaceSettings.exportBugCollectionDirectory;
@@ -81,8 +99,8 @@ public final class ImportBugCollection extends AbstractAction {
 		if (dialogBuilder.getDialogWrapper().getExitCode() == DialogWrapper.CANCEL_EXIT_CODE) {
 			return;
 		}
-		final String fileToImport = importFileDialog.getText();
-		if (fileToImport == null || fileToImport.trim().isEmpty()) {
+		final List<File> filesToImport = importFileDialog.getFiles();
+		if (filesToImport.isEmpty()) {
 			return;
 		}
 
@@ -104,10 +122,7 @@ public final class ImportBugCollection extends AbstractAction {
 		}
 
 		final AtomicBoolean taskCanceled = new AtomicBoolean();
-		final TransferToEDTQueue<Runnable> transferToEDTQueue = new TransferToEDTQueue<>("Add New Bug Instance", runnable -> {
-			runnable.run();
-			return true;
-		}, o -> project.isDisposed() || taskCanceled.get(), 500);
+		final NewBugsQueue newBugsQueue = new NewBugsQueue(project, o -> project.isDisposed() || taskCanceled.get());
 
 		//Create a task to import the bug collection from XML
 		final BackgroundableTask task = new BackgroundableTask(project, "Importing Findbugs Result", true) {
@@ -122,58 +137,33 @@ public final class ImportBugCollection extends AbstractAction {
 				setProgressIndicator(indicator);
 				indicator.setFraction(0.0);
 				indicator.setIndeterminate(false);
-				indicator.setText(fileToImport);
-				SortedBugCollection importBugCollection = null;
-				edu.umd.cs.findbugs.Project importProject = null;
+				indicator.setText(filesToImport.size() == 1 ? filesToImport.get(0).getPath() : "Importing " + filesToImport.size() + " files");
+				final FindBugsResult result = new FindBugsResult();
 				boolean success = false;
 				try {
-					final SortedBugCollection bugCollection = new SortedBugCollection();
-					importBugCollection = bugCollection.createEmptyCollectionWithMetadata();
-					importProject = importBugCollection.getProject();
-					for (final Plugin plugin : Plugin.getAllPlugins()) {
-						importProject.setPluginStatusTrinary(plugin.getPluginId(), plugin.isCorePlugin() || enabledPluginIds.contains(plugin.getPluginId()));
+					long totalBytes = 0;
+					for (final File file : filesToImport) {
+						totalBytes += file.length();
 					}
-					importBugCollection.readXML(fileToImport);
-
-					final ProjectStats projectStats = importBugCollection.getProjectStats();
-					int bugCount = 0;
-					for (final BugInstance bugInstance : importBugCollection) {
-						if (indicator.isCanceled()) {
-							taskCanceled.set(true);
-							MessageBusManager.publishAnalysisAbortedToEDT(project);
-							Thread.currentThread().interrupt();
-							return;
-						}
-						final int bugCounter = bugCount++;
-						final double fraction = (double) bugCounter / projectStats.getTotalBugs();
-						indicator.setFraction(fraction);
-						indicator.setText2("Importing bug '" + bugCount + "' of '" + projectStats.getTotalBugs() + "' - " + bugInstance.getMessageWithoutPrefix());
-						/*
-						 * Guarantee thread visibility *one* time.
-						 */
-						final AtomicReference<BugInstance> bugInstanceRef = new AtomicReference<>(bugInstance);
-						final AtomicReference<SortedBugCollection> importBugCollectionRef =
-								new AtomicReference<>(importBugCollection);
-						final int analyzedClassCount = projectStats.getNumClasses();
-						transferToEDTQueue.offer(new Runnable() {
-							/**
-							 * Invoked by EDT.
-							 */
-							@Override
-							public void run() {
-								final Bug bug = new Bug(null, importBugCollectionRef.get(), bugInstanceRef.get());
-								MessageBusManager.publishNewBug(project, bug, analyzedClassCount);
-							}
-						});
+					final ImportProgress progress = new ImportProgress(indicator, totalBytes);
+					final List<Callable<BugStore>> imports = new ArrayList<>(filesToImport.size());
+					for (final File file : filesToImport) {
+						imports.add(() -> importFile(file, enabledPluginIds, progress, newBugsQueue));
+					}
+					final List<BugStore> bugStores = invokeAll(imports);
+					for (final BugStore bugStore : bugStores) {
+						bugStore.getBugCollection().setTimestamp(System.currentTimeMillis());
+						result.put(bugStore.getBugCollection().getProject(), bugStore);
 					}
+					result.compact();
 
 					EventDispatchThreadHelper.invokeLater(() -> {
-						transferToEDTQueue.drain();
-						BalloonTipFactory.showToolWindowInfoNotifier(project, "Imported bug collection from '" + fileToImport + "'.");
+						newBugsQueue.drain();
+						BalloonTipFactory.showToolWindowInfoNotifier(project, "Imported bug collection from '" + StringUtil.join(filesToImport, File::getName, "', '") + "'.");
 					});
-
-					importBugCollection.setTimestamp(System.currentTimeMillis());
 					success = true;
+				} catch (final ProcessCanceledException ignored) {
+					taskCanceled.set(true);
 				} catch (final IOException | DocumentException e1) {
 					final String message = "Import failed";
 					showToolWindowErrorNotifier(project, message);
@@ -181,12 +171,19 @@ public final class ImportBugCollection extends AbstractAction {
 
 				} finally {
 					if (success) {
-						final FindBugsResult result = new FindBugsResult();
-						result.put(importProject, importBugCollection);
 						MessageBusManager.publishAnalysisFinishedToEDT(project, result, null);
 						Thread.currentThread().interrupt();
 					} else {
+						// discard the pending bugs and remove the bugs already shown, they are an incomplete result
+						taskCanceled.set(true);
 						MessageBusManager.publishAnalysisAbortedToEDT(project);
+						EventDispatchThreadHelper.invokeLater(() -> {
+							final ToolWindowPanel panel = ToolWindowPanel.getInstance(project);
+							if (panel != null) {
+								panel.clear();
+							}
+							DaemonCodeAnalyzer.getInstance(project).restart();
+						});
 					}
 				}
 			}
@@ -209,6 +206,196 @@ public final class ImportBugCollection extends AbstractAction {
 		task.queue();
 	}
 
+	/**
+	 * Parses one result file. SpotBugs reads the file with a SAX parser; every {@code <BugInstance>} is handed
+	 * to the tree as soon as it is parsed, so the tree fills while the file is still being read.
+	 * Gzip-compressed files are detected by their magic number.
+	 */
+	@NotNull
+	private static BugStore importFile(
+			@NotNull final File file,
+			@NotNull final Set<String> enabledPluginIds,
+			@NotNull final ImportProgress progress,
+			@NotNull final NewBugsQueue newBugsQueue
+	) throws IOException, DocumentException {
+
+		final StreamingBugCollection bugCollection = new StreamingBugCollection(progress, newBugsQueue);
+		final edu.umd.cs.findbugs.Project importProject = bugCollection.getProject();
+		for (final Plugin plugin : Plugin.getAllPlugins()) {
+			importProject.setPluginStatusTrinary(plugin.getPluginId(), plugin.isCorePlugin() || enabledPluginIds.contains(plugin.getPluginId()));
+		}
+		importProject.setCurrentWorkingDirectory(file.getParentFile());
+
+		InputStream in = new BufferedInputStream(new ProgressInputStream(new FileInputStream(file), progress), IMPORT_BUFFER_SIZE);
+		try {
+			if (isGzip(in)) {
+				in = new GZIPInputStream(in, IMPORT_BUFFER_SIZE);
+			}
+			bugCollection.readXML(in, file);
+		} finally {
+			IoUtil.safeClose(in);
+		}
+		return bugCollection.bugStore;
+	}
+
+	private static boolean isGzip(@NotNull final InputStream in) throws IOException {
+		in.mark(2);
+		try {
+			return in.read() == (GZIPInputStream.GZIP_MAGIC & 0xff) && in.read() == (GZIPInputStream.GZIP_MAGIC >> 8);
+		} finally {
+			in.reset();
+		}
+	}
+
+	/**
+	 * Runs the given imports, each file on its own worker thread of a bounded pool.
+	 *
+	 * @return the bug stores of the imported collections in the order of {@code imports}
+	 */
+	@NotNull
+	private static List<BugStore> invokeAll(@NotNull final List<Callable<BugStore>> imports) throws IOException, DocumentException {
+		if (imports.size() == 1) {
+			try {
+				return Collections.singletonList(imports.get(0).call());
+			} catch (final IOException | DocumentException | RuntimeException e) {
+				throw e;
+			} catch (final Exception e) {
+				throw ErrorUtil.toUnchecked(e);
+			}
+		}
+		final int threadCount = Math.min(imports.size(), Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("SpotBugs Import", threadCount);
+		try {
+			final List<Future<BugStore>> futures = new ArrayList<>(imports.size());
+			for (final Callable<BugStore> task : imports) {
+				futures.add(executor.submit(task));
+			}
+			final List<BugStore> ret = new ArrayList<>(imports.size());
+			for (final Future<BugStore> future : futures) {
+				try {
+					ret.add(future.get());
+				} catch (final ExecutionException e) {
+					final Throwable cause = e.getCause();
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					}
+					if (cause instanceof DocumentException) {
+						throw (DocumentException) cause;
+					}
+					throw ErrorUtil.toUnchecked(cause);
+				}
+			}
+			return ret;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ProcessCanceledException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Publishes each bug added by the SAX parser. The bugs are only kept by the bug store, like the result of
+	 * {@link #createEmptyCollectionWithMetadata()} this collection holds the metadata of the file only.
+	 */
+	private static final class StreamingBugCollection extends SortedBugCollection {
+
+		@NotNull
+		private final transient ImportProgress progress;
+
+		@NotNull
+		private final transient NewBugsQueue newBugsQueue;
+
+		@NotNull
+		private final transient BugStore bugStore;
+
+		StreamingBugCollection(@NotNull final ImportProgress progress, @NotNull final NewBugsQueue newBugsQueue) {
+			this.progress = progress;
+			this.newBugsQueue = newBugsQueue;
+			this.bugStore = new BugStore(this);
+		}
+
+		@Override
+		public boolean add(@NotNull final BugInstance bugInstance, final boolean updateActiveTime) {
+			progress.checkCanceled();
+			progress.bugImported();
+			if (!bugInstance.isDead()) { // like SortedBugCollection.add
+				getProjectStats().addBug(bugInstance);
+			}
+			newBugsQueue.offer(new Bug(null, bugStore, bugStore.add(bugInstance)), getProjectStats().getNumClasses());
+			return true;
+		}
+	}
+
+	private static final class ImportProgress {
+
+		@NotNull
+		private final ProgressIndicator indicator;
+		private final long totalBytes;
+		private final AtomicLong bytesRead = new AtomicLong();
+		private final AtomicInteger bugCount = new AtomicInteger();
+
+		ImportProgress(@NotNull final ProgressIndicator indicator, final long totalBytes) {
+			this.indicator = indicator;
+			this.totalBytes = totalBytes;
+		}
+
+		void checkCanceled() {
+			indicator.checkCanceled();
+		}
+
+		void bytesRead(final long count) {
+			final long read = bytesRead.addAndGet(count);
+			if (totalBytes > 0) {
+				indicator.setFraction(Math.min(1.0, (double) read / totalBytes));
+			}
+		}
+
+		void bugImported() {
+			indicator.setText2("Imported " + bugCount.incrementAndGet() + " bugs");
+		}
+	}
+
+	/**
+	 * Reports the number of (compressed) bytes read to {@link ImportProgress}.
+	 */
+	private static final class ProgressInputStream extends FilterInputStream {
+
+		@NotNull
+		private final ImportProgress progress;
+
+		ProgressInputStream(@NotNull final InputStream in, @NotNull final ImportProgress progress) {
+			super(in);
+			this.progress = progress;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int ret = super.read();
+			if (ret != -1) {
+				progress.bytesRead(1);
+			}
+			return ret;
+		}
+
+		@Override
+		public int read(@NotNull final byte[] b, final int off, final int len) throws IOException {
+			progress.checkCanceled();
+			final int ret = super.read(b, off, len);
+			if (ret > 0) {
+				progress.bytesRead(ret);
+			}
+			return ret;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			final long ret = super.skip(n);
+			progress.bytesRead(ret);
+			return ret;
+		}
+	}
+
 	private static void showToolWindowErrorNotifier(@NotNull final Project project, final String message) {
 		EventDispatchThreadHelper.invokeLater(() -> BalloonTipFactory.showToolWindowErrorNotifier(project, message));
 	}
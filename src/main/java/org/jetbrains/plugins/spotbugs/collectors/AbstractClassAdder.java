@@ -38,6 +38,12 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.spotbugs.common.FindBugsPluginConstants;
 import org.jetbrains.plugins.spotbugs.common.util.IdeaUtilImpl;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
 public abstract class AbstractClassAdder {
 
 	private static final Logger LOGGER = Logger.getInstance(AbstractClassAdder.class.getName());
@@ -50,14 +56,41 @@ public abstract class AbstractClassAdder {
 	@NotNull
 	private final ProjectFileIndex fileIndex;
 
+	/**
+	 * Compiler output path by module, for production and test sources.
+	 */
+	private final Map<Module, Optional<VirtualFile>> _outputPaths;
+	private final Map<Module, Optional<VirtualFile>> _testOutputPaths;
+
+	/**
+	 * Sorted class file names by output package directory; each directory is listed only once.
+	 */
+	private final Map<String, String[]> _classFileNames;
+
 	AbstractClassAdder(@NotNull final Project project) {
 		_project = project;
 		_psiManager = PsiManager.getInstance(_project);
 		fileIndex = ProjectRootManager.getInstance(project).getFileIndex();
+		_outputPaths = new HashMap<>();
+		_testOutputPaths = new HashMap<>();
+		_classFileNames = new HashMap<>();
 	}
 
+	/**
+	 * @param fqp     full qualified path of the class file without {@link #CLASS_FILE_SUFFIX}
+	 * @param element the PSI class of the class file; if {@link #isPsiElementRequired()} is false
+	 *                the top level class containing it
+	 */
 	abstract void put(@NotNull final String fqp, @NotNull final PsiElement element);
 
+	/**
+	 * If false, the inner, local and anonymous classes of a file are taken from its output directory
+	 * ({@code Outer$*.class}) instead of being matched to their PSI elements, which needs a walk of the PSI tree.
+	 */
+	boolean isPsiElementRequired() {
+		return true;
+	}
+
 	public final void addContainingClasses(@NotNull final VirtualFile virtualFile) {
 
 		final PsiFile psiFile = _psiManager.findFile(virtualFile);
@@ -65,20 +98,74 @@ public abstract class AbstractClassAdder {
 		if (psiFile instanceof PsiClassOwner) {
 			final PsiClassOwner psiClassOwner = (PsiClassOwner) psiFile;
 			final PsiClass[] psiClasses = psiClassOwner.getClasses();
+			if (psiClasses.length == 0) {
+				return;
+			}
+			final VirtualFile compilerOutputPath = getCompilerOutputPath(virtualFile);
+			if (compilerOutputPath == null) {
+				return;
+			}
 
 			for (final PsiClass psiClass : psiClasses) {
-				final VirtualFile compilerOutputPath = getCompilerOutputPath(virtualFile);
-				if (compilerOutputPath == null) {
-					continue;
-				}
 				final String fqp = buildFullQualifiedPath(compilerOutputPath.getPresentableUrl(), psiClass);
-				put(fqp, psiClass);
-				addAnonymousClasses(psiClass, fqp);
-				addInnerClasses(psiClass, fqp);
+				if (isPsiElementRequired()) {
+					put(fqp, psiClass);
+					addAnonymousClasses(psiClass, fqp);
+					addInnerClasses(psiClass, fqp);
+				} else {
+					addClassFiles(fqp, psiClass);
+				}
 			}
 		}
 	}
 
+	/**
+	 * Puts the class file of the top level class {@code fqp} and all class files of its nested classes.
+	 */
+	private void addClassFiles(@NotNull final String fqp, @NotNull final PsiClass psiClass) {
+		final int separator = fqp.lastIndexOf(FindBugsPluginConstants.FILE_SEPARATOR);
+		final String directory = fqp.substring(0, separator);
+		final String className = fqp.substring(separator + 1);
+		final String[] names = getClassFileNames(directory);
+
+		if (Arrays.binarySearch(names, className + CLASS_FILE_SUFFIX) >= 0) {
+			put(fqp, psiClass);
+		}
+		final String nestedPrefix = className + ANONYMOUS_CLASS_DELIMITER;
+		int i = Arrays.binarySearch(names, nestedPrefix);
+		if (i < 0) {
+			i = -i - 1;
+		}
+		for (; i < names.length && names[i].startsWith(nestedPrefix); i++) {
+			final String name = names[i];
+			put(directory + FindBugsPluginConstants.FILE_SEPARATOR + name.substring(0, name.length() - CLASS_FILE_SUFFIX.length()), psiClass);
+		}
+	}
+
+	/**
+	 * @param fqp full qualified path of a class file without {@link #CLASS_FILE_SUFFIX}
+	 * @return true if the class file exists; answered from the (cached) listing of its directory
+	 */
+	final boolean isClassFile(@NotNull final String fqp) {
+		final int separator = fqp.lastIndexOf(FindBugsPluginConstants.FILE_SEPARATOR);
+		final String[] names = getClassFileNames(fqp.substring(0, separator));
+		return Arrays.binarySearch(names, fqp.substring(separator + 1) + CLASS_FILE_SUFFIX) >= 0;
+	}
+
+	@NotNull
+	private String[] getClassFileNames(@NotNull final String directory) {
+		String[] ret = _classFileNames.get(directory);
+		if (ret == null) {
+			ret = new File(directory).list((dir, name) -> name.endsWith(CLASS_FILE_SUFFIX));
+			if (ret == null) {
+				ret = new String[0];
+			}
+			Arrays.sort(ret);
+			_classFileNames.put(directory, ret);
+		}
+		return ret;
+	}
+
 	// analyze class under cursor
 	public final void addContainingClasses(@NotNull final VirtualFile virtualFile, @NotNull final PsiClass selectedPsiClass) {
 		final PsiFile psiFile = _psiManager.findFile(virtualFile);
@@ -221,15 +308,18 @@ public abstract class AbstractClassAdder {
 		if (module == null) {
 			return null;
 		}
-		final CompilerModuleExtension compilerModuleExtension = CompilerModuleExtension.getInstance(module);
-		if (compilerModuleExtension != null) {
-			if (fileIndex.isInTestSourceContent(virtualFile)) {
-				return compilerModuleExtension.getCompilerOutputPathForTests();
-			} else {
-				return compilerModuleExtension.getCompilerOutputPath();
+		final boolean test = fileIndex.isInTestSourceContent(virtualFile);
+		return (test ? _testOutputPaths : _outputPaths).computeIfAbsent(module, m -> {
+			final CompilerModuleExtension compilerModuleExtension = CompilerModuleExtension.getInstance(m);
+			if (compilerModuleExtension != null) {
+				if (test) {
+					return Optional.ofNullable(compilerModuleExtension.getCompilerOutputPathForTests());
+				} else {
+					return Optional.ofNullable(compilerModuleExtension.getCompilerOutputPath());
+				}
 			}
-		}
-		return null;
+			return Optional.empty();
+		}).orElse(null);
 	}
 
 	/*public static String getParentClassNotation(final PsiClass psiClass) {
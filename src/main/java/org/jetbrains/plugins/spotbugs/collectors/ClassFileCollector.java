@@ -0,0 +1,268 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.collectors;
+
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.util.IdeaUtilImpl;
+import org.jetbrains.plugins.spotbugs.core.FindBugsProject;
+import org.jetbrains.plugins.spotbugs.core.FindBugsState;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Collects the class files below compiler output directories and adds them to their {@link FindBugsProject}s.
+ * Every directory is listed by its own {@link DirectoryTask} on a fork/join pool, so deep and wide package
+ * trees are split evenly across the threads. A root shared by several projects is walked once, and the files
+ * below a nested root belong to the projects of both roots. Cancellation is checked every {@link #CHECK_INTERVAL}
+ * visited entries and progress is updated at most every {@link #PROGRESS_INTERVAL_MILLIS} ms.
+ * <p>
+ * Usage: {@link #add(FindBugsProject, File)} all roots, then {@link #collect()} once.
+ */
+public final class ClassFileCollector {
+
+	private static final Logger LOGGER = Logger.getInstance(ClassFileCollector.class);
+	private static final int CHECK_INTERVAL = 256;
+	private static final long PROGRESS_INTERVAL_MILLIS = 100;
+
+	@NotNull
+	private final Project _project;
+
+	@NotNull
+	private final ProgressIndicator _indicator;
+
+	@NotNull
+	private final Map<File, List<FindBugsProject>> _roots;
+
+	private final AtomicInteger _count;
+	private final AtomicInteger _visited;
+	private final AtomicLong _lastProgressUpdate;
+	private volatile boolean _canceled;
+
+
+	public ClassFileCollector(@NotNull final Project project, @NotNull final ProgressIndicator indicator) {
+		_project = project;
+		_indicator = indicator;
+		_roots = new LinkedHashMap<>();
+		_count = new AtomicInteger();
+		_visited = new AtomicInteger();
+		_lastProgressUpdate = new AtomicLong();
+	}
+
+
+	public void add(@NotNull final FindBugsProject findBugsProject, @NotNull final File classesDir) {
+		if (classesDir.isDirectory()) {
+			final List<FindBugsProject> projects = _roots.computeIfAbsent(classesDir, k -> new ArrayList<>(1));
+			if (!projects.contains(findBugsProject)) {
+				projects.add(findBugsProject);
+			}
+		}
+	}
+
+
+	/**
+	 * @return the number of collected files
+	 * @throws ProcessCanceledException if the indicator was canceled or the analysis is aborting
+	 */
+	public int collect() {
+		final Map<FindBugsProject, List<String>> filesByProject = new LinkedHashMap<>();
+		if (!_roots.isEmpty()) {
+			final ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+			try {
+				final Map<File, ForkJoinTask<List<String>>> tasks = new LinkedHashMap<>();
+				for (final File root : _roots.keySet()) {
+					final Path dir = root.toPath();
+					final Object key = getDirectoryKey(dir, null);
+					if (key != null) {
+						final Set<Object> walkedDirs = ConcurrentHashMap.newKeySet();
+						walkedDirs.add(key);
+						tasks.put(root, pool.submit(new DirectoryTask(dir, walkedDirs)));
+					}
+				}
+				for (final Map.Entry<File, ForkJoinTask<List<String>>> task : tasks.entrySet()) {
+					final List<String> files = task.getValue().get();
+					for (final FindBugsProject findBugsProject : _roots.get(task.getKey())) {
+						// FindBugsProject.addFiles skips the files of a nested root which the project already has
+						filesByProject.computeIfAbsent(findBugsProject, k -> new ArrayList<>()).addAll(files);
+					}
+				}
+			} catch (final ExecutionException e) {
+				_canceled = true;
+				final Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException(cause);
+			} catch (final InterruptedException e) {
+				_canceled = true;
+				Thread.currentThread().interrupt();
+				throw new ProcessCanceledException(e);
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+		checkCanceled();
+
+		for (final Map.Entry<FindBugsProject, List<String>> entry : filesByProject.entrySet()) {
+			entry.getKey().addFiles(entry.getValue());
+		}
+		_indicator.setText2("Files collected: " + _count.get());
+		return _count.get();
+	}
+
+
+	private void checkCanceled() {
+		if (_canceled || _indicator.isCanceled() || FindBugsState.get(_project).isAborting()) {
+			_canceled = true;
+			throw new ProcessCanceledException();
+		}
+	}
+
+
+	/**
+	 * @return false if the walk should stop
+	 */
+	private boolean visited() {
+		if (_visited.incrementAndGet() % CHECK_INTERVAL == 0) {
+			if (_canceled || _indicator.isCanceled() || FindBugsState.get(_project).isAborting()) {
+				_canceled = true;
+			}
+		}
+		return !_canceled;
+	}
+
+
+	private void fileCollected() {
+		final int count = _count.incrementAndGet();
+		final long now = System.currentTimeMillis();
+		final long last = _lastProgressUpdate.get();
+		if (now - last >= PROGRESS_INTERVAL_MILLIS && _lastProgressUpdate.compareAndSet(last, now)) {
+			_indicator.setText2("Files collected: " + count);
+		}
+	}
+
+
+	/**
+	 * @param attrs the attributes of {@code dir} if already read
+	 * @return the file key of {@code dir}, its real path if the file system has no file keys,
+	 * {@code null} if it could not be read
+	 */
+	@Nullable
+	private static Object getDirectoryKey(@NotNull final Path dir, @Nullable final BasicFileAttributes attrs) {
+		try {
+			final Object fileKey = (attrs != null ? attrs : Files.readAttributes(dir, BasicFileAttributes.class)).fileKey();
+			return fileKey != null ? fileKey : dir.toRealPath();
+		} catch (final IOException e) {
+			LOGGER.warn("Could not read " + dir, e);
+			return null;
+		}
+	}
+
+
+	/**
+	 * Collects the class files of one directory and forks a task for each of its sub directories.
+	 */
+	private final class DirectoryTask extends RecursiveTask<List<String>> {
+
+		@NotNull
+		private final Path _dir;
+
+		/**
+		 * File keys (or real paths) of the directories walked below the root, so that symbolic links neither loop
+		 * nor collect a directory twice.
+		 */
+		@NotNull
+		private final Set<Object> _walkedDirs;
+
+
+		private DirectoryTask(@NotNull final Path dir, @NotNull final Set<Object> walkedDirs) {
+			_dir = dir;
+			_walkedDirs = walkedDirs;
+		}
+
+
+		@Override
+		protected List<String> compute() {
+			final List<String> files = new ArrayList<>();
+			final List<DirectoryTask> subTasks = new ArrayList<>();
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(_dir)) {
+				for (final Path entry : entries) {
+					if (!visited()) {
+						break;
+					}
+					final BasicFileAttributes attrs;
+					try {
+						attrs = Files.readAttributes(entry, BasicFileAttributes.class); // follows links
+					} catch (final IOException ignored) {
+						// e.g. a dangling symbolic link; File.listFiles silently ignored unreadable entries too
+						continue;
+					}
+					if (attrs.isDirectory()) {
+						final Object key = getDirectoryKey(entry, attrs);
+						if (key != null && _walkedDirs.add(key)) {
+							final DirectoryTask subTask = new DirectoryTask(entry, _walkedDirs);
+							subTask.fork();
+							subTasks.add(subTask);
+						}
+					} else if (attrs.isRegularFile()) {
+						final FileType type = IdeaUtilImpl.getFileTypeByName(entry.getFileName().toString());
+						if (IdeaUtilImpl.isValidFileType(type)) {
+							files.add(entry.toAbsolutePath().toString());
+							fileCollected();
+						}
+					}
+				}
+			} catch (final IOException e) {
+				LOGGER.warn("Could not collect class files in " + _dir, e);
+			}
+			for (final DirectoryTask subTask : subTasks) {
+				files.addAll(subTask.join());
+			}
+			return files;
+		}
+	}
+}
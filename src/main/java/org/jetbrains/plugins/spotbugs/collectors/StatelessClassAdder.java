@@ -26,7 +26,6 @@ import com.intellij.psi.PsiElement;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.core.FindBugsProject;
 
-import java.io.File;
 
 
 /**
@@ -46,10 +45,16 @@ public final class StatelessClassAdder extends AbstractClassAdder {
 	}
 
 
+	@Override
+	boolean isPsiElementRequired() {
+		return false;
+	}
+
+
 	@Override
 	void put(@NotNull final String fqp, @NotNull final PsiElement element) {
 		final String fqn = fqp + CLASS_FILE_SUFFIX;
-		if (new File(fqn).exists()) {
+		if (isClassFile(fqp)) {
 			_findBugsProject.addFile(fqn);
 			LOGGER.debug("adding class file: " + fqn);
 		} else {
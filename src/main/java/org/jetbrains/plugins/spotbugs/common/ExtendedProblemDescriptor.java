@@ -25,22 +25,30 @@ import com.intellij.codeInspection.QuickFix;
 import com.intellij.debugger.impl.DebuggerUtilsEx;
 import com.intellij.lang.annotation.ProblemGroup;
 import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
-import edu.umd.cs.findbugs.MethodAnnotation;
+import com.intellij.psi.PsiManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.jetbrains.plugins.spotbugs.common.util.BugInstanceUtil;
 import org.jetbrains.plugins.spotbugs.common.util.IdeaUtilImpl;
 import org.jetbrains.plugins.spotbugs.core.Bug;
 
+/**
+ * The problem of a bug in a file. The descriptor does not keep the PSI of the file alive: the {@code PsiFile}
+ * is looked up when needed and the problem element is only cached until {@link #clearPsiElement()}.
+ */
 public class ExtendedProblemDescriptor implements ProblemDescriptor, ProblemGroup {
 
 	@NotNull
-	private final PsiFile psiFile;
+	private final Project project;
+
+	@NotNull
+	private final VirtualFile virtualFile;
 
-	private PsiElement psiElement;
+	private volatile PsiElement psiElement;
 
 	/**
 	 * This is the line as reported by FindBugs, rather than that computed by IDEA.
@@ -53,9 +61,15 @@ public class ExtendedProblemDescriptor implements ProblemDescriptor, ProblemGrou
 
 
 	public ExtendedProblemDescriptor(@NotNull final PsiFile psiFile, @NotNull final Bug bug) {
-		this.psiFile = psiFile;
+		this(psiFile.getProject(), psiFile.getViewProvider().getVirtualFile(), bug);
+	}
+
+
+	public ExtendedProblemDescriptor(@NotNull final Project project, @NotNull final VirtualFile virtualFile, @NotNull final Bug bug) {
+		this.project = project;
+		this.virtualFile = virtualFile;
 		this.bug = bug;
-		final int[] lines = BugInstanceUtil.getSourceLines(this.bug.getInstance());
+		final int[] lines = bug.getSourceLines();
 		lineStart = lines[0] - 1;
 		lineEnd = lines[1];
 	}
@@ -107,9 +121,14 @@ public class ExtendedProblemDescriptor implements ProblemDescriptor, ProblemGrou
 
 	@Override
 	public PsiElement getPsiElement() {
-		if (psiElement != null) {
+		PsiElement psiElement = this.psiElement;
+		if (psiElement != null && psiElement.isValid()) {
 			return psiElement;
 		}
+		final PsiFile psiFile = getPsiFile();
+		if (psiFile == null) {
+			return null;
+		}
 		if (lineStart == 0 && lineEnd == 1) {
 			psiElement = IdeaUtilImpl.findPsiElement(psiFile, bug.getInstance(), psiFile.getProject());
 		} else if (lineStart < 0) {
@@ -117,13 +136,21 @@ public class ExtendedProblemDescriptor implements ProblemDescriptor, ProblemGrou
 		} else {
 			psiElement = IdeaUtilImpl.getElementAtLine(psiFile, lineStart);
 		}
-		final MethodAnnotation primaryMethod = BugInstanceUtil.getPrimaryMethod(bug.getInstance());
-		if (primaryMethod != null && DebuggerUtilsEx.isLambdaName(primaryMethod.getMethodName())) {
+		final String methodName = bug.getMethodName();
+		if (methodName != null && DebuggerUtilsEx.isLambdaName(methodName)) {
 			psiElement = IdeaUtilImpl.findOnlyLambdaExpressionOrPsiElement(psiElement);
 		}
+		this.psiElement = psiElement;
 		return psiElement;
 	}
 
+	/**
+	 * Forgets the problem element, it is resolved again by the next {@link #getPsiElement()}.
+	 */
+	public void clearPsiElement() {
+		psiElement = null;
+	}
+
 	@Override
 	public PsiElement getStartElement() {
 		return getPsiElement();
@@ -152,8 +179,16 @@ public class ExtendedProblemDescriptor implements ProblemDescriptor, ProblemGrou
 		return null;
 	}
 
-	@NotNull
+	/**
+	 * @return the file, {@code null} if it was deleted
+	 */
+	@Nullable
 	public PsiFile getPsiFile() {
-		return psiFile;
+		return virtualFile.isValid() ? PsiManager.getInstance(project).findFile(virtualFile) : null;
+	}
+
+	@NotNull
+	public VirtualFile getVirtualFile() {
+		return virtualFile;
 	}
 }
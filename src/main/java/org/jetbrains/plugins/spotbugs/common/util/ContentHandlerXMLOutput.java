@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.common.util;
+
+import edu.umd.cs.findbugs.xml.XMLAttributeList;
+import edu.umd.cs.findbugs.xml.XMLOutput;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Forwards the output of {@link edu.umd.cs.findbugs.BugCollection#writeXML(XMLOutput)} as SAX events to a
+ * {@link ContentHandler}, e.g. a {@link javax.xml.transform.sax.TransformerHandler}. Unlike
+ * {@link edu.umd.cs.findbugs.BugCollection#toDocument()} no dom4j document is built; whether the whole document
+ * is held in memory depends on the handler (an XSLT transformer builds its own source tree).
+ */
+public final class ContentHandlerXMLOutput implements XMLOutput {
+
+	private static final String NO_NAMESPACE = "";
+
+	@NotNull
+	private final ContentHandler handler;
+
+	@Nullable
+	private String pendingTag;
+
+	@NotNull
+	private final AttributesImpl pendingAttributes = new AttributesImpl();
+
+
+	public ContentHandlerXMLOutput(@NotNull final ContentHandler handler) {
+		this.handler = handler;
+	}
+
+	@Override
+	public void beginDocument() throws IOException {
+		try {
+			handler.startDocument();
+		} catch (final SAXException e) {
+			throw toIOException(e);
+		}
+	}
+
+	@Override
+	public void openTag(@NotNull final String tagName) throws IOException {
+		startTag(tagName);
+		stopTag(false);
+	}
+
+	@Override
+	public void openTag(@NotNull final String tagName, @NotNull final XMLAttributeList attributeList) throws IOException {
+		startTag(tagName);
+		addAttributes(attributeList);
+		stopTag(false);
+	}
+
+	@Override
+	public void startTag(@NotNull final String tagName) {
+		pendingTag = tagName;
+		pendingAttributes.clear();
+	}
+
+	@Override
+	public void addAttribute(@NotNull final String name, @Nullable final String value) {
+		pendingAttributes.addAttribute(NO_NAMESPACE, name, name, "CDATA", value != null ? value : "");
+	}
+
+	@Override
+	public void stopTag(final boolean close) throws IOException {
+		final String tagName = pendingTag;
+		if (tagName == null) {
+			throw new IllegalStateException("stopTag without startTag");
+		}
+		pendingTag = null;
+		try {
+			handler.startElement(NO_NAMESPACE, tagName, tagName, pendingAttributes);
+			if (close) {
+				handler.endElement(NO_NAMESPACE, tagName, tagName);
+			}
+		} catch (final SAXException e) {
+			throw toIOException(e);
+		}
+	}
+
+	@Override
+	public void openCloseTag(@NotNull final String tagName) throws IOException {
+		startTag(tagName);
+		stopTag(true);
+	}
+
+	@Override
+	public void openCloseTag(@NotNull final String tagName, @NotNull final XMLAttributeList attributeList) throws IOException {
+		startTag(tagName);
+		addAttributes(attributeList);
+		stopTag(true);
+	}
+
+	@Override
+	public void closeTag(@NotNull final String tagName) throws IOException {
+		try {
+			handler.endElement(NO_NAMESPACE, tagName, tagName);
+		} catch (final SAXException e) {
+			throw toIOException(e);
+		}
+	}
+
+	@Override
+	public void writeText(@Nullable final String text) throws IOException {
+		if (text == null || text.isEmpty()) {
+			return;
+		}
+		try {
+			handler.characters(text.toCharArray(), 0, text.length());
+		} catch (final SAXException e) {
+			throw toIOException(e);
+		}
+	}
+
+	@Override
+	public void writeCDATA(@Nullable final String cdata) throws IOException {
+		writeText(cdata);
+	}
+
+	@Override
+	public void finish() throws IOException {
+		try {
+			handler.endDocument();
+		} catch (final SAXException e) {
+			throw toIOException(e);
+		}
+	}
+
+	private void addAttributes(@NotNull final XMLAttributeList attributeList) {
+		final Iterator<XMLAttributeList.NameValuePair> it = attributeList.iterator();
+		while (it.hasNext()) {
+			final XMLAttributeList.NameValuePair pair = it.next();
+			addAttribute(pair.getName(), pair.getValue());
+		}
+	}
+
+	@NotNull
+	private static IOException toIOException(@NotNull final SAXException e) {
+		final Exception cause = e.getException();
+		if (cause instanceof IOException) {
+			return (IOException) cause;
+		}
+		return new IOException(e);
+	}
+}
@@ -159,8 +159,7 @@ public final class GuiUtil {
 	@edu.umd.cs.findbugs.annotations.SuppressFBWarnings({"DB_DUPLICATE_SWITCH_CLAUSES"})
 	@Nullable
 	public static Icon getTinyIcon(final ExtendedProblemDescriptor problemDescriptor) {
-		final BugInstance bugInstance = problemDescriptor.getBug().getInstance();
-		final int priority = bugInstance.getPriority();
+		final int priority = problemDescriptor.getBug().getKey().getPriority();
 		final Icon icon;
 		switch (priority) {
 			case Detector.HIGH_PRIORITY:
@@ -188,8 +187,7 @@ public final class GuiUtil {
 	@edu.umd.cs.findbugs.annotations.SuppressFBWarnings({"DB_DUPLICATE_SWITCH_CLAUSES"})
 	@Nullable
 	public static Icon getCombinedIcon(final ExtendedProblemDescriptor problemDescriptor) {
-		final BugInstance bugInstance = problemDescriptor.getBug().getInstance();
-		final int priority = bugInstance.getPriority();
+		final int priority = problemDescriptor.getBug().getKey().getPriority();
 		final Icon icon;
 		switch (priority) {
 			case Detector.HIGH_PRIORITY:
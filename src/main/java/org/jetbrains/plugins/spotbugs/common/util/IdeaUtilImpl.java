@@ -428,8 +428,7 @@ public final class IdeaUtilImpl {
 
 	@Nullable
 	private static PsiFile getPsiFile(@NotNull final Project project, @NotNull final ExtendedProblemDescriptor problem) {
-		final PsiFile file = problem.getPsiFile();
-		return PsiManager.getInstance(project).findFile(file.getVirtualFile());
+		return problem.getPsiFile();
 	}
 
 
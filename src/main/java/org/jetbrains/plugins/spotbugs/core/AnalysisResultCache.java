@@ -0,0 +1,594 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.ClassAnnotation;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.dom4j.DocumentException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.util.FileUtilFb;
+import org.jetbrains.plugins.spotbugs.common.util.WithPluginClassloader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * On-disk cache of the bugs found per class of one module (see {@link WorkspaceSettings#incrementalAnalysis}).
+ * <p>
+ * A class is "unchanged" if the SHA-1 of its class file is equal to the cached one, the SHA-1 of the classes it
+ * references in the dependency directories (the output directories of other modules) did not change, and the
+ * fingerprint of the settings ({@link SettingsFingerprint}) and of the archives of the aux classpath did not change.
+ * So recompiling a module only affects the cached classes of the modules which reference a changed class.
+ * The cache also keeps size and modification time of each class file; only class files whose stamp
+ * differs are read and hashed again, e.g. classes recompiled by a rebuild to the same content.
+ * Unchanged classes are removed from the {@link FindBugsProject} and their cached bugs are reported instead.
+ * <p>
+ * Note that this is an approximation: SpotBugs analyzes the classes of a module together, so a changed class
+ * can in rare cases affect the result of an unchanged class in the same module.
+ */
+final class AnalysisResultCache {
+
+	private static final Logger LOGGER = Logger.getInstance(AnalysisResultCache.class);
+
+	private static final String FINGERPRINT_KEY = "#fingerprint";
+	private static final String DEPENDENCY_KEY_PREFIX = "#dependency:";
+	private static final String CLASS_FILE_SUFFIX = ".class";
+
+	@NotNull
+	private final File bugsFile;
+
+	@NotNull
+	private final File indexFile;
+
+	@NotNull
+	private final String fingerprint;
+
+	/**
+	 * Class name to class file of the classes to analyze.
+	 */
+	@NotNull
+	private final Map<String, String> fileByClass;
+
+	/**
+	 * Class name to class file state of the classes to analyze.
+	 */
+	@NotNull
+	private final Map<String, ClassFileState> stateByClass;
+
+	/**
+	 * Class name to class file state of the cache (empty if the fingerprint does not match).
+	 */
+	@NotNull
+	private final Map<String, ClassFileState> cachedStateByClass;
+
+	@NotNull
+	private final List<BugInstance> cachedBugs;
+
+	@NotNull
+	private final List<String> roots;
+
+	@NotNull
+	private final List<File> dependencyDirs;
+
+	/**
+	 * Class name to class file state of the referenced classes in {@link #dependencyDirs},
+	 * {@code null} for a class which is not in one of them.
+	 */
+	@NotNull
+	private final Map<String, ClassFileState> dependencyStateByClass;
+
+	/**
+	 * Class name to class file state of the referenced classes of the cache (empty if the fingerprint does not match).
+	 */
+	@NotNull
+	private final Map<String, ClassFileState> cachedDependencyStateByClass;
+
+	/**
+	 * Package name to the {@link #dependencyDirs} which have a directory of the package.
+	 */
+	@NotNull
+	private final Map<String, List<File>> dependencyDirsByPackage;
+
+	private AnalysisResultCache(
+			@NotNull final File bugsFile,
+			@NotNull final File indexFile,
+			@NotNull final String fingerprint,
+			@NotNull final List<String> roots,
+			@NotNull final List<String> dependencyDirs
+	) {
+		this.bugsFile = bugsFile;
+		this.indexFile = indexFile;
+		this.fingerprint = fingerprint;
+		this.roots = roots;
+		this.dependencyDirs = new ArrayList<>(dependencyDirs.size());
+		for (final String dependencyDir : dependencyDirs) {
+			this.dependencyDirs.add(new File(dependencyDir));
+		}
+		fileByClass = new HashMap<>();
+		stateByClass = new HashMap<>();
+		cachedStateByClass = new HashMap<>();
+		cachedBugs = new ArrayList<>();
+		dependencyStateByClass = new HashMap<>();
+		cachedDependencyStateByClass = new HashMap<>();
+		dependencyDirsByPackage = new HashMap<>();
+	}
+
+	@NotNull
+	static AnalysisResultCache load(
+			@NotNull final Project project,
+			@NotNull final FindBugsProject findBugsProject,
+			@NotNull final AbstractSettings settings
+	) {
+		final File dir = new File(PathManager.getSystemPath(), "spotbugs-idea/results/" + project.getLocationHash());
+		final String name = FileUtil.sanitizeFileName(findBugsProject.getModule().getName());
+
+		final List<String> files = findBugsProject.getFileList();
+		final List<String> roots = new ArrayList<>();
+		final List<String> dependencyDirs = new ArrayList<>();
+		final List<String> dependencies = new ArrayList<>();
+		for (final String entry : findBugsProject.getAuxClasspathEntryList()) {
+			final String root = FileUtil.toSystemIndependentName(entry) + "/";
+			boolean isRoot = false;
+			for (final String file : files) {
+				if (FileUtil.toSystemIndependentName(file).startsWith(root)) {
+					isRoot = true;
+					break;
+				}
+			}
+			if (isRoot) {
+				roots.add(root);
+			} else if (new File(entry).isDirectory()) {
+				dependencyDirs.add(entry);
+			} else {
+				dependencies.add(entry);
+			}
+		}
+
+		final String fingerprint = SettingsFingerprint.sha1(SettingsFingerprint.of(settings) + '\n' +
+				SettingsFingerprint.ofLoadedPlugins() + '\n' + fingerprintOfClasspath(dependencies, dependencyDirs));
+
+		return load(new File(dir, name + ".xml"), new File(dir, name + ".index"), fingerprint, roots, dependencyDirs, files);
+	}
+
+	/**
+	 * @param roots          the output directories of {@code files}, each with a trailing {@code /}
+	 * @param dependencyDirs the directories of the aux classpath which are not in {@code roots}, in class path order
+	 */
+	@NotNull
+	static AnalysisResultCache load(
+			@NotNull final File bugsFile,
+			@NotNull final File indexFile,
+			@NotNull final String fingerprint,
+			@NotNull final List<String> roots,
+			@NotNull final List<String> dependencyDirs,
+			@NotNull final List<String> files
+	) {
+		final AnalysisResultCache ret = new AnalysisResultCache(bugsFile, indexFile, fingerprint, roots, dependencyDirs);
+		ret.read();
+		for (final String file : files) {
+			final String className = ret.getClassName(file);
+			if (className != null) {
+				try {
+					ret.stateByClass.put(className, ret.getState(className, new File(file).toPath()));
+					ret.fileByClass.put(className, file);
+				} catch (final IOException e) {
+					LOGGER.debug("Could not hash " + file, e);
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the state of {@code file} with the hash of the referenced classes in the dependency directories. The hash
+	 * and the references are taken from the cache if size and modification time of {@code file} are unchanged,
+	 * otherwise they are read from the current content.
+	 */
+	@NotNull
+	private ClassFileState getState(@NotNull final String className, @NotNull final Path file) throws IOException {
+		final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		final long length = attributes.size();
+		final long lastModified = attributes.lastModifiedTime().toMillis();
+		final ClassFileState cached = cachedStateByClass.get(className);
+		final String hash;
+		final List<String> references;
+		if (cached != null && cached.length == length && cached.lastModified == lastModified && cached.dependencies != null) {
+			hash = cached.hash;
+			references = cached.references;
+		} else {
+			final byte[] data = Files.readAllBytes(file);
+			hash = SettingsFingerprint.sha1(data);
+			references = getDependencyReferences(className, data);
+		}
+		return new ClassFileState(length, lastModified, hash, references, fingerprintOfDependencies(references));
+	}
+
+	/**
+	 * @return the sorted names of the classes in the dependency directories which are referenced by the class file
+	 */
+	@NotNull
+	private List<String> getDependencyReferences(@NotNull final String className, @NotNull final byte[] data) {
+		final Set<String> references = new HashSet<>();
+		try {
+			ClassDependencyIndex.readReferences(new ByteArrayInputStream(data), references);
+		} catch (final IOException | RuntimeException e) {
+			LOGGER.debug("Could not read references of " + className, e);
+		}
+		final List<String> ret = new ArrayList<>();
+		for (final String reference : references) {
+			if (getDependencyState(reference) != null) {
+				ret.add(reference);
+			}
+		}
+		Collections.sort(ret);
+		return ret;
+	}
+
+	@NotNull
+	private String fingerprintOfDependencies(@NotNull final List<String> references) {
+		if (references.isEmpty()) {
+			return "-";
+		}
+		final StringBuilder sb = new StringBuilder();
+		for (final String reference : references) {
+			final ClassFileState state = getDependencyState(reference);
+			sb.append(reference).append(';').append(state != null ? state.hash : "-").append('\n');
+		}
+		return SettingsFingerprint.sha1(sb.toString());
+	}
+
+	/**
+	 * @return the state of the first class file of {@code className} in the dependency directories, {@code null} if
+	 * there is none. The hash is taken from the cache if size and modification time are unchanged.
+	 */
+	@Nullable
+	private ClassFileState getDependencyState(@NotNull final String className) {
+		if (dependencyStateByClass.containsKey(className)) {
+			return dependencyStateByClass.get(className);
+		}
+		final int packageEnd = className.lastIndexOf('.');
+		final String packageName = packageEnd < 0 ? "" : className.substring(0, packageEnd);
+		final String relativePath = className.replace('.', '/') + CLASS_FILE_SUFFIX;
+		ClassFileState ret = null;
+		for (final File dependencyDir : getDependencyDirs(packageName)) {
+			final Path file = new File(dependencyDir, relativePath).toPath();
+			try {
+				final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+				final long length = attributes.size();
+				final long lastModified = attributes.lastModifiedTime().toMillis();
+				final ClassFileState cached = cachedDependencyStateByClass.get(className);
+				if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+					ret = cached;
+				} else {
+					ret = new ClassFileState(length, lastModified, SettingsFingerprint.sha1(Files.readAllBytes(file)));
+				}
+				break;
+			} catch (final NoSuchFileException ignored) {
+				// not in this directory
+			} catch (final IOException e) {
+				LOGGER.debug("Could not hash " + file, e);
+				// treat as changed
+				ret = new ClassFileState(ClassFileState.UNKNOWN, ClassFileState.UNKNOWN, String.valueOf(System.nanoTime()));
+				break;
+			}
+		}
+		dependencyStateByClass.put(className, ret);
+		return ret;
+	}
+
+	@NotNull
+	private List<File> getDependencyDirs(@NotNull final String packageName) {
+		return dependencyDirsByPackage.computeIfAbsent(packageName, name -> {
+			final List<File> ret = new ArrayList<>(1);
+			for (final File dependencyDir : dependencyDirs) {
+				if (new File(dependencyDir, name.replace('.', '/')).isDirectory()) {
+					ret.add(dependencyDir);
+				}
+			}
+			return ret;
+		});
+	}
+
+	private void read() {
+		if (!indexFile.isFile() || !bugsFile.isFile()) {
+			return;
+		}
+		final Properties index = new Properties();
+		try (final InputStream in = new FileInputStream(indexFile)) {
+			index.load(in);
+		} catch (final IOException e) {
+			LOGGER.warn("Could not read " + indexFile, e);
+			return;
+		}
+		if (!fingerprint.equals(index.getProperty(FINGERPRINT_KEY))) {
+			return;
+		}
+		final SortedBugCollection bugCollection = new SortedBugCollection();
+		try {
+			WithPluginClassloader.<Object, IOException, DocumentException>compute(() -> {
+				bugCollection.readXML(bugsFile);
+				return null;
+			});
+		} catch (final IOException | DocumentException e) {
+			LOGGER.warn("Could not read " + bugsFile, e);
+			return;
+		}
+		for (final String className : index.stringPropertyNames()) {
+			if (className.startsWith(DEPENDENCY_KEY_PREFIX)) {
+				cachedDependencyStateByClass.put(
+						className.substring(DEPENDENCY_KEY_PREFIX.length()), ClassFileState.parse(index.getProperty(className)));
+			} else if (!FINGERPRINT_KEY.equals(className)) {
+				cachedStateByClass.put(className, ClassFileState.parse(index.getProperty(className)));
+			}
+		}
+		cachedBugs.addAll(bugCollection.getCollection());
+	}
+
+	/**
+	 * Removes all unchanged classes from {@code findBugsProject}. The classes of {@code reanalyzedFiles} are always
+	 * analyzed again, f. e. the classes which depend on a changed class (see {@link FindBugsProject#getDependentFiles()}).
+	 *
+	 * @return bugs of the removed classes
+	 */
+	@NotNull
+	List<BugInstance> applyTo(@NotNull final FindBugsProject findBugsProject, @NotNull final Set<String> reanalyzedFiles) {
+		final Map<String, String> unchangedClasses = getUnchangedClasses(reanalyzedFiles);
+		if (unchangedClasses.isEmpty()) {
+			return Collections.emptyList();
+		}
+		for (final Map.Entry<String, String> unchanged : unchangedClasses.entrySet()) {
+			findBugsProject.addReusedClassFile(unchanged.getKey(), unchanged.getValue());
+		}
+		final Set<String> unchangedFiles = new HashSet<>(unchangedClasses.values());
+		for (int i = findBugsProject.getFileCount() - 1; i >= 0; i--) {
+			if (unchangedFiles.contains(findBugsProject.getFile(i))) {
+				findBugsProject.removeFile(i);
+			}
+		}
+		LOGGER.debug("Reuse results of " + unchangedClasses.size() + " unchanged classes of " + findBugsProject.getProjectName());
+		return getCachedBugs(unchangedClasses.keySet());
+	}
+
+	/**
+	 * @return class name to class file of the classes whose cached bugs can be reused
+	 */
+	@NotNull
+	Map<String, String> getUnchangedClasses(@NotNull final Set<String> reanalyzedFiles) {
+		final Map<String, String> ret = new HashMap<>();
+		for (final Map.Entry<String, ClassFileState> state : stateByClass.entrySet()) {
+			final ClassFileState cached = cachedStateByClass.get(state.getKey());
+			final String file = fileByClass.get(state.getKey());
+			if (cached != null && state.getValue().hash.equals(cached.hash) &&
+					state.getValue().dependencies.equals(cached.dependencies) && !reanalyzedFiles.contains(file)) {
+				ret.put(state.getKey(), file);
+			}
+		}
+		return ret;
+	}
+
+	@NotNull
+	List<BugInstance> getCachedBugs(@NotNull final Set<String> classNames) {
+		final List<BugInstance> ret = new ArrayList<>();
+		for (final BugInstance bug : cachedBugs) {
+			if (classNames.contains(getPrimaryClassName(bug))) {
+				ret.add(bug);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Writes the cache. Entries of classes which were not part of this analysis are kept as long as their class file exists.
+	 */
+	void store(@NotNull final BugStore bugStore) {
+		final Properties index = new Properties();
+		index.setProperty(FINGERPRINT_KEY, fingerprint);
+		final Set<String> keptClasses = new HashSet<>();
+		final Set<String> references = new HashSet<>();
+		for (final Map.Entry<String, ClassFileState> state : cachedStateByClass.entrySet()) {
+			final String className = state.getKey();
+			if (!stateByClass.containsKey(className) && classFileExists(className)) {
+				index.setProperty(className, state.getValue().toString());
+				keptClasses.add(className);
+				references.addAll(state.getValue().references);
+			}
+		}
+		for (final Map.Entry<String, ClassFileState> state : stateByClass.entrySet()) {
+			index.setProperty(state.getKey(), state.getValue().toString());
+			references.addAll(state.getValue().references);
+		}
+		for (final String reference : references) {
+			ClassFileState state = dependencyStateByClass.get(reference);
+			if (state == null && !dependencyStateByClass.containsKey(reference)) { // referenced by a kept class only
+				state = cachedDependencyStateByClass.get(reference);
+			}
+			if (state != null) {
+				index.setProperty(DEPENDENCY_KEY_PREFIX + reference, state.toString());
+			}
+		}
+
+		final SortedBugCollection toStore = new SortedBugCollection();
+		for (final BugInstance bug : cachedBugs) {
+			if (keptClasses.contains(getPrimaryClassName(bug))) {
+				toStore.add(bug, false);
+			}
+		}
+		for (final BugInstance bug : bugStore.getInstances()) {
+			toStore.add(bug, false);
+		}
+
+		try {
+			FileUtilFb.mkdirs(bugsFile.getParentFile());
+			final File tmpBugsFile = new File(bugsFile.getPath() + ".tmp");
+			toStore.writeXML(tmpBugsFile);
+			Files.move(tmpBugsFile.toPath(), bugsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			try (final OutputStream out = new FileOutputStream(indexFile)) {
+				index.store(out, null);
+			}
+		} catch (final IOException e) {
+			LOGGER.warn("Could not write analysis result cache " + bugsFile, e);
+			FileUtil.delete(indexFile);
+		}
+	}
+
+	@Nullable
+	private String getClassName(@NotNull final String file) {
+		final String path = FileUtil.toSystemIndependentName(file);
+		if (!path.endsWith(CLASS_FILE_SUFFIX)) {
+			return null;
+		}
+		for (final String root : roots) {
+			if (path.startsWith(root)) {
+				return path.substring(root.length(), path.length() - CLASS_FILE_SUFFIX.length()).replace('/', '.');
+			}
+		}
+		return null;
+	}
+
+	private boolean classFileExists(@NotNull final String className) {
+		final String relativePath = className.replace('.', '/') + CLASS_FILE_SUFFIX;
+		for (final String root : roots) {
+			if (new File(root, relativePath).isFile()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Nullable
+	private static String getPrimaryClassName(@NotNull final BugInstance bug) {
+		final ClassAnnotation primaryClass = bug.getPrimaryClass();
+		return primaryClass != null ? primaryClass.getClassName() : null;
+	}
+
+	/**
+	 * Note that only path, size and modification time of the archives are used, the content is not read.
+	 * The classes of the dependency directories are checked per referencing class, see {@link #getState(String, Path)}.
+	 */
+	@NotNull
+	private static String fingerprintOfClasspath(@NotNull final List<String> archives, @NotNull final List<String> dirs) {
+		final StringBuilder sb = new StringBuilder();
+		for (final String archive : archives) {
+			final File file = new File(archive);
+			sb.append(archive).append(';').append(file.length() * 31L + file.lastModified()).append('\n');
+		}
+		for (final String dir : dirs) {
+			sb.append(dir).append('\n');
+		}
+		return SettingsFingerprint.sha1(sb.toString());
+	}
+
+	/**
+	 * Size, modification time and SHA-1 of a class file, stored as {@code size lastModified hash} in the index.
+	 * The state of an analyzed class also has the hash of its referenced classes in the dependency directories and
+	 * their names, stored as {@code size lastModified hash dependencies reference,...}.
+	 */
+	private static final class ClassFileState {
+		private static final long UNKNOWN = -1;
+		private static final String NONE = "-";
+
+		private final long length;
+		private final long lastModified;
+
+		@NotNull
+		private final String hash;
+
+		@NotNull
+		private final List<String> references;
+
+		/**
+		 * {@code null} for the class files in the dependency directories and for states written by an older version.
+		 */
+		@Nullable
+		private final String dependencies;
+
+		ClassFileState(final long length, final long lastModified, @NotNull final String hash) {
+			this(length, lastModified, hash, Collections.emptyList(), null);
+		}
+
+		ClassFileState(
+				final long length,
+				final long lastModified,
+				@NotNull final String hash,
+				@NotNull final List<String> references,
+				@Nullable final String dependencies
+		) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.hash = hash;
+			this.references = references;
+			this.dependencies = dependencies;
+		}
+
+		@NotNull
+		static ClassFileState parse(@NotNull final String value) {
+			final String[] parts = value.split(" ");
+			if (parts.length != 3 && parts.length != 5) { // only the hash, written by an older version
+				return new ClassFileState(UNKNOWN, UNKNOWN, value);
+			}
+			try {
+				final long length = Long.parseLong(parts[0]);
+				final long lastModified = Long.parseLong(parts[1]);
+				if (parts.length == 3) {
+					return new ClassFileState(length, lastModified, parts[2]);
+				}
+				final List<String> references = NONE.equals(parts[4]) ?
+						Collections.emptyList() : Arrays.asList(parts[4].split(","));
+				return new ClassFileState(length, lastModified, parts[2], references, parts[3]);
+			} catch (final NumberFormatException ignored) {
+				return new ClassFileState(UNKNOWN, UNKNOWN, value);
+			}
+		}
+
+		@Override
+		public String toString() {
+			if (dependencies == null) {
+				return length + " " + lastModified + " " + hash;
+			}
+			return length + " " + lastModified + " " + hash + " " + dependencies + " " +
+					(references.isEmpty() ? NONE : String.join(",", references));
+		}
+	}
+}
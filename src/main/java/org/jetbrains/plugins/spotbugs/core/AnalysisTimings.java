@@ -0,0 +1,325 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.DetectorFactory;
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.log.Profiler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.worker.EngineProfile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wall clock time, CPU time and allocated memory per phase of an analysis run, plus the time SpotBugs spent in each
+ * detector and analysis engine (see {@link Profiler}). Phases with the same name, f. e. of modules analyzed in
+ * parallel, are summed up. CPU time and allocation are those of the thread which ran the phase, they are unknown
+ * ({@code -1}) if the JVM does not support to measure them or if the phase ran in an analysis worker process.
+ */
+public final class AnalysisTimings {
+
+	public static final String CONFIGURE = "Configure";
+	public static final String FIND_DEPENDENT_CLASSES = "Find dependent classes";
+	public static final String LOAD_PLUGINS = "Load plugins";
+	public static final String PREPARE_PREFERENCES = "Prepare preferences";
+	public static final String CHECK_UNCHANGED_CLASSES = "Check unchanged classes";
+	public static final String START_WORKER = "Start worker";
+	public static final String ENGINE_SETUP = "Engine setup";
+	public static final String CLASS_DISCOVERY = "Class discovery";
+	public static final String FINISH_ANALYSIS = "Finish analysis";
+	public static final String TREE_INSERTION = "Tree insertion";
+	public static final String COMPACT_RESULT = "Compact result";
+
+	private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+	private final Map<String, Phase> phases; // @GuardedBy this
+	private final Map<String, Long> profile; // @GuardedBy this
+
+	public AnalysisTimings() {
+		phases = new LinkedHashMap<>();
+		profile = new HashMap<>();
+	}
+
+	@NotNull
+	public static String getPassName(final int pass) {
+		return "Pass " + (pass + 1) + (pass == 0 ? " (prescan)" : "");
+	}
+
+	/**
+	 * Starts to measure a phase which runs in the calling thread.
+	 */
+	@NotNull
+	public Measurement start(@NotNull final String phase) {
+		return new Measurement(phase, true);
+	}
+
+	/**
+	 * Starts to measure a phase which runs in another process, only the wall clock time is measured.
+	 */
+	@NotNull
+	public Measurement startRemote(@NotNull final String phase) {
+		return new Measurement(phase, false);
+	}
+
+	public synchronized void add(@NotNull final Phase phase) {
+		phases.merge(phase.name, phase, Phase::plus);
+	}
+
+	public synchronized void addAll(@NotNull final AnalysisTimings other) {
+		final List<Phase> otherPhases;
+		final Map<String, Long> otherProfile;
+		synchronized (other) {
+			otherPhases = new ArrayList<>(other.phases.values());
+			otherProfile = new HashMap<>(other.profile);
+		}
+		for (final Phase phase : otherPhases) {
+			add(phase);
+		}
+		for (final Map.Entry<String, Long> entry : otherProfile.entrySet()) {
+			addProfile(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Adds the time measured by the profiler of a finished SpotBugs engine.
+	 */
+	public void addProfile(@NotNull final Profiler profiler) {
+		for (final Map.Entry<String, Long> entry : EngineProfile.getTotalTimes(profiler).entrySet()) {
+			addProfile(entry.getKey(), entry.getValue());
+		}
+	}
+
+	public synchronized void addProfile(@NotNull final String className, final long nanos) {
+		profile.merge(className, nanos, Long::sum);
+	}
+
+	public synchronized boolean isEmpty() {
+		return phases.isEmpty() && profile.isEmpty();
+	}
+
+	/**
+	 * @return the phases in the order they were started first
+	 */
+	@NotNull
+	public synchronized List<Phase> getPhases() {
+		return new ArrayList<>(phases.values());
+	}
+
+	/**
+	 * @return the profiled detectors and analysis engines, most expensive first
+	 */
+	@NotNull
+	public List<ProfileEntry> getProfile() {
+		final Map<String, Long> copy;
+		synchronized (this) {
+			copy = new HashMap<>(profile);
+		}
+		final Map<String, DetectorFactory> factories = new HashMap<>();
+		for (final DetectorFactory factory : DetectorFactoryCollection.instance().getFactories()) {
+			factories.put(factory.getFullName(), factory);
+		}
+		final List<ProfileEntry> ret = new ArrayList<>(copy.size());
+		for (final Map.Entry<String, Long> entry : copy.entrySet()) {
+			ret.add(new ProfileEntry(entry.getKey(), factories.get(entry.getKey()), entry.getValue()));
+		}
+		ret.sort((o1, o2) -> Long.compare(o2.nanos, o1.nanos));
+		return ret;
+	}
+
+	/**
+	 * Writes phases and profile as CSV, times in milliseconds and allocation in bytes.
+	 */
+	public void writeCsv(@NotNull final Appendable out) throws IOException {
+		out.append("Kind,Name,Plugin,Wall ms,CPU ms,Allocated bytes\n");
+		for (final Phase phase : getPhases()) {
+			out.append("Phase,").append(csv(phase.name)).append(',')
+					.append(',').append(String.valueOf(toMillis(phase.wallNanos)))
+					.append(',').append(phase.cpuNanos < 0 ? "" : String.valueOf(toMillis(phase.cpuNanos)))
+					.append(',').append(phase.allocatedBytes < 0 ? "" : String.valueOf(phase.allocatedBytes))
+					.append('\n');
+		}
+		for (final ProfileEntry entry : getProfile()) {
+			out.append(entry.isDetector() ? "Detector," : "Engine,").append(csv(entry.getName())).append(',')
+					.append(entry.getPluginId() != null ? csv(entry.getPluginId()) : "")
+					.append(',').append(String.valueOf(toMillis(entry.nanos)))
+					.append(",,\n");
+		}
+	}
+
+	public static long toMillis(final long nanos) {
+		return nanos / 1000000L;
+	}
+
+	@NotNull
+	private static String csv(@NotNull final String value) {
+		if (value.indexOf(',') == -1 && value.indexOf('"') == -1) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	private static long getCurrentThreadCpuTime() {
+		if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+			return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+		}
+		return -1;
+	}
+
+	private static long getCurrentThreadAllocatedBytes() {
+		if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+			final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+			if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+				return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * A running phase, {@link #stop()} must be invoked by the thread which started it.
+	 */
+	public final class Measurement {
+
+		@NotNull
+		private final String phase;
+
+		private final long startWall;
+		private final long startCpu;
+		private final long startAllocated;
+		private boolean stopped;
+
+		private Measurement(@NotNull final String phase, final boolean local) {
+			this.phase = phase;
+			startWall = System.nanoTime();
+			startCpu = local ? getCurrentThreadCpuTime() : -1;
+			startAllocated = local ? getCurrentThreadAllocatedBytes() : -1;
+		}
+
+		public void stop() {
+			if (stopped) {
+				return;
+			}
+			stopped = true;
+			final long wall = System.nanoTime() - startWall;
+			final long cpu = startCpu < 0 ? -1 : getCurrentThreadCpuTime() - startCpu;
+			final long allocated = startAllocated < 0 ? -1 : getCurrentThreadAllocatedBytes() - startAllocated;
+			add(new Phase(phase, wall, cpu, allocated));
+		}
+	}
+
+	public static final class Phase {
+
+		@NotNull
+		private final String name;
+
+		private final long wallNanos;
+		private final long cpuNanos;
+		private final long allocatedBytes;
+
+		public Phase(@NotNull final String name, final long wallNanos, final long cpuNanos, final long allocatedBytes) {
+			this.name = name;
+			this.wallNanos = wallNanos;
+			this.cpuNanos = cpuNanos;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		@NotNull
+		public String getName() {
+			return name;
+		}
+
+		public long getWallNanos() {
+			return wallNanos;
+		}
+
+		/**
+		 * @return -1 if unknown
+		 */
+		public long getCpuNanos() {
+			return cpuNanos;
+		}
+
+		/**
+		 * @return -1 if unknown
+		 */
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+
+		@NotNull
+		private Phase plus(@NotNull final Phase other) {
+			return new Phase(
+					name,
+					wallNanos + other.wallNanos,
+					cpuNanos < 0 || other.cpuNanos < 0 ? -1 : cpuNanos + other.cpuNanos,
+					allocatedBytes < 0 || other.allocatedBytes < 0 ? -1 : allocatedBytes + other.allocatedBytes
+			);
+		}
+	}
+
+	public static final class ProfileEntry {
+
+		@NotNull
+		private final String className;
+
+		@Nullable
+		private final DetectorFactory factory;
+
+		private final long nanos;
+
+		private ProfileEntry(@NotNull final String className, @Nullable final DetectorFactory factory, final long nanos) {
+			this.className = className;
+			this.factory = factory;
+			this.nanos = nanos;
+		}
+
+		public boolean isDetector() {
+			return factory != null;
+		}
+
+		/**
+		 * @return the short name of the detector or the simple class name of an analysis engine
+		 */
+		@NotNull
+		public String getName() {
+			if (factory != null) {
+				return factory.getShortName();
+			}
+			return className.substring(className.lastIndexOf('.') + 1);
+		}
+
+		@Nullable
+		public String getPluginId() {
+			return factory != null ? factory.getPlugin().getPluginId() : null;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+	}
+}
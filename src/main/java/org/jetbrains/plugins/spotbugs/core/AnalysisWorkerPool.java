@@ -0,0 +1,334 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.ShutDownTracker;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.ProjectStats;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.FindBugsPluginUtil;
+import org.jetbrains.plugins.spotbugs.common.util.FindBugsCustomPluginUtil;
+import org.jetbrains.plugins.spotbugs.worker.AnalysisRequest;
+import org.jetbrains.plugins.spotbugs.worker.AnalysisResultReader;
+import org.jetbrains.plugins.spotbugs.worker.AnalysisWorker;
+import org.jetbrains.plugins.spotbugs.worker.ChunkedInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the SpotBugs engine in separate JVMs ({@link AnalysisWorker}) with their own heap, so a big analysis does not
+ * compete with the IDE for heap and GC. The bugs are streamed back and reported while the worker is still running.
+ * <p>
+ * Workers stay alive after an analysis and are reused by the next one with the same plugins and heap size, so JVM
+ * startup, class loading and JIT warm-up are paid once per session. A worker is killed if the analysis is canceled
+ * or fails; the worker JVMs also exit on their own when the IDE closes their stdin.
+ * <p>
+ * The running and idle workers together use at most {@link #MAX_TOTAL_HEAP_MB} heap (and at least one worker is
+ * allowed), further analyses wait for a worker. At most {@link #MAX_IDLE_WORKERS} workers are kept idle, and only
+ * for {@link #IDLE_TIMEOUT_MILLIS}.
+ */
+final class AnalysisWorkerPool {
+
+	private static final Logger LOGGER = Logger.getInstance(AnalysisWorkerPool.class);
+	private static final String LOG_FILE_NAME = "spotbugs-worker.log";
+	private static final long CANCEL_CHECK_INTERVAL_MILLIS = 100;
+	private static final int MAX_TOTAL_HEAP_MB = 4096;
+	private static final int MAX_IDLE_WORKERS = 2;
+	private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+	private static final List<Worker> idleWorkers = new ArrayList<>(); // @GuardedBy AnalysisWorkerPool.class
+	private static int runningWorkerCount; // @GuardedBy AnalysisWorkerPool.class
+
+	static {
+		ShutDownTracker.getInstance().registerShutdownTask(AnalysisWorkerPool::shutdown);
+	}
+
+	private AnalysisWorkerPool() {
+	}
+
+	/**
+	 * Analyzes {@code project} in a worker and reports the found bugs and the progress to {@code reporter}.
+	 * If the analysis is canceled, the worker is killed and the reporter is left canceled.
+	 */
+	static void analyze(
+			@NotNull final FindBugsProject project,
+			@NotNull final UserPreferences userPrefs,
+			final int maxHeapMb,
+			@NotNull final Reporter reporter
+	) throws IOException, InterruptedException {
+
+		final ByteArrayOutputStream preferences = new ByteArrayOutputStream();
+		userPrefs.write(preferences);
+		final AnalysisRequest request = new AnalysisRequest(project, preferences.toByteArray());
+
+		reporter.beginPhase(AnalysisTimings.START_WORKER);
+		final Worker worker = acquire(getPluginUrls(), maxHeapMb, reporter);
+		if (worker == null) { // canceled while waiting for a worker
+			reporter.checkCancel();
+			return;
+		}
+		reporter.setRemoteEngine();
+		reporter.beginPhase(AnalysisTimings.ENGINE_SETUP);
+		final ScheduledFuture<?> cancelCheck = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+			if (reporter.isCancelRequested()) {
+				worker.destroy(); // unblocks the reading analysis thread
+			}
+		}, CANCEL_CHECK_INTERVAL_MILLIS, CANCEL_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+		boolean reusable = false;
+		try {
+			request.write(worker.out);
+			final ChunkedInputStream result = new ChunkedInputStream(worker.in);
+			final SortedBugCollection bugCollection = AnalysisResultReader.read(
+					result,
+					reporter::reportFilteredBug,
+					reporter,
+					reporter.getTimings()::addProfile
+			);
+			result.close();
+			copyStats(bugCollection, reporter.getProjectStats());
+			for (final Iterator<String> missingClasses = bugCollection.missingClassIterator(); missingClasses.hasNext(); ) {
+				reporter.reportMissingClass(missingClasses.next());
+			}
+			reusable = !reporter.isCancelRequested();
+		} catch (final IOException e) {
+			if (!reporter.checkCancel()) {
+				throw new IOException("SpotBugs analysis worker failed, see " + LOG_FILE_NAME, e);
+			}
+		} finally {
+			cancelCheck.cancel(false);
+			if (reusable) {
+				release(worker);
+			} else {
+				discard(worker);
+			}
+		}
+		reporter.checkCancel();
+	}
+
+	private static void copyStats(@NotNull final SortedBugCollection bugCollection, @NotNull final ProjectStats stats) {
+		final ProjectStats workerStats = bugCollection.getProjectStats();
+		stats.setTotalClasses(workerStats.getNumClasses());
+		stats.setTotalSize(workerStats.getCodeSize());
+		stats.setReferencedClasses(workerStats.getReferencedClasses());
+	}
+
+	/**
+	 * @return the URLs of the enabled non-core SpotBugs plugins, which the worker has to load as well
+	 */
+	@NotNull
+	private static List<String> getPluginUrls() {
+		final List<String> ret = new ArrayList<>();
+		for (final Plugin plugin : Plugin.getAllPlugins()) {
+			if (!plugin.isCorePlugin() && plugin.isGloballyEnabled()) {
+				ret.add(FindBugsCustomPluginUtil.getAsString(plugin));
+			}
+		}
+		Collections.sort(ret);
+		return ret;
+	}
+
+	/**
+	 * @return an idle or a new worker, {@code null} if the analysis was canceled while waiting for a worker
+	 */
+	@Nullable
+	private static Worker acquire(
+			@NotNull final List<String> pluginUrls,
+			final int maxHeapMb,
+			@NotNull final Reporter reporter
+	) throws IOException, InterruptedException {
+
+		final List<String> command = createCommand(pluginUrls, maxHeapMb);
+		final int maxWorkerCount = Math.max(1, MAX_TOTAL_HEAP_MB / maxHeapMb);
+		synchronized (AnalysisWorkerPool.class) {
+			while (true) {
+				final Iterator<Worker> it = idleWorkers.iterator();
+				while (it.hasNext()) {
+					final Worker worker = it.next();
+					if (worker.process.isAlive() && worker.command.equals(command)) {
+						it.remove();
+						runningWorkerCount++;
+						return worker;
+					}
+					// exited, or plugins or heap size changed, this worker will never be used again
+					it.remove();
+					worker.destroy();
+				}
+				if (runningWorkerCount + idleWorkers.size() < maxWorkerCount) {
+					break;
+				}
+				if (!idleWorkers.isEmpty()) {
+					idleWorkers.remove(0).destroy();
+				} else {
+					AnalysisWorkerPool.class.wait(CANCEL_CHECK_INTERVAL_MILLIS);
+					if (reporter.isCancelRequested()) {
+						return null;
+					}
+				}
+			}
+			runningWorkerCount++;
+		}
+		try {
+			return start(command);
+		} catch (final IOException | RuntimeException e) {
+			discard(null);
+			throw e;
+		}
+	}
+
+	/**
+	 * Keeps {@code worker} idle, the oldest idle worker is killed if there are too many.
+	 */
+	private static synchronized void release(@NotNull final Worker worker) {
+		runningWorkerCount--;
+		worker.idleSince = System.currentTimeMillis();
+		idleWorkers.add(worker);
+		if (idleWorkers.size() > MAX_IDLE_WORKERS) {
+			idleWorkers.remove(0).destroy();
+		}
+		AnalysisWorkerPool.class.notifyAll();
+		AppExecutorUtil.getAppScheduledExecutorService().schedule(
+				AnalysisWorkerPool::stopIdleWorkers, IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Kills a worker which cannot be reused, {@code null} if it could not be started.
+	 */
+	private static synchronized void discard(@Nullable final Worker worker) {
+		if (worker != null) {
+			worker.destroy();
+		}
+		runningWorkerCount--;
+		AnalysisWorkerPool.class.notifyAll();
+	}
+
+	private static synchronized void stopIdleWorkers() {
+		final long now = System.currentTimeMillis();
+		final Iterator<Worker> it = idleWorkers.iterator();
+		while (it.hasNext()) {
+			final Worker worker = it.next();
+			if (now - worker.idleSince >= IDLE_TIMEOUT_MILLIS) {
+				it.remove();
+				worker.destroy();
+			}
+		}
+	}
+
+	static synchronized void shutdown() {
+		for (final Worker worker : idleWorkers) {
+			worker.destroy();
+		}
+		idleWorkers.clear();
+	}
+
+	@NotNull
+	private static List<String> createCommand(@NotNull final List<String> pluginUrls, final int maxHeapMb) {
+		final List<String> ret = new ArrayList<>();
+		ret.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		ret.add("-Xmx" + maxHeapMb + "m");
+		ret.add("-cp");
+		ret.add(getClasspath());
+		ret.add(AnalysisWorker.class.getName());
+		ret.addAll(pluginUrls);
+		return ret;
+	}
+
+	/**
+	 * The plugin jar (for {@link AnalysisWorker}), SpotBugs and its dependencies.
+	 */
+	@NotNull
+	private static String getClasspath() {
+		final Set<String> ret = new LinkedHashSet<>();
+		addJarPath(ret, AnalysisWorker.class);
+		addJarPath(ret, FindBugs2.class);
+		final File[] jars = new File(FindBugsPluginUtil.getIdeaPluginDescriptor().getPath(), "lib").listFiles((dir, name) -> name.endsWith(".jar"));
+		if (jars != null) {
+			for (final File jar : jars) {
+				ret.add(jar.getPath());
+			}
+		}
+		return StringUtil.join(ret, File.pathSeparator);
+	}
+
+	private static void addJarPath(@NotNull final Set<String> classpath, @NotNull final Class<?> clazz) {
+		final String path = PathManager.getJarPathForClass(clazz);
+		if (path != null) {
+			classpath.add(path);
+		}
+	}
+
+	@NotNull
+	private static Worker start(@NotNull final List<String> command) throws IOException {
+		LOGGER.info("Start SpotBugs analysis worker: " + StringUtil.join(command, " "));
+		final Process process = new ProcessBuilder(command)
+				.redirectError(ProcessBuilder.Redirect.appendTo(new File(PathManager.getLogPath(), LOG_FILE_NAME)))
+				.start();
+		return new Worker(command, process);
+	}
+
+	private static final class Worker {
+		@NotNull
+		private final List<String> command;
+
+		@NotNull
+		private final Process process;
+
+		@NotNull
+		private final DataOutputStream out;
+
+		@NotNull
+		private final InputStream in;
+
+		private long idleSince; // @GuardedBy AnalysisWorkerPool.class
+
+		Worker(@NotNull final List<String> command, @NotNull final Process process) {
+			this.command = command;
+			this.process = process;
+			out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+			in = new BufferedInputStream(process.getInputStream());
+		}
+
+		void destroy() {
+			process.destroyForcibly();
+		}
+	}
+}
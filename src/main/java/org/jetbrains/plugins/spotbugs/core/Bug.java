@@ -20,30 +20,36 @@
 package org.jetbrains.plugins.spotbugs.core;
 
 import com.intellij.openapi.module.Module;
-import com.intellij.openapi.util.text.StringUtil;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.SortedBugCollection;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * A bug of the current result, a row of its {@link BugStore}. The data needed by the bug tree and the editor is
+ * read from the columns of the store; {@link #getInstance()} is only needed to show or navigate to a single bug.
+ */
 public final class Bug {
 	@Nullable
 	private final Module module;
 
 	@NotNull
-	private final SortedBugCollection bugCollection;
+	private final BugStore store;
+
+	private final int index;
 
 	@NotNull
-	private final BugInstance instance;
+	private final BugKey key;
 
 	public Bug(
 			@Nullable final Module module,
-			@NotNull final SortedBugCollection bugCollection,
-			@NotNull final BugInstance instance
+			@NotNull final BugStore store,
+			final int index
 	) {
 		this.module = module;
-		this.bugCollection = bugCollection;
-		this.instance = instance;
+		this.store = store;
+		this.index = index;
+		this.key = new BugKey(store, index);
 	}
 
 	@Nullable
@@ -53,12 +59,76 @@ public final class Bug {
 
 	@NotNull
 	public SortedBugCollection getBugCollection() {
-		return bugCollection;
+		return store.getBugCollection();
 	}
 
+	/**
+	 * @see BugStore#getInstance(int)
+	 */
 	@NotNull
 	public BugInstance getInstance() {
-		return instance;
+		return store.getInstance(index);
+	}
+
+	@NotNull
+	public BugKey getKey() {
+		return key;
+	}
+
+	/**
+	 * @return the primary class name including the inner class suffix, {@code null} if the bug has no primary class
+	 */
+	@Nullable
+	public String getPrimaryClassName() {
+		return store.getFullClassName(index);
+	}
+
+	@Nullable
+	public String getSourcePath() {
+		return store.getSourcePath(index);
+	}
+
+	/**
+	 * @see BugStore#getSourceLines(int)
+	 */
+	@NotNull
+	public int[] getSourceLines() {
+		return store.getSourceLines(index);
+	}
+
+	@Nullable
+	public String getMethodName() {
+		return store.getMethodName(index);
+	}
+
+	@Nullable
+	public String getFieldName() {
+		return store.getFieldName(index);
+	}
+
+	@NotNull
+	public String getType() {
+		return store.getType(index);
+	}
+
+	@NotNull
+	public String getDetailText() {
+		return store.getDetailText(index);
+	}
+
+	/**
+	 * @see BugInstance#getMessageWithoutPrefix()
+	 */
+	@NotNull
+	public String getMessage() {
+		return store.getMessage(index);
+	}
+
+	/**
+	 * @see BugStore#isStale(int)
+	 */
+	public boolean isStale() {
+		return store.isStale(index);
 	}
 
 	@SuppressWarnings("SimplifiableIfStatement")
@@ -68,25 +138,19 @@ public final class Bug {
 		if (o == null || getClass() != o.getClass()) return false;
 		Bug bug = (Bug) o;
 		if (module != null ? !module.equals(bug.module) : bug.module != null) return false;
-		if (!bugCollection.equals(bug.bugCollection)) return false;
-		return instance.equals(bug.instance);
+		if (store != bug.store) return false;
+		return index == bug.index;
 	}
 
 	@Override
 	public int hashCode() {
 		int result = module != null ? module.hashCode() : 0;
-		result = 31 * result + bugCollection.hashCode();
-		result = 31 * result + instance.hashCode();
+		result = 31 * result + System.identityHashCode(store);
+		result = 31 * result + index;
 		return result;
 	}
 
-	@SuppressWarnings("RedundantIfStatement")
 	public static boolean equalsBugType(@NotNull final Bug bugA, @NotNull final Bug bugB) {
-		final BugInstance a = bugA.getInstance();
-		final BugInstance b = bugB.getInstance();
-		if (!StringUtil.equals(a.getType(), b.getType())) {
-			return false;
-		}
-		return true;
+		return bugA.getType().equals(bugB.getType());
 	}
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.BugRankCategory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The sort and group keys of a {@link Bug}, read from the columns of its {@link BugStore}.
+ * The strings are interned, so equal keys are usually the same instance and compare without
+ * looking at the characters.
+ */
+public final class BugKey {
+
+	@NotNull
+	private final BugStore store;
+
+	private final int index;
+
+	BugKey(@NotNull final BugStore store, final int index) {
+		this.store = store;
+		this.index = index;
+	}
+
+	/**
+	 * @return the primary class name without inner class suffix
+	 */
+	@NotNull
+	public String getClassName() {
+		return store.getClassName(index);
+	}
+
+	@NotNull
+	public String getPackageName() {
+		return store.getPackageName(index);
+	}
+
+	@NotNull
+	public String getCategory() {
+		return store.getCategory(index);
+	}
+
+	@NotNull
+	public String getAbbrev() {
+		return store.getAbbrev(index);
+	}
+
+	@NotNull
+	public String getShortDescription() {
+		return store.getShortDescription(index);
+	}
+
+	/**
+	 * @return the priority, lower values are more important
+	 * @see edu.umd.cs.findbugs.Priorities
+	 */
+	public int getPriority() {
+		return store.getPriority(index);
+	}
+
+	@NotNull
+	public String getPriorityString() {
+		return store.getPriorityString(index);
+	}
+
+	@NotNull
+	public BugRankCategory getRank() {
+		return store.getRank(index);
+	}
+
+	public static int compare(@NotNull final String a, @NotNull final String b) {
+		//noinspection StringEquality
+		return a == b ? 0 : a.compareTo(b);
+	}
+}
@@ -0,0 +1,1279 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.BugAnnotation;
+import edu.umd.cs.findbugs.BugAnnotationWithSourceLines;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugPattern;
+import edu.umd.cs.findbugs.BugProperty;
+import edu.umd.cs.findbugs.BugRankCategory;
+import edu.umd.cs.findbugs.ClassAnnotation;
+import edu.umd.cs.findbugs.FieldAnnotation;
+import edu.umd.cs.findbugs.IntAnnotation;
+import edu.umd.cs.findbugs.LocalVariableAnnotation;
+import edu.umd.cs.findbugs.MethodAnnotation;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.SAXBugCollectionHandler;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.SourceLineAnnotation;
+import edu.umd.cs.findbugs.StringAnnotation;
+import edu.umd.cs.findbugs.TypeAnnotation;
+import edu.umd.cs.findbugs.xml.OutputStreamXMLOutput;
+import edu.umd.cs.findbugs.xml.XMLAttributeList;
+import edu.umd.cs.findbugs.xml.XMLOutput;
+import gnu.trove.TObjectIntHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * The bugs of one {@link SortedBugCollection} in columns: the class and member names shown, sorted, grouped and
+ * searched in the bug tree are dictionary encoded, priority, rank and line range are primitive arrays. A
+ * {@link Bug} is a row index into its store. The texts of the bug pattern are read from the pattern of the type
+ * and the message from the bug instance, so they are not kept per bug.
+ * <p>
+ * While the analysis runs the store holds the reported {@link BugInstance}s, the collection only keeps the
+ * metadata (project, stats and errors). Once the analysis is finished, {@link #compact()} replaces every bug by
+ * a record of ints in one array: its class, method, field, source line and the other annotations of SpotBugs
+ * refer to the string dictionary of the store, so class names and signatures shared by several bugs are kept
+ * once. {@link #getInstance(int)} creates the bug instance of a single row again when it is viewed, and
+ * {@link #toBugCollection()} rebuilds the whole collection for an export. Only bugs with annotation types of
+ * third-party plugins or with an imported instance hash which differs from their own are kept as XML.
+ * {@link #writeBugs(DataOutput)} saves the dictionary, the columns and the records as they are, and
+ * {@link #readBugs(DataInput, IntConsumer)} reads them into the store of a result restored by
+ * {@link LastAnalysisResult}, which is compacted while it is still empty.
+ * <p>
+ * Rows are written once under the lock of the store and published together with the {@link Bug} which refers
+ * to them, so the columns are read without locking.
+ */
+public final class BugStore {
+
+	private static final int CHUNK_SHIFT = 10;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/**
+	 * Initial number of rows of a chunk, chunks grow up to {@link #CHUNK_SIZE} rows.
+	 */
+	private static final int MIN_CHUNK_CAPACITY = 16;
+
+	/**
+	 * Number of recently viewed bugs which are kept as bug instances.
+	 */
+	private static final int REHYDRATED_CACHE_SIZE = 64;
+
+	private static final byte[] XML_PROLOGUE = "<BugCollection>".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] XML_EPILOGUE = "</BugCollection>".getBytes(StandardCharsets.UTF_8);
+
+	private static final BugRankCategory[] RANKS = BugRankCategory.values();
+
+	/**
+	 * Record offset of a compacted bug which is kept as XML.
+	 */
+	private static final int XML_RECORD = -1;
+
+	/**
+	 * Record offset of a bug which was removed before the store was compacted.
+	 */
+	private static final int NO_RECORD = -2;
+
+	private static final int NO_STRING = -1;
+
+	private static final int CLASS_ANNOTATION = 0;
+	private static final int METHOD_ANNOTATION = 1;
+	private static final int FIELD_ANNOTATION = 2;
+	private static final int SOURCE_LINE_ANNOTATION = 3;
+	private static final int INT_ANNOTATION = 4;
+	private static final int STRING_ANNOTATION = 5;
+	private static final int LOCAL_VARIABLE_ANNOTATION = 6;
+	private static final int TYPE_ANNOTATION = 7;
+
+	@NotNull
+	private final SortedBugCollection bugCollection;
+
+	/**
+	 * The string ids, dropped once the store is compacted and created again if bugs are added afterwards.
+	 */
+	private TObjectIntHashMap<String> stringIds; // @GuardedBy this
+	private volatile String[] strings;
+	private int stringCount; // @GuardedBy this
+
+	private volatile Chunk[] chunks;
+	private int size; // @GuardedBy this
+
+	@NotNull
+	private final Map<String, BugPattern> bugPatterns;
+
+	@NotNull
+	private final String[] priorityStrings;
+
+	private int[] records; // @GuardedBy this
+	private int recordCount; // @GuardedBy this
+	private final Map<Integer, byte[]> xmlBugs; // @GuardedBy this
+
+	private final BitSet removed; // @GuardedBy this
+	private final BitSet stale; // @GuardedBy this
+	private int removedCount; // @GuardedBy this
+	private boolean compacted; // @GuardedBy this
+
+	private final Map<Integer, BugInstance> rehydrated; // @GuardedBy itself
+	private BugReader bugReader; // @GuardedBy rehydrated
+
+	public BugStore(@NotNull final SortedBugCollection bugCollection) {
+		this.bugCollection = bugCollection;
+		stringIds = new TObjectIntHashMap<>();
+		strings = new String[256];
+		chunks = new Chunk[0];
+		bugPatterns = new ConcurrentHashMap<>();
+		priorityStrings = new String[Priorities.IGNORE_PRIORITY + 1];
+		records = new int[0];
+		xmlBugs = new HashMap<>();
+		removed = new BitSet();
+		stale = new BitSet();
+		rehydrated = new LinkedHashMap<Integer, BugInstance>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Integer, BugInstance> eldest) {
+				return size() > REHYDRATED_CACHE_SIZE;
+			}
+		};
+	}
+
+	/**
+	 * @return the collection with the metadata (project, stats and errors) of the analysis
+	 */
+	@NotNull
+	public SortedBugCollection getBugCollection() {
+		return bugCollection;
+	}
+
+	/**
+	 * Adds a bug of the running analysis. Note that the bug is not added to the collection of this store.
+	 *
+	 * @return the index of the bug
+	 */
+	public synchronized int add(@NotNull final BugInstance instance) {
+		if (compacted) {
+			throw new IllegalStateException("Bug store is already compacted");
+		}
+		final int index = newRow();
+		setRow(index, instance);
+		chunk(index).instances[index & CHUNK_MASK] = instance;
+		size++;
+		return index;
+	}
+
+	private int newRow() {
+		final int index = size;
+		final int chunkIndex = index >> CHUNK_SHIFT;
+		if (chunkIndex == chunks.length) {
+			final Chunk[] newChunks = Arrays.copyOf(chunks, chunkIndex + 1);
+			newChunks[chunkIndex] = new Chunk(MIN_CHUNK_CAPACITY, compacted);
+			chunks = newChunks;
+		} else {
+			final Chunk chunk = chunks[chunkIndex];
+			final int row = index & CHUNK_MASK;
+			if (row == chunk.type.length) {
+				chunk.resize(Math.min(CHUNK_SIZE, row * 2));
+			}
+		}
+		return index;
+	}
+
+	private void setRow(final int index, @NotNull final BugInstance instance) {
+		final Chunk chunk = chunk(index);
+		final int row = index & CHUNK_MASK;
+
+		final ClassAnnotation primaryClass = instance.getPrimaryClass();
+		if (primaryClass != null) {
+			final String fullClassName = primaryClass.getClassName();
+			final int innerClass = fullClassName.indexOf('$');
+			chunk.fullClassName[row] = id(fullClassName, true);
+			chunk.className[row] = id(innerClass >= 0 ? fullClassName.substring(0, innerClass) : fullClassName, true);
+			chunk.packageName[row] = id(primaryClass.getPackageName(), true);
+			chunk.sourcePath[row] = id(primaryClass.getSourceLines().getSourcePath(), true);
+		} else {
+			chunk.fullClassName[row] = NO_STRING;
+			chunk.className[row] = id("", true);
+			chunk.packageName[row] = id("", true);
+			chunk.sourcePath[row] = NO_STRING;
+		}
+		final MethodAnnotation method = instance.getPrimaryMethod();
+		chunk.methodName[row] = method != null ? id(method.getMethodName(), true) : NO_STRING;
+		final FieldAnnotation field = instance.getPrimaryField();
+		chunk.fieldName[row] = field != null ? id(field.getFieldName(), true) : NO_STRING;
+
+		chunk.type[row] = id(instance.getType(), true);
+		chunk.priority[row] = (byte) instance.getPriority();
+		setPattern(instance);
+		chunk.rank[row] = (byte) BugRankCategory.getRank(instance.getBugRank()).ordinal();
+
+		final SourceLineAnnotation sourceLines = instance.getPrimarySourceLineAnnotation();
+		chunk.startLine[row] = sourceLines != null ? sourceLines.getStartLine() : 1;
+		chunk.endLine[row] = sourceLines != null ? sourceLines.getEndLine() : 1;
+	}
+
+	/**
+	 * Keeps the bug pattern of the type and the priority string of the priority of {@code instance}.
+	 */
+	private void setPattern(@NotNull final BugInstance instance) {
+		bugPatterns.putIfAbsent(instance.getType(), instance.getBugPattern());
+		final int priority = getPriorityIndex(instance.getPriority());
+		if (priorityStrings[priority] == null) {
+			priorityStrings[priority] = instance.getPriorityString().intern();
+		}
+	}
+
+	/**
+	 * @param intern true for the short strings shared by many bugs, so that equal strings of different
+	 *               stores are usually the same instance (see {@link BugKey#compare(String, String)})
+	 */
+	private int id(@NotNull final String string, final boolean intern) {
+		if (stringIds == null) {
+			stringIds = new TObjectIntHashMap<>(stringCount);
+			for (int i = 0; i < stringCount; i++) {
+				stringIds.put(strings[i], i);
+			}
+		}
+		if (stringIds.containsKey(string)) {
+			return stringIds.get(string);
+		}
+		final int id = stringCount++;
+		String[] strings = this.strings;
+		if (id == strings.length) {
+			strings = Arrays.copyOf(strings, strings.length * 2);
+		}
+		strings[id] = intern ? string.intern() : string;
+		this.strings = strings;
+		stringIds.put(strings[id], id);
+		return id;
+	}
+
+	private int idOrNone(@Nullable final String string) {
+		return string != null ? id(string, false) : NO_STRING;
+	}
+
+	@Nullable
+	private String string(final int id) {
+		return id >= 0 ? strings[id] : null;
+	}
+
+	@NotNull
+	private Chunk chunk(final int index) {
+		return chunks[index >> CHUNK_SHIFT];
+	}
+
+	/**
+	 * @return the number of indices, including removed bugs
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized int getBugCount() {
+		return size - removedCount;
+	}
+
+	public synchronized boolean isRemoved(final int index) {
+		return removed.get(index);
+	}
+
+	/**
+	 * Removes a bug. The record of a compacted bug is kept until the store is dropped.
+	 */
+	public synchronized void remove(final int index) {
+		if (removed.get(index)) {
+			return;
+		}
+		removed.set(index);
+		removedCount++;
+		final Chunk chunk = chunk(index);
+		if (chunk.instances != null) {
+			chunk.instances[index & CHUNK_MASK] = null;
+		} else {
+			xmlBugs.remove(index);
+		}
+		synchronized (rehydrated) {
+			rehydrated.remove(index);
+		}
+	}
+
+	/**
+	 * @return true if the class file of the bug changed since the bug was found, see {@link LastAnalysisResult}
+	 */
+	public synchronized boolean isStale(final int index) {
+		return stale.get(index);
+	}
+
+	synchronized void setStale(final int index) {
+		stale.set(index);
+	}
+
+	public synchronized int getStaleBugCount() {
+		final BitSet ret = (BitSet) stale.clone();
+		ret.andNot(removed);
+		return ret.cardinality();
+	}
+
+	/**
+	 * @return the primary class name including the inner class suffix, {@code null} if the bug has no primary class
+	 */
+	@Nullable
+	public String getFullClassName(final int index) {
+		return string(chunk(index).fullClassName[index & CHUNK_MASK]);
+	}
+
+	/**
+	 * @return the primary class name without inner class suffix
+	 */
+	@NotNull
+	public String getClassName(final int index) {
+		return strings[chunk(index).className[index & CHUNK_MASK]];
+	}
+
+	@NotNull
+	public String getPackageName(final int index) {
+		return strings[chunk(index).packageName[index & CHUNK_MASK]];
+	}
+
+	@Nullable
+	public String getSourcePath(final int index) {
+		return string(chunk(index).sourcePath[index & CHUNK_MASK]);
+	}
+
+	@Nullable
+	public String getMethodName(final int index) {
+		return string(chunk(index).methodName[index & CHUNK_MASK]);
+	}
+
+	@Nullable
+	public String getFieldName(final int index) {
+		return string(chunk(index).fieldName[index & CHUNK_MASK]);
+	}
+
+	@NotNull
+	public String getType(final int index) {
+		return strings[chunk(index).type[index & CHUNK_MASK]];
+	}
+
+	@NotNull
+	public String getCategory(final int index) {
+		return getBugPattern(index).getCategory();
+	}
+
+	@NotNull
+	public String getAbbrev(final int index) {
+		return getBugPattern(index).getAbbrev();
+	}
+
+	@NotNull
+	public String getShortDescription(final int index) {
+		return getBugPattern(index).getShortDescription();
+	}
+
+	@NotNull
+	public String getDetailText(final int index) {
+		return getBugPattern(index).getDetailText();
+	}
+
+	@NotNull
+	private BugPattern getBugPattern(final int index) {
+		return bugPatterns.get(getType(index));
+	}
+
+	/**
+	 * The message is not kept in the columns, a compacted bug is read from its record, see {@link #getInstance(int)}.
+	 *
+	 * @return the message without the bug pattern prefix, see {@link BugInstance#getMessageWithoutPrefix()}
+	 */
+	@NotNull
+	public String getMessage(final int index) {
+		return getInstance(index).getMessageWithoutPrefix();
+	}
+
+	public int getPriority(final int index) {
+		return chunk(index).priority[index & CHUNK_MASK];
+	}
+
+	@NotNull
+	public String getPriorityString(final int index) {
+		return priorityStrings[getPriorityIndex(getPriority(index))];
+	}
+
+	/**
+	 * @return the index into {@link #priorityStrings}, priorities after {@link Priorities#IGNORE_PRIORITY} are
+	 * shown as ignored like {@link BugInstance#getPriorityString()} does
+	 */
+	private static int getPriorityIndex(final int priority) {
+		return Math.max(0, Math.min(priority, Priorities.IGNORE_PRIORITY));
+	}
+
+	@NotNull
+	public BugRankCategory getRank(final int index) {
+		return RANKS[chunk(index).rank[index & CHUNK_MASK]];
+	}
+
+	/**
+	 * @return start line and end line of the primary source line annotation, {@code 1} if there is none
+	 */
+	@NotNull
+	public int[] getSourceLines(final int index) {
+		final Chunk chunk = chunk(index);
+		final int row = index & CHUNK_MASK;
+		return new int[]{chunk.startLine[row], chunk.endLine[row]};
+	}
+
+	/**
+	 * @return the bug instance, created again from its record if the store is compacted
+	 */
+	@NotNull
+	public BugInstance getInstance(final int index) {
+		synchronized (rehydrated) {
+			final BugInstance ret = rehydrated.get(index);
+			if (ret != null) {
+				return ret;
+			}
+		}
+		final BugInstance ret;
+		synchronized (this) {
+			if (removed.get(index)) {
+				throw new IllegalStateException("Bug " + index + " was removed");
+			}
+			final Chunk chunk = chunk(index);
+			if (chunk.instances != null) {
+				return chunk.instances[index & CHUNK_MASK];
+			}
+			ret = rehydrate(index);
+		}
+		synchronized (rehydrated) {
+			rehydrated.put(index, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the bug instances which are not removed, in the order of their indices
+	 */
+	@NotNull
+	synchronized List<BugInstance> getInstances() {
+		final List<BugInstance> ret = new ArrayList<>(size - removedCount);
+		for (int index = 0; index < size; index++) {
+			if (!removed.get(index)) {
+				final Chunk chunk = chunk(index);
+				ret.add(chunk.instances != null ? chunk.instances[index & CHUNK_MASK] : rehydrate(index));
+			}
+		}
+		return ret;
+	}
+
+	@NotNull
+	private BugInstance rehydrate(final int index) {
+		final int offset = chunk(index).records[index & CHUNK_MASK];
+		if (offset != XML_RECORD) {
+			return new RecordReader(offset).readBug(getType(index), getPriority(index));
+		}
+		final List<BugInstance> parsed = new ArrayList<>(1);
+		synchronized (rehydrated) {
+			if (bugReader == null) {
+				bugReader = new BugReader();
+			}
+			bugReader.read(Collections.singletonList(xmlBugs.get(index)), parsed::add);
+		}
+		return parsed.get(0);
+	}
+
+	/**
+	 * Replaces the bug instances by their records and trims the last chunk. No bugs can be added afterwards.
+	 */
+	public void compact() {
+		final Chunk[] chunks;
+		synchronized (this) {
+			if (compacted) {
+				return;
+			}
+			compacted = true;
+			chunks = this.chunks;
+		}
+		for (int i = 0; i < chunks.length; i++) {
+			synchronized (this) {
+				final Chunk chunk = chunks[i];
+				final BugInstance[] instances = chunk.instances;
+				chunk.records = new int[instances.length];
+				for (int row = 0; row < instances.length; row++) {
+					if (instances[row] != null) {
+						setRecord((i << CHUNK_SHIFT) + row, instances[row], null);
+					} else {
+						chunk.records[row] = NO_RECORD;
+					}
+				}
+				chunk.instances = null;
+			}
+		}
+		synchronized (this) {
+			records = Arrays.copyOf(records, recordCount);
+			stringIds = null;
+			if (size > 0) {
+				chunk(size - 1).resize(((size - 1) & CHUNK_MASK) + 1);
+			}
+		}
+	}
+
+	/**
+	 * @param xml the XML of {@code instance} if it is already known
+	 */
+	private void setRecord(final int index, @NotNull final BugInstance instance, @Nullable final byte[] xml) {
+		final int offset = writeRecord(instance);
+		if (offset == XML_RECORD) {
+			xmlBugs.put(index, xml != null ? xml : toXml(instance));
+		}
+		chunk(index).records[index & CHUNK_MASK] = offset;
+	}
+
+	/**
+	 * Writes the record of a bug: annotation count, property count, instance occurrence, history,
+	 * the annotations and the properties. Type and priority are already in the columns of the row.
+	 * Records are appended in the order of the indices, so a record ends where the next record
+	 * starts, see {@link #getRecordEnd(int, int, int)}.
+	 *
+	 * @return the offset of the record, {@link #XML_RECORD} if the bug has annotations of unknown types or
+	 * keeps the differing instance hash of an imported bug, see {@link BugInstance#isInstanceHashConsistent()}
+	 */
+	private int writeRecord(@NotNull final BugInstance instance) {
+		if (!instance.isInstanceHashConsistent()) {
+			return XML_RECORD;
+		}
+		final List<? extends BugAnnotation> annotations = instance.getAnnotations();
+		for (final BugAnnotation annotation : annotations) {
+			if (getAnnotationType(annotation) == -1) {
+				return XML_RECORD;
+			}
+		}
+		final List<BugProperty> properties = new ArrayList<>();
+		for (final Iterator<BugProperty> it = instance.propertyIterator(); it.hasNext(); ) {
+			properties.add(it.next());
+		}
+
+		final int ret = recordCount;
+		writeInt(annotations.size());
+		writeInt(properties.size());
+		writeInt(instance.getInstanceOccurrenceNum());
+		writeInt(instance.getInstanceOccurrenceMax());
+		writeLong(instance.getFirstVersion());
+		writeLong(instance.getLastVersion());
+		writeInt((instance.isIntroducedByChangeOfExistingClass() ? 1 : 0) | (instance.isRemovedByChangeOfPersistingClass() ? 2 : 0));
+		for (final BugAnnotation annotation : annotations) {
+			final int type = getAnnotationType(annotation);
+			writeInt(type);
+			switch (type) {
+				case CLASS_ANNOTATION: {
+					final ClassAnnotation classAnnotation = (ClassAnnotation) annotation;
+					writeInt(id(classAnnotation.getClassName(), false));
+					writeInt(idOrNone(classAnnotation.getDescription()));
+					writeSourceLines(classAnnotation.getSourceLines());
+					break;
+				}
+				case METHOD_ANNOTATION: {
+					final MethodAnnotation methodAnnotation = (MethodAnnotation) annotation;
+					writeInt(id(methodAnnotation.getClassName(), false));
+					writeInt(id(methodAnnotation.getMethodName(), false));
+					writeInt(id(methodAnnotation.getMethodSignature(), false));
+					writeInt(methodAnnotation.isStatic() ? 1 : 0);
+					writeInt(idOrNone(methodAnnotation.getDescription()));
+					writeSourceLines(methodAnnotation.getSourceLines());
+					break;
+				}
+				case FIELD_ANNOTATION: {
+					final FieldAnnotation fieldAnnotation = (FieldAnnotation) annotation;
+					writeInt(id(fieldAnnotation.getClassName(), false));
+					writeInt(id(fieldAnnotation.getFieldName(), false));
+					writeInt(id(fieldAnnotation.getFieldSignature(), false));
+					writeInt(idOrNone(getFieldSourceSignature(fieldAnnotation)));
+					writeInt(fieldAnnotation.isStatic() ? 1 : 0);
+					writeInt(idOrNone(fieldAnnotation.getDescription()));
+					writeSourceLines(fieldAnnotation.getSourceLines());
+					break;
+				}
+				case SOURCE_LINE_ANNOTATION:
+					writeSourceLines((SourceLineAnnotation) annotation);
+					break;
+				case INT_ANNOTATION: {
+					final IntAnnotation intAnnotation = (IntAnnotation) annotation;
+					writeInt(intAnnotation.getValue());
+					writeInt(idOrNone(intAnnotation.getDescription()));
+					break;
+				}
+				case STRING_ANNOTATION: {
+					final StringAnnotation stringAnnotation = (StringAnnotation) annotation;
+					writeInt(idOrNone(stringAnnotation.getValue()));
+					writeInt(idOrNone(stringAnnotation.getDescription()));
+					break;
+				}
+				case LOCAL_VARIABLE_ANNOTATION: {
+					final LocalVariableAnnotation localVariableAnnotation = (LocalVariableAnnotation) annotation;
+					writeInt(idOrNone(localVariableAnnotation.getName()));
+					writeInt(localVariableAnnotation.getRegister());
+					writeInt(localVariableAnnotation.getPC());
+					writeInt(idOrNone(localVariableAnnotation.getDescription()));
+					break;
+				}
+				case TYPE_ANNOTATION: {
+					final TypeAnnotation typeAnnotation = (TypeAnnotation) annotation;
+					writeInt(id(typeAnnotation.getTypeDescriptor(), false));
+					writeInt(idOrNone(typeAnnotation.getTypeParameters()));
+					writeInt(idOrNone(typeAnnotation.getDescription()));
+					writeSourceLines(typeAnnotation.getSourceLines());
+					break;
+				}
+				default:
+					throw new IllegalStateException("Unknown annotation type " + type);
+			}
+		}
+		for (final BugProperty property : properties) {
+			writeInt(id(property.getName(), true));
+			writeInt(idOrNone(property.getValue()));
+		}
+		return ret;
+	}
+
+	/**
+	 * Subclasses of the annotation types may have additional state, so they are kept as XML.
+	 *
+	 * @return the annotation type of the record, {@code -1} if the annotation can not be written as record
+	 */
+	private static int getAnnotationType(@NotNull final BugAnnotation annotation) {
+		final Class<?> type = annotation.getClass();
+		if (type == ClassAnnotation.class) {
+			return CLASS_ANNOTATION;
+		} else if (type == MethodAnnotation.class) {
+			return METHOD_ANNOTATION;
+		} else if (type == FieldAnnotation.class) {
+			return FIELD_ANNOTATION;
+		} else if (type == SourceLineAnnotation.class) {
+			return SOURCE_LINE_ANNOTATION;
+		} else if (type == IntAnnotation.class) {
+			return INT_ANNOTATION;
+		} else if (type == StringAnnotation.class) {
+			return STRING_ANNOTATION;
+		} else if (type == LocalVariableAnnotation.class) {
+			return LOCAL_VARIABLE_ANNOTATION;
+		} else if (type == TypeAnnotation.class) {
+			return TYPE_ANNOTATION;
+		}
+		return -1;
+	}
+
+	/**
+	 * {@link FieldAnnotation} has no getter for the generic signature, so it is taken from the attributes
+	 * the annotation writes to the XML.
+	 */
+	@Nullable
+	private static String getFieldSourceSignature(@NotNull final FieldAnnotation fieldAnnotation) {
+		final FieldAttributesOutput out = new FieldAttributesOutput();
+		try {
+			fieldAnnotation.writeXML(out);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.sourceSignature;
+	}
+
+	private void writeSourceLines(@Nullable final SourceLineAnnotation sourceLines) {
+		if (sourceLines == null) {
+			writeInt(NO_STRING);
+			return;
+		}
+		writeInt(id(sourceLines.getClassName(), false));
+		writeInt(id(sourceLines.getSourceFile(), false));
+		writeInt(sourceLines.getStartLine());
+		writeInt(sourceLines.getEndLine());
+		writeInt(sourceLines.getStartBytecode());
+		writeInt(sourceLines.getEndBytecode());
+		writeInt(idOrNone(sourceLines.getDescription()));
+		writeInt(sourceLines.isSynthetic() ? 1 : 0);
+	}
+
+	private void writeLong(final long value) {
+		writeInt((int) (value >>> 32));
+		writeInt((int) value);
+	}
+
+	private void writeInt(final int value) {
+		if (recordCount == records.length) {
+			records = Arrays.copyOf(records, Math.max(1024, records.length * 2));
+		}
+		records[recordCount++] = value;
+	}
+
+	@NotNull
+	private byte[] toXml(@NotNull final BugInstance instance) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+		final OutputStreamXMLOutput xmlOutput = new OutputStreamXMLOutput(bytes);
+		try {
+			instance.writeXML(xmlOutput, bugCollection, false);
+			xmlOutput.flush();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes the string dictionary and the columns and records of the bugs which are not removed, see
+	 * {@link #readBugs(DataInput, IntConsumer)}. The store is compacted first. The lock of the store is only
+	 * held to take a snapshot of the dictionary and the removed bugs, the rows are written once and read
+	 * without locking.
+	 */
+	void writeBugs(@NotNull final DataOutput out) throws IOException {
+		compact();
+		final String[] strings;
+		final int stringCount;
+		final int size;
+		final BitSet removed;
+		final int[] records;
+		final int recordCount;
+		final Map<Integer, byte[]> xmlBugs;
+		synchronized (this) {
+			strings = this.strings;
+			stringCount = this.stringCount;
+			size = this.size;
+			removed = (BitSet) this.removed.clone();
+			records = this.records;
+			recordCount = this.recordCount;
+			xmlBugs = new HashMap<>(this.xmlBugs);
+		}
+		out.writeInt(stringCount);
+		for (int i = 0; i < stringCount; i++) {
+			final byte[] bytes = strings[i].getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		out.writeInt(size - removed.cardinality());
+		for (int index = 0; index < size; index++) {
+			if (removed.get(index)) {
+				continue;
+			}
+			final Chunk chunk = chunk(index);
+			final int row = index & CHUNK_MASK;
+			out.writeInt(chunk.fullClassName[row]);
+			out.writeInt(chunk.className[row]);
+			out.writeInt(chunk.packageName[row]);
+			out.writeInt(chunk.sourcePath[row]);
+			out.writeInt(chunk.methodName[row]);
+			out.writeInt(chunk.fieldName[row]);
+			out.writeInt(chunk.type[row]);
+			out.writeByte(chunk.priority[row]);
+			out.writeByte(chunk.rank[row]);
+			out.writeInt(chunk.startLine[row]);
+			out.writeInt(chunk.endLine[row]);
+			final int offset = chunk.records[row];
+			if (offset == XML_RECORD) {
+				final byte[] xml = xmlBugs.get(index);
+				out.writeInt(XML_RECORD);
+				out.writeInt(xml.length);
+				out.write(xml);
+			} else {
+				final int end = getRecordEnd(index, size, recordCount);
+				out.writeInt(end - offset);
+				for (int i = offset; i < end; i++) {
+					out.writeInt(records[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the end of the record of the bug at {@code index}, the start of the next record
+	 */
+	private int getRecordEnd(final int index, final int size, final int recordCount) {
+		for (int next = index + 1; next < size; next++) {
+			final int offset = chunk(next).records[next & CHUNK_MASK];
+			if (offset >= 0) {
+				return offset;
+			}
+		}
+		return recordCount;
+	}
+
+	/**
+	 * Reads the bugs written by {@link #writeBugs(DataOutput)} into this store, which must be compacted and empty.
+	 * The dictionary becomes the dictionary of this store and the records are copied, no bug instances are
+	 * created. Each row is added under the lock of the store, the file is read without holding it.
+	 *
+	 * @param added invoked with the index of every added bug
+	 */
+	void readBugs(@NotNull final DataInput in, @NotNull final IntConsumer added) throws IOException {
+		final int stringCount = in.readInt();
+		final String[] strings = new String[Math.max(16, stringCount)];
+		for (int i = 0; i < stringCount; i++) {
+			final byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		synchronized (this) {
+			if (!compacted || size != 0 || this.stringCount != 0) {
+				throw new IllegalStateException("Bug store is not compacted and empty");
+			}
+			this.strings = strings;
+			this.stringCount = stringCount;
+			stringIds = null;
+		}
+		final int bugCount = in.readInt();
+		for (int i = 0; i < bugCount; i++) {
+			final int fullClassName = in.readInt();
+			final int className = in.readInt();
+			final int packageName = in.readInt();
+			final int sourcePath = in.readInt();
+			final int methodName = in.readInt();
+			final int fieldName = in.readInt();
+			final int type = in.readInt();
+			final byte priority = in.readByte();
+			final byte rank = in.readByte();
+			final int startLine = in.readInt();
+			final int endLine = in.readInt();
+			final int recordLength = in.readInt();
+			final int[] record;
+			final byte[] xml;
+			if (recordLength == XML_RECORD) {
+				record = null;
+				xml = new byte[in.readInt()];
+				in.readFully(xml);
+			} else {
+				record = new int[recordLength];
+				for (int j = 0; j < recordLength; j++) {
+					record[j] = in.readInt();
+				}
+				xml = null;
+			}
+			final int index;
+			synchronized (this) {
+				index = newRow();
+				final Chunk chunk = chunk(index);
+				final int row = index & CHUNK_MASK;
+				chunk.fullClassName[row] = intern(fullClassName);
+				chunk.className[row] = intern(className);
+				chunk.packageName[row] = intern(packageName);
+				chunk.sourcePath[row] = intern(sourcePath);
+				chunk.methodName[row] = intern(methodName);
+				chunk.fieldName[row] = intern(fieldName);
+				chunk.type[row] = intern(type);
+				chunk.priority[row] = priority;
+				chunk.rank[row] = rank;
+				chunk.startLine[row] = startLine;
+				chunk.endLine[row] = endLine;
+				if (!bugPatterns.containsKey(strings[type]) || priorityStrings[getPriorityIndex(priority)] == null) {
+					setPattern(new BugInstance(strings[type], priority));
+				}
+				if (record != null) {
+					chunk.records[row] = recordCount;
+					for (final int value : record) {
+						writeInt(value);
+					}
+				} else {
+					chunk.records[row] = XML_RECORD;
+					xmlBugs.put(index, xml);
+				}
+				size++;
+			}
+			added.accept(index);
+		}
+	}
+
+	/**
+	 * Interns a string read by {@link #readBugs(DataInput, IntConsumer)} which is shown in the bug tree, like
+	 * {@link #id(String, boolean)} does for the strings of the columns.
+	 *
+	 * @return {@code id}
+	 */
+	private int intern(final int id) {
+		if (id >= 0) {
+			strings[id] = strings[id].intern();
+		}
+		return id;
+	}
+
+	/**
+	 * @return a new collection with the metadata and all bugs of this store, for an export
+	 */
+	@NotNull
+	public SortedBugCollection toBugCollection() {
+		final SortedBugCollection ret = bugCollection.createEmptyCollectionWithMetadata();
+		addTo(ret);
+		return ret;
+	}
+
+	/**
+	 * Adds the bugs of this store to {@code bugCollection}, f. e. the collection of another store of the same
+	 * module (see {@link FindBugsResult#getResultsByModule()}).
+	 */
+	public void addTo(@NotNull final SortedBugCollection bugCollection) {
+		for (final BugInstance instance : getInstances()) {
+			bugCollection.add(instance, false);
+		}
+	}
+
+	/**
+	 * Reads a record written by {@link #writeRecord(BugInstance)}. Must be used while holding the lock of the store.
+	 */
+	private final class RecordReader {
+
+		private int position;
+
+		RecordReader(final int offset) {
+			position = offset;
+		}
+
+		@NotNull
+		BugInstance readBug(@NotNull final String type, final int priority) {
+			final BugInstance ret = new BugInstance(type, priority);
+			ret.setPriority(priority);
+			final int annotationCount = readInt();
+			final int propertyCount = readInt();
+			ret.setInstanceOccurrenceNum(readInt());
+			ret.setInstanceOccurrenceMax(readInt());
+			ret.setFirstVersion(readLong());
+			ret.setLastVersion(readLong());
+			final int flags = readInt();
+			ret.setIntroducedByChangeOfExistingClass((flags & 1) != 0);
+			ret.setRemovedByChangeOfPersistingClass((flags & 2) != 0);
+			for (int i = 0; i < annotationCount; i++) {
+				ret.add(readAnnotation());
+			}
+			for (int i = 0; i < propertyCount; i++) {
+				ret.setProperty(readString(), readString());
+			}
+			return ret;
+		}
+
+		@NotNull
+		private BugAnnotation readAnnotation() {
+			final int type = readInt();
+			switch (type) {
+				case CLASS_ANNOTATION: {
+					final ClassAnnotation ret = new ClassAnnotation(readString());
+					ret.setDescription(readString());
+					setSourceLines(ret, readSourceLines());
+					return ret;
+				}
+				case METHOD_ANNOTATION: {
+					final MethodAnnotation ret = new MethodAnnotation(readString(), readString(), readString(), readInt() != 0);
+					ret.setDescription(readString());
+					setSourceLines(ret, readSourceLines());
+					return ret;
+				}
+				case FIELD_ANNOTATION: {
+					final FieldAnnotation ret = new FieldAnnotation(readString(), readString(), readString(), readString(), readInt() != 0);
+					ret.setDescription(readString());
+					setSourceLines(ret, readSourceLines());
+					return ret;
+				}
+				case SOURCE_LINE_ANNOTATION:
+					//noinspection ConstantConditions
+					return readSourceLines();
+				case INT_ANNOTATION: {
+					final IntAnnotation ret = new IntAnnotation(readInt());
+					ret.setDescription(readString());
+					return ret;
+				}
+				case STRING_ANNOTATION: {
+					final StringAnnotation ret = new StringAnnotation(readString());
+					ret.setDescription(readString());
+					return ret;
+				}
+				case LOCAL_VARIABLE_ANNOTATION: {
+					final LocalVariableAnnotation ret = new LocalVariableAnnotation(readString(), readInt(), readInt());
+					ret.setDescription(readString());
+					return ret;
+				}
+				case TYPE_ANNOTATION: {
+					final TypeAnnotation ret = new TypeAnnotation(readString());
+					ret.setTypeParameters(readString());
+					ret.setDescription(readString());
+					setSourceLines(ret, readSourceLines());
+					return ret;
+				}
+				default:
+					throw new IllegalStateException("Unknown annotation type " + type);
+			}
+		}
+
+		@Nullable
+		private SourceLineAnnotation readSourceLines() {
+			final String className = readString();
+			if (className == null) {
+				return null;
+			}
+			final SourceLineAnnotation ret = new SourceLineAnnotation(className, readString(), readInt(), readInt(), readInt(), readInt());
+			ret.setDescription(readString());
+			ret.setSynthetic(readInt() != 0);
+			return ret;
+		}
+
+		private void setSourceLines(@NotNull final BugAnnotationWithSourceLines annotation, @Nullable final SourceLineAnnotation sourceLines) {
+			if (sourceLines != null) {
+				annotation.setSourceLines(sourceLines);
+			}
+		}
+
+		private int readInt() {
+			return records[position++];
+		}
+
+		private long readLong() {
+			return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+		}
+
+		@Nullable
+		private String readString() {
+			return string(readInt());
+		}
+	}
+
+	/**
+	 * Parses the XML of bugs. Creating the parser and the collection the parsed bugs are
+	 * added to costs more than parsing a single bug, so the reader is reused.
+	 */
+	private final class BugReader {
+
+		@NotNull
+		private final XMLReader xmlReader;
+
+		@NotNull
+		private final SortedBugCollection target;
+
+		private Consumer<BugInstance> bugs;
+
+		BugReader() {
+			try {
+				xmlReader = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+			} catch (final ParserConfigurationException | SAXException e) {
+				throw new IllegalStateException("Could not create XML reader", e);
+			}
+			target = new SortedBugCollection(bugCollection.getProject()) {
+				@Override
+				public boolean add(@NotNull final BugInstance bugInstance, final boolean updateActiveTime) {
+					bugs.accept(bugInstance);
+					return true;
+				}
+			};
+		}
+
+		/**
+		 * Parses the XML of {@code xml} in one pass.
+		 */
+		void read(@NotNull final List<byte[]> xml, @NotNull final Consumer<BugInstance> bugs) {
+			this.bugs = bugs;
+			final Iterator<byte[]> it = xml.iterator();
+			final InputStream in = new SequenceInputStream(new Enumeration<InputStream>() {
+				private boolean prologue = true;
+				private boolean epilogue = true;
+
+				@Override
+				public boolean hasMoreElements() {
+					return epilogue;
+				}
+
+				@Override
+				public InputStream nextElement() {
+					if (prologue) {
+						prologue = false;
+						return new ByteArrayInputStream(XML_PROLOGUE);
+					}
+					if (it.hasNext()) {
+						return new ByteArrayInputStream(it.next());
+					}
+					epilogue = false;
+					return new ByteArrayInputStream(XML_EPILOGUE);
+				}
+			});
+			final SAXBugCollectionHandler handler = new SAXBugCollectionHandler(target);
+			xmlReader.setContentHandler(handler);
+			xmlReader.setErrorHandler(handler);
+			try {
+				xmlReader.parse(new InputSource(in));
+			} catch (final SAXException e) {
+				throw new IllegalStateException("Could not read bug", e);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				this.bugs = null;
+			}
+		}
+	}
+
+	/**
+	 * Keeps the generic signature a {@link FieldAnnotation} writes to its XML element and ignores the rest.
+	 */
+	private static final class FieldAttributesOutput implements XMLOutput {
+
+		@Nullable
+		private String sourceSignature;
+
+		@Override
+		public void beginDocument() {
+		}
+
+		@Override
+		public void openTag(final String tagName) {
+		}
+
+		@Override
+		public void openTag(final String tagName, final XMLAttributeList attributeList) {
+			if (!"Field".equals(tagName)) {
+				return;
+			}
+			for (final Iterator<XMLAttributeList.NameValuePair> it = attributeList.iterator(); it.hasNext(); ) {
+				final XMLAttributeList.NameValuePair attribute = it.next();
+				if ("sourceSignature".equals(attribute.getName())) {
+					sourceSignature = attribute.getValue();
+				}
+			}
+		}
+
+		@Override
+		public void startTag(final String tagName) {
+		}
+
+		@Override
+		public void addAttribute(final String name, final String value) {
+		}
+
+		@Override
+		public void stopTag(final boolean close) {
+		}
+
+		@Override
+		public void openCloseTag(final String tagName) {
+		}
+
+		@Override
+		public void openCloseTag(final String tagName, final XMLAttributeList attributeList) {
+		}
+
+		@Override
+		public void closeTag(final String tagName) {
+		}
+
+		@Override
+		public void writeText(final String text) {
+		}
+
+		@Override
+		public void writeCDATA(final String cdata) {
+		}
+
+		@Override
+		public void finish() {
+		}
+	}
+
+	private static final class Chunk {
+		int[] fullClassName;
+		int[] className;
+		int[] packageName;
+		int[] sourcePath;
+		int[] methodName;
+		int[] fieldName;
+		int[] type;
+		byte[] priority;
+		byte[] rank;
+		int[] startLine;
+		int[] endLine;
+
+		/**
+		 * The bugs until the store is compacted, {@code null} afterwards. Guarded by the store.
+		 */
+		BugInstance[] instances;
+
+		/**
+		 * The record offsets of the bugs once the store is compacted. Guarded by the store.
+		 */
+		int[] records;
+
+		Chunk(final int capacity, final boolean compacted) {
+			fullClassName = new int[capacity];
+			className = new int[capacity];
+			packageName = new int[capacity];
+			sourcePath = new int[capacity];
+			methodName = new int[capacity];
+			fieldName = new int[capacity];
+			type = new int[capacity];
+			priority = new byte[capacity];
+			rank = new byte[capacity];
+			startLine = new int[capacity];
+			endLine = new int[capacity];
+			if (compacted) {
+				records = new int[capacity];
+			} else {
+				instances = new BugInstance[capacity];
+			}
+		}
+
+		/**
+		 * Copies the rows into arrays of {@code capacity} rows. Rows which are already published are
+		 * read without locking, they are the same in the old and in the new arrays.
+		 */
+		void resize(final int capacity) {
+			fullClassName = Arrays.copyOf(fullClassName, capacity);
+			className = Arrays.copyOf(className, capacity);
+			packageName = Arrays.copyOf(packageName, capacity);
+			sourcePath = Arrays.copyOf(sourcePath, capacity);
+			methodName = Arrays.copyOf(methodName, capacity);
+			fieldName = Arrays.copyOf(fieldName, capacity);
+			type = Arrays.copyOf(type, capacity);
+			priority = Arrays.copyOf(priority, capacity);
+			rank = Arrays.copyOf(rank, capacity);
+			startLine = Arrays.copyOf(startLine, capacity);
+			endLine = Arrays.copyOf(endLine, capacity);
+			if (instances != null) {
+				instances = Arrays.copyOf(instances, capacity);
+			}
+			if (records != null) {
+				records = Arrays.copyOf(records, capacity);
+			}
+		}
+	}
+}
@@ -0,0 +1,470 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.util.FileUtilFb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-disk index of the class level dependencies between the compiled classes of a project
+ * (see {@link WorkspaceSettings#analyzeAfterAutoMakeDependentsDepth}).
+ * <p>
+ * The dependencies of a class are the classes referenced by the constant pool of its class file
+ * and by the descriptors of its fields and methods. Only class files whose size or modification time changed
+ * since the last update are read again. Note that constants inlined by the compiler are not visible in the class file,
+ * so a class using a changed constant is not found as dependent.
+ */
+final class ClassDependencyIndex {
+
+	private static final Logger LOGGER = Logger.getInstance(ClassDependencyIndex.class);
+
+	private static final int VERSION = 1;
+	private static final String CLASS_FILE_SUFFIX = ".class";
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_DYNAMIC = 17;
+	private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+	private static final int CONSTANT_MODULE = 19;
+	private static final int CONSTANT_PACKAGE = 20;
+
+	@NotNull
+	private final File indexFile;
+
+	/**
+	 * Class name to class file and referenced classes.
+	 */
+	@NotNull
+	private Map<String, Entry> entries;
+
+	@NotNull
+	private List<String> roots;
+
+	@Nullable
+	private Map<String, List<String>> dependentsByClass;
+
+	private ClassDependencyIndex(@NotNull final File indexFile) {
+		this.indexFile = indexFile;
+		entries = new HashMap<>();
+		roots = Collections.emptyList();
+	}
+
+	@NotNull
+	static ClassDependencyIndex load(@NotNull final Project project) {
+		final File dir = new File(PathManager.getSystemPath(), "spotbugs-idea/dependencies/" + project.getLocationHash());
+		final ClassDependencyIndex ret = new ClassDependencyIndex(new File(dir, "classes.index"));
+		ret.read();
+		return ret;
+	}
+
+	private void read() {
+		if (!indexFile.isFile()) {
+			return;
+		}
+		try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			if (in.readInt() != VERSION) {
+				return;
+			}
+			final int count = in.readInt();
+			final String[] classNames = new String[count];
+			final Entry[] read = new Entry[count];
+			for (int i = 0; i < count; i++) {
+				classNames[i] = in.readUTF();
+				read[i] = new Entry(in.readUTF(), in.readLong(), in.readLong());
+			}
+			for (int i = 0; i < count; i++) {
+				final int referenceCount = in.readInt();
+				for (int j = 0; j < referenceCount; j++) {
+					read[i].references.add(classNames[in.readInt()]);
+				}
+				entries.put(classNames[i], read[i]);
+			}
+		} catch (final IOException | RuntimeException e) {
+			LOGGER.warn("Could not read " + indexFile, e);
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Synchronizes the index with the class files of {@code changedDirs} and of the output directories
+	 * which are not indexed yet. The entries of the other output directories are kept, so only the output
+	 * directories of the compiled modules are walked. Classes outside of {@code outputDirs} are removed from the index.
+	 */
+	void update(@NotNull final Collection<String> outputDirs, @NotNull final Collection<String> changedDirs) {
+		final List<String> newRoots = new ArrayList<>(outputDirs.size());
+		for (final String outputDir : outputDirs) {
+			newRoots.add(FileUtil.toSystemIndependentName(outputDir) + "/");
+		}
+		final Map<String, Map<String, Entry>> entriesByRoot = new HashMap<>();
+		for (final Map.Entry<String, Entry> entry : entries.entrySet()) {
+			final String path = FileUtil.toSystemIndependentName(entry.getValue().file);
+			for (final String root : newRoots) {
+				if (path.startsWith(root)) {
+					entriesByRoot.computeIfAbsent(root, k -> new HashMap<>()).put(entry.getKey(), entry.getValue());
+					break;
+				}
+			}
+		}
+
+		final Map<String, Entry> newEntries = new HashMap<>();
+		final int[] read = new int[1];
+		int walked = 0;
+		for (final String outputDir : outputDirs) {
+			final String root = FileUtil.toSystemIndependentName(outputDir) + "/";
+			final Map<String, Entry> indexed = entriesByRoot.get(root);
+			if (indexed != null && !changedDirs.contains(outputDir)) {
+				for (final Map.Entry<String, Entry> entry : indexed.entrySet()) {
+					newEntries.putIfAbsent(entry.getKey(), entry.getValue());
+				}
+				continue;
+			}
+			walked++;
+			final File dir = new File(outputDir);
+			if (!dir.isDirectory()) {
+				continue;
+			}
+			try {
+				Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(final Path path, final BasicFileAttributes attrs) {
+						final String file = path.toString();
+						final String className = getClassName(FileUtil.toSystemIndependentName(file), root);
+						if (className == null || newEntries.containsKey(className)) {
+							return FileVisitResult.CONTINUE;
+						}
+						final long lastModified = attrs.lastModifiedTime().toMillis();
+						Entry entry = entries.get(className);
+						if (entry == null || !entry.file.equals(file) || entry.size != attrs.size() || entry.lastModified != lastModified) {
+							entry = new Entry(file, attrs.size(), lastModified);
+							try (final InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+								readReferences(in, entry.references);
+							} catch (final IOException | RuntimeException e) {
+								LOGGER.debug("Could not read " + file, e);
+							}
+							entry.references.remove(className);
+							read[0]++;
+						}
+						newEntries.put(className, entry);
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			} catch (final IOException e) {
+				LOGGER.debug("Could not walk " + dir, e);
+			}
+		}
+		LOGGER.debug("Read dependencies of " + read[0] + " of " + newEntries.size() + " classes in " + walked + " of " + outputDirs.size() + " output directories");
+		entries = newEntries;
+		roots = newRoots;
+		dependentsByClass = null;
+	}
+
+	/**
+	 * @return class name of {@code file} or null if it is not a class file in one of the output directories
+	 */
+	@Nullable
+	String getClassName(@NotNull final String file) {
+		final String path = FileUtil.toSystemIndependentName(file);
+		for (final String root : roots) {
+			final String ret = getClassName(path, root);
+			if (ret != null) {
+				return ret;
+			}
+		}
+		return null;
+	}
+
+	@Nullable
+	String getClassFile(@NotNull final String className) {
+		final Entry entry = entries.get(className);
+		return entry != null ? entry.file : null;
+	}
+
+	/**
+	 * Returns the classes which depend on one of {@code classNames}, directly or transitively up to {@code depth} levels.
+	 * The given classes itself are not part of the result.
+	 */
+	@NotNull
+	Set<String> getDependents(@NotNull final Collection<String> classNames, final int depth) {
+		final Map<String, List<String>> dependents = getDependentsByClass();
+		final Set<String> visited = new HashSet<>(classNames);
+		final Set<String> ret = new HashSet<>();
+		Collection<String> level = classNames;
+		for (int i = 0; i < depth && !level.isEmpty(); i++) {
+			final List<String> next = new ArrayList<>();
+			for (final String className : level) {
+				for (final String dependent : dependents.getOrDefault(className, Collections.emptyList())) {
+					if (visited.add(dependent)) {
+						ret.add(dependent);
+						next.add(dependent);
+					}
+				}
+			}
+			level = next;
+		}
+		return ret;
+	}
+
+	@NotNull
+	private Map<String, List<String>> getDependentsByClass() {
+		if (dependentsByClass == null) {
+			dependentsByClass = new HashMap<>();
+			for (final Map.Entry<String, Entry> entry : entries.entrySet()) {
+				for (final String reference : entry.getValue().references) {
+					if (entries.containsKey(reference)) {
+						dependentsByClass.computeIfAbsent(reference, k -> new ArrayList<>()).add(entry.getKey());
+					}
+				}
+			}
+		}
+		return dependentsByClass;
+	}
+
+	/**
+	 * Writes the index. References to classes which are not in the index (f. e. JDK or library classes) are dropped.
+	 */
+	void store() {
+		final List<String> classNames = new ArrayList<>(entries.keySet());
+		final Map<String, Integer> indexByClass = new HashMap<>();
+		for (int i = 0; i < classNames.size(); i++) {
+			indexByClass.put(classNames.get(i), i);
+		}
+		try {
+			FileUtilFb.mkdirs(indexFile.getParentFile());
+			final File tmpIndexFile = new File(indexFile.getPath() + ".tmp");
+			try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpIndexFile)))) {
+				out.writeInt(VERSION);
+				out.writeInt(classNames.size());
+				for (final String className : classNames) {
+					final Entry entry = entries.get(className);
+					out.writeUTF(className);
+					out.writeUTF(entry.file);
+					out.writeLong(entry.size);
+					out.writeLong(entry.lastModified);
+				}
+				final List<Integer> references = new ArrayList<>();
+				for (final String className : classNames) {
+					references.clear();
+					for (final String reference : entries.get(className).references) {
+						final Integer index = indexByClass.get(reference);
+						if (index != null) {
+							references.add(index);
+						}
+					}
+					out.writeInt(references.size());
+					for (final int index : references) {
+						out.writeInt(index);
+					}
+				}
+			}
+			Files.move(tmpIndexFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (final IOException e) {
+			LOGGER.warn("Could not write class dependency index " + indexFile, e);
+			FileUtil.delete(indexFile);
+		}
+	}
+
+	@Nullable
+	private static String getClassName(@NotNull final String path, @NotNull final String root) {
+		if (!path.endsWith(CLASS_FILE_SUFFIX) || !path.startsWith(root)) {
+			return null;
+		}
+		return path.substring(root.length(), path.length() - CLASS_FILE_SUFFIX.length()).replace('/', '.');
+	}
+
+	/**
+	 * Adds the names of all classes referenced by the constant pool or by field and method descriptors of the class file.
+	 */
+	static void readReferences(@NotNull final InputStream stream, @NotNull final Set<String> references) throws IOException {
+		final DataInputStream in = new DataInputStream(stream);
+		if (in.readInt() != 0xCAFEBABE) {
+			throw new IOException("Not a class file");
+		}
+		in.readUnsignedShort(); // minor version
+		in.readUnsignedShort(); // major version
+		final int count = in.readUnsignedShort();
+		final String[] utf8 = new String[count];
+		final List<Integer> classes = new ArrayList<>();
+		final List<Integer> descriptors = new ArrayList<>();
+		for (int i = 1; i < count; i++) {
+			final int tag = in.readUnsignedByte();
+			switch (tag) {
+				case CONSTANT_UTF8:
+					utf8[i] = in.readUTF();
+					break;
+				case CONSTANT_CLASS:
+					classes.add(in.readUnsignedShort());
+					break;
+				case CONSTANT_METHOD_TYPE:
+					descriptors.add(in.readUnsignedShort());
+					break;
+				case CONSTANT_NAME_AND_TYPE:
+					in.readUnsignedShort(); // name
+					descriptors.add(in.readUnsignedShort());
+					break;
+				case CONSTANT_STRING:
+				case CONSTANT_MODULE:
+				case CONSTANT_PACKAGE:
+					in.readUnsignedShort();
+					break;
+				case CONSTANT_METHOD_HANDLE:
+					in.readUnsignedByte();
+					in.readUnsignedShort();
+					break;
+				case CONSTANT_INTEGER:
+				case CONSTANT_FLOAT:
+				case CONSTANT_FIELDREF:
+				case CONSTANT_METHODREF:
+				case CONSTANT_INTERFACE_METHODREF:
+				case CONSTANT_DYNAMIC:
+				case CONSTANT_INVOKE_DYNAMIC:
+					in.readInt();
+					break;
+				case CONSTANT_LONG:
+				case CONSTANT_DOUBLE:
+					in.readLong();
+					i++; // takes two entries
+					break;
+				default:
+					throw new IOException("Unknown constant pool tag " + tag);
+			}
+		}
+		in.readUnsignedShort(); // access flags
+		in.readUnsignedShort(); // this class
+		in.readUnsignedShort(); // super class, also a constant pool class entry
+		final int interfaces = in.readUnsignedShort();
+		for (int i = 0; i < interfaces; i++) {
+			in.readUnsignedShort();
+		}
+		for (int member = 0; member < 2; member++) { // fields and methods
+			final int members = in.readUnsignedShort();
+			for (int i = 0; i < members; i++) {
+				in.readUnsignedShort(); // access flags
+				in.readUnsignedShort(); // name
+				descriptors.add(in.readUnsignedShort());
+				final int attributes = in.readUnsignedShort();
+				for (int j = 0; j < attributes; j++) {
+					in.readUnsignedShort(); // name
+					skipFully(in, in.readInt() & 0xFFFFFFFFL);
+				}
+			}
+		}
+
+		for (final int index : classes) {
+			final String name = utf8[index];
+			if (name != null) {
+				if (name.startsWith("[")) {
+					addDescriptorReferences(name, references);
+				} else {
+					references.add(name.replace('/', '.'));
+				}
+			}
+		}
+		for (final int index : descriptors) {
+			final String descriptor = utf8[index];
+			if (descriptor != null) {
+				addDescriptorReferences(descriptor, references);
+			}
+		}
+	}
+
+	private static void addDescriptorReferences(@NotNull final String descriptor, @NotNull final Set<String> references) {
+		int start = descriptor.indexOf('L');
+		while (start >= 0) {
+			final int end = descriptor.indexOf(';', start);
+			if (end < 0) {
+				break;
+			}
+			references.add(descriptor.substring(start + 1, end).replace('/', '.'));
+			start = descriptor.indexOf('L', end);
+		}
+	}
+
+	private static void skipFully(@NotNull final DataInputStream in, final long length) throws IOException {
+		long remaining = length;
+		while (remaining > 0) {
+			final long skipped = in.skip(remaining);
+			if (skipped <= 0) {
+				in.readByte(); // throws EOFException at the end of the stream
+				remaining--;
+			} else {
+				remaining -= skipped;
+			}
+		}
+	}
+
+	private static final class Entry {
+		@NotNull
+		private final String file;
+
+		private final long size;
+
+		private final long lastModified;
+
+		@NotNull
+		private final Set<String> references;
+
+		Entry(@NotNull final String file, final long size, final long lastModified) {
+			this.file = file;
+			this.size = size;
+			this.lastModified = lastModified;
+			references = new HashSet<>();
+		}
+	}
+}
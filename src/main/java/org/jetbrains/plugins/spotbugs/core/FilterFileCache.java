@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.DelegatingBugReporter;
+import edu.umd.cs.findbugs.ExcludingHashesBugReporter;
+import edu.umd.cs.findbugs.filter.Filter;
+import edu.umd.cs.findbugs.filter.Matcher;
+import org.dom4j.DocumentException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parsed filter and baseline files, shared by the analyses of all modules and runs of the IDE session.
+ * SpotBugs parses these files again for every engine, a large baseline bug collection is read for every module.
+ * <p>
+ * A file is parsed again once its size or modification time changed. Of a baseline only the instance hashes
+ * of its bugs are kept, see {@link ExcludingHashesBugReporter}.
+ */
+final class FilterFileCache {
+
+	private static final Map<String, Entry<Matcher>> filters = new HashMap<>(); // @GuardedBy FilterFileCache.class
+	private static final Map<String, Entry<Set<String>>> baselines = new HashMap<>(); // @GuardedBy FilterFileCache.class
+
+	private FilterFileCache() {
+	}
+
+	@NotNull
+	static synchronized Matcher getFilter(@NotNull final String path) throws IOException {
+		final File file = new File(path);
+		final Entry<Matcher> entry = filters.get(path);
+		if (entry != null && entry.isValid(file)) {
+			return entry.value;
+		}
+		final Matcher ret = new Filter(path);
+		filters.put(path, new Entry<>(file, ret));
+		return ret;
+	}
+
+	/**
+	 * @return {@code reporter} which does not report the bugs of the baseline bug collection {@code path}
+	 */
+	@NotNull
+	static BugReporter excludeBaselineBugs(@NotNull final BugReporter reporter, @NotNull final String path) throws IOException, DocumentException {
+		final Set<String> excludedHashes = getBaselineHashes(path);
+		return new DelegatingBugReporter(reporter) {
+			@Override
+			public void reportBug(@NotNull final BugInstance bugInstance) {
+				if (!excludedHashes.contains(bugInstance.getInstanceHash())) {
+					getDelegate().reportBug(bugInstance);
+				}
+			}
+		};
+	}
+
+	@NotNull
+	private static synchronized Set<String> getBaselineHashes(@NotNull final String path) throws IOException, DocumentException {
+		final File file = new File(path);
+		final Entry<Set<String>> entry = baselines.get(path);
+		if (entry != null && entry.isValid(file)) {
+			return entry.value;
+		}
+		final Set<String> hashes = new HashSet<>();
+		ExcludingHashesBugReporter.addToExcludedInstanceHashes(hashes, path);
+		final Set<String> ret = Collections.unmodifiableSet(hashes);
+		baselines.put(path, new Entry<>(file, ret));
+		return ret;
+	}
+
+	private static final class Entry<T> {
+		private final long length;
+		private final long lastModified;
+		@NotNull
+		private final T value;
+
+		/**
+		 * Note that the file is checked after it was parsed; if it changed meanwhile, it is parsed again next time.
+		 */
+		Entry(@NotNull final File file, @NotNull final T value) {
+			this.length = file.length();
+			this.lastModified = file.lastModified();
+			this.value = value;
+		}
+
+		boolean isValid(@NotNull final File file) {
+			return file.length() == length && file.lastModified() == lastModified;
+		}
+	}
+}
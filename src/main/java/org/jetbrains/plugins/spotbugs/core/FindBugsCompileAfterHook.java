@@ -150,6 +150,11 @@ public class FindBugsCompileAfterHook {
 				return false;
 			}
 
+			@Override
+			protected boolean isMergeResult() {
+				return true;
+			}
+
 			@Override
 			protected void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final Consumer<CompileScope> consumer) {
 				throw new UnsupportedOperationException();
@@ -201,6 +206,11 @@ public class FindBugsCompileAfterHook {
 				return false;
 			}
 
+			@Override
+			protected boolean isMergeResult() {
+				return true;
+			}
+
 			@Override
 			protected void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final Consumer<CompileScope> consumer) {
 				throw new UnsupportedOperationException();
@@ -209,6 +219,7 @@ public class FindBugsCompileAfterHook {
 			@Override
 			protected boolean configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProjects projects, final boolean justCompiled) {
 				projects.addFiles(changed, false, hasTests(changed));
+				projects.requestDependentClasses(WorkspaceSettings.getInstance(project).analyzeAfterAutoMakeDependentsDepth);
 				return true;
 			}
 		}.start());
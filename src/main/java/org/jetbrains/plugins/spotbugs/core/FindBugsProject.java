@@ -21,6 +21,7 @@ package org.jetbrains.plugins.spotbugs.core;
 
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiClass;
 import edu.umd.cs.findbugs.Plugin;
@@ -28,11 +29,18 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.collectors.StatelessClassAdder;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class FindBugsProject extends edu.umd.cs.findbugs.Project {
 
+	private static final String CLASS_FILE_SUFFIX = ".class";
+
 	@NotNull
 	private final Project project;
 
@@ -41,6 +49,16 @@ public class FindBugsProject extends edu.umd.cs.findbugs.Project {
 
 	private List<String> _outputFiles;
 
+	/**
+	 * Class files added because they depend on a changed class, see {@link FindBugsProjects#requestDependentClasses(int)}.
+	 */
+	private Set<String> _dependentFiles;
+
+	/**
+	 * Class name to class file of the classes whose bugs were reused from the {@link AnalysisResultCache}.
+	 */
+	private Map<String, String> _reusedClassFiles;
+
 	private StatelessClassAdder classAdder;
 
 	private FindBugsProject(@NotNull final Project project, @NotNull final Module module) {
@@ -77,11 +95,98 @@ public class FindBugsProject extends edu.umd.cs.findbugs.Project {
 		getClassAdder().addContainingClasses(file, psiClass);
 	}
 
+	/**
+	 * Like {@link #addFile(String)} for many absolute paths at once. {@code addFile} checks for duplicates
+	 * with a linear search of the file list, which is quadratic when collecting large output directories.
+	 */
+	public void addFiles(@NotNull final Collection<String> absolutePaths) {
+		final List<String> files = getFileList(); // the live list of analysis targets
+		final Set<String> known = new HashSet<>(files);
+		for (final String path : absolutePaths) {
+			if (known.add(path)) {
+				files.add(path);
+			}
+		}
+	}
+
+	/**
+	 * Like {@link #addFiles(Collection)} for class files which depend on a changed class. Their class files are
+	 * unchanged, but their bugs can change, so the {@link AnalysisResultCache} must not reuse their bugs.
+	 */
+	void addDependentFiles(@NotNull final Collection<String> absolutePaths) {
+		if (_dependentFiles == null) {
+			_dependentFiles = new HashSet<>();
+		}
+		_dependentFiles.addAll(absolutePaths);
+		addFiles(absolutePaths);
+	}
+
+	@NotNull
+	Set<String> getDependentFiles() {
+		return _dependentFiles != null ? _dependentFiles : Collections.emptySet();
+	}
+
 	@NotNull
 	public List<String> getConfiguredOutputFiles() {
 		return _outputFiles != null ? _outputFiles : Collections.emptyList();
 	}
 
+	/**
+	 * @return names of the classes to analyze, that are the class files located in an aux classpath directory
+	 */
+	@NotNull
+	Set<String> getClassNames() {
+		return getClassFiles().keySet();
+	}
+
+	/**
+	 * @return class name to class file of the classes to analyze, see {@link #getClassNames()}
+	 */
+	@NotNull
+	Map<String, String> getClassFiles() {
+		final List<String> roots = new ArrayList<>();
+		for (final String entry : getAuxClasspathEntryList()) {
+			roots.add(FileUtil.toSystemIndependentName(entry) + "/");
+		}
+		final Map<String, String> ret = new HashMap<>();
+		for (final String file : getFileList()) {
+			final String path = FileUtil.toSystemIndependentName(file);
+			if (path.endsWith(CLASS_FILE_SUFFIX)) {
+				for (final String root : roots) {
+					if (path.startsWith(root)) {
+						ret.put(path.substring(root.length(), path.length() - CLASS_FILE_SUFFIX.length()).replace('/', '.'), file);
+						break;
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Records that the bugs of {@code className} were reused from the {@link AnalysisResultCache}, the class file
+	 * was removed from the classes to analyze.
+	 */
+	void addReusedClassFile(@NotNull final String className, @NotNull final String file) {
+		if (_reusedClassFiles == null) {
+			_reusedClassFiles = new HashMap<>();
+		}
+		_reusedClassFiles.put(className, file);
+	}
+
+	/**
+	 * @return class name to class file of the classes of the result, that are the analyzed classes
+	 * and the classes whose bugs were reused (see {@link #addReusedClassFile(String, String)})
+	 */
+	@NotNull
+	Map<String, String> getResultClassFiles() {
+		final Map<String, String> ret = getClassFiles();
+		if (_reusedClassFiles != null) {
+			ret.putAll(_reusedClassFiles);
+		}
+		return ret;
+	}
+
 	@NotNull
 	static FindBugsProject create(
 			@NotNull final Project project,
@@ -19,13 +19,17 @@
  */
 package org.jetbrains.plugins.spotbugs.core;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.CompilerModuleExtension;
 import com.intellij.openapi.roots.CompilerProjectExtension;
 import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiJavaFile;
@@ -44,6 +48,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -58,9 +63,18 @@ public final class FindBugsProjects {
 	@NotNull
 	private final Map<Module, FindBugsProject> projects;
 
+	/**
+	 * Output directories of all modules, see {@link #requestDependentClasses(int)}.
+	 */
+	@NotNull
+	private final Map<String, OutputDir> outputDirs;
+
+	private int dependentsDepth;
+
 	FindBugsProjects(@NotNull final Project project) {
 		this.project = project;
 		projects = new HashMap<>();
+		outputDirs = new LinkedHashMap<>();
 	}
 
 	public boolean addFiles(@NotNull final Iterable<VirtualFile> files, final boolean checkCompiled, final boolean includeTests) {
@@ -151,6 +165,118 @@ public final class FindBugsProjects {
 		return ret;
 	}
 
+	/**
+	 * Requests that the classes which depend on the added classes, directly or transitively up to {@code depth} levels,
+	 * are analyzed too (see {@link #addDependentClasses(ProgressIndicator, AnalysisTimings)}).
+	 * Must be called in a read action (typically by {@link FindBugsStarter#configure}).
+	 */
+	public void requestDependentClasses(final int depth) {
+		dependentsDepth = depth;
+		outputDirs.clear();
+		if (depth <= 0) {
+			return;
+		}
+		for (final Module module : ModuleManager.getInstance(project).getModules()) {
+			final CompilerModuleExtension extension = CompilerModuleExtension.getInstance(module);
+			if (extension != null) {
+				addOutputDir(extension.getCompilerOutputPath(), module, false);
+				addOutputDir(extension.getCompilerOutputPathForTests(), module, true);
+			}
+		}
+	}
+
+	private void addOutputDir(@Nullable final VirtualFile path, @NotNull final Module module, final boolean tests) {
+		if (path != null) {
+			final String canonicalPath = path.getCanonicalPath();
+			if (canonicalPath != null && !outputDirs.containsKey(canonicalPath)) {
+				outputDirs.put(canonicalPath, new OutputDir(module, tests));
+			}
+		}
+	}
+
+	/**
+	 * Adds the class files which depend on the already added classes (see {@link ClassDependencyIndex}) if requested
+	 * by {@link #requestDependentClasses(int)}. The class dependency index is updated, so this is called outside
+	 * of the read action.
+	 */
+	void addDependentClasses(@NotNull final ProgressIndicator indicator, @NotNull final AnalysisTimings timings) {
+		if (dependentsDepth <= 0 || projects.isEmpty()) {
+			return;
+		}
+		final AnalysisTimings.Measurement measurement = timings.start(AnalysisTimings.FIND_DEPENDENT_CLASSES);
+		try {
+			addDependentClassesImpl(indicator);
+		} finally {
+			measurement.stop();
+		}
+	}
+
+	private void addDependentClassesImpl(@NotNull final ProgressIndicator indicator) {
+		indicator.setText("Find dependent classes...");
+		final Set<String> changedOutputDirs = new HashSet<>();
+		for (final FindBugsProject findBugsProject : projects.values()) {
+			for (final String file : findBugsProject.getFileList()) {
+				final String outputDir = getOutputDir(file);
+				if (outputDir != null) {
+					changedOutputDirs.add(outputDir);
+				}
+			}
+		}
+		final ClassDependencyIndex index = ClassDependencyIndex.load(project);
+		index.update(outputDirs.keySet(), changedOutputDirs);
+		index.store();
+
+		final Set<String> changed = new HashSet<>();
+		for (final FindBugsProject findBugsProject : projects.values()) {
+			for (final String file : findBugsProject.getFileList()) {
+				final String className = index.getClassName(file);
+				if (className != null) {
+					changed.add(className);
+				}
+			}
+		}
+		final Set<String> dependents = index.getDependents(changed, dependentsDepth);
+		if (dependents.isEmpty()) {
+			return;
+		}
+		LOGGER.debug("Add " + dependents.size() + " classes depending on " + changed.size() + " changed classes");
+
+		final Map<String, List<String>> filesByOutputDir = new HashMap<>();
+		for (final String className : dependents) {
+			final String file = index.getClassFile(className);
+			if (file != null) {
+				final String outputDir = getOutputDir(file);
+				if (outputDir != null) {
+					filesByOutputDir.computeIfAbsent(outputDir, k -> new ArrayList<>()).add(file);
+				}
+			}
+		}
+		ApplicationManager.getApplication().runReadAction(() -> {
+			for (final Map.Entry<String, List<String>> entry : filesByOutputDir.entrySet()) {
+				final OutputDir outputDir = outputDirs.get(entry.getKey());
+				if (outputDir.module.isDisposed()) {
+					continue;
+				}
+				final FindBugsProject findBugsProject = get(outputDir.module, outputDir.tests);
+				if (outputDir.tests) { // project of the module could be created without tests
+					findBugsProject.addAuxClasspathEntry(entry.getKey());
+				}
+				findBugsProject.addDependentFiles(entry.getValue());
+			}
+		});
+	}
+
+	@Nullable
+	private String getOutputDir(@NotNull final String file) {
+		final String path = FileUtil.toSystemIndependentName(file);
+		for (final String outputDir : outputDirs.keySet()) {
+			if (path.startsWith(FileUtil.toSystemIndependentName(outputDir) + "/")) {
+				return outputDir;
+			}
+		}
+		return null;
+	}
+
 	@NotNull
 	private String makeProjectName(@Nullable final Module module) {
 		if (module != null) {
@@ -216,4 +342,16 @@ public final class FindBugsProjects {
 		EventDispatchThreadHelper.invokeLater(() -> BalloonTipFactory.showToolWindowWarnNotifier(
 				project, message + " " + ResourcesLoader.getString("analysis.aborted")));
 	}
+
+	private static final class OutputDir {
+		@NotNull
+		private final Module module;
+
+		private final boolean tests;
+
+		OutputDir(@NotNull final Module module, final boolean tests) {
+			this.module = module;
+			this.tests = tests;
+		}
+	}
 }
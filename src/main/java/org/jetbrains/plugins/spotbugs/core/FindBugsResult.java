@@ -19,33 +19,52 @@
  */
 package org.jetbrains.plugins.spotbugs.core;
 
+import com.intellij.openapi.module.Module;
 import edu.umd.cs.findbugs.Project;
 import edu.umd.cs.findbugs.ProjectStats;
-import edu.umd.cs.findbugs.SortedBugCollection;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public final class FindBugsResult {
 	@NotNull
-	private final Map<Project, SortedBugCollection> results;
+	private final Map<Project, BugStore> results;
+
+	@NotNull
+	private final AnalysisTimings timings;
+
+	@Nullable
+	private Set<String> mergeScope;
+
+	/**
+	 * The analyzed class count per module of a merged result, see {@link #mergeInto(FindBugsResult)}.
+	 */
+	@Nullable
+	private Map<Module, Integer> mergedClassCounts;
+
+	private boolean restored;
 
 	public FindBugsResult() {
-		this.results = new HashMap<>();
+		this.results = new LinkedHashMap<>();
+		this.timings = new AnalysisTimings();
 	}
 
-	public void put(@NotNull final Project project, @Nullable final SortedBugCollection bugCollection) {
-		if (results.put(project, bugCollection) != null) {
+	public void put(@NotNull final Project project, @NotNull final BugStore bugStore) {
+		if (results.put(project, bugStore) != null) {
 			throw new IllegalStateException("Duplicate project " + project);
 		}
 	}
 
 	public boolean isBugCollectionEmpty() {
-		for (final SortedBugCollection bugCollection : results.values()) {
-			if (!bugCollection.getCollection().isEmpty()) {
+		for (final BugStore bugStore : results.values()) {
+			if (bugStore.getBugCount() != 0) {
 				return false;
 			}
 		}
@@ -62,20 +81,38 @@ public final class FindBugsResult {
 
 	@Nullable
 	public Integer getAnalyzedClassCount() {
-		int ret = -1;
-		for (final SortedBugCollection bugCollection : results.values()) {
-			final ProjectStats stats = bugCollection.getProjectStats();
+		final Map<Module, Integer> classCounts = getAnalyzedClassCounts();
+		if (classCounts.isEmpty()) {
+			return null;
+		}
+		int ret = 0;
+		for (final int classCount : classCounts.values()) {
+			ret += classCount;
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the analyzed class count per module, only modules with project stats are included
+	 */
+	@NotNull
+	private Map<Module, Integer> getAnalyzedClassCounts() {
+		if (mergedClassCounts != null) {
+			return mergedClassCounts;
+		}
+		final Map<Module, Integer> ret = new HashMap<>();
+		for (final Map.Entry<Project, BugStore> entry : results.entrySet()) {
+			final ProjectStats stats = entry.getValue().getBugCollection().getProjectStats();
 			if (stats != null) {
-				if (ret == -1) {
-					ret = 0;
-				}
-				ret += stats.getNumClasses();
+				ret.merge(getModule(entry.getKey()), stats.getNumClasses(), Integer::sum);
 			}
 		}
-		if (ret != -1) {
-			return ret;
-		}
-		return null;
+		return ret;
+	}
+
+	@Nullable
+	private static Module getModule(@NotNull final Project project) {
+		return project instanceof FindBugsProject ? ((FindBugsProject) project).getModule() : null;
 	}
 
 	@NotNull
@@ -84,7 +121,127 @@ public final class FindBugsResult {
 	}
 
 	@NotNull
-	public Map<Project, SortedBugCollection> getResults() {
+	public Map<Project, BugStore> getResults() {
 		return results;
 	}
+
+	/**
+	 * After a merge (see {@link #mergeInto(FindBugsResult)}) a module can have two bug stores: the store of the
+	 * previous result with its remaining bugs and the store of the merged result.
+	 *
+	 * @return the bug stores per module, keyed by the project of the first store of the module and in the order
+	 * of {@link #getResults()}, so the store of the previous result comes first
+	 */
+	@NotNull
+	public Map<Project, List<BugStore>> getResultsByModule() {
+		final Map<Module, Project> projects = new HashMap<>();
+		final Map<Project, List<BugStore>> ret = new LinkedHashMap<>();
+		for (final Map.Entry<Project, BugStore> entry : results.entrySet()) {
+			final Module module = getModule(entry.getKey());
+			final Project project = module != null ? projects.computeIfAbsent(module, m -> entry.getKey()) : entry.getKey();
+			ret.computeIfAbsent(project, p -> new ArrayList<>(1)).add(entry.getValue());
+		}
+		return ret;
+	}
+
+	@NotNull
+	public List<Bug> getBugs() {
+		final List<Bug> ret = new ArrayList<>();
+		for (final Map.Entry<Project, BugStore> entry : results.entrySet()) {
+			final Module module = getModule(entry.getKey());
+			final BugStore bugStore = entry.getValue();
+			final int size = bugStore.size();
+			for (int i = 0; i < size; i++) {
+				if (!bugStore.isRemoved(i)) {
+					ret.add(new Bug(module, bugStore, i));
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Compacts the bug stores once all bugs are reported, see {@link BugStore#compact()}.
+	 */
+	public void compact() {
+		for (final BugStore bugStore : results.values()) {
+			bugStore.compact();
+		}
+	}
+
+	public int getStaleBugCount() {
+		int ret = 0;
+		for (final BugStore bugStore : results.values()) {
+			ret += bugStore.getStaleBugCount();
+		}
+		return ret;
+	}
+
+	void setRestored() {
+		restored = true;
+	}
+
+	/**
+	 * @return true if this is the result of an analysis of a previous session, see {@link LastAnalysisResult}
+	 */
+	public boolean isRestored() {
+		return restored;
+	}
+
+	@NotNull
+	public AnalysisTimings getTimings() {
+		return timings;
+	}
+
+	void setMergeScope(@NotNull final Set<String> classNames) {
+		mergeScope = classNames;
+	}
+
+	/**
+	 * @return names of the analyzed classes if this result replaces only their bugs in the current result,
+	 * {@code null} if this result replaces the current result completely
+	 */
+	@Nullable
+	public Set<String> getMergeScope() {
+		return mergeScope;
+	}
+
+	/**
+	 * Merges this result into {@code previous}: the bugs of the classes in the {@link #getMergeScope() merge scope}
+	 * are removed from the bug stores of {@code previous}, which are then combined with the bug stores of
+	 * this result. The bugs of the tree refer to their bug store, so a store is only dropped once all of its bugs
+	 * were replaced. The analyzed class count of a module is taken from {@code previous} if it was analyzed before,
+	 * so the reanalyzed classes are not counted twice.
+	 */
+	@NotNull
+	public FindBugsResult mergeInto(@Nullable final FindBugsResult previous) {
+		if (previous == null || mergeScope == null) {
+			return this;
+		}
+		final FindBugsResult ret = new FindBugsResult();
+		ret.mergeScope = mergeScope;
+		ret.timings.addAll(timings);
+
+		final Map<Module, Integer> classCounts = new HashMap<>(previous.getAnalyzedClassCounts());
+		for (final Map.Entry<Module, Integer> entry : getAnalyzedClassCounts().entrySet()) {
+			classCounts.putIfAbsent(entry.getKey(), entry.getValue());
+		}
+		ret.mergedClassCounts = classCounts;
+
+		for (final Map.Entry<Project, BugStore> entry : previous.results.entrySet()) {
+			final BugStore bugStore = entry.getValue();
+			final int size = bugStore.size();
+			for (int i = 0; i < size; i++) {
+				final String className = bugStore.getFullClassName(i);
+				if (className != null && mergeScope.contains(className)) {
+					bugStore.remove(i);
+				}
+			}
+			if (bugStore.getBugCount() != 0) {
+				ret.results.put(entry.getKey(), bugStore);
+			}
+		}
+		ret.results.putAll(results);
+		return ret;
+	}
 }
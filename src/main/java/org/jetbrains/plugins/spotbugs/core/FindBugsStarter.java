@@ -37,11 +37,14 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.impl.ToolWindowImpl;
 import com.intellij.util.Consumer;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import edu.umd.cs.findbugs.*;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
 import edu.umd.cs.findbugs.config.*;
 import org.dom4j.DocumentException;
 import org.jetbrains.annotations.*;
 import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
+import org.jetbrains.plugins.spotbugs.common.util.WithPluginClassloader;
 import org.jetbrains.plugins.spotbugs.gui.common.BalloonTipFactory;
 import org.jetbrains.plugins.spotbugs.gui.toolwindow.view.ToolWindowPanel;
 import org.jetbrains.plugins.spotbugs.messages.*;
@@ -50,6 +53,9 @@ import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class FindBugsStarter implements AnalysisAbortingListener {
@@ -116,6 +122,14 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 		return workspaceSettings.compileBeforeAnalyze;
 	}
 
+	/**
+	 * Scoped analyses (f. e. after auto make) return true, so their result replaces only the bugs of the analyzed
+	 * classes in the current result instead of the whole result (see {@link FindBugsResult#getMergeScope()}).
+	 */
+	protected boolean isMergeResult() {
+		return false;
+	}
+
 	public final void start() {
 		EventDispatchThreadHelper.checkEDT();
 		if (isCompileBeforeAnalyze()) {
@@ -143,7 +157,7 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 	}
 
 	private void startImpl(final boolean justCompiled) {
-		MessageBusManager.publishAnalysisStarted(project);
+		MessageBusManager.publishAnalysisStarted(project, isMergeResult());
 
 		final ToolWindow toolWindow = ToolWindowPanel.getWindow(project);
 		if (toolWindow == null) {
@@ -196,29 +210,66 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 	private void asyncStartImpl(@NotNull final ProgressIndicator indicator, final boolean justCompiled) {
 
 		final FindBugsProjects projects = new FindBugsProjects(project);
+		final FindBugsResult result = new FindBugsResult();
+		SharedClassDataCache.startRun(); // the compiler output may have changed since the last run
 
+		final AnalysisTimings.Measurement configure = result.getTimings().start(AnalysisTimings.CONFIGURE);
 		boolean canceled = !ApplicationManager.getApplication().runReadAction(
 				(Computable<Boolean>) () -> configure(indicator, projects, justCompiled));
+		configure.stop();
+
+		if (!canceled) {
+			projects.addDependentClasses(indicator, result.getTimings());
+			if (isMergeResult()) {
+				final Set<String> classNames = new HashSet<>();
+				for (final FindBugsProject findBugsProject : projects.getProjects().values()) {
+					classNames.addAll(findBugsProject.getClassNames());
+				}
+				result.setMergeScope(classNames);
+			}
+		}
 
-		final FindBugsResult result = new FindBugsResult();
 		Throwable error = null;
 
 		if (!canceled) {
 			try {
-				int numClassesOffset = 0;
+				final List<Map.Entry<Module, FindBugsProject>> sequential = new ArrayList<>();
+				final List<Map.Entry<Module, FindBugsProject>> parallel = new ArrayList<>();
 				for (final Map.Entry<Module, FindBugsProject> entry : projects.getProjects().entrySet()) {
+					/*
+					 * Plugins are loaded globally (see PluginLoader), so only modules
+					 * which use the project settings can share one plugin configuration.
+					 */
+					if (workspaceSettings.analyzeModulesInParallel && !ModuleSettings.getInstance(entry.getKey()).overrideProjectSettings) {
+						parallel.add(entry);
+					} else {
+						sequential.add(entry);
+					}
+				}
+				if (parallel.size() == 1) {
+					sequential.addAll(parallel);
+					parallel.clear();
+				}
+
+				int numClassesOffset = 0;
+				for (final Map.Entry<Module, FindBugsProject> entry : sequential) {
 					final FindBugsProject findBugsProject = entry.getValue();
 					final Module module = entry.getKey();
 					indicator.setText("Start SpotBugs analysis of " + findBugsProject.getProjectName());
-					final Pair<SortedBugCollection, Reporter> data = executeImpl(indicator, module, findBugsProject, numClassesOffset);
+					final AbstractSettings settings = loadSettings(module, result.getTimings());
+					final Pair<SortedBugCollection, Reporter> data = executeImpl(indicator, module, findBugsProject, settings, result.getTimings(), numClassesOffset, null);
 					final int numClasses = data.getSecond().getProjectStats().getNumClasses();
 					numClassesOffset += numClasses;
-					result.put(findBugsProject, data.getFirst());
+					result.put(findBugsProject, data.getSecond().getBugStore());
 					if (data.getSecond().isCanceled()) {
 						canceled = true;
 						break;
 					}
 				}
+
+				if (!canceled && !parallel.isEmpty()) {
+					canceled = executeParallel(indicator, parallel, numClassesOffset, result);
+				}
 			} catch (final InterruptedException e) {
 				Thread.currentThread().interrupt();
 			} catch (final Throwable e) {
@@ -229,17 +280,89 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 		if (canceled) {
 			MessageBusManager.publishAnalysisAbortedToEDT(project);
 		} else {
+			final AnalysisTimings.Measurement compact = result.getTimings().start(AnalysisTimings.COMPACT_RESULT);
+			result.compact();
+			compact.stop();
 			MessageBusManager.publishAnalysisFinishedToEDT(project, result, error);
 		}
 	}
 
-	private Pair<SortedBugCollection, Reporter> executeImpl(
+	/**
+	 * Runs one SpotBugs engine per module on a bounded worker pool. The results are collected
+	 * by the calling thread in the order of {@code entries}.
+	 *
+	 * @return true if the analysis was canceled
+	 */
+	private boolean executeParallel(
 			@NotNull final ProgressIndicator indicator,
-			@NotNull final Module module,
-			@NotNull final FindBugsProject findBugsProject,
-			final int analyzedClassCountOffset
+			@NotNull final List<Map.Entry<Module, FindBugsProject>> entries,
+			final int analyzedClassCountOffset,
+			@NotNull final FindBugsResult result
 	) throws IOException, InterruptedException {
 
+		indicator.setText("Start SpotBugs analysis of " + entries.size() + " modules in parallel");
+		// All entries use the project settings, so settings import and plugin loading is done once.
+		final AbstractSettings settings = loadSettings(entries.get(0).getKey(), result.getTimings());
+
+		final ParallelProgress parallelProgress = new ParallelProgress(indicator, entries.size(), analyzedClassCountOffset);
+		final int threadCount = Math.min(entries.size(), Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("SpotBugs Analysis", threadCount);
+		final List<Future<Pair<SortedBugCollection, Reporter>>> futures = new ArrayList<>(entries.size());
+		try {
+			for (final Map.Entry<Module, FindBugsProject> entry : entries) {
+				futures.add(executor.submit(() -> {
+					try {
+						return WithPluginClassloader.<Pair<SortedBugCollection, Reporter>, IOException, InterruptedException>compute(
+								() -> executeImpl(indicator, entry.getKey(), entry.getValue(), settings, result.getTimings(), 0, parallelProgress));
+					} finally {
+						Thread.interrupted(); // Reporter interrupts the worker on cancel, do not leak this to the next task
+					}
+				}));
+			}
+
+			boolean canceled = false;
+			for (int i = 0; i < entries.size(); i++) {
+				final Pair<SortedBugCollection, Reporter> data;
+				try {
+					data = futures.get(i).get();
+				} catch (final ExecutionException e) {
+					final Throwable cause = e.getCause();
+					if (cause instanceof ProcessCanceledException || cause instanceof InterruptedException) {
+						indicator.cancel(); // stop the other engines too
+						canceled = true;
+						continue;
+					}
+					indicator.cancel();
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					}
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+				result.put(entries.get(i).getValue(), data.getSecond().getBugStore());
+				if (data.getSecond().isCanceled()) {
+					canceled = true;
+				}
+			}
+			return canceled;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Imports the runtime settings (if configured) and loads the plugins for the given module.
+	 *
+	 * @return the settings to use for the analysis of {@code module}
+	 */
+	@NotNull
+	private AbstractSettings loadSettings(@NotNull final Module module, @NotNull final AnalysisTimings timings) {
+
 		final ModuleSettings moduleSettings = ModuleSettings.getInstance(module);
 		AbstractSettings settings = projectSettings;
 		String importFilePathKey = WorkspaceSettings.PROJECT_IMPORT_FILE_PATH_KEY;
@@ -260,37 +383,31 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 			}
 		}
 
-		if (!PluginLoader.load(project, moduleSettings.overrideProjectSettings ? module : null, settings, true)) {
+		final AnalysisTimings.Measurement loadPlugins = timings.start(AnalysisTimings.LOAD_PLUGINS);
+		final boolean loaded = PluginLoader.load(project, settings, true);
+		loadPlugins.stop();
+		if (!loaded) {
 			throw new ProcessCanceledException();
 		}
+		return settings;
+	}
 
-		final DetectorFactoryCollection detectorFactoryCollection = DetectorFactoryCollection.instance();
-
-		final ProjectFilterSettings projectFilterSettings;
-		final UserPreferences userPrefs = UserPreferences.createDefaultUserPreferences();
-		{
-			userPrefs.setEffort(settings.analysisEffort);
-			projectFilterSettings = userPrefs.getFilterSettings();
-			projectFilterSettings.setMinRank(settings.minRank);
-			projectFilterSettings.setMinPriority(settings.minPriority);
-
-			for (final String category : DetectorFactoryCollection.instance().getBugCategories()) {
-				projectFilterSettings.removeCategory(category);
-				projectFilterSettings.addCategory(category);
-			}
-			for (final String category : settings.hiddenBugCategory) {
-				projectFilterSettings.removeCategory(category);
-			}
+	private Pair<SortedBugCollection, Reporter> executeImpl(
+			@NotNull final ProgressIndicator indicator,
+			@NotNull final Module module,
+			@NotNull final FindBugsProject findBugsProject,
+			@NotNull final AbstractSettings settings,
+			@NotNull final AnalysisTimings timings,
+			final int analyzedClassCountOffset,
+			@Nullable final ParallelProgress parallelProgress
+	) throws IOException, InterruptedException {
 
-			userPrefs.setIncludeFilterFiles(new HashMap<>(settings.includeFilterFiles));
-			userPrefs.setExcludeBugsFiles(new HashMap<>(settings.excludeBugsFiles));
-			userPrefs.setExcludeFilterFiles(new HashMap<>(settings.excludeFilterFiles));
+		final DetectorFactoryCollection detectorFactoryCollection = DetectorFactoryCollection.instance();
 
-			configureDetectors(settings.detectors, detectorFactoryCollection, userPrefs);
-			for (final PluginSettings pluginSettings : settings.plugins) {
-				configureDetectors(pluginSettings.detectors, detectorFactoryCollection, userPrefs);
-			}
-		}
+		final AnalysisTimings.Measurement preparePreferences = timings.start(AnalysisTimings.PREPARE_PREFERENCES);
+		final UserPreferences userPrefs = UserPreferencesCache.get(settings);
+		preparePreferences.stop();
+		final ProjectFilterSettings projectFilterSettings = userPrefs.getFilterSettings();
 
 		final SortedBugCollection bugCollection = new SortedBugCollection(findBugsProject);
 
@@ -301,31 +418,71 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 				projectFilterSettings,
 				indicator,
 				_cancellingByUser,
-				analyzedClassCountOffset
+				timings,
+				analyzedClassCountOffset,
+				parallelProgress
 		);
 
 		reporter.setPriorityThreshold(userPrefs.getUserDetectorThreshold());
 		reporter.setRankThreshold(projectFilterSettings.getMinRank());
 
-		final FindBugs2 engine = new FindBugs2();
-		{
-			engine.setNoClassOk(true);
-			engine.setMergeSimilarWarnings(false);
-			engine.setBugReporter(reporter);
-			engine.setProject(findBugsProject);
-			engine.setProgressCallback(reporter);
-			configureFilter(engine, userPrefs);
-			engine.setDetectorFactoryCollection(detectorFactoryCollection);
-			engine.setUserPreferences(userPrefs);
+		AnalysisResultCache resultCache = null;
+		if (workspaceSettings.incrementalAnalysis) {
+			indicator.setText("Check for unchanged classes of " + findBugsProject.getProjectName());
+			reporter.beginPhase(AnalysisTimings.CHECK_UNCHANGED_CLASSES);
+			resultCache = AnalysisResultCache.load(project, findBugsProject, settings);
+			for (final BugInstance bug : resultCache.applyTo(findBugsProject, findBugsProject.getDependentFiles())) {
+				reporter.reportFilteredBug(bug);
+			}
+			if (findBugsProject.getFileCount() == 0) {
+				reporter.finish();
+				bugCollection.setTimestamp(System.currentTimeMillis());
+				resultCache.store(reporter.getBugStore());
+				return Pair.create(bugCollection, reporter);
+			}
 		}
 
-		try {
-			engine.execute();
-		} finally {
-			engine.dispose();
+		if (workspaceSettings.analyzeInWorkerProcess) {
+			AnalysisWorkerPool.analyze(findBugsProject, userPrefs, workspaceSettings.workerProcessMaxHeapMb, reporter);
+			reporter.finish();
+			reporter.reportQueuedErrors();
+		} else {
+			final FindBugs2 engine = new FindBugs2() {
+				@Override
+				protected IAnalysisCache createAnalysisCache() throws IOException {
+					final IAnalysisCache ret = super.createAnalysisCache();
+					SharedClassDataCache.registerWith(ret);
+					return ret;
+				}
+
+				@Override
+				protected void configureFilters(final UserPreferences userPreferences) {
+					// done by configureFilter with the cached filter files
+				}
+			};
+			{
+				engine.setNoClassOk(true);
+				engine.setMergeSimilarWarnings(false);
+				engine.setBugReporter(configureFilter(reporter, userPrefs));
+				engine.setProject(findBugsProject);
+				engine.setProgressCallback(reporter);
+				engine.setDetectorFactoryCollection(detectorFactoryCollection);
+				engine.setUserPreferences(userPrefs);
+			}
+
+			reporter.beginPhase(AnalysisTimings.ENGINE_SETUP);
+			try {
+				engine.execute();
+			} finally {
+				engine.dispose();
+			}
+			timings.addProfile(bugCollection.getProjectStats().getProfiler());
 		}
 
 		bugCollection.setTimestamp(System.currentTimeMillis());
+		if (resultCache != null && !reporter.isCanceled()) {
+			resultCache.store(reporter.getBugStore());
+		}
 
 		return Pair.create(bugCollection, reporter);
 	}
@@ -401,30 +558,24 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 		_cancellingByUser.set(true);
 	}
 
-	private static void configureDetectors(
-			@NotNull final Map<String, Boolean> detectors,
-			@NotNull final DetectorFactoryCollection detectorFactoryCollection,
-			@NotNull final UserPreferences userPreferences
-	) {
-		for (final Map.Entry<String, Boolean> enabled : detectors.entrySet()) {
-			final DetectorFactory detectorFactory = detectorFactoryCollection.getFactory(enabled.getKey());
-			if (detectorFactory != null) {
-				userPreferences.enableDetector(detectorFactory, enabled.getValue());
-			}
-		}
-	}
-
-	private static void configureFilter(
-			@NotNull final FindBugs2 engine,
+	/**
+	 * The filter files are parsed once and reused by the following analyses, see {@link FilterFileCache}.
+	 *
+	 * @return {@code reporter} wrapped by the configured filters
+	 */
+	@NotNull
+	private static BugReporter configureFilter(
+			@NotNull final BugReporter reporter,
 			@NotNull final UserPreferences userPrefs
 	) {
 
+		BugReporter ret = reporter;
 		final Map<String, Boolean> excludeFilterFiles = userPrefs.getExcludeFilterFiles();
 		for (final Map.Entry<String, Boolean> excludeFileName : excludeFilterFiles.entrySet()) {
 			if (excludeFileName.getValue()) {
 				final String filePath = excludeFileName.getKey();
 				try {
-					engine.addFilter(filePath, false);
+					ret = new FilterBugReporter(ret, FilterFileCache.getFilter(filePath), false);
 				} catch (final IOException e) {
 					LOGGER.error("ExcludeFilter configuration failed.", e);
 				}
@@ -435,7 +586,7 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 			if (includeFileName.getValue()) {
 				final String filePath = includeFileName.getKey();
 				try {
-					engine.addFilter(filePath, true);
+					ret = new FilterBugReporter(ret, FilterFileCache.getFilter(filePath), true);
 				} catch (final IOException e) {
 					LOGGER.error("IncludeFilter configuration failed.", e);
 				}
@@ -446,12 +597,13 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 			if (excludeBugFile.getValue()) {
 				final String filePath = excludeBugFile.getKey();
 				try {
-					engine.excludeBaselineBugs(filePath);
+					ret = FilterFileCache.excludeBaselineBugs(ret, filePath);
 				} catch (final IOException | DocumentException e) {
 					LOGGER.error("ExcludeBaseLineBug files configuration failed.", e);
 				}
 			}
 		}
+		return ret;
 	}
 
 	protected final void showWarning(@NotNull final String message) {
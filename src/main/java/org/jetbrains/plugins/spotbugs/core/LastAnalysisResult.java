@@ -0,0 +1,316 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.impl.ToolWindowImpl;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.Version;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
+import org.jetbrains.plugins.spotbugs.common.util.FileUtilFb;
+import org.jetbrains.plugins.spotbugs.common.util.WithPluginClassloader;
+import org.jetbrains.plugins.spotbugs.gui.toolwindow.view.ToolWindowPanel;
+import org.jetbrains.plugins.spotbugs.messages.MessageBusManager;
+import org.jetbrains.plugins.spotbugs.plugins.PluginLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Saves the result of the last analysis of a project (see {@link WorkspaceSettings#restoreLastResult}) and restores
+ * it in the background when the project is opened again. The bugs are published like those of a running analysis,
+ * so the tree and the editor annotations fill while the file is read.
+ * <p>
+ * The file stores the string dictionary, the columns and the int records of the compacted bug stores (see
+ * {@link BugStore#writeBugs(java.io.DataOutput)}), so neither saving nor restoring creates bug instances or XML,
+ * except for the few bugs a store keeps as XML. Saving holds the lock of a store only to take a snapshot, so the
+ * tree can read the store meanwhile. For every class with bugs the size and modification time of its class files are stored too,
+ * including the classes whose bugs were reused from the {@link AnalysisResultCache}; the bugs of a class whose
+ * class files changed since are marked stale (see {@link Bug#isStale()}).
+ */
+public final class LastAnalysisResult {
+
+	private static final Logger LOGGER = Logger.getInstance(LastAnalysisResult.class);
+
+	private static final int MAGIC = 0x53424C52;
+	private static final int VERSION = 2;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Saves and deletes one after another, so that the file always belongs to the last result.
+	 */
+	private static final ExecutorService EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor("SpotBugs Last Result", 1);
+
+	private LastAnalysisResult() {
+	}
+
+	/**
+	 * Saves {@code result} on a pooled thread. Invoked by EDT.
+	 */
+	public static void save(@NotNull final Project project, @NotNull final FindBugsResult result) {
+		EventDispatchThreadHelper.checkEDT();
+		if (!WorkspaceSettings.getInstance(project).restoreLastResult) {
+			delete(project);
+			return;
+		}
+		final File file = getFile(project);
+		final List<Map.Entry<edu.umd.cs.findbugs.Project, BugStore>> results = new ArrayList<>(result.getResults().entrySet());
+		EXECUTOR.execute(() -> {
+			final File tmpFile = new File(file.getPath() + ".tmp");
+			try {
+				FileUtilFb.mkdirs(file.getParentFile());
+				try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmpFile), BUFFER_SIZE)))) {
+					write(out, results);
+				}
+				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (final IOException | RuntimeException e) {
+				LOGGER.warn("Could not save last analysis result " + file, e);
+				FileUtil.delete(tmpFile);
+				FileUtil.delete(file);
+			}
+		});
+	}
+
+	/**
+	 * Deletes the saved result, f. e. because the result was cleared.
+	 */
+	public static void delete(@NotNull final Project project) {
+		final File file = getFile(project);
+		EXECUTOR.execute(() -> FileUtil.delete(file));
+	}
+
+	/**
+	 * Restores the saved result once the project is initialized and indexed, unless an analysis was started meanwhile.
+	 */
+	static void restoreLater(@NotNull final Project project) {
+		if (!WorkspaceSettings.getInstance(project).restoreLastResult || !getFile(project).isFile()) {
+			return;
+		}
+		DumbService.getInstance(project).smartInvokeLater(() -> {
+			if (project.isDisposed() || !FindBugsState.get(project).isIdle()) {
+				return;
+			}
+			final ToolWindow toolWindow = ToolWindowPanel.getWindow(project);
+			if (toolWindow == null) {
+				return;
+			}
+			((ToolWindowImpl) toolWindow).ensureContentInitialized();
+			MessageBusManager.publishAnalysisStarted(project, false);
+			new Task.Backgroundable(project, "Restoring SpotBugs Result", true) {
+				@Override
+				public void run(@NotNull final ProgressIndicator indicator) {
+					restore(project, indicator);
+				}
+			}.queue();
+		});
+	}
+
+	private static void restore(@NotNull final Project project, @NotNull final ProgressIndicator indicator) {
+		indicator.setIndeterminate(true);
+		final File file = getFile(project);
+		final NewBugsQueue newBugsQueue = new NewBugsQueue(project, o -> project.isDisposed() || indicator.isCanceled());
+		FindBugsResult result = null;
+		try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE)))) {
+			// the bugs refer to the bug patterns of the plugins, like an analysis (see FindBugsStarter)
+			if (PluginLoader.load(project, ProjectSettings.getInstance(project), true)) {
+				result = WithPluginClassloader.<FindBugsResult, IOException, RuntimeException>compute(() -> read(project, in, newBugsQueue, indicator));
+			}
+			if (result != null) {
+				EventDispatchThreadHelper.invokeLater(newBugsQueue::drain);
+			}
+		} catch (final ProcessCanceledException ignored) {
+			result = null;
+		} catch (final IOException | RuntimeException e) {
+			LOGGER.warn("Could not restore last analysis result " + file, e);
+			result = null;
+			FileUtil.delete(file);
+		} finally {
+			if (result != null) {
+				MessageBusManager.publishAnalysisFinishedToEDT(project, result, null);
+			} else {
+				MessageBusManager.publishAnalysisAbortedToEDT(project);
+			}
+		}
+	}
+
+	private static void write(
+			@NotNull final DataOutputStream out,
+			@NotNull final List<Map.Entry<edu.umd.cs.findbugs.Project, BugStore>> results
+	) throws IOException {
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(Version.VERSION_STRING);
+		out.writeInt(results.size());
+		for (final Map.Entry<edu.umd.cs.findbugs.Project, BugStore> entry : results) {
+			final edu.umd.cs.findbugs.Project bugsProject = entry.getKey();
+			final BugStore bugStore = entry.getValue();
+			final SortedBugCollection bugCollection = bugStore.getBugCollection();
+			out.writeUTF(bugsProject.getProjectName() != null ? bugsProject.getProjectName() : "");
+			out.writeUTF(bugsProject instanceof FindBugsProject ? ((FindBugsProject) bugsProject).getModule().getName() : "");
+			out.writeLong(bugCollection.getTimestamp());
+			out.writeInt(bugCollection.getProjectStats().getNumClasses());
+
+			final List<String[]> classFiles = new ArrayList<>();
+			if (bugsProject instanceof FindBugsProject) {
+				final Set<String> classesWithBugs = new HashSet<>();
+				final int size = bugStore.size();
+				for (int i = 0; i < size; i++) {
+					if (!bugStore.isRemoved(i)) {
+						classesWithBugs.add(bugStore.getClassName(i));
+					}
+				}
+				for (final Map.Entry<String, String> classFile : ((FindBugsProject) bugsProject).getResultClassFiles().entrySet()) {
+					if (classesWithBugs.contains(getOuterClassName(classFile.getKey()))) {
+						classFiles.add(new String[]{classFile.getKey(), classFile.getValue()});
+					}
+				}
+			}
+			out.writeInt(classFiles.size());
+			for (final String[] classFile : classFiles) {
+				final File file = new File(classFile[1]);
+				out.writeUTF(classFile[0]);
+				out.writeUTF(classFile[1]);
+				out.writeLong(file.length());
+				out.writeLong(file.lastModified());
+			}
+
+			bugStore.writeBugs(out);
+		}
+	}
+
+	/**
+	 * @return {@code null} if the file was written by another version
+	 */
+	@Nullable
+	private static FindBugsResult read(
+			@NotNull final Project project,
+			@NotNull final DataInputStream in,
+			@NotNull final NewBugsQueue newBugsQueue,
+			@NotNull final ProgressIndicator indicator
+	) throws IOException {
+
+		if (in.readInt() != MAGIC || in.readInt() != VERSION || !Version.VERSION_STRING.equals(in.readUTF())) {
+			LOGGER.debug("Discard last analysis result of another version");
+			return null;
+		}
+		final FindBugsResult ret = new FindBugsResult();
+		int analyzedClassCount = 0;
+		final int storeCount = in.readInt();
+		for (int store = 0; store < storeCount; store++) {
+			final String projectName = in.readUTF();
+			final String moduleName = in.readUTF();
+			final Module module = moduleName.isEmpty() ? null : ModuleManager.getInstance(project).findModuleByName(moduleName);
+			final edu.umd.cs.findbugs.Project bugsProject;
+			if (module != null) {
+				bugsProject = ApplicationManager.getApplication().runReadAction(
+						(Computable<FindBugsProject>) () -> FindBugsProject.create(project, module, projectName));
+			} else {
+				bugsProject = new edu.umd.cs.findbugs.Project();
+				bugsProject.setProjectName(projectName);
+			}
+			final SortedBugCollection bugCollection = new SortedBugCollection(bugsProject);
+			bugCollection.setTimestamp(in.readLong());
+			final int numClasses = in.readInt();
+			bugCollection.getProjectStats().setTotalClasses(numClasses);
+			analyzedClassCount += numClasses;
+
+			final Set<String> staleClasses = new HashSet<>();
+			final List<String> files = new ArrayList<>();
+			final int classFileCount = in.readInt();
+			for (int i = 0; i < classFileCount; i++) {
+				final String className = in.readUTF();
+				final String path = in.readUTF();
+				final long length = in.readLong();
+				final long lastModified = in.readLong();
+				final File file = new File(path);
+				if (file.length() != length || file.lastModified() != lastModified) {
+					staleClasses.add(getOuterClassName(className));
+				}
+				// keep the class files, so that they are saved again together with a result this store is merged into
+				final String classPath = FileUtil.toSystemIndependentName(path);
+				final String relativePath = className.replace('.', '/') + ".class";
+				if (classPath.endsWith(relativePath)) {
+					bugsProject.addAuxClasspathEntry(classPath.substring(0, classPath.length() - relativePath.length() - 1));
+					files.add(path);
+				}
+			}
+			if (bugsProject instanceof FindBugsProject) {
+				((FindBugsProject) bugsProject).addFiles(files);
+			}
+
+			final BugStore bugStore = new BugStore(bugCollection);
+			bugStore.compact();
+			final int classCount = analyzedClassCount;
+			bugStore.readBugs(in, index -> {
+				indicator.checkCanceled();
+				if (staleClasses.contains(bugStore.getClassName(index))) {
+					bugStore.setStale(index);
+				}
+				newBugsQueue.offer(new Bug(module, bugStore, index), classCount);
+			});
+			ret.put(bugsProject, bugStore);
+		}
+		ret.setRestored();
+		return ret;
+	}
+
+	@NotNull
+	private static String getOuterClassName(@NotNull final String className) {
+		final int innerClass = className.indexOf('$');
+		return innerClass >= 0 ? className.substring(0, innerClass) : className;
+	}
+
+	@NotNull
+	private static File getFile(@NotNull final Project project) {
+		return new File(PathManager.getSystemPath(), "spotbugs-idea/results/" + project.getLocationHash() + "/last-result.bin");
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Condition;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
+import org.jetbrains.plugins.spotbugs.messages.MessageBusManager;
+import org.jetbrains.plugins.spotbugs.messages.NewBugsListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects new bugs from any thread and delivers them in chunks to {@link NewBugsListener}.
+ * A chunk is published at most {@link #MAX_DELAY_MILLIS} after its first bug was offered,
+ * or as soon as {@link #MAX_BATCH_SIZE} bugs are pending.
+ */
+public final class NewBugsQueue {
+
+	private static final int MAX_BATCH_SIZE = 500;
+	private static final long MAX_DELAY_MILLIS = 200;
+
+	@NotNull
+	private final Project project;
+
+	@NotNull
+	private final Condition<Object> shutUpCondition;
+
+	private List<Bug> pending; // @GuardedBy this
+	private int analyzedClassCount; // @GuardedBy this
+	private boolean scheduled; // @GuardedBy this
+
+	/**
+	 * @param shutUpCondition if true, pending bugs are discarded instead of published
+	 */
+	public NewBugsQueue(@NotNull final Project project, @NotNull final Condition<Object> shutUpCondition) {
+		this.project = project;
+		this.shutUpCondition = shutUpCondition;
+		pending = new ArrayList<>();
+	}
+
+	public void offer(@NotNull final Bug bug, final int analyzedClassCount) {
+		final boolean flushNow;
+		final boolean scheduleFlush;
+		synchronized (this) {
+			pending.add(bug);
+			this.analyzedClassCount = analyzedClassCount;
+			flushNow = pending.size() == MAX_BATCH_SIZE;
+			scheduleFlush = !scheduled;
+			scheduled = true;
+		}
+		if (flushNow) {
+			EventDispatchThreadHelper.invokeLater(this::drain);
+		} else if (scheduleFlush) {
+			AppExecutorUtil.getAppScheduledExecutorService().schedule(
+					() -> EventDispatchThreadHelper.invokeLater(this::drain),
+					MAX_DELAY_MILLIS,
+					TimeUnit.MILLISECONDS
+			);
+		}
+	}
+
+	/**
+	 * Publish all pending bugs now. Invoked by EDT.
+	 */
+	public void drain() {
+		EventDispatchThreadHelper.checkEDT();
+		final List<Bug> bugs;
+		final int count;
+		synchronized (this) {
+			if (pending.isEmpty()) {
+				return;
+			}
+			bugs = pending;
+			count = analyzedClassCount;
+			pending = new ArrayList<>();
+			scheduled = false;
+		}
+		if (!shutUpCondition.value(null)) {
+			MessageBusManager.publishNewBugs(project, bugs, count);
+		}
+	}
+}
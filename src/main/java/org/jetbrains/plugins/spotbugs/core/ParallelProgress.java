@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merges the progress of the {@link Reporter} instances of modules which are analyzed
+ * at the same time (see {@link WorkspaceSettings#analyzeModulesInParallel}) into one
+ * {@link ProgressIndicator}. All methods are thread-safe.
+ */
+final class ParallelProgress {
+
+	@NotNull
+	private final ProgressIndicator indicator;
+
+	@NotNull
+	private final List<Reporter> reporters;
+
+	@NotNull
+	private final AtomicInteger bugCount;
+
+	@NotNull
+	private final AtomicInteger finishedModuleCount;
+
+	private final int moduleCount;
+
+	private final int analyzedClassCountOffset;
+
+	ParallelProgress(@NotNull final ProgressIndicator indicator, final int moduleCount, final int analyzedClassCountOffset) {
+		this.indicator = indicator;
+		this.moduleCount = moduleCount;
+		this.analyzedClassCountOffset = analyzedClassCountOffset;
+		reporters = new CopyOnWriteArrayList<>();
+		bugCount = new AtomicInteger();
+		finishedModuleCount = new AtomicInteger();
+	}
+
+	void register(@NotNull final Reporter reporter) {
+		reporters.add(reporter);
+	}
+
+	/**
+	 * @return total count of bugs reported by all modules so far
+	 */
+	int bugReported() {
+		return bugCount.incrementAndGet();
+	}
+
+	int getBugCount() {
+		return bugCount.get();
+	}
+
+	int getAnalyzedClassCount() {
+		int ret = analyzedClassCountOffset;
+		for (final Reporter reporter : reporters) {
+			ret += reporter.getProjectStats().getNumClasses();
+		}
+		return ret;
+	}
+
+	void moduleFinished() {
+		final int finished = finishedModuleCount.incrementAndGet();
+		indicator.setIndeterminate(false);
+		indicator.setFraction((double) finished / moduleCount);
+		indicator.setText("Finished " + finished + "/" + moduleCount + " modules: Found " + bugCount.get() + " bugs.");
+	}
+}
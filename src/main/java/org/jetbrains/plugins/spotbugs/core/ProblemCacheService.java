@@ -19,24 +19,220 @@
  */
 package org.jetbrains.plugins.spotbugs.core;
 
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.spotbugs.common.ExtendedProblemDescriptor;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Holds the problem descriptors of the current result per {@link VirtualFile}.
+ * Editor annotators and line marker providers ask for the descriptors of every
+ * single {@link PsiElement} of a file, so each file keeps an index from the
+ * (lazily resolved) problem element to its descriptors. The index is built on
+ * the first lookup and discarded whenever the problems of the file change.
+ * <p>
+ * Resolved problem elements keep the PSI of their file alive, so only the files
+ * most recently looked up keep them, up to {@link WorkspaceSettings#resolvedProblemsLimit}
+ * problems. The elements of other files are resolved again when their editor is
+ * highlighted the next time.
+ */
 public class ProblemCacheService {
 
-    private final ConcurrentMap<PsiFile, List<ExtendedProblemDescriptor>> problems;
+	@NotNull
+	private final Project project;
+
+	private final ConcurrentMap<VirtualFile, FileProblems> problems;
+
+	/**
+	 * Files whose problem elements are resolved, least recently looked up first. Guarded by itself.
+	 */
+	private final LinkedHashMap<VirtualFile, FileProblems> resolved;
+
+	/**
+	 * Number of problems of {@link #resolved}. Guarded by {@link #resolved}.
+	 */
+	private int resolvedCount;
+
+	/**
+	 * The file most recently looked up; looking up the same file again does not need to reorder {@link #resolved}.
+	 */
+	private volatile VirtualFile lastResolved;
+
+	public ProblemCacheService(@NotNull final Project project) {
+		this.project = project;
+		problems = new ConcurrentHashMap<>();
+		resolved = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	public void addProblem(@NotNull final ExtendedProblemDescriptor descriptor) {
+		problems.computeIfAbsent(descriptor.getVirtualFile(), k -> new FileProblems()).add(descriptor);
+	}
+
+	public void removeProblem(@NotNull final ExtendedProblemDescriptor descriptor) {
+		final FileProblems fileProblems = problems.get(descriptor.getVirtualFile());
+		if (fileProblems != null) {
+			fileProblems.remove(descriptor);
+		}
+	}
+
+	/**
+	 * Removes the descriptors of {@code bugs} from {@code file}.
+	 */
+	public void removeProblems(@NotNull final VirtualFile file, @NotNull final Set<Bug> bugs) {
+		final FileProblems fileProblems = problems.computeIfPresent(file, (k, v) -> v.remove(bugs) ? null : v);
+		if (fileProblems == null) {
+			synchronized (resolved) {
+				final FileProblems removed = resolved.remove(file);
+				if (removed != null) {
+					resolvedCount -= removed.resolvedCount;
+				}
+			}
+		}
+	}
+
+	public void clear() {
+		problems.clear();
+		synchronized (resolved) {
+			resolved.clear();
+			resolvedCount = 0;
+			lastResolved = null;
+		}
+	}
+
+	public boolean hasProblems(@Nullable final PsiFile psiFile) {
+		return psiFile != null && problems.containsKey(psiFile.getViewProvider().getVirtualFile());
+	}
+
+	/**
+	 * @return the descriptors whose problem element is {@code psiElement}, in the order they were added;
+	 * an empty list if there are none. The returned list must not be modified.
+	 */
+	@NotNull
+	public List<ExtendedProblemDescriptor> getProblems(@Nullable final PsiFile psiFile, @NotNull final PsiElement psiElement) {
+		if (psiFile == null) {
+			return Collections.emptyList();
+		}
+		final VirtualFile file = psiFile.getViewProvider().getVirtualFile();
+		final FileProblems fileProblems = problems.get(file);
+		if (fileProblems == null) {
+			return Collections.emptyList();
+		}
+		final List<ExtendedProblemDescriptor> ret = fileProblems.get(psiElement);
+		if (lastResolved != file) {
+			resolved(file, fileProblems);
+		}
+		return ret;
+	}
+
+	/**
+	 * Marks {@code file} as most recently looked up and releases the problem elements of the least recently
+	 * looked up files while there are more than the limit. The file itself is never released.
+	 */
+	private void resolved(@NotNull final VirtualFile file, @NotNull final FileProblems fileProblems) {
+		final int limit = WorkspaceSettings.getInstance(project).resolvedProblemsLimit;
+		synchronized (resolved) {
+			lastResolved = file;
+			final FileProblems previous = resolved.put(file, fileProblems);
+			if (previous != null) {
+				resolvedCount -= previous.resolvedCount;
+			}
+			fileProblems.resolvedCount = fileProblems.size();
+			resolvedCount += fileProblems.resolvedCount;
+
+			final Iterator<Map.Entry<VirtualFile, FileProblems>> it = resolved.entrySet().iterator();
+			while (resolvedCount > limit && it.hasNext()) {
+				final Map.Entry<VirtualFile, FileProblems> entry = it.next();
+				if (entry.getKey().equals(file)) {
+					break;
+				}
+				entry.getValue().release();
+				resolvedCount -= entry.getValue().resolvedCount;
+				it.remove();
+			}
+		}
+	}
+
+	private static final class FileProblems {
+
+		private final List<ExtendedProblemDescriptor> descriptors = new ArrayList<>();
+		private Map<PsiElement, List<ExtendedProblemDescriptor>> byElement;
+
+		/**
+		 * Number of problems counted in {@link ProblemCacheService#resolvedCount}. Guarded by {@link ProblemCacheService#resolved}.
+		 */
+		private int resolvedCount;
+
+		synchronized void add(@NotNull final ExtendedProblemDescriptor descriptor) {
+			descriptors.add(descriptor);
+			byElement = null;
+		}
+
+		synchronized void remove(@NotNull final ExtendedProblemDescriptor descriptor) {
+			if (descriptors.remove(descriptor)) {
+				byElement = null;
+			}
+		}
+
+		/**
+		 * @return true if no descriptors are left
+		 */
+		synchronized boolean remove(@NotNull final Set<Bug> bugs) {
+			if (descriptors.removeIf(descriptor -> bugs.contains(descriptor.getBug()))) {
+				byElement = null;
+			}
+			return descriptors.isEmpty();
+		}
+
+		synchronized int size() {
+			return descriptors.size();
+		}
+
+		/**
+		 * Drops the index and the resolved problem elements.
+		 */
+		synchronized void release() {
+			byElement = null;
+			for (final ExtendedProblemDescriptor descriptor : descriptors) {
+				descriptor.clearPsiElement();
+			}
+		}
 
-    public ProblemCacheService() {
-      problems = new ConcurrentHashMap<>();
-    }
+		@NotNull
+		synchronized List<ExtendedProblemDescriptor> get(@NotNull final PsiElement psiElement) {
+			if (byElement == null) {
+				byElement = buildIndex();
+			}
+			final List<ExtendedProblemDescriptor> ret = byElement.get(psiElement);
+			return ret != null ? ret : Collections.emptyList();
+		}
 
-    @NotNull
-    public Map<PsiFile, List<ExtendedProblemDescriptor>> getProblems() {
-        return problems;
-    }
+		@NotNull
+		private Map<PsiElement, List<ExtendedProblemDescriptor>> buildIndex() {
+			final Map<PsiElement, List<ExtendedProblemDescriptor>> ret = new HashMap<>(descriptors.size());
+			for (final ExtendedProblemDescriptor descriptor : descriptors) {
+				final PsiElement problemElement = descriptor.getPsiElement();
+				if (problemElement != null) {
+					ret.computeIfAbsent(problemElement, k -> new ArrayList<>(1)).add(descriptor);
+				}
+			}
+			for (final Map.Entry<PsiElement, List<ExtendedProblemDescriptor>> entry : ret.entrySet()) {
+				entry.setValue(Collections.unmodifiableList(entry.getValue()));
+			}
+			return ret;
+		}
+	}
 }
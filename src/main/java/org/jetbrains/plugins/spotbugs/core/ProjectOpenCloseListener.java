@@ -67,6 +67,8 @@ public class ProjectOpenCloseListener implements ProjectManagerListener {
         new RFilerFilterSuggestion(project).suggest();
 
         LegacyProjectSettingsConverter.convertSettings(project);
+
+        LastAnalysisResult.restoreLater(project);
     }
 
     @Override
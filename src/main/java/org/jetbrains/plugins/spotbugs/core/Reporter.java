@@ -23,9 +23,6 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Condition;
-import com.intellij.util.Processor;
-import com.intellij.util.containers.TransferToEDTQueue;
 import edu.umd.cs.findbugs.AbstractBugReporter;
 import edu.umd.cs.findbugs.AnalysisError;
 import edu.umd.cs.findbugs.BugInstance;
@@ -36,8 +33,8 @@ import edu.umd.cs.findbugs.classfile.ClassDescriptor;
 import edu.umd.cs.findbugs.config.ProjectFilterSettings;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
-import org.jetbrains.plugins.spotbugs.messages.MessageBusManager;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -47,28 +44,31 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
 
 final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 
 	private static final Logger LOGGER = Logger.getInstance(Reporter.class.getName());
 	private static final String ANALYZING_CLASSES_i18N = "Analyzing classes: ";
 
-	@NotNull
-	private final Project _project;
-
 	@NotNull
 	private final Module module;
 
 	@NotNull
 	private final SortedBugCollection _bugCollection;
 
+	@NotNull
+	private final BugStore _bugStore;
+
 	@NotNull
 	private final ProjectFilterSettings projectFilterSettings;
 
 	private final ProgressIndicator _indicator;
 	private final AtomicBoolean _cancellingByUser;
-	private final TransferToEDTQueue<Runnable> _transferToEDTQueue;
+	private final NewBugsQueue _newBugsQueue;
+	private final AnalysisTimings _timings;
+
+	@Nullable
+	private final ParallelProgress parallelProgress;
 
 	private int pass = -1;
 	private int bugCount;
@@ -78,6 +78,8 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 	private String _currentStageName;
 	private boolean _canceled;
 	private int analyzedClassCountOffset;
+	private AnalysisTimings.Measurement _phase;
+	private boolean _remoteEngine;
 
 
 	Reporter(
@@ -87,25 +89,67 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 			@NotNull final ProjectFilterSettings projectFilterSettings,
 			@NotNull final ProgressIndicator indicator,
 			@NotNull final AtomicBoolean cancellingByUser,
-			final int analyzedClassCountOffset
+			@NotNull final AnalysisTimings timings,
+			final int analyzedClassCountOffset,
+			@Nullable final ParallelProgress parallelProgress
 	) {
-		_project = project;
 		this.module = module;
 		_bugCollection = bugCollection;
+		_bugStore = new BugStore(bugCollection);
 		this.projectFilterSettings = projectFilterSettings;
 		_indicator = indicator;
 		_cancellingByUser = cancellingByUser;
+		_timings = timings;
 		this.analyzedClassCountOffset = analyzedClassCountOffset;
-		_transferToEDTQueue = new TransferToEDTQueue<Runnable>("Add New Bug Instance", new RunnableProcessor(), new Condition<Object>() {
-			@Override
-			public boolean value(final Object o) {
-				return project.isDisposed() || _cancellingByUser.get() || _indicator.isCanceled();
-			}
-		}, 500);
+		this.parallelProgress = parallelProgress;
+		if (parallelProgress != null) {
+			parallelProgress.register(this);
+		}
+		_newBugsQueue = new NewBugsQueue(project, o -> project.isDisposed() || _cancellingByUser.get() || _indicator.isCanceled());
+	}
+
+
+	@NotNull
+	AnalysisTimings getTimings() {
+		return _timings;
+	}
+
+
+	/**
+	 * Ends the current phase (if any) and starts to measure the next one. The phases of the engine
+	 * itself are started by the {@link FindBugsProgress} callbacks.
+	 */
+	void beginPhase(@NotNull final String phase) {
+		endPhase();
+		_phase = _remoteEngine ? _timings.startRemote(phase) : _timings.start(phase);
+	}
+
+
+	private void endPhase() {
+		if (_phase != null) {
+			_phase.stop();
+			_phase = null;
+		}
+	}
+
+
+	/**
+	 * The engine runs in an analysis worker from now on, so the following phases are measured by wall clock time only.
+	 */
+	void setRemoteEngine() {
+		_remoteEngine = true;
+	}
+
+
+	/**
+	 * Like {@link #checkCancel()} but without side effects, so it can be called from any thread.
+	 */
+	boolean isCancelRequested() {
+		return _canceled || _indicator.isCanceled() || _cancellingByUser.get();
 	}
 
 
-	private boolean checkCancel() {
+	boolean checkCancel() {
 		if (_canceled) {
 			return true;
 		}
@@ -127,24 +171,28 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 		if (!projectFilterSettings.displayWarning(bug)) {
 			return;
 		}
-		_bugCollection.add(bug);
+		// the bug store holds the bugs, the collection only the metadata
+		_bugCollection.getProjectStats().addBug(bug);
+		final int index = _bugStore.add(bug);
 		bugCount++;
+		if (parallelProgress != null) {
+			parallelProgress.bugReported();
+		}
 		observeClass(bug.getPrimaryClass().getClassDescriptor());
 
-		// Guarantee thread visibility *one* time.
-    final AtomicReference<SortedBugCollection> bugCollectionRef = new AtomicReference<>(_bugCollection);
-    final AtomicReference<BugInstance> bugRef = new AtomicReference<>(bug);
-		final int analyzedClassCount = analyzedClassCountOffset + getProjectStats().getNumClasses();
-		_transferToEDTQueue.offer(new Runnable() {
-			/**
-			 * Invoked by EDT.
-			 */
-			@Override
-			public void run() {
-				final Bug bug = new Bug(module, bugCollectionRef.get(), bugRef.get());
-				MessageBusManager.publishNewBug(_project, bug, analyzedClassCount);
-			}
-		});
+		final int analyzedClassCount = parallelProgress != null ?
+				parallelProgress.getAnalyzedClassCount() :
+				analyzedClassCountOffset + getProjectStats().getNumClasses();
+		_newBugsQueue.offer(new Bug(module, _bugStore, index), analyzedClassCount);
+	}
+
+
+	/**
+	 * Reports a bug of an unchanged class from {@link AnalysisResultCache} or a bug found by an analysis worker
+	 * ({@link AnalysisWorkerPool}). The priority and rank thresholds were already applied when the bug was found.
+	 */
+	void reportFilteredBug(@NotNull final BugInstance bug) {
+		doReportBug(bug);
 	}
 
 
@@ -197,13 +245,18 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 
 	@Override
 	public void finish() {
+		endPhase();
 		EventDispatchThreadHelper.invokeAndWait(new EventDispatchThreadHelper.OperationAdapter() {
 			@Override
 			public void run() {
-				_transferToEDTQueue.drain();
+				_newBugsQueue.drain();
 			}
 		});
-		_indicator.setText("Finished: Found " + bugCount + " bugs.");
+		if (parallelProgress != null) {
+			parallelProgress.moduleFinished();
+		} else {
+			_indicator.setText("Finished: Found " + bugCount + " bugs.");
+		}
 		_indicator.finishNonCancelableSection();
 	}
 
@@ -219,6 +272,12 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 	}
 
 
+	@NotNull
+	BugStore getBugStore() {
+		return _bugStore;
+	}
+
+
 	@Override
 	public void observeClass(@NotNull final ClassDescriptor classDescriptor) {
 		if (checkCancel()) {
@@ -227,10 +286,11 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 
 		final String className = classDescriptor.getDottedClassName();
 		_indicator.setText("Observing class: " + className);
+		final int found = parallelProgress != null ? parallelProgress.getBugCount() : bugCount;
 		if (pass <= 0) {
-			_indicator.setText("Prescanning... (found " + bugCount + ", checking " + className + ')');
+			_indicator.setText("Prescanning... (found " + found + ", checking " + className + ')');
 		} else {
-			_indicator.setText("Checking... (found " + bugCount + ", checking " + className + ')');
+			_indicator.setText("Checking... (found " + found + ", checking " + className + ')');
 		}
 	}
 
@@ -265,12 +325,14 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 
 	@Override
 	public void finishPerClassAnalysis() {
+		beginPhase(AnalysisTimings.FINISH_ANALYSIS);
 		_indicator.setText("Finishing analysis...");
 	}
 
 
 	@Override
 	public void reportNumberOfArchives(final int numArchives) {
+		beginPhase(AnalysisTimings.CLASS_DISCOVERY);
 		beginStage("Scanning archives: ", numArchives);
 		checkCancel(); // interrupt here has no effect, this is a FindBugs bug... bad for jumbo projects.
 	}
@@ -279,6 +341,7 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 	@Override
 	public void startAnalysis(final int numClasses) {
 		pass++;
+		beginPhase(AnalysisTimings.getPassName(pass));
 		beginStage(ANALYZING_CLASSES_i18N, numClasses);
 	}
 
@@ -298,23 +361,23 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 		stepCount = 0;
 		this.goal = goal;
 		_currentStageName = stageName;
-		_indicator.setText2(stageName + " 0/" + this.goal);
+		_indicator.setText2(getStagePrefix() + stageName + " 0/" + this.goal);
 	}
 
 
 	private void step() {
 		stepCount++;
 		final int work = pass == 0 ? 1 : 2;
-		_indicator.setText2(_currentStageName + ' ' + stepCount + '/' + goal + (ANALYZING_CLASSES_i18N.equals(_currentStageName) ? " (pass #" + work + "/2)" : ""));
+		_indicator.setText2(getStagePrefix() + _currentStageName + ' ' + stepCount + '/' + goal + (ANALYZING_CLASSES_i18N.equals(_currentStageName) ? " (pass #" + work + "/2)" : ""));
 	}
 
 
-	private static class RunnableProcessor implements Processor<Runnable> {
-		@Override
-		public boolean process(Runnable runnable) {
-			runnable.run();
-			return true;
+	@NotNull
+	private String getStagePrefix() {
+		if (parallelProgress != null) {
+			return _bugCollection.getProject().getProjectName() + ": ";
 		}
+		return "";
 	}
 
 
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.util.text.StringUtil;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.Version;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.plugins.spotbugs.common.util.FindBugsCustomPluginUtil;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Creates a stable hash of all settings which affect the analysis result,
+ * so results (or prepared configurations) can be reused as long as nothing changed.
+ * Referenced files (filter, baseline and plugin files) are included by path and modification time.
+ */
+public final class SettingsFingerprint {
+
+	private SettingsFingerprint() {
+	}
+
+	@NotNull
+	public static String of(@NotNull final AbstractSettings settings) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(Version.VERSION_STRING).append('\n');
+		sb.append(settings.analysisEffort).append('\n');
+		sb.append(settings.minRank).append('\n');
+		sb.append(settings.minPriority).append('\n');
+		sb.append(new TreeSet<>(settings.hiddenBugCategory)).append('\n');
+		appendFiles(sb, settings.includeFilterFiles);
+		appendFiles(sb, settings.excludeFilterFiles);
+		appendFiles(sb, settings.excludeBugsFiles);
+		sb.append(new TreeMap<>(settings.detectors)).append('\n');
+		appendPlugins(sb, settings.plugins);
+		return sha1(sb.toString());
+	}
+
+	/**
+	 * @return a hash of the plugin settings and the referenced plugin files, which is all
+	 * {@link org.jetbrains.plugins.spotbugs.plugins.PluginLoader} depends on
+	 */
+	@NotNull
+	public static String ofPlugins(@NotNull final Set<PluginSettings> plugins) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(Version.VERSION_STRING).append('\n');
+		appendPlugins(sb, plugins);
+		return sha1(sb.toString());
+	}
+
+	/**
+	 * @return a hash of id and version of all currently loaded SpotBugs plugins
+	 */
+	@NotNull
+	public static String ofLoadedPlugins() {
+		final List<String> plugins = new ArrayList<>();
+		for (final Plugin plugin : Plugin.getAllPlugins()) {
+			plugins.add(plugin.getPluginId() + ';' + plugin.getVersion() + ';' + plugin.isGloballyEnabled());
+		}
+		return sha1(new TreeSet<>(plugins).toString());
+	}
+
+	private static void appendPlugins(@NotNull final StringBuilder sb, @NotNull final Set<PluginSettings> plugins) {
+		for (final PluginSettings plugin : new TreeSet<>(plugins)) {
+			sb.append(plugin.id).append(';').append(plugin.enabled).append(';').append(plugin.bundled).append(';');
+			if (plugin.url != null) {
+				sb.append(plugin.url).append(';').append(pluginFileLastModified(plugin.url));
+			}
+			sb.append(new TreeMap<>(plugin.detectors)).append('\n');
+		}
+	}
+
+	private static long pluginFileLastModified(@NotNull final String pluginUrl) {
+		try {
+			return FindBugsCustomPluginUtil.getAsFile(pluginUrl).lastModified();
+		} catch (final MalformedURLException ignored) {
+			return 0;
+		}
+	}
+
+	private static void appendFiles(@NotNull final StringBuilder sb, @NotNull final Map<String, Boolean> files) {
+		for (final Map.Entry<String, Boolean> file : new TreeMap<>(files).entrySet()) {
+			if (file.getValue()) {
+				sb.append(file.getKey()).append(';').append(new File(file.getKey()).lastModified()).append('\n');
+			}
+		}
+	}
+
+	@NotNull
+	static String sha1(@NotNull final String value) {
+		return sha1(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@NotNull
+	static String sha1(@NotNull final byte[] value) {
+		return StringUtil.toHexString(newSha1().digest(value));
+	}
+
+	@NotNull
+	static MessageDigest newSha1() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
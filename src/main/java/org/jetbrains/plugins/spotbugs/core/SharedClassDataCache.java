@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.diagnostic.Logger;
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.ResourceNotFoundException;
+import edu.umd.cs.findbugs.classfile.analysis.ClassData;
+import edu.umd.cs.findbugs.classfile.engine.ClassDataAnalysisEngine;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class file content shared by all SpotBugs engines of the IDE session. Every module is analyzed by its own
+ * {@link FindBugs2} engine, and each engine reads the classes of the modules and libraries it depends on again;
+ * with this cache a class file is read once.
+ * <p>
+ * An entry of an archive (the libraries and module jars) is valid as long as size and modification time of the
+ * archive are unchanged. Checking the stamp of a class file in a directory (the compiler output of the modules)
+ * costs about as much as reading it, so the classes of a directory are valid for one analysis run
+ * (see {@link #startRun()}); the compiler runs before the analysis, not during it.
+ * The least recently used entries are dropped once the cached content exceeds {@link #MAX_BYTES}.
+ * <p>
+ * Only the content is shared: the class path and the parsed classes belong to the analysis context of one engine
+ * (the descriptors and the {@code XFactory} of a parsed class are per context), which is released when the
+ * engine is disposed.
+ */
+final class SharedClassDataCache {
+
+	private static final Logger LOGGER = Logger.getInstance(SharedClassDataCache.class);
+
+	private static final long MAX_BYTES = Math.min(32L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 32);
+
+	private static final SharedClassDataCache INSTANCE = new SharedClassDataCache();
+
+	private final Map<String, Entry> entries; // @GuardedBy this
+	private long bytes; // @GuardedBy this
+	private long run; // @GuardedBy this
+
+	private SharedClassDataCache() {
+		entries = new LinkedHashMap<>(1024, 0.75f, true);
+	}
+
+	/**
+	 * Replaces the engine which reads the class files of {@code analysisCache},
+	 * see {@link FindBugs2#createAnalysisCache()}.
+	 */
+	static void registerWith(@NotNull final IAnalysisCache analysisCache) {
+		new CachingClassDataAnalysisEngine(INSTANCE, INSTANCE.getRun()).registerWith(analysisCache);
+	}
+
+	/**
+	 * Starts an analysis run, the engines registered from now on read the classes of directories again.
+	 */
+	static void startRun() {
+		synchronized (INSTANCE) {
+			INSTANCE.run++;
+		}
+	}
+
+	private synchronized long getRun() {
+		return run;
+	}
+
+	@Nullable
+	private synchronized byte[] get(@NotNull final String key, final long size, final long lastModified) {
+		final Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.size != size || entry.lastModified != lastModified) {
+			remove(key);
+			return null;
+		}
+		return entry.data;
+	}
+
+	private synchronized void put(
+			@NotNull final String key,
+			final long size,
+			final long lastModified,
+			@NotNull final byte[] data
+	) {
+		if (data.length > MAX_BYTES) {
+			return;
+		}
+		remove(key);
+		entries.put(key, new Entry(size, lastModified, data));
+		bytes += data.length;
+		while (bytes > MAX_BYTES) {
+			remove(entries.keySet().iterator().next());
+		}
+	}
+
+	private void remove(@NotNull final String key) {
+		final Entry entry = entries.remove(key);
+		if (entry != null) {
+			bytes -= entry.data.length;
+		}
+	}
+
+	private static final class Entry {
+		final long size;
+		final long lastModified;
+		@NotNull
+		final byte[] data;
+
+		Entry(final long size, final long lastModified, @NotNull final byte[] data) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.data = data;
+		}
+	}
+
+	/**
+	 * Looks up {@link ClassData} in the shared cache before the class file is read. One instance per engine.
+	 */
+	private static final class CachingClassDataAnalysisEngine extends ClassDataAnalysisEngine {
+
+		/**
+		 * Size of the stamp of a directory code base, no archive has a negative size.
+		 */
+		private static final long DIRECTORY = -1;
+
+		@NotNull
+		private final SharedClassDataCache cache;
+
+		/**
+		 * Stamp of the directory code bases.
+		 */
+		@NotNull
+		private final long[] directory;
+
+		/**
+		 * Size and modification time of the archives of the class path ({@link #directory} for a directory),
+		 * so that an archive is checked once per engine.
+		 */
+		@NotNull
+		private final Map<String, long[]> codeBases;
+
+		CachingClassDataAnalysisEngine(@NotNull final SharedClassDataCache cache, final long run) {
+			this.cache = cache;
+			directory = new long[]{DIRECTORY, run};
+			codeBases = new ConcurrentHashMap<>();
+		}
+
+		@Override
+		public ClassData analyze(final IAnalysisCache analysisCache, final ClassDescriptor descriptor)
+				throws CheckedAnalysisException {
+			final String resourceName = descriptor.toResourceName();
+			final ICodeBaseEntry codeBaseEntry;
+			try {
+				codeBaseEntry = analysisCache.getClassPath().lookupResource(resourceName);
+			} catch (final ResourceNotFoundException ignored) {
+				return super.analyze(analysisCache, descriptor); // reports the missing class
+			}
+			final ICodeBase codeBase = codeBaseEntry.getCodeBase();
+			final String pathName = codeBase.getPathName();
+			if (pathName == null) { // f. e. a nested archive
+				return super.analyze(analysisCache, descriptor);
+			}
+			final long[] stamp = getStamp(pathName);
+			if (stamp == null) {
+				return super.analyze(analysisCache, descriptor);
+			}
+			final String key = pathName + '!' + resourceName;
+			final byte[] data = cache.get(key, stamp[0], stamp[1]);
+			if (data != null) {
+				return new ClassData(descriptor, codeBaseEntry, data);
+			}
+			final ClassData ret = super.analyze(analysisCache, descriptor);
+			cache.put(key, stamp[0], stamp[1], ret.getData());
+			return ret;
+		}
+
+		/**
+		 * @return size and modification time of the archive, {@link #directory} for a directory
+		 */
+		@Nullable
+		private long[] getStamp(@NotNull final String pathName) {
+			long[] ret = codeBases.get(pathName);
+			if (ret == null) {
+				try {
+					final BasicFileAttributes attributes =
+							Files.readAttributes(new File(pathName).toPath(), BasicFileAttributes.class);
+					if (attributes.isDirectory()) {
+						ret = directory;
+					} else {
+						ret = new long[]{attributes.size(), attributes.lastModifiedTime().toMillis()};
+					}
+				} catch (final IOException e) {
+					LOGGER.debug("Could not stat " + pathName, e);
+					return null;
+				}
+				codeBases.put(pathName, ret);
+			}
+			return ret;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.DetectorFactory;
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.config.ProjectFilterSettings;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the {@link UserPreferences} prepared from {@link AbstractSettings} (effort, filter settings and
+ * detector enablement), keyed by {@link SettingsFingerprint}, so they are not rebuilt for every module
+ * of every analysis run.
+ * <p>
+ * The prepared preferences reference the detector factories of the loaded plugins, therefore the cache is
+ * dropped whenever {@link org.jetbrains.plugins.spotbugs.plugins.PluginLoader} is invalidated.
+ */
+public final class UserPreferencesCache {
+
+	private static final int MAX_ENTRIES = 16;
+
+	private static final Map<String, UserPreferences> CACHE = new LinkedHashMap<String, UserPreferences>(MAX_ENTRIES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, UserPreferences> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	}; // @GuardedBy UserPreferencesCache.class
+
+	private UserPreferencesCache() {
+	}
+
+	public synchronized static void invalidate() {
+		CACHE.clear();
+	}
+
+	/**
+	 * @return a copy of the prepared preferences which the caller is free to modify
+	 */
+	@NotNull
+	public synchronized static UserPreferences get(@NotNull final AbstractSettings settings) {
+		final String fingerprint = SettingsFingerprint.of(settings);
+		UserPreferences userPrefs = CACHE.get(fingerprint);
+		if (userPrefs == null) {
+			userPrefs = create(settings);
+			CACHE.put(fingerprint, userPrefs);
+		}
+		return userPrefs.clone();
+	}
+
+	@NotNull
+	private static UserPreferences create(@NotNull final AbstractSettings settings) {
+		final DetectorFactoryCollection detectorFactoryCollection = DetectorFactoryCollection.instance();
+		final UserPreferences userPrefs = UserPreferences.createDefaultUserPreferences();
+		userPrefs.setEffort(settings.analysisEffort);
+
+		final ProjectFilterSettings projectFilterSettings = userPrefs.getFilterSettings();
+		projectFilterSettings.setMinRank(settings.minRank);
+		projectFilterSettings.setMinPriority(settings.minPriority);
+		for (final String category : detectorFactoryCollection.getBugCategories()) {
+			projectFilterSettings.removeCategory(category);
+			projectFilterSettings.addCategory(category);
+		}
+		for (final String category : settings.hiddenBugCategory) {
+			projectFilterSettings.removeCategory(category);
+		}
+
+		userPrefs.setIncludeFilterFiles(new HashMap<>(settings.includeFilterFiles));
+		userPrefs.setExcludeBugsFiles(new HashMap<>(settings.excludeBugsFiles));
+		userPrefs.setExcludeFilterFiles(new HashMap<>(settings.excludeFilterFiles));
+
+		configureDetectors(settings.detectors, detectorFactoryCollection, userPrefs);
+		for (final PluginSettings pluginSettings : settings.plugins) {
+			configureDetectors(pluginSettings.detectors, detectorFactoryCollection, userPrefs);
+		}
+		return userPrefs;
+	}
+
+	private static void configureDetectors(
+			@NotNull final Map<String, Boolean> detectors,
+			@NotNull final DetectorFactoryCollection detectorFactoryCollection,
+			@NotNull final UserPreferences userPreferences
+	) {
+		for (final Map.Entry<String, Boolean> enabled : detectors.entrySet()) {
+			final DetectorFactory detectorFactory = detectorFactoryCollection.getFactory(enabled.getKey());
+			if (detectorFactory != null) {
+				userPreferences.enableDetector(detectorFactory, enabled.getValue());
+			}
+		}
+	}
+}
@@ -49,9 +49,62 @@ public final class WorkspaceSettings implements PersistentStateComponent<Workspa
 	@Tag
 	public boolean analyzeAfterAutoMake = false;
 
+	/**
+	 * Number of levels of classes depending on the changed classes which are analyzed too after an auto make
+	 * (0 analyzes only the changed classes).
+	 *
+	 * @see ClassDependencyIndex
+	 */
+	@Tag
+	public int analyzeAfterAutoMakeDependentsDepth = 1;
+
 	@Tag
 	public boolean runInBackground = false;
 
+	/**
+	 * Run the analysis of all modules, which do not override the project settings,
+	 * at the same time (one SpotBugs engine per module).
+	 */
+	@Tag
+	public boolean analyzeModulesInParallel = false;
+
+	/**
+	 * Reuse the cached results of classes whose class file did not change since the last analysis.
+	 *
+	 * @see AnalysisResultCache
+	 */
+	@Tag
+	public boolean incrementalAnalysis = false;
+
+	/**
+	 * Run the SpotBugs engine in separate worker JVMs instead of the IDE JVM.
+	 *
+	 * @see AnalysisWorkerPool
+	 */
+	@Tag
+	public boolean analyzeInWorkerProcess = false;
+
+	/**
+	 * Maximum heap size (-Xmx) in megabytes of a worker JVM, see {@link #analyzeInWorkerProcess}.
+	 */
+	@Tag
+	public int workerProcessMaxHeapMb = 1024;
+
+	/**
+	 * Maximum number of problems whose editor elements are kept resolved in memory,
+	 * see {@link ProblemCacheService}. The elements of other files are resolved again on demand.
+	 */
+	@Tag
+	public int resolvedProblemsLimit = 10000;
+
+	/**
+	 * Save the result of the last analysis and show it again when the project is reopened.
+	 *
+	 * @see LastAnalysisResult
+	 */
+	@Tag
+	public boolean restoreLastResult = true;
+
 	/**
 	 * Last used export directory for "Export Bug Collection".
 	 */
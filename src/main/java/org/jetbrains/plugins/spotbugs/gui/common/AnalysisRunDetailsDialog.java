@@ -19,17 +19,26 @@
  */
 package org.jetbrains.plugins.spotbugs.gui.common;
 
+import com.intellij.ide.actions.RevealFileAction;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogBuilder;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
 import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.NotNull;
 
 import org.jetbrains.plugins.spotbugs.common.VersionManager;
+import org.jetbrains.plugins.spotbugs.common.util.ErrorUtil;
 import org.jetbrains.plugins.spotbugs.common.util.FindBugsUtil;
+import org.jetbrains.plugins.spotbugs.core.AnalysisTimings;
 import org.jetbrains.plugins.spotbugs.core.FindBugsProject;
 import org.jetbrains.plugins.spotbugs.core.FindBugsResult;
 import org.jetbrains.plugins.spotbugs.resources.GuiResources;
+import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
+import javax.swing.AbstractAction;
 import javax.swing.JComponent;
 import javax.swing.JEditorPane;
 import javax.swing.JPanel;
@@ -42,6 +51,13 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -63,6 +79,11 @@ public class AnalysisRunDetailsDialog {
 		html.append("<p><h2>").append(VersionManager.getName()).append(": <b>found ").append(bugCount).append(" bugs in ").append(numClasses).append(numClasses > 1 ? " classes" : " class").append("</b>").append("</h2></p>");
 		html.append("<p>").append("<font size='10px'>using ").append(VersionManager.getFullVersion()).append(" with SpotBugs version ").append(FindBugsUtil.getFindBugsFullVersion()).append("</font>").append("</p>");
 
+		final AnalysisTimings timings = result.getTimings();
+		if (!timings.isEmpty()) {
+			appendTimings(html, timings);
+		}
+
 		for (final edu.umd.cs.findbugs.Project bugsProject : result.getProjects()) {
 
 			html.append("<p><h2>").append(bugsProject.getProjectName()).append("</h3></p>");
@@ -156,9 +177,85 @@ public class AnalysisRunDetailsDialog {
 
 		panel.add(ScrollPaneFacade.createScrollPane(jEditorPane, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED));
 		dialogBuilder.setCenterPanel(panel);
+		if (!timings.isEmpty()) {
+			dialogBuilder.addAction(new ExportTimingsAction(project, timings));
+		}
 
 		SwingUtilities.invokeLater(() -> jEditorPane.scrollRectToVisible(new Rectangle(0, 0)));
 
 		return dialogBuilder;
 	}
+
+	private static void appendTimings(@NotNull final StringBuilder html, @NotNull final AnalysisTimings timings) {
+		final List<AnalysisTimings.Phase> phases = timings.getPhases();
+		html.append("<p><h3>Phases").append(" <font size='9px' color='gray'>(summed up over all modules)</h3></p>");
+		html.append("<table>");
+		html.append("<tr><th align='left'>Phase</th><th align='right'>Wall</th><th align='right'>CPU</th><th align='right'>Allocated</th></tr>");
+		for (final AnalysisTimings.Phase phase : phases) {
+			html.append("<tr><td>").append(phase.getName()).append("</td>");
+			html.append("<td align='right'>").append(formatNanos(phase.getWallNanos())).append("</td>");
+			html.append("<td align='right'>").append(phase.getCpuNanos() < 0 ? "-" : formatNanos(phase.getCpuNanos())).append("</td>");
+			html.append("<td align='right'>").append(phase.getAllocatedBytes() < 0 ? "-" : StringUtil.formatFileSize(phase.getAllocatedBytes())).append("</td></tr>");
+		}
+		html.append("</table>");
+
+		final List<AnalysisTimings.ProfileEntry> profile = timings.getProfile();
+		if (!profile.isEmpty()) {
+			html.append("<p><h3>Detectors and Analysis Engines").append(" <font size='9px' color='gray'>(").append(profile.size()).append(")</h3></p>");
+			html.append("<table>");
+			html.append("<tr><th align='left'>Name</th><th align='left'>Plugin</th><th align='right'>Time</th></tr>");
+			for (final AnalysisTimings.ProfileEntry entry : profile) {
+				html.append("<tr><td>").append(entry.getName()).append("</td>");
+				html.append("<td>").append(entry.isDetector() ? entry.getPluginId() : "<font color='gray'>engine</font>").append("</td>");
+				html.append("<td align='right'>").append(formatNanos(entry.getNanos())).append("</td></tr>");
+			}
+			html.append("</table>");
+		}
+	}
+
+	@NotNull
+	private static String formatNanos(final long nanos) {
+		return String.format("%,d ms", AnalysisTimings.toMillis(nanos));
+	}
+
+	private static final class ExportTimingsAction extends AbstractAction {
+
+		@NotNull
+		private final Project project;
+
+		@NotNull
+		private final AnalysisTimings timings;
+
+		ExportTimingsAction(@NotNull final Project project, @NotNull final AnalysisTimings timings) {
+			super(ResourcesLoader.getString("analysis.timings.export.action"));
+			this.project = project;
+			this.timings = timings;
+		}
+
+		@Override
+		public void actionPerformed(final ActionEvent e) {
+			final VirtualFileWrapper wrapper = FileChooserFactory.getInstance().createSaveFileDialog(
+					new FileSaverDescriptor(
+							ResourcesLoader.getString("analysis.timings.export.title"),
+							ResourcesLoader.getString("analysis.timings.export.description"),
+							"csv"
+					), project).save(null, "SpotBugs-timings");
+			if (wrapper == null) {
+				return;
+			}
+			final File file = wrapper.getFile();
+			try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+				timings.writeCsv(writer);
+			} catch (final IOException ex) {
+				throw ErrorUtil.toUnchecked(ex);
+			}
+			RevealFileAction.showDialog(
+					project,
+					ResourcesLoader.getString("analysis.timings.export.success.text"),
+					StringUtil.capitalizeWords(ResourcesLoader.getString("analysis.timings.export.success.title"), true),
+					file,
+					null
+			);
+		}
+	}
 }
@@ -41,8 +41,20 @@ public class FilterFileChooserDescriptor extends FileChooserDescriptor {
    * @param filter      the file filter.
    */
   public FilterFileChooserDescriptor(final String title, final String description, final FileFilter filter) {
-    // select a single file, not jar contents
-    super(true, false, true, true, false, false);
+    this(title, description, filter, false);
+  }
+
+  /**
+   * Construct a file chooser descriptor for the given file filter.
+   *
+   * @param title          the dialog title.
+   * @param description    the dialog description.
+   * @param filter         the file filter.
+   * @param chooseMultiple true to allow the selection of more than one file.
+   */
+  public FilterFileChooserDescriptor(final String title, final String description, final FileFilter filter, final boolean chooseMultiple) {
+    // select file(s), not jar contents
+    super(true, false, true, true, false, chooseMultiple);
     setTitle(title);
     setDescription(description);
     _fileFilter = filter;
@@ -23,11 +23,11 @@ package org.jetbrains.plugins.spotbugs.gui.common;
 import com.intellij.openapi.fileChooser.FileChooser;
 import com.intellij.openapi.fileChooser.FileChooserDescriptor;
 import com.intellij.openapi.ui.DialogBuilder;
-import com.intellij.openapi.util.io.FileUtilRt;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.DocumentAdapter;
+import org.jetbrains.annotations.NotNull;
 
 import javax.swing.AbstractButton;
 import javax.swing.JButton;
@@ -37,8 +37,6 @@ import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
 import javax.swing.event.DocumentEvent;
 import javax.swing.filechooser.FileFilter;
-import javax.swing.text.BadLocationException;
-import javax.swing.text.Document;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.GridBagConstraints;
@@ -49,6 +47,10 @@ import java.awt.event.ActionListener;
 import java.awt.event.HierarchyEvent;
 import java.awt.event.HierarchyListener;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 
 /**
@@ -64,7 +66,6 @@ import java.io.File;
 public class ImportFileDialog extends JPanel {
 
 	private final JTextField _importFile;
-	private File _selectedFile;
 	private final transient DialogBuilder _dialogBuilder;
 	private final String _importDir;
 
@@ -105,17 +106,14 @@ public class ImportFileDialog extends JPanel {
 		dialogBuilder.setCenterPanel(this);
 
 		_importFile.getDocument().addDocumentListener(new MyDocumentAdapter());
-		if (!_importFile.getText().isEmpty()) {
-			_selectedFile = new File(_importFile.getText());
-		}
 		_importFile.addHierarchyListener(new HierarchyListener() {
 			public void hierarchyChanged(final HierarchyEvent e) {
 				if (_importFile.isVisible()) {
-					_dialogBuilder.setOkActionEnabled(validateFile(_importFile.getDocument()));
+					_dialogBuilder.setOkActionEnabled(validateFiles());
 				}
 			}
 		});
-		_dialogBuilder.setOkActionEnabled(_selectedFile != null && _selectedFile.isDirectory());
+		_dialogBuilder.setOkActionEnabled(validateFiles());
 	}
 
 
@@ -124,21 +122,43 @@ public class ImportFileDialog extends JPanel {
 	}
 
 
+	/**
+	 * @return the selected files; the text field holds their paths separated by {@link File#pathSeparator}
+	 */
+	@NotNull
+	public List<File> getFiles() {
+		final List<File> ret = new ArrayList<>();
+		for (final String path : _importFile.getText().split(Pattern.quote(File.pathSeparator))) {
+			if (!path.trim().isEmpty()) {
+				ret.add(new File(path.trim()));
+			}
+		}
+		return ret;
+	}
+
+
+	public static boolean isImportable(@NotNull final File file) {
+		final String name = file.getName().toLowerCase(Locale.ENGLISH);
+		return name.endsWith(".xml") || name.endsWith(".xml.gz");
+	}
+
+
 	public void setText(final String s) {
 		_importFile.setText(s);
 	}
 
 
-	private boolean validateFile(final Document doc) {
-		try {
-			return _selectedFile != null &&
-					_selectedFile.isFile() &&
-					_selectedFile.canRead() &&
-					"xml".equalsIgnoreCase(FileUtilRt.getExtension(_selectedFile.getAbsolutePath())) &&
-					!doc.getText(0, doc.getLength()).trim().isEmpty();
-		} catch (final BadLocationException ignore) {
+	private boolean validateFiles() {
+		final List<File> files = getFiles();
+		if (files.isEmpty()) {
 			return false;
 		}
+		for (final File file : files) {
+			if (!file.isFile() || !file.canRead() || !isImportable(file)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 
@@ -147,8 +167,7 @@ public class ImportFileDialog extends JPanel {
 
 		@Override
 		protected void textChanged(final DocumentEvent e) {
-			final Document doc = e.getDocument();
-			_dialogBuilder.setOkActionEnabled(validateFile(doc));
+			_dialogBuilder.setOkActionEnabled(validateFiles());
 		}
 	}
 
@@ -157,26 +176,32 @@ public class ImportFileDialog extends JPanel {
 		public void actionPerformed(final ActionEvent e) {
       final FileChooserDescriptor descriptor = new FilterFileChooserDescriptor(
           "Select",
-          "Select a file to import",
+          "Select one or more files to import",
           new FileFilter() {
             @Override
             public boolean accept(final File f) {
-              return f.isDirectory() || "xml".equalsIgnoreCase(FileUtilRt.getExtension(f.getAbsolutePath()));
+              return f.isDirectory() || isImportable(f);
             }
 
             @Override
             public String getDescription() {
-              return "*.xml";
+              return "*.xml, *.xml.gz";
             }
-          });
+          },
+          true);
 
       final Component parent = SwingUtilities.getRoot(_importFile);
       final VirtualFile toSelect = LocalFileSystem.getInstance().findFileByPath(_importDir);
-      final VirtualFile chosen = FileChooser.chooseFile(descriptor, parent, null, toSelect);
-      if (chosen != null) {
-        _selectedFile = VfsUtilCore.virtualToIoFile(chosen);
-        final String newLocation = _selectedFile.getPath();
-        _importFile.setText(newLocation);
+      final VirtualFile[] chosen = FileChooser.chooseFiles(descriptor, parent, null, toSelect);
+      if (chosen.length > 0) {
+        final StringBuilder newLocation = new StringBuilder();
+        for (final VirtualFile file : chosen) {
+          if (newLocation.length() > 0) {
+            newLocation.append(File.pathSeparator);
+          }
+          newLocation.append(VfsUtilCore.virtualToIoFile(file).getPath());
+        }
+        _importFile.setText(newLocation.toString());
         _dialogBuilder.setOkActionEnabled(true);
       }
 		}
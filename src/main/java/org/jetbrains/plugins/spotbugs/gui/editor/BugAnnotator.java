@@ -29,13 +29,10 @@ import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.PsiAnonymousClass;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiFile;
 import com.intellij.ui.JBColor;
-import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.Detector;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.common.ExtendedProblemDescriptor;
-import org.jetbrains.plugins.spotbugs.common.util.BugInstanceUtil;
 import org.jetbrains.plugins.spotbugs.common.util.StringUtilFb;
 import org.jetbrains.plugins.spotbugs.core.FindBugsState;
 import org.jetbrains.plugins.spotbugs.core.ProblemCacheService;
@@ -47,9 +44,7 @@ import org.jetbrains.plugins.spotbugs.intentions.SuppressReportBugIntentionActio
 import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
 import java.awt.Font;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public final class BugAnnotator implements Annotator {
 
@@ -70,29 +65,20 @@ public final class BugAnnotator implements Annotator {
 		if (cacheService == null) {
 			return;
 		}
-		final Map<PsiFile, List<ExtendedProblemDescriptor>> problems = cacheService.getProblems();
-
-		final PsiFile psiFile = psiElement.getContainingFile();
-		if (problems.containsKey(psiFile)) {
-			addAnnotation(psiElement, new ArrayList<>(problems.get(psiFile)), annotationHolder);
+		final List<ExtendedProblemDescriptor> problemDescriptors = cacheService.getProblems(psiElement.getContainingFile(), psiElement);
+		if (!problemDescriptors.isEmpty()) {
+			addAnnotation(psiElement, problemDescriptors, annotationHolder);
 		}
 	}
 
-	private static void addAnnotation(@NotNull final PsiElement psiElement, final Iterable<ExtendedProblemDescriptor> problemDescriptors, @NotNull final AnnotationHolder annotationHolder) {
-		final List<ExtendedProblemDescriptor> matchingDescriptors = new ArrayList<ExtendedProblemDescriptor>();
-		for (final ExtendedProblemDescriptor descriptor : problemDescriptors) {
-			final PsiElement problemPsiElement = descriptor.getPsiElement();
-
-			if (psiElement.equals(problemPsiElement)) {
-				matchingDescriptors.add(descriptor);
-				addAnnotation(descriptor, matchingDescriptors, psiElement, annotationHolder);
-			}
+	private static void addAnnotation(@NotNull final PsiElement psiElement, final List<ExtendedProblemDescriptor> problemDescriptors, @NotNull final AnnotationHolder annotationHolder) {
+		for (int i = 0; i < problemDescriptors.size(); i++) {
+			addAnnotation(problemDescriptors.get(i), problemDescriptors.subList(0, i + 1), psiElement, annotationHolder);
 		}
 	}
 
 	private static void addAnnotation(final ExtendedProblemDescriptor problemDescriptor, final List<ExtendedProblemDescriptor> matchingDescriptors, final PsiElement psiElement, @NotNull final AnnotationHolder annotationHolder) {
-		final BugInstance bugInstance = problemDescriptor.getBug().getInstance();
-		final int priority = bugInstance.getPriority();
+		final int priority = problemDescriptor.getBug().getKey().getPriority();
 		final Annotation annotation;
 		final PsiElement problemElement = problemDescriptor.getPsiElement();
 		final TextRange textRange = problemElement.getTextRange();
@@ -228,8 +214,8 @@ public final class BugAnnotator implements Annotator {
 		for (//noinspection LocalCanBeFinal
 				int i = 0, problemDescriptorsSize = problemDescriptors.size(); i < problemDescriptorsSize; i++) {
 			final ExtendedProblemDescriptor problemDescriptor = problemDescriptors.get(i);
-			buffer.append(ResourcesLoader.getString("findbugs.name")).append(": ").append(StringUtilFb.html2text(BugInstanceUtil.getBugPatternShortDescription(problemDescriptor.getBug().getInstance()))).append('\n');
-			buffer.append(StringUtilFb.html2text(BugInstanceUtil.getDetailText(problemDescriptor.getBug().getInstance())));
+			buffer.append(ResourcesLoader.getString("findbugs.name")).append(": ").append(StringUtilFb.html2text(problemDescriptor.getBug().getKey().getShortDescription())).append('\n');
+			buffer.append(StringUtilFb.html2text(problemDescriptor.getBug().getDetailText()));
 			if (i < problemDescriptors.size() - 1) {
 				//noinspection HardcodedLineSeparator
 				buffer.append("\n\n");
@@ -33,7 +33,6 @@ import com.intellij.util.Function;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.spotbugs.common.ExtendedProblemDescriptor;
-import org.jetbrains.plugins.spotbugs.common.util.BugInstanceUtil;
 import org.jetbrains.plugins.spotbugs.common.util.GuiUtil;
 import org.jetbrains.plugins.spotbugs.common.util.IdeaUtilImpl;
 import org.jetbrains.plugins.spotbugs.core.FindBugsState;
@@ -51,7 +50,6 @@ import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Pattern;
 
 public final class BugsLineMarkerProvider implements LineMarkerProvider {
@@ -78,31 +76,10 @@ public final class BugsLineMarkerProvider implements LineMarkerProvider {
 			return null;
 		}
 		final PsiFile psiFile = IdeaUtilImpl.getPsiFile(psiElement);
-		final Map<PsiFile, List<ExtendedProblemDescriptor>> problemCache = cacheService.getProblems();
-
-		if (problemCache.containsKey(psiFile)) {
-			final List<ExtendedProblemDescriptor> matchingDescriptors = new ArrayList<ExtendedProblemDescriptor>();
-			final List<ExtendedProblemDescriptor> problemDescriptors = problemCache.get(psiFile);
-			if (problemDescriptors == null) {
-				return null;
-			}
-
-			final Iterable<ExtendedProblemDescriptor> descriptors = new ArrayList<ExtendedProblemDescriptor>(problemDescriptors);
-			for (final ExtendedProblemDescriptor problemDescriptor : descriptors) {
-
-				final PsiElement problemPsiElement = problemDescriptor.getPsiElement();
-				if (psiElement.equals(problemPsiElement)) {
-					matchingDescriptors.add(problemDescriptor);
-					//if(psiElement instanceof PsiAnonymousClass) {
-					//	final Editor[] editors = com.intellij.openapi.editor.EditorFactory.getInstance().getEditors(IdeaUtilImpl.getDocument(psiFile.getProject(), problemDescriptor));
-					//	editors[0].getMarkupModel().addRangeHighlighter()
-					//}
-				}
-			}
-			if (!matchingDescriptors.isEmpty()) {
-				final GutterIconNavigationHandler<PsiElement> navHandler = new BugGutterIconNavigationHandler(psiElement, matchingDescriptors);
-				return new LineMarkerInfo<PsiElement>(psiElement, psiElement.getTextRange().getStartOffset(), GuiUtil.getTinyIcon(matchingDescriptors.get(0)), 4, new TooltipProvider(matchingDescriptors), navHandler, GutterIconRenderer.Alignment.LEFT);
-			}
+		final List<ExtendedProblemDescriptor> matchingDescriptors = cacheService.getProblems(psiFile, psiElement);
+		if (!matchingDescriptors.isEmpty()) {
+			final GutterIconNavigationHandler<PsiElement> navHandler = new BugGutterIconNavigationHandler(psiElement, matchingDescriptors);
+			return new LineMarkerInfo<PsiElement>(psiElement, psiElement.getTextRange().getStartOffset(), GuiUtil.getTinyIcon(matchingDescriptors.get(0)), 4, new TooltipProvider(matchingDescriptors), navHandler, GutterIconRenderer.Alignment.LEFT);
 		}
 
 		return null;
@@ -199,9 +176,9 @@ public final class BugsLineMarkerProvider implements LineMarkerProvider {
 				final ExtendedProblemDescriptor problemDescriptor = problemDescriptors.get(i);
 				buffer.append("");
 				buffer.append("</TITLE></HEAD><BODY><H3>");
-				buffer.append(BugInstanceUtil.getBugPatternShortDescription(problemDescriptor.getBug().getInstance()));
+				buffer.append(problemDescriptor.getBug().getKey().getShortDescription());
 				buffer.append("</H3>");
-				buffer.append(PATTERN.matcher(BugInstanceUtil.getDetailText(problemDescriptor.getBug().getInstance())).replaceAll(""));
+				buffer.append(PATTERN.matcher(problemDescriptor.getBug().getDetailText()).replaceAll(""));
 				if (i < problemDescriptors.size() - 1) {
 					buffer.append("<HR>");
 				}
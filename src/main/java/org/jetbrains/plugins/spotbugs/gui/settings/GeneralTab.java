@@ -20,7 +20,9 @@
 package org.jetbrains.plugins.spotbugs.gui.settings;
 
 import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.ui.JBIntSpinner;
 import com.intellij.ui.components.JBCheckBox;
+import com.intellij.ui.components.JBLabel;
 import com.intellij.util.ui.UIUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.core.AbstractSettings;
@@ -33,12 +35,20 @@ import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
 import javax.swing.JPanel;
 import java.awt.BorderLayout;
+import java.awt.FlowLayout;
 
 final class GeneralTab extends JPanel {
 	private JBCheckBox compileBeforeAnalyze;
 	private JBCheckBox analyzeAfterCompile;
 	private JBCheckBox analyzeAfterAutoMake;
+	private JBIntSpinner analyzeAfterAutoMakeDependentsDepth;
 	private JBCheckBox runInBackground;
+	private JBCheckBox analyzeModulesInParallel;
+	private JBCheckBox incrementalAnalysis;
+	private JBCheckBox analyzeInWorkerProcess;
+	private JBIntSpinner workerProcessMaxHeapMb;
+	private JBIntSpinner resolvedProblemsLimit;
+	private JBCheckBox restoreLastResult;
 	private JBCheckBox toolWindowToFront;
 	private PluginTablePane plugin;
 
@@ -47,15 +57,40 @@ final class GeneralTab extends JPanel {
 		compileBeforeAnalyze = new JBCheckBox(ResourcesLoader.getString("general.compileBeforeAnalyze.title"));
 		analyzeAfterCompile = new JBCheckBox(ResourcesLoader.getString("general.analyzeAfterCompile.title"));
 		analyzeAfterAutoMake = new JBCheckBox(ResourcesLoader.getString("general.analyzeAfterAutoMake.title"));
+		analyzeAfterAutoMakeDependentsDepth = new JBIntSpinner(1, 0, 10);
+		analyzeAfterAutoMake.addItemListener(e -> analyzeAfterAutoMakeDependentsDepth.setEnabled(analyzeAfterAutoMake.isSelected()));
 		runInBackground = new JBCheckBox(ResourcesLoader.getString("general.runInBackground.title"));
+		analyzeModulesInParallel = new JBCheckBox(ResourcesLoader.getString("general.analyzeModulesInParallel.title"));
+		incrementalAnalysis = new JBCheckBox(ResourcesLoader.getString("general.incrementalAnalysis.title"));
+		analyzeInWorkerProcess = new JBCheckBox(ResourcesLoader.getString("general.analyzeInWorkerProcess.title"));
+		workerProcessMaxHeapMb = new JBIntSpinner(1024, 256, 65536, 256);
+		analyzeInWorkerProcess.addItemListener(e -> workerProcessMaxHeapMb.setEnabled(analyzeInWorkerProcess.isSelected()));
+		resolvedProblemsLimit = new JBIntSpinner(10000, 100, 1000000, 1000);
+		restoreLastResult = new JBCheckBox(ResourcesLoader.getString("general.restoreLastResult.title"));
 		toolWindowToFront = new JBCheckBox(ResourcesLoader.getString("general.toolWindowToFront.title"));
 		plugin = new PluginTablePane();
 
 		final JPanel topPane = new JPanel(new VerticalFlowLayout(HAlignment.Left, VAlignment.Top, 0, UIUtil.DEFAULT_VGAP, false, false));
 		topPane.add(compileBeforeAnalyze);
 		topPane.add(analyzeAfterCompile);
-		topPane.add(analyzeAfterAutoMake);
+		final JPanel autoMakePane = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+		autoMakePane.add(analyzeAfterAutoMake);
+		autoMakePane.add(new JBLabel(" " + ResourcesLoader.getString("general.analyzeAfterAutoMakeDependentsDepth.title") + " "));
+		autoMakePane.add(analyzeAfterAutoMakeDependentsDepth);
+		topPane.add(autoMakePane);
 		topPane.add(runInBackground);
+		topPane.add(analyzeModulesInParallel);
+		topPane.add(incrementalAnalysis);
+		final JPanel workerPane = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+		workerPane.add(analyzeInWorkerProcess);
+		workerPane.add(new JBLabel(" " + ResourcesLoader.getString("general.workerProcessMaxHeapMb.title") + " "));
+		workerPane.add(workerProcessMaxHeapMb);
+		topPane.add(workerPane);
+		final JPanel resolvedProblemsPane = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+		resolvedProblemsPane.add(new JBLabel(ResourcesLoader.getString("general.resolvedProblemsLimit.title") + " "));
+		resolvedProblemsPane.add(resolvedProblemsLimit);
+		topPane.add(resolvedProblemsPane);
+		topPane.add(restoreLastResult);
 		topPane.add(toolWindowToFront);
 
 		add(topPane, BorderLayout.NORTH);
@@ -74,7 +109,14 @@ final class GeneralTab extends JPanel {
 		return compileBeforeAnalyze.isSelected() != settings.compileBeforeAnalyze ||
 				analyzeAfterCompile.isSelected() != settings.analyzeAfterCompile ||
 				analyzeAfterAutoMake.isSelected() != settings.analyzeAfterAutoMake ||
+				analyzeAfterAutoMakeDependentsDepth.getNumber() != settings.analyzeAfterAutoMakeDependentsDepth ||
 				runInBackground.isSelected() != settings.runInBackground ||
+				analyzeModulesInParallel.isSelected() != settings.analyzeModulesInParallel ||
+				incrementalAnalysis.isSelected() != settings.incrementalAnalysis ||
+				analyzeInWorkerProcess.isSelected() != settings.analyzeInWorkerProcess ||
+				workerProcessMaxHeapMb.getNumber() != settings.workerProcessMaxHeapMb ||
+				resolvedProblemsLimit.getNumber() != settings.resolvedProblemsLimit ||
+				restoreLastResult.isSelected() != settings.restoreLastResult ||
 				toolWindowToFront.isSelected() != settings.toolWindowToFront;
 	}
 
@@ -86,7 +128,14 @@ final class GeneralTab extends JPanel {
 		settings.compileBeforeAnalyze = compileBeforeAnalyze.isSelected();
 		settings.analyzeAfterCompile = analyzeAfterCompile.isSelected();
 		settings.analyzeAfterAutoMake = analyzeAfterAutoMake.isSelected();
+		settings.analyzeAfterAutoMakeDependentsDepth = analyzeAfterAutoMakeDependentsDepth.getNumber();
 		settings.runInBackground = runInBackground.isSelected();
+		settings.analyzeModulesInParallel = analyzeModulesInParallel.isSelected();
+		settings.incrementalAnalysis = incrementalAnalysis.isSelected();
+		settings.analyzeInWorkerProcess = analyzeInWorkerProcess.isSelected();
+		settings.workerProcessMaxHeapMb = workerProcessMaxHeapMb.getNumber();
+		settings.resolvedProblemsLimit = resolvedProblemsLimit.getNumber();
+		settings.restoreLastResult = restoreLastResult.isSelected();
 		settings.toolWindowToFront = toolWindowToFront.isSelected();
 	}
 
@@ -98,7 +147,16 @@ final class GeneralTab extends JPanel {
 		compileBeforeAnalyze.setSelected(settings.compileBeforeAnalyze);
 		analyzeAfterCompile.setSelected(settings.analyzeAfterCompile);
 		analyzeAfterAutoMake.setSelected(settings.analyzeAfterAutoMake);
+		analyzeAfterAutoMakeDependentsDepth.setNumber(settings.analyzeAfterAutoMakeDependentsDepth);
+		analyzeAfterAutoMakeDependentsDepth.setEnabled(settings.analyzeAfterAutoMake);
 		runInBackground.setSelected(settings.runInBackground);
+		analyzeModulesInParallel.setSelected(settings.analyzeModulesInParallel);
+		incrementalAnalysis.setSelected(settings.incrementalAnalysis);
+		analyzeInWorkerProcess.setSelected(settings.analyzeInWorkerProcess);
+		workerProcessMaxHeapMb.setNumber(settings.workerProcessMaxHeapMb);
+		workerProcessMaxHeapMb.setEnabled(settings.analyzeInWorkerProcess);
+		resolvedProblemsLimit.setNumber(settings.resolvedProblemsLimit);
+		restoreLastResult.setSelected(settings.restoreLastResult);
 		toolWindowToFront.setSelected(settings.toolWindowToFront);
 	}
 
@@ -118,7 +176,13 @@ final class GeneralTab extends JPanel {
 				"general.compileBeforeAnalyze.title",
 				"general.analyzeAfterCompile.title",
 				"general.analyzeAfterAutoMake.title",
+				"general.analyzeAfterAutoMakeDependentsDepth.title",
 				"general.runInBackground.title",
+				"general.analyzeModulesInParallel.title",
+				"general.incrementalAnalysis.title",
+				"general.analyzeInWorkerProcess.title",
+				"general.resolvedProblemsLimit.title",
+				"general.restoreLastResult.title",
 				"general.toolWindowToFront.title",
 				// PluginTablePane
 				"plugins.title",
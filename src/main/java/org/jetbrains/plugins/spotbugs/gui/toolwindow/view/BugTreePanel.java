@@ -33,7 +33,10 @@ import com.intellij.openapi.editor.markup.HighlighterLayer;
 import com.intellij.openapi.editor.markup.HighlighterTargetArea;
 import com.intellij.openapi.editor.markup.RangeHighlighter;
 import com.intellij.openapi.editor.markup.TextAttributes;
-import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.progress.impl.BackgroundableProcessIndicator;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
@@ -41,23 +44,23 @@ import com.intellij.psi.PsiFile;
 import com.intellij.ui.JBColor;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.MethodAnnotation;
-import edu.umd.cs.findbugs.SortedBugCollection;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
-import org.jetbrains.plugins.spotbugs.common.ExtendedProblemDescriptor;
 import org.jetbrains.plugins.spotbugs.common.util.BugInstanceUtil;
 import org.jetbrains.plugins.spotbugs.common.util.IdeaUtilImpl;
 import org.jetbrains.plugins.spotbugs.core.Bug;
-import org.jetbrains.plugins.spotbugs.core.FindBugsProject;
 import org.jetbrains.plugins.spotbugs.core.FindBugsResult;
 import org.jetbrains.plugins.spotbugs.gui.common.ScrollPaneFacade;
 import org.jetbrains.plugins.spotbugs.gui.tree.GroupBy;
+import org.jetbrains.plugins.spotbugs.gui.tree.model.BugInstanceGroupNode;
+import org.jetbrains.plugins.spotbugs.gui.tree.model.BugInstanceLeaf;
 import org.jetbrains.plugins.spotbugs.gui.tree.model.BugInstanceNode;
 import org.jetbrains.plugins.spotbugs.gui.tree.model.GroupTreeModel;
 import org.jetbrains.plugins.spotbugs.gui.tree.model.RootNode;
 import org.jetbrains.plugins.spotbugs.gui.tree.view.BugTree;
+import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
@@ -66,10 +69,11 @@ import javax.swing.tree.TreePath;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.Font;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Enumeration;
 import java.util.List;
-import java.util.Map;
 
 @SuppressFBWarnings("SE_BAD_FIELD")
 @SuppressWarnings({"AnonymousInnerClass"})
@@ -91,6 +95,7 @@ public class BugTreePanel extends JPanel {
 	private double _splitPaneVerticalWeight = 1.0;
 	private final double _splitPaneHorizontalWeight = 0.4;
 	private boolean _bugPreviewEnabled;
+	private ProgressIndicator _regroupIndicator;
 
 	BugTreePanel(@NotNull final ToolWindowPanel parent, @NotNull final Project project) {
 		setLayout(new BorderLayout());
@@ -115,13 +120,13 @@ public class BugTreePanel extends JPanel {
 			return;
 		}*/
 
-		if (_treeModel.getGroupBy() != _groupBy) {
-			_treeModel.setGroupBy(_groupBy);
-		}
-
 		_treeModel.addNode(bug);
 	}
 
+	void addNodes(@NotNull final List<Bug> bugs) {
+		_treeModel.addNodes(bugs);
+	}
+
 	void updateRootNode(@Nullable final Integer classCount) {
 		int numClasses = 0;
 		if (classCount != null) {
@@ -134,7 +139,9 @@ public class BugTreePanel extends JPanel {
 
 	void clear() {
 		result = null;
+		cancelRegroup();
 		_treeModel.clear();
+		_groupBy = _treeModel.getGroupBy(); // a canceled regroup keeps the grouping of the model
 	}
 
 	private GroupTreeModel getTreeModel() {
@@ -301,10 +308,6 @@ public class BugTreePanel extends JPanel {
 		return result;
 	}
 
-	public Map<PsiFile, List<ExtendedProblemDescriptor>> getProblems() {
-		return getTreeModel().getProblems();
-	}
-
 	public void setGroupBy(final GroupBy[] groupBy) {
 		EventDispatchThreadHelper.checkEDT();
 		if (!Arrays.equals(getGroupBy(), groupBy)) {
@@ -317,38 +320,50 @@ public class BugTreePanel extends JPanel {
 		return _groupBy.clone();
 	}
 
+	/**
+	 * Groups copies of the existing nodes in background and swaps them into the tree in a single step,
+	 * see {@link GroupTreeModel#regroup(GroupBy[], Collection)}. Problems (editor highlights) are not affected.
+	 */
 	private void regroupTree() {
 		EventDispatchThreadHelper.checkEDT();
-		if (result != null) {
-			boolean cleared = false;
-			for (final Map.Entry<edu.umd.cs.findbugs.Project, SortedBugCollection> entry : result.getResults().entrySet()) {
-				Module module = null;
-				if (entry.getKey() instanceof FindBugsProject) {
-					module = ((FindBugsProject) entry.getKey()).getModule();
-				}
-				final Collection<BugInstance> instanceCollection = entry.getValue().getCollection();
-				if (instanceCollection != null && !instanceCollection.isEmpty()) {
-					if (!cleared) {
-						cleared = true;
-						_treeModel.clear();
-					}
-					for (final BugInstance bugInstance : instanceCollection) {
-						if (bugInstance != null) {
-							addNode(new Bug(
-									module,
-									entry.getValue(),
-									bugInstance
-							));
-						}
-					}
+		cancelRegroup();
+		final RegroupTask task = new RegroupTask(_groupBy.clone(), _treeModel.startRegroup());
+		_regroupIndicator = task.indicator;
+		ProgressManager.getInstance().runProcessWithProgressAsynchronously(task, task.indicator);
+	}
+
+	private void cancelRegroup() {
+		if (_regroupIndicator != null) {
+			_regroupIndicator.cancel();
+			_regroupIndicator = null;
+		}
+	}
+
+	@NotNull
+	private Collection<String> getExpandedGroups() {
+		final Collection<String> ret = new ArrayList<>();
+		final Enumeration<TreePath> expanded = _bugTree.getExpandedDescendants(new TreePath(_treeModel.getRoot()));
+		if (expanded != null) {
+			while (expanded.hasMoreElements()) {
+				final Object node = expanded.nextElement().getLastPathComponent();
+				if (node instanceof BugInstanceGroupNode) {
+					ret.add(GroupTreeModel.getGroupPathKey((BugInstanceGroupNode) node));
 				}
 			}
-		} else {
-			// may be a analysis is running, we need to regroup existing nodes
-			final Collection<Bug> existing = _treeModel.getBugs();
-			_treeModel.clear();
-			for (final Bug bug : existing) {
-				addNode(bug);
+		}
+		return ret;
+	}
+
+	/**
+	 * Expands the groups which exist with the same group path in the regrouped tree,
+	 * f. e. the first level groups if only the grouping of deeper levels changed.
+	 */
+	private void restoreExpandedGroups(@NotNull final Collection<String> expandedGroups) {
+		_bugTree.expandPath(new TreePath(_treeModel.getRoot()));
+		for (final String groupPathKey : expandedGroups) {
+			final BugInstanceGroupNode group = _treeModel.findGroupNode(groupPathKey);
+			if (group != null) {
+				_bugTree.expandPath(BugInstanceGroupNode.getPath(group));
 			}
 		}
 	}
@@ -368,6 +383,70 @@ public class BugTreePanel extends JPanel {
 		_splitPaneVerticalWeight = splitPaneVerticalWeight;
 	}
 
+	private final class RegroupTask extends Task.Backgroundable {
+		@NotNull
+		private final GroupBy[] groupBy;
+
+		@NotNull
+		private final List<BugInstanceLeaf> leaves;
+
+		@NotNull
+		private final ProgressIndicator indicator;
+
+		private GroupTreeModel regrouped;
+
+		RegroupTask(@NotNull final GroupBy[] groupBy, @NotNull final List<BugInstanceLeaf> leaves) {
+			super(_project, ResourcesLoader.getString("regroup.progress.title"), true);
+			this.groupBy = groupBy;
+			this.leaves = leaves;
+			indicator = new BackgroundableProcessIndicator(this);
+		}
+
+		@Override
+		public void run(@NotNull final ProgressIndicator indicator) {
+			indicator.setIndeterminate(true);
+			regrouped = _treeModel.regroup(groupBy, leaves);
+		}
+
+		@Override
+		public void onSuccess() {
+			if (_regroupIndicator != indicator) {
+				return; // canceled, cleared or superseded by another regroup
+			}
+			_regroupIndicator = null;
+			final Collection<String> expandedGroups = getExpandedGroups();
+			final BugInstanceNode selected = _bugTree.getTreeHelper().getSelectedBugInstanceNode();
+			_treeModel.finishRegroup(regrouped);
+			restoreExpandedGroups(expandedGroups);
+			if (selected != null) {
+				_bugTree.gotoNode(selected.getBug());
+			}
+		}
+
+		@Override
+		public void onCancel() {
+			abort();
+		}
+
+		@Override
+		public void onThrowable(@NotNull final Throwable error) {
+			super.onThrowable(error);
+			abort();
+		}
+
+		/**
+		 * Keeps the grouping of the model, so the same grouping can be selected again.
+		 */
+		private void abort() {
+			if (_regroupIndicator != indicator) {
+				return; // cleared or superseded by another regroup
+			}
+			_regroupIndicator = null;
+			_treeModel.cancelRegroup();
+			_groupBy = _treeModel.getGroupBy();
+		}
+	}
+
 	@NotNull
 	public BugTree getBugTree() {
 		return _bugTree;
@@ -30,6 +30,7 @@ import com.intellij.openapi.editor.*;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.*;
 import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.*;
 import com.intellij.psi.PsiFile;
 import com.intellij.ui.content.*;
@@ -37,16 +38,20 @@ import com.intellij.util.ui.JBUI;
 import org.jetbrains.annotations.*;
 import org.jetbrains.plugins.spotbugs.common.*;
 import org.jetbrains.plugins.spotbugs.common.util.FindBugsUtil;
+import org.jetbrains.plugins.spotbugs.core.AnalysisTimings;
+import org.jetbrains.plugins.spotbugs.core.Bug;
 import org.jetbrains.plugins.spotbugs.core.FindBugsResult;
+import org.jetbrains.plugins.spotbugs.core.LastAnalysisResult;
 import org.jetbrains.plugins.spotbugs.gui.common.*;
+import org.jetbrains.plugins.spotbugs.gui.tree.model.GroupTreeModel;
 import org.jetbrains.plugins.spotbugs.messages.*;
 
 import javax.swing.*;
 import javax.swing.event.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.List;
 import java.util.*;
+import java.util.List;
 
 @SuppressWarnings({"HardCodedStringLiteral", "AnonymousInnerClass", "AnonymousInnerClassMayBeStatic"})
 @edu.umd.cs.findbugs.annotations.SuppressFBWarnings({"SE_BAD_FIELD"})
@@ -78,6 +83,11 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 	private transient PreviewPanel _previewPanel;
 	private FindBugsResult result;
 
+	/**
+	 * True while an analysis runs whose result is merged into the current result, see {@link FindBugsResult#getMergeScope()}.
+	 */
+	private boolean _merging;
+
 	public ToolWindowPanel(@NotNull final Project project) {
 		_project = project;
 		installListeners();
@@ -85,11 +95,14 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 		MessageBusManager.subscribeAnalysisState(project, this, this);
 		MessageBusManager.subscribe(project, this, ClearListener.TOPIC, () -> {
 			ToolWindowPanel.this.clear();
+			LastAnalysisResult.delete(_project);
 			DaemonCodeAnalyzer.getInstance(_project).restart();
 		});
-		MessageBusManager.subscribe(project, this, NewBugListener.TOPIC, (bug, analyzedClassCount) -> {
-			_bugTreePanel.addNode(bug);
-			_bugTreePanel.updateRootNode(analyzedClassCount);
+		MessageBusManager.subscribe(project, this, NewBugsListener.TOPIC, (bugs, analyzedClassCount) -> {
+			_bugTreePanel.addNodes(bugs);
+			if (!_merging) { // the count of a merged result is known when it is finished
+				_bugTreePanel.updateRootNode(analyzedClassCount);
+			}
 		});
 	}
 
@@ -204,10 +217,6 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 		return result;
 	}
 
-	public Map<PsiFile, List<ExtendedProblemDescriptor>> getProblems() {
-		return _bugTreePanel.getProblems();
-	}
-
 	private void installListeners() {
 		if (_componentListener == null) {
 			_componentListener = createComponentListener();
@@ -216,11 +225,14 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 	}
 
 	@Override
-	public void analysisStarted() {
-		EditorFactory.getInstance().refreshAllEditors();
-		DaemonCodeAnalyzer.getInstance(_project).restart();
+	public void analysisStarted(final boolean merge) {
+		_merging = merge;
 		updateLayout(false);
-		clear();
+		if (!merge) {
+			EditorFactory.getInstance().refreshAllEditors();
+			DaemonCodeAnalyzer.getInstance(_project).restart();
+			clear();
+		}
 	}
 
 	@Override
@@ -229,26 +241,66 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 
 	@Override
 	public void analysisAborted() {
-		_bugTreePanel.setResult(null);
+		if (!_merging) {
+			_bugTreePanel.setResult(null);
+		}
+		_merging = false;
 	}
 
 	@Override
-	public void analysisFinished(@NotNull final FindBugsResult result, @Nullable final Throwable error) {
+	public void analysisFinished(@NotNull final FindBugsResult analysisResult, @Nullable final Throwable error) {
+		final boolean merging = _merging;
+		final Set<String> mergeScope = merging ? analysisResult.getMergeScope() : null;
+		_merging = false;
+		final FindBugsResult result;
+		final int numBugs;
+		final Set<VirtualFile> changedFiles;
+		if (mergeScope != null) {
+			final List<Bug> bugs = analysisResult.getBugs();
+			final AnalysisTimings.Measurement measurement = analysisResult.getTimings().start(AnalysisTimings.TREE_INSERTION);
+			changedFiles = _bugTreePanel.getGroupModel().mergeNodes(mergeScope, bugs);
+			measurement.stop();
+			result = analysisResult.mergeInto(this.result);
+			numBugs = bugs.size();
+		} else {
+			if (merging) { // the tree still shows the previous result, replace it like a full analysis
+				clear();
+				_bugTreePanel.addNodes(analysisResult.getBugs());
+			}
+			analysisResult.getTimings().addAll(_bugTreePanel.getGroupModel().getTimings());
+			result = analysisResult;
+			numBugs = _bugTreePanel.getGroupModel().getBugCount();
+			changedFiles = null;
+		}
 		_bugTreePanel.setResult(result);
 		final Integer analyzedClassCount = result.getAnalyzedClassCount();
 		_bugTreePanel.updateRootNode(analyzedClassCount);
 		_bugTreePanel.getBugTree().validate();
-		final int numAnalysedClasses = analyzedClassCount != null ? analyzedClassCount : 0;
+		final int numAnalysedClasses = analysisResult.getAnalyzedClassCountSafe();
 
 		final StringBuilder message = new StringBuilder()
 				.append("Found ")
-				.append(_bugTreePanel.getGroupModel().getBugCount())
+				.append(numBugs)
 				.append(" bugs in ")
 				.append(numAnalysedClasses)
 				.append(numAnalysedClasses > 1 ? " classes" : " class");
 
 		this.result = result;
 
+		if (result.isRestored()) {
+			final int numStaleBugs = result.getStaleBugCount();
+			NOTIFICATION_GROUP_ANALYSIS_FINISHED.createNotification(
+					VersionManager.getName() + ": Result Restored",
+					"Restored " + numBugs + " bugs of the last analysis" + (numStaleBugs > 0 ? ", " + numStaleBugs + " of them in changed classes are stale" : ""),
+					NotificationType.INFORMATION,
+					null
+			).setImportant(false).notify(_project);
+			EditorFactory.getInstance().refreshAllEditors();
+			DaemonCodeAnalyzer.getInstance(_project).restart();
+			return;
+		}
+		LastAnalysisResult.save(_project, result);
+
 		final NotificationType notificationType;
 		if (numAnalysedClasses == 0) {
 			notificationType = NotificationType.WARNING;
@@ -291,8 +343,12 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 			).setImportant(false).notify(_project);
 		}
 
-		EditorFactory.getInstance().refreshAllEditors();
-		DaemonCodeAnalyzer.getInstance(_project).restart();
+		if (changedFiles != null) {
+			GroupTreeModel.restartHighlighting(_project, changedFiles);
+		} else {
+			EditorFactory.getInstance().refreshAllEditors();
+			DaemonCodeAnalyzer.getInstance(_project).restart();
+		}
 	}
 
 	private ComponentListener createComponentListener() {
@@ -328,7 +384,10 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 		return _bugDetailsComponents;
 	}
 
-	private void clear() {
+	/**
+	 * Removes the result and its bugs from the tree, e.g. the bugs published by an import which failed.
+	 */
+	public void clear() {
 		result = null;
 		_bugTreePanel.clear();
 		_bugTreePanel.updateRootNode(null);
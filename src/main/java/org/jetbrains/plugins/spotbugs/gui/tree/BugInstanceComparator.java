@@ -19,10 +19,9 @@
  */
 package org.jetbrains.plugins.spotbugs.gui.tree;
 
-import edu.umd.cs.findbugs.BugPattern;
-import edu.umd.cs.findbugs.BugRankCategory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.core.Bug;
+import org.jetbrains.plugins.spotbugs.core.BugKey;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -42,11 +41,11 @@ public class BugInstanceComparator {
 	static class BugInstanceClassComparator implements Comparator<Bug> {
 		@Override
 		public int compare(@NotNull final Bug o1, @NotNull final Bug o2) {
-			return getClassName(o1).compareTo(getClassName(o2));
+			return BugKey.compare(getClassName(o1), getClassName(o2));
 		}
 
 		static String getClassName(@NotNull final Bug bugInstance) {
-			return bugInstance.getInstance().getPrimaryClass().getClassName().split("\\$")[0];
+			return bugInstance.getKey().getClassName();
 		}
 	}
 
@@ -64,11 +63,11 @@ public class BugInstanceComparator {
 	static class BugInstancePackageComparator implements Comparator<Bug> {
 		@Override
 		public int compare(@NotNull final Bug o1, @NotNull final Bug o2) {
-			return getPackageName(o1).compareTo(getPackageName(o2));
+			return BugKey.compare(getPackageName(o1), getPackageName(o2));
 		}
 
 		static String getPackageName(@NotNull final Bug bug) {
-			return bug.getInstance().getPrimaryClass().getPackageName();
+			return bug.getKey().getPackageName();
 		}
 	}
 
@@ -86,12 +85,11 @@ public class BugInstanceComparator {
 	static class BugInstanceTypeComparator implements Comparator<Bug> {
 		@Override
 		public int compare(@NotNull final Bug o1, @NotNull final Bug o2) {
-			return getTypeDescription(o1).compareTo(getTypeDescription(o2));
+			return BugKey.compare(getTypeDescription(o1), getTypeDescription(o2));
 		}
 
 		static String getTypeDescription(@NotNull final Bug bug) {
-			final BugPattern bugPattern = bug.getInstance().getBugPattern();
-			return bugPattern.getAbbrev();
+			return bug.getKey().getAbbrev();
 		}
 	}
 
@@ -109,12 +107,11 @@ public class BugInstanceComparator {
 	static class BugInstanceCategoryComparator implements Comparator<Bug> {
 		@Override
 		public int compare(@NotNull final Bug o1, @NotNull final Bug o2) {
-			return getCategory(o1).compareTo(getCategory(o2));
+			return BugKey.compare(getCategory(o1), getCategory(o2));
 		}
 
 		static String getCategory(@NotNull final Bug bugInstance) {
-			final BugPattern bugPattern = bugInstance.getInstance().getBugPattern();
-			return bugPattern.getCategory();
+			return bugInstance.getKey().getCategory();
 		}
 	}
 
@@ -132,12 +129,11 @@ public class BugInstanceComparator {
 	static class BugInstanceShortDescrComparator implements Comparator<Bug> {
 		@Override
 		public int compare(@NotNull final Bug o1, @NotNull final Bug o2) {
-			return getShortDescr(o1).compareTo(getShortDescr(o2));
+			return BugKey.compare(getShortDescr(o1), getShortDescr(o2));
 		}
 
 		static String getShortDescr(@NotNull final Bug bug) {
-			final BugPattern bugPattern = bug.getInstance().getBugPattern();
-			return bugPattern.getShortDescription();
+			return bug.getKey().getShortDescription();
 		}
 	}
 
@@ -149,11 +145,11 @@ public class BugInstanceComparator {
 	static class BugInstancePriorityComparator implements Comparator<Bug> {
 		@Override
 		public int compare(@NotNull final Bug o1, @NotNull final Bug o2) {
-			return getPriorityString(o1).compareTo(getPriorityString(o2));
+			return Integer.compare(o1.getKey().getPriority(), o2.getKey().getPriority());
 		}
 
 		static String getPriorityString(@NotNull final Bug bug) {
-			return bug.getInstance().getPriorityString();
+			return bug.getKey().getPriorityString();
 		}
 	}
 
@@ -165,7 +161,7 @@ public class BugInstanceComparator {
 	private static class BugInstanceBugRankComparator implements Comparator<Bug> {
 		@Override
 		public int compare(@NotNull final Bug o1, @NotNull final Bug o2) {
-			return BugRankCategory.getRank(o1.getInstance().getBugRank()).compareTo(BugRankCategory.getRank(o2.getInstance().getBugRank()));
+			return o1.getKey().getRank().compareTo(o2.getKey().getRank());
 		}
 	}
 
@@ -121,8 +121,8 @@ public final class BugTreeHelper {
 		if (node instanceof BugInstanceNode) {
 			return (BugInstanceNode) node;
 		}
-		final List<VisitableTreeNode> childList = node.getChildsList();
-		for (final VisitableTreeNode childNode : childList) {
+		for (int i = 0; i < node.getChildCount(); i++) { // by index, so only the returned leaf is created
+			final VisitableTreeNode childNode = node.getChildAt(i);
 			//noinspection unchecked
 			final BugInstanceNode result = childNode instanceof BugInstanceNode ? (BugInstanceNode) childNode : getNextBugInstanceLeafNode((AbstractTreeNode<VisitableTreeNode>) childNode);
 			if (result != null) {
@@ -143,10 +143,9 @@ public final class BugTreeHelper {
 			return null;
 		}
 
-		@SuppressWarnings("unchecked")
-		final List<VisitableTreeNode> childList = (List<VisitableTreeNode>) node.getParent().getChildsList();
-		Collections.reverse(childList);
-		for (final VisitableTreeNode childNode : childList) {
+		final TreeNode parent = node.getParent();
+		for (int i = parent.getChildCount() - 1; i >= 0; i--) { // by index, so only the returned leaf is created
+			final VisitableTreeNode childNode = (VisitableTreeNode) parent.getChildAt(i);
 			//noinspection ObjectEquality
 			if (childNode instanceof BugInstanceNode && childNode != node) {
 				return (BugInstanceNode) childNode;
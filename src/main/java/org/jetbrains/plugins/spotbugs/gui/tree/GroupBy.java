@@ -19,7 +19,6 @@
  */
 package org.jetbrains.plugins.spotbugs.gui.tree;
 
-import edu.umd.cs.findbugs.BugRankCategory;
 import edu.umd.cs.findbugs.I18N;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.core.Bug;
@@ -90,7 +89,7 @@ public enum GroupBy {
 				groupName = BugInstanceComparator.BugInstancePriorityComparator.getPriorityString(bug);
 				break;
 			case BugRank:
-				groupName = BugRankCategory.getRank(bug.getInstance().getBugRank()).toString();
+				groupName = bug.getKey().getRank().toString();
 				break;
 			default:
 				throw new IllegalStateException("Unknown group order: " + groupBy);
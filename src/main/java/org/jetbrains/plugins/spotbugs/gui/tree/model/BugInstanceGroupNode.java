@@ -21,8 +21,6 @@ package org.jetbrains.plugins.spotbugs.gui.tree.model;
 
 import com.intellij.openapi.project.Project;
 import com.intellij.ui.JBColor;
-import edu.umd.cs.findbugs.BugRankCategory;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import icons.PluginIcons;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -30,8 +28,6 @@ import org.jetbrains.plugins.spotbugs.core.Bug;
 import org.jetbrains.plugins.spotbugs.gui.tree.BugInstanceComparator;
 import org.jetbrains.plugins.spotbugs.gui.tree.GroupBy;
 import org.jetbrains.plugins.spotbugs.gui.tree.NodeVisitor;
-import org.jetbrains.plugins.spotbugs.gui.tree.RecurseNodeVisitor;
-import org.jetbrains.plugins.spotbugs.gui.tree.RecurseNodeVisitor.RecurseVisitCriteria;
 import org.jetbrains.plugins.spotbugs.gui.tree.view.MaskIcon;
 
 import javax.swing.Icon;
@@ -40,14 +36,23 @@ import javax.swing.tree.TreePath;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Predicate;
 
 public final class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNode> implements VisitableTreeNode {
 
+	/**
+	 * Subgroups. Bugs are kept in {@link #_leaves}; a group contains either subgroups or bugs.
+	 */
 	private final List<VisitableTreeNode> _children;
+
+	/**
+	 * Bugs of this group sorted by {@link #LEAF_COMPARATOR}, their nodes are created on demand.
+	 */
+	private final List<BugInstanceLeaf> _leaves;
 	private final Bug bug;
-	private final RecurseNodeVisitor<BugInstanceGroupNode> _recurseNodeVisitor = new RecurseNodeVisitor<>(this);
 	private final Project _project;
 
 	/**
@@ -66,6 +71,7 @@ public final class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNo
 		_project = project;
 		this.bug = bug;
 		_children = new ArrayList<>();
+		_leaves = new ArrayList<>();
 		_groupBy = groupBy;
 		_groupName = groupName;
 		_simpleName = groupName;
@@ -83,25 +89,146 @@ public final class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNo
 
 	@Override
 	public void addChild(final VisitableTreeNode node) {
+		if (node instanceof BugInstanceNode) {
+			throw new IllegalArgumentException("Bugs are added by addLeaf");
+		}
 		_children.add(node);
-		if (node instanceof BugInstanceNode && node.isLeaf()) {
-			_children.sort(new ChildComparator());
-			incrementMemberCount();
-			TreeNode treeNode = getParent();
-			while (treeNode instanceof BugInstanceGroupNode) {
-				((BugInstanceGroupNode) treeNode).incrementMemberCount();
-				treeNode = treeNode.getParent();
+	}
+
+	void addLeaf(@NotNull final BugInstanceLeaf leaf) {
+		_leaves.add(getLeafInsertionIndex(leaf.getBug()), leaf);
+		incrementMemberCount();
+		TreeNode treeNode = getParent();
+		while (treeNode instanceof BugInstanceGroupNode) {
+			((BugInstanceGroupNode) treeNode).incrementMemberCount();
+			treeNode = treeNode.getParent();
+		}
+	}
+
+	/**
+	 * Removes the bugs matching {@code filter}.
+	 *
+	 * @return the removed bugs
+	 */
+	@NotNull
+	List<BugInstanceLeaf> removeLeaves(@NotNull final Predicate<BugInstanceLeaf> filter) {
+		final List<BugInstanceLeaf> ret = new ArrayList<>();
+		_leaves.removeIf(leaf -> filter.test(leaf) && ret.add(leaf));
+		TreeNode treeNode = this;
+		while (treeNode instanceof BugInstanceGroupNode) {
+			((BugInstanceGroupNode) treeNode)._memberCount -= ret.size();
+			treeNode = treeNode.getParent();
+		}
+		return ret;
+	}
+
+	@Override
+	public void removeChild(final VisitableTreeNode node) {
+		if (node instanceof BugInstanceNode) {
+			final Bug removed = ((BugInstanceNode) node).getBug();
+			removeLeaves(leaf -> leaf.getBug().equals(removed));
+		} else {
+			_children.remove(node);
+		}
+	}
+
+	@Override
+	public void removeChildAt(final int childIndex) {
+		removeChild(getChildAt(childIndex));
+	}
+
+	@Override
+	public void removeAllChilds() {
+		removeLeaves(leaf -> true);
+		_children.clear();
+	}
+
+	/**
+	 * Leaves are kept sorted by {@link #LEAF_COMPARATOR}; a new leaf goes after all leaves comparing equal to it.
+	 */
+	private int getLeafInsertionIndex(@NotNull final Bug bug) {
+		int low = 0;
+		int high = _leaves.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (LEAF_COMPARATOR.compare(_leaves.get(mid).getBug(), bug) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
 			}
 		}
+		return low;
+	}
+
+	/**
+	 * @return index of {@code bug} in {@link #_leaves}, -1 if it is not part of this group
+	 */
+	int indexOfLeaf(@NotNull final Bug bug) {
+		int low = 0;
+		int high = _leaves.size();
+		while (low < high) { // first leaf comparing equal
+			final int mid = (low + high) >>> 1;
+			if (LEAF_COMPARATOR.compare(_leaves.get(mid).getBug(), bug) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		for (int i = low; i < _leaves.size() && LEAF_COMPARATOR.compare(_leaves.get(i).getBug(), bug) == 0; i++) {
+			if (_leaves.get(i).getBug().equals(bug)) {
+				return i;
+			}
+		}
+		return -1;
 	}
 
 	@Nullable
-	public BugInstanceGroupNode findChildNode(final Bug bug, final int depth, final String groupName) {
-		if (Bug.equalsBugType(this.bug, bug) && depth == _depthFromRoot && groupName.equals(_groupName)) {
-			return this;
+	BugInstanceLeaf findLeaf(@NotNull final Bug bug) {
+		final int index = indexOfLeaf(bug);
+		return index != -1 ? _leaves.get(index) : null;
+	}
+
+	/**
+	 * @return the bugs of this group (not of subgroups), must not be modified
+	 */
+	@NotNull
+	List<BugInstanceLeaf> getLeaves() {
+		return Collections.unmodifiableList(_leaves);
+	}
+
+	/**
+	 * @return the subgroups of this group, must not be modified
+	 */
+	@NotNull
+	List<VisitableTreeNode> getGroups() {
+		return Collections.unmodifiableList(_children);
+	}
+
+	@Override
+	public VisitableTreeNode getChildAt(final int childIndex) {
+		if (childIndex < _children.size()) {
+			return _children.get(childIndex);
 		}
-		final RecurseVisitCriteria criteria = new RecurseVisitCriteria(bug, depth, groupName);
-		return _recurseNodeVisitor.findChildNode(criteria);
+		return _leaves.get(childIndex - _children.size()).getNode(this, _project);
+	}
+
+	@Override
+	public int getChildCount() {
+		return _children.size() + _leaves.size();
+	}
+
+	@Override
+	public int getIndex(final TreeNode node) {
+		if (node instanceof BugInstanceNode) {
+			final int index = node.getParent() == this ? indexOfLeaf(((BugInstanceNode) node).getBug()) : -1;
+			return index != -1 ? _children.size() + index : -1;
+		}
+		return _children.indexOf(node);
+	}
+
+	@Override
+	public Enumeration<VisitableTreeNode> children() {
+		return Collections.enumeration(getChildsList());
 	}
 
 	@Override
@@ -119,6 +246,9 @@ public final class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNo
 				ret.addAll(ret.size(), bugs);
 			}
 		}
+		for (final BugInstanceLeaf leaf : _leaves) {
+			ret.add(leaf.getBug());
+		}
 		return ret;
 	}
 
@@ -160,9 +290,22 @@ public final class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNo
 		return list;
 	}
 
+	/**
+	 * Note that this creates the nodes of all bugs of this group, prefer {@link #getChildAt(int)}.
+	 *
+	 * @return subgroups and bug nodes, must not be modified
+	 */
 	@Override
 	public List<VisitableTreeNode> getChildsList() {
-		return _children;
+		if (_leaves.isEmpty()) {
+			return Collections.unmodifiableList(_children);
+		}
+		final List<VisitableTreeNode> ret = new ArrayList<>(getChildCount());
+		ret.addAll(_children);
+		for (final BugInstanceLeaf leaf : _leaves) {
+			ret.add(leaf.getNode(this, _project));
+		}
+		return Collections.unmodifiableList(ret);
 	}
 
 	@Override
@@ -177,7 +320,7 @@ public final class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNo
 
 	@Override
 	public boolean isLeaf() {
-		return _children.isEmpty();
+		return _children.isEmpty() && _leaves.isEmpty();
 	}
 
 	private void incrementMemberCount() {
@@ -197,10 +340,10 @@ public final class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNo
 			case Package:
 				return PluginIcons.GROUP_BY_PACKAGE_ICON;
 			case Priority:
-				final String priorityString = bug.getInstance().getPriorityString();
+				final String priorityString = bug.getKey().getPriorityString();
 				return PluginIcons.GROUP_BY_PRIORITY_ICONS.getOrDefault(priorityString, PluginIcons.GROUP_BY_PRIORITY_EXP_ICON);
 			case BugRank:
-				final String rankString = BugRankCategory.getRank(bug.getInstance().getBugRank()).toString().toUpperCase(Locale.ENGLISH);
+				final String rankString = bug.getKey().getRank().toString().toUpperCase(Locale.ENGLISH);
 				return PluginIcons.GROUP_BY_RANK_ICONS.getOrDefault(rankString, PluginIcons.GROUP_BY_PRIORITY_ICON);
 			default:
 				return _collapsedIcon;
@@ -216,10 +359,10 @@ public final class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNo
 			case Package:
 				return PluginIcons.GROUP_BY_PACKAGE_ICON;
 			case Priority:
-				final String priorityString = bug.getInstance().getPriorityString();
+				final String priorityString = bug.getKey().getPriorityString();
 				return PluginIcons.GROUP_BY_PRIORITY_ICONS.getOrDefault(priorityString, PluginIcons.GROUP_BY_PRIORITY_EXP_ICON);
 			case BugRank:
-				final String rankString = BugRankCategory.getRank(bug.getInstance().getBugRank()).name();
+				final String rankString = bug.getKey().getRank().name();
 				return PluginIcons.GROUP_BY_RANK_ICONS.getOrDefault(rankString, PluginIcons.GROUP_BY_PRIORITY_ICON);
 			default:
 				return _expandedIcon;
@@ -230,18 +373,10 @@ public final class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNo
 	public String toString() {
 		return "BugInstanceGroupNode" +
 					 "{_childs=" + _children +
+					 ", _leaves=" + _leaves.size() +
 					 ", bug=" + bug +
-					 ", _recurseNodeVisitor=" + _recurseNodeVisitor +
 					 '}';
 	}
 
-	private static class ChildComparator implements Comparator<TreeNode> {
-		@SuppressFBWarnings(value = "BC_UNCONFIRMED_CAST")
-		public int compare(final TreeNode a, final TreeNode b) {
-			if (!(a instanceof BugInstanceNode) || !(b instanceof BugInstanceNode)) {
-				throw new IllegalArgumentException("argument not instance of BugInstanceNode.");
-			}
-			return BugInstanceComparator.getBugInstanceClassComparator().compare(((BugInstanceNode) a).getBug(), ((BugInstanceNode) b).getBug());
-		}
-	}
+	private static final Comparator<Bug> LEAF_COMPARATOR = BugInstanceComparator.getBugInstanceClassComparator();
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.gui.tree.model;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.core.Bug;
+
+/**
+ * Compact reference to a bug of a {@link BugInstanceGroupNode}. The {@link BugInstanceNode} of the bug,
+ * which holds the state needed by the tree (text, tooltip, icons), is created when the tree asks for it
+ * (f. e. when the group is expanded or the leaf is scrolled into view).
+ */
+public final class BugInstanceLeaf {
+
+	@NotNull
+	private final Bug bug;
+
+	@Nullable
+	private VirtualFile file;
+
+	@Nullable
+	private BugInstanceNode node;
+
+	BugInstanceLeaf(@NotNull final Bug bug, @Nullable final VirtualFile file) {
+		this.bug = bug;
+		this.file = file;
+	}
+
+	@NotNull
+	public Bug getBug() {
+		return bug;
+	}
+
+	/**
+	 * @return the resolved file, {@code null} if it is not resolved (yet)
+	 */
+	@Nullable
+	VirtualFile getFile() {
+		return file;
+	}
+
+	void setFile(@NotNull final VirtualFile file) {
+		this.file = file;
+		if (node != null) {
+			node.setFile(file);
+		}
+	}
+
+	@NotNull
+	BugInstanceNode getNode(@NotNull final BugInstanceGroupNode parent, @NotNull final Project project) {
+		if (node == null) {
+			node = new BugInstanceNode(bug, parent, project, file);
+		}
+		return node;
+	}
+}
@@ -22,12 +22,12 @@ package org.jetbrains.plugins.spotbugs.gui.tree.model;
 import com.intellij.codeInspection.ProblemDescriptor;
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.ui.JBColor;
 import edu.umd.cs.findbugs.BugInstance;
-import edu.umd.cs.findbugs.SourceLineAnnotation;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.spotbugs.common.util.IdeaUtilImpl;
@@ -44,16 +44,13 @@ import java.util.List;
 
 public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> implements VisitableTreeNode {
 
-	private PsiFile _file;
+	private VirtualFile _file;
 	private ProblemDescriptor _problem;
 	private String _description;
 
 	@NotNull
 	private final Bug bug;
 
-	@NotNull
-	private final BugInstance _bugInstance;
-
 	private final List<VisitableTreeNode> _childs;
 	private final Project _project;
 
@@ -66,9 +63,8 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 		_project = project;
 		//_parent = parent;
 		setParent(parent);
-		_childs = new ArrayList<VisitableTreeNode>();
-		_bugInstance = bug.getInstance();
-		_simpleName = _bugInstance.getMessageWithoutPrefix();
+		_childs = Collections.emptyList(); // a bug is always a leaf
+		_simpleName = bug.getMessage();
 
 		setTooltip(_simpleName);
 		setCollapsedIcon(_collapsedIcon);
@@ -76,6 +72,15 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 	}
 
 
+	/**
+	 * Creates the node of a {@link BugInstanceLeaf}, the already resolved file (if any) is reused.
+	 */
+	BugInstanceNode(@NotNull final Bug bug, @Nullable final VisitableTreeNode parent, final Project project, @Nullable final VirtualFile file) {
+		this(bug, parent, project);
+		_file = file;
+	}
+
+
 	public ProblemDescriptor getProblem() {
 		return _problem;
 	}
@@ -85,16 +90,31 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 	 * So in worst case the {@code _file} reference is resolved multiple times
 	 * (because of thread visibility, _file is not volatile)
 	 * but this is legal since other used references (f. e. {@code _project}) are final.
+	 * Only the {@code VirtualFile} is kept, so the node does not keep the PSI of the file alive.
 	 */
 	@Nullable
 	public PsiFile getPsiFile() {
-		if (_file == null) {
-			final PsiClass psiClass = IdeaUtilImpl.findJavaPsiClass(_project, getBug().getModule(), getSourcePath());
-			if (psiClass != null) {
-				_file = psiClass.getContainingFile();
-			}
+		final VirtualFile file = _file;
+		if (file == null || !file.isValid()) {
+			final PsiFile ret = findPsiFile(_project, bug);
+			_file = ret != null ? ret.getVirtualFile() : null;
+			return ret;
+		}
+		return PsiManager.getInstance(_project).findFile(file);
+	}
+
+	void setFile(@NotNull final VirtualFile file) {
+		_file = file;
+	}
+
+	@Nullable
+	static PsiFile findPsiFile(@NotNull final Project project, @NotNull final Bug bug) {
+		final String sourcePath = bug.getSourcePath();
+		if (sourcePath == null) {
+			return null;
 		}
-		return _file;
+		final PsiClass psiClass = IdeaUtilImpl.findJavaPsiClass(project, bug.getModule(), sourcePath);
+		return psiClass != null ? psiClass.getContainingFile() : null;
 	}
 
 	@NotNull
@@ -102,9 +122,12 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 		return bug;
 	}
 
+	/**
+	 * @see Bug#getInstance()
+	 */
 	@NotNull
 	public BugInstance getBugInstance() {
-		return _bugInstance;
+		return bug.getInstance();
 	}
 
 
@@ -174,39 +197,26 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 
 
 	public String getSourceFilename() {
-		return _bugInstance.getPrimaryClass().getSourceFileName();
+		return getBugInstance().getPrimaryClass().getSourceFileName();
 	}
 
 
 	public String getSourceFile() {
-		return _bugInstance.getPrimaryClass().getSourceLines().getSourceFile();
+		return getBugInstance().getPrimaryClass().getSourceLines().getSourceFile();
 	}
 
 
 	public String getSourcePath() {
-		return _bugInstance.getPrimaryClass().getSourceLines().getSourcePath();
+		return bug.getSourcePath();
 	}
 
 
 	/**
 	 * @return start line and end line
 	 */
-	@SuppressWarnings("ConstantConditions")
-	@SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
 	@NotNull
 	public int[] getSourceLines() {
-		final int[] lines = new int[2];
-		final SourceLineAnnotation annotation = _bugInstance.getPrimarySourceLineAnnotation();
-
-		if (annotation != null) {
-			lines[0] = annotation.getStartLine();
-			lines[1] = annotation.getEndLine();
-		} else {
-			lines[0] = 1;
-			lines[1] = 1;
-		}
-
-		return lines;
+		return bug.getSourceLines();
 	}
 
 	public static boolean isAnonymousClass(@NotNull final int[] lines) {
@@ -232,7 +242,7 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 		sb.append("{_file=").append(_file);
 		sb.append(", _problem=").append(_problem);
 		sb.append(", _description='").append(_description).append('\'');
-		sb.append(", _bugInstance=").append(_bugInstance);
+		sb.append(", bug=").append(bug.getType()).append(' ').append(bug.getPrimaryClassName());
 		sb.append(", _childs=").append(_childs);
 		sb.append('}');
 		return sb.toString();
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.gui.tree.model;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import gnu.trove.TIntArrayList;
+import gnu.trove.TLongObjectHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.core.Bug;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Full text index of the bugs of a {@link GroupTreeModel}: class, method, field, bug type, message and
+ * pattern details. Each distinct text is indexed once by its trigrams, so a query only verifies the texts
+ * containing all trigrams of the search text.
+ * <p>
+ * {@link #add(Bug)}, {@link #remove(Bug)} and {@link #clear()} are cheap and called on EDT, the texts are
+ * indexed by the next {@link #search(String, ProgressIndicator)} which should run in background.
+ */
+public final class BugSearchIndex {
+
+	private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+	private static final int CHECK_CANCELED_INTERVAL = 256;
+
+	private final ConcurrentLinkedQueue<Change> _changes;
+
+	/**
+	 * Guards the index; held by the search thread while applying changes and querying.
+	 */
+	private final ReentrantLock _lock;
+	private final Map<String, Document> _documentsByText;
+	private final List<Document> _documents;
+	private final TLongObjectHashMap<TIntArrayList> _postings;
+	private int _removedDocumentCount;
+
+
+	BugSearchIndex() {
+		_changes = new ConcurrentLinkedQueue<>();
+		_lock = new ReentrantLock();
+		_documentsByText = new THashMap<>();
+		_documents = new ArrayList<>();
+		_postings = new TLongObjectHashMap<>();
+	}
+
+
+	void add(@NotNull final Bug bug) {
+		_changes.add(new Change(bug, true));
+	}
+
+
+	void remove(@NotNull final Bug bug) {
+		_changes.add(new Change(bug, false));
+	}
+
+
+	void clear() {
+		if (_lock.tryLock()) {
+			try {
+				_changes.clear();
+				reset();
+			} finally {
+				_lock.unlock();
+			}
+		} else {
+			_changes.add(Change.CLEAR);
+		}
+	}
+
+
+	/**
+	 * @param text      the search text, a regular expression if it contains any regex meta character
+	 * @param indicator checked for cancellation
+	 * @return the bugs having a text which matches {@code text} case-insensitively
+	 * @throws com.intellij.openapi.progress.ProcessCanceledException if {@code indicator} is canceled
+	 */
+	@NotNull
+	public Set<Bug> search(@NotNull final String text, @NotNull final ProgressIndicator indicator) {
+		final boolean literal = isLiteral(text);
+		final String lowerCaseText = text.toLowerCase(Locale.ENGLISH);
+		final Predicate<String> matcher = literal ? s -> s.contains(lowerCaseText) : createMatcher(text);
+		_lock.lock();
+		try {
+			applyChanges(indicator);
+			final Set<Bug> ret = new THashSet<>();
+			final TIntArrayList candidates = literal ? getCandidates(lowerCaseText) : null;
+			final int count = candidates != null ? candidates.size() : _documents.size();
+			for (int i = 0; i < count; i++) {
+				if (i % CHECK_CANCELED_INTERVAL == 0) {
+					indicator.checkCanceled();
+				}
+				final Document document = _documents.get(candidates != null ? candidates.get(i) : i);
+				if (document != null && matcher.test(document.text)) {
+					ret.addAll(document.bugs);
+				}
+			}
+			return ret;
+		} finally {
+			_lock.unlock();
+		}
+	}
+
+
+	/**
+	 * Matches like {@link #search(String, ProgressIndicator)} does.
+	 */
+	@NotNull
+	public static Predicate<String> createMatcher(@NotNull final String text) {
+		if (isLiteral(text)) {
+			final String lowerCaseText = text.toLowerCase(Locale.ENGLISH);
+			return s -> s.toLowerCase(Locale.ENGLISH).contains(lowerCaseText);
+		}
+		try {
+			final Pattern pattern = Pattern.compile(text, Pattern.CASE_INSENSITIVE);
+			return s -> pattern.matcher(s).find();
+		} catch (final PatternSyntaxException ignore) {
+			return s -> false;
+		}
+	}
+
+
+	private static boolean isLiteral(@NotNull final String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (REGEX_META_CHARS.indexOf(text.charAt(i)) != -1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * @return ids of the documents containing all trigrams of {@code lowerCaseText} in ascending order,
+	 * {@code null} if the text is too short to have trigrams
+	 */
+	@Nullable
+	private TIntArrayList getCandidates(@NotNull final String lowerCaseText) {
+		if (lowerCaseText.length() < 3) {
+			return null;
+		}
+		final List<TIntArrayList> postings = new ArrayList<>();
+		for (int i = 0; i + 3 <= lowerCaseText.length(); i++) {
+			final TIntArrayList ids = _postings.get(trigram(lowerCaseText, i));
+			if (ids == null) {
+				return new TIntArrayList();
+			}
+			postings.add(ids);
+		}
+		postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+		TIntArrayList ret = postings.get(0);
+		for (int i = 1; i < postings.size() && !ret.isEmpty(); i++) {
+			ret = intersect(ret, postings.get(i));
+		}
+		return ret;
+	}
+
+
+	@NotNull
+	private static TIntArrayList intersect(@NotNull final TIntArrayList a, @NotNull final TIntArrayList b) {
+		final TIntArrayList ret = new TIntArrayList(Math.min(a.size(), b.size()));
+		int i = 0;
+		int j = 0;
+		while (i < a.size() && j < b.size()) {
+			final int x = a.get(i);
+			final int y = b.get(j);
+			if (x == y) {
+				ret.add(x);
+				i++;
+				j++;
+			} else if (x < y) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return ret;
+	}
+
+
+	private void applyChanges(@NotNull final ProgressIndicator indicator) {
+		Change change;
+		int count = 0;
+		while ((change = _changes.poll()) != null) {
+			if (++count % CHECK_CANCELED_INTERVAL == 0) {
+				indicator.checkCanceled(); // already applied changes are kept
+			}
+			if (change == Change.CLEAR) {
+				reset();
+			} else if (change.add) {
+				for (final String text : getTexts(change.bug)) {
+					addDocument(text, change.bug);
+				}
+			} else {
+				for (final String text : getTexts(change.bug)) {
+					removeDocument(text, change.bug);
+				}
+			}
+		}
+		if (_removedDocumentCount > 1000 && _removedDocumentCount > _documentsByText.size()) {
+			compact();
+		}
+	}
+
+
+	/**
+	 * @return the searchable texts of {@code bug}, texts shared by many bugs (like the pattern details) are
+	 * the same instances
+	 */
+	@NotNull
+	private static List<String> getTexts(@NotNull final Bug bug) {
+		final List<String> ret = new ArrayList<>(8);
+		final String className = bug.getPrimaryClassName();
+		if (className != null) {
+			ret.add(className);
+		}
+		final String methodName = bug.getMethodName();
+		if (methodName != null) {
+			ret.add(methodName);
+		}
+		final String fieldName = bug.getFieldName();
+		if (fieldName != null) {
+			ret.add(fieldName);
+		}
+		ret.add(bug.getType());
+		ret.add(bug.getKey().getAbbrev());
+		ret.add(bug.getKey().getShortDescription());
+		ret.add(bug.getMessage());
+		ret.add(bug.getDetailText());
+		return ret;
+	}
+
+
+	private void addDocument(@NotNull final String text, @NotNull final Bug bug) {
+		Document document = _documentsByText.get(text);
+		if (document == null) {
+			document = new Document(_documents.size(), text, text.toLowerCase(Locale.ENGLISH), new THashSet<>(2));
+			_documentsByText.put(text, document);
+			_documents.add(document);
+			addPostings(document);
+		}
+		document.bugs.add(bug);
+	}
+
+
+	private void removeDocument(@NotNull final String text, @NotNull final Bug bug) {
+		final Document document = _documentsByText.get(text);
+		if (document != null && document.bugs.remove(bug) && document.bugs.isEmpty()) {
+			_documentsByText.remove(text);
+			_documents.set(document.id, null); // postings are cleaned up by compact()
+			_removedDocumentCount++;
+		}
+	}
+
+
+	private void addPostings(@NotNull final Document document) {
+		for (int i = 0; i + 3 <= document.text.length(); i++) {
+			final long trigram = trigram(document.text, i);
+			TIntArrayList ids = _postings.get(trigram);
+			if (ids == null) {
+				ids = new TIntArrayList(4);
+				_postings.put(trigram, ids);
+			}
+			if (ids.isEmpty() || ids.get(ids.size() - 1) != document.id) { // ids are added in ascending order
+				ids.add(document.id);
+			}
+		}
+	}
+
+
+	private void compact() {
+		final List<Document> documents = new ArrayList<>(_documentsByText.size());
+		for (final Document document : _documents) {
+			if (document != null) {
+				documents.add(new Document(documents.size(), document.key, document.text, document.bugs));
+			}
+		}
+		reset();
+		for (final Document document : documents) {
+			_documentsByText.put(document.key, document);
+			_documents.add(document);
+			addPostings(document);
+		}
+	}
+
+
+	private void reset() {
+		_documentsByText.clear();
+		_documents.clear();
+		_postings.clear();
+		_removedDocumentCount = 0;
+	}
+
+
+	private static long trigram(@NotNull final String text, final int index) {
+		return (long) text.charAt(index) << 32 | (long) text.charAt(index + 1) << 16 | text.charAt(index + 2);
+	}
+
+
+	private static final class Document {
+		private final int id;
+
+		/**
+		 * The text as returned by {@link #getTexts(Bug)}.
+		 */
+		@NotNull
+		private final String key;
+
+		/**
+		 * The lower case text, this is what gets indexed and matched.
+		 */
+		@NotNull
+		private final String text;
+
+		@NotNull
+		private final Set<Bug> bugs;
+
+		Document(final int id, @NotNull final String key, @NotNull final String text, @NotNull final Set<Bug> bugs) {
+			this.id = id;
+			this.key = key;
+			this.text = text;
+			this.bugs = bugs;
+		}
+	}
+
+
+	private static final class Change {
+		private static final Change CLEAR = new Change(null, false);
+
+		private final Bug bug;
+		private final boolean add;
+
+		Change(final Bug bug, final boolean add) {
+			this.bug = bug;
+			this.add = add;
+		}
+	}
+}
@@ -19,95 +19,117 @@
  */
 package org.jetbrains.plugins.spotbugs.gui.tree.model;
 
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
 import org.jetbrains.plugins.spotbugs.common.ExtendedProblemDescriptor;
 import org.jetbrains.plugins.spotbugs.common.util.BugInstanceUtil;
+import org.jetbrains.plugins.spotbugs.core.AnalysisTimings;
 import org.jetbrains.plugins.spotbugs.core.Bug;
 import org.jetbrains.plugins.spotbugs.core.ProblemCacheService;
-import org.jetbrains.plugins.spotbugs.gui.tree.BugInstanceComparator;
 import org.jetbrains.plugins.spotbugs.gui.tree.GroupBy;
 
 import javax.annotation.Nullable;
+import javax.swing.tree.TreeNode;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Predicate;
 
-public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNode> implements Grouper.GrouperCallback<Bug> {
+public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNode> {
 
 	private static final Logger LOGGER = Logger.getInstance(GroupTreeModel.class.getName());
 
 	private GroupBy[] _groupBy;
-	private final transient Map<String, Map<Integer, List<BugInstanceGroupNode>>> _groups;
-	private transient Grouper<Bug> _grouper;
+
+	/**
+	 * Group nodes by group path key, see {@link #appendGroupPathKey(StringBuilder, String)}.
+	 */
+	private final transient Map<String, BugInstanceGroupNode> _groups;
 	private int _bugCount;
-	private final transient Map<PsiFile, List<ExtendedProblemDescriptor>> _problems;
+	private final transient ProblemCacheService _problemCache;
+
+	/**
+	 * Nodes whose structure changed during {@link #addNodes(Collection)}, {@code null} if not in batch mode.
+	 */
+	private transient Set<VisitableTreeNode> _changedNodes;
+
+	/**
+	 * Leaves added since {@link #startRegroup()}, {@code null} if no regroup is running.
+	 */
+	private transient List<BugInstanceLeaf> _addedDuringRegroup;
+
+	/**
+	 * Filters of the leaves removed by {@link #removeNodes(Predicate)} since {@link #startRegroup()},
+	 * {@code null} if no regroup is running.
+	 */
+	private transient List<Predicate<BugInstanceLeaf>> _removedDuringRegroup;
+
+	/**
+	 * {@code true} for models created by {@link #regroup(GroupBy[], Collection)}; these are not shown by any
+	 * tree, so they neither need the EDT nor fire events nor touch the problem cache.
+	 */
+	private final boolean _detached;
+
+	/**
+	 * Time spent in {@link #addNodes(Collection)} since the last {@link #clear()}.
+	 */
+	@NotNull
+	private transient AnalysisTimings _timings;
 
 	@NotNull
 	private final transient Project _project;
 
+	/**
+	 * {@code null} for detached models.
+	 */
+	@Nullable
+	private final transient BugSearchIndex _searchIndex;
+
+	/**
+	 * {@code null} for detached models, these reuse the files of the leaves they copy.
+	 */
+	@Nullable
+	private final transient PsiFileResolver _psiFileResolver;
+
 
 	public GroupTreeModel(@NotNull final RootNode root, final GroupBy[] groupBy, @NotNull final Project project) {
+		this(root, groupBy, project, false);
+	}
+
+	private GroupTreeModel(@NotNull final RootNode root, final GroupBy[] groupBy, @NotNull final Project project, final boolean detached) {
 		_root = root;
 		_project = project;
 		_groupBy = groupBy.clone();
 		_groups = new HashMap<>();
-		_problems = project.getService(ProblemCacheService.class).getProblems();
+		_problemCache = project.getService(ProblemCacheService.class);
+		_detached = detached;
+		_timings = new AnalysisTimings();
+		_searchIndex = detached ? null : new BugSearchIndex();
+		_psiFileResolver = detached ? null : new PsiFileResolver(project, this::filesResolved);
 	}
 
 	Project getProject() {
 		return _project;
 	}
 
-	private void addGroupIfAbsent(final String groupNameKey, final int depth, final BugInstanceGroupNode groupNode) {
-		if (!_groups.containsKey(groupNameKey)) {
-			final Map<Integer, List<BugInstanceGroupNode>> map = new HashMap<>();
-			_groups.put(groupNameKey, map);
-			final List<BugInstanceGroupNode> groupNodes = addGroupIfAbsentImpl(groupNameKey, depth, groupNode);
-			map.put(depth, groupNodes);
-		} else {
-			addGroupIfAbsentImpl(groupNameKey, depth, groupNode);
-		}
-	}
-
-	@NotNull
-	private List<BugInstanceGroupNode> addGroupIfAbsentImpl(final String groupNameKey, final int depth, final BugInstanceGroupNode groupNode) {
-		final Map<Integer, List<BugInstanceGroupNode>> map = _groups.get(groupNameKey);
-
-		final List<BugInstanceGroupNode> list = map.computeIfAbsent(depth, k -> new ArrayList<>());
-		list.add(groupNode);
-		return list;
-	}
-
-	@SuppressWarnings({"ReturnOfCollectionOrArrayField"})
-	public Map<PsiFile, List<ExtendedProblemDescriptor>> getProblems() {
-		return _problems;
-	}
-
-	@SuppressWarnings({"MethodMayBeStatic", "AnonymousInnerClass"})
-	private void addProblem(final BugInstanceNode leaf) {
-		final PsiFile psiFile = leaf.getPsiFile();
-		_addProblem(psiFile, leaf);
-	}
-
-	private void _addProblem(@Nullable final PsiFile value, final BugInstanceNode leaf) {
-		if (value != null) {
-			final ExtendedProblemDescriptor element = new ExtendedProblemDescriptor(value, leaf.getBug());
-			if (_problems.containsKey(value)) {
-				_problems.get(value).add(element);
-			} else {
-				final List<ExtendedProblemDescriptor> list = new ArrayList<>();
-				list.add(element);
-				_problems.put(value, list);
-			}
+	private void addProblem(@NotNull final BugInstanceLeaf leaf) {
+		final VirtualFile file = leaf.getFile();
+		if (file != null) {
+			_problemCache.addProblem(new ExtendedProblemDescriptor(_project, file, leaf.getBug()));
 		}
 	}
 
@@ -122,117 +144,444 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 			return;
 		}*/
 		_bugCount++;
-		group(bug);
+		group(bug, null);
+		if (_changedNodes == null) {
+			flushPsiFileResolver();
+		}
 	}
 
-	private void group(@NotNull final Bug bug) {
-		if (_grouper == null) {
-			_grouper = new Grouper<>(this);
+	/**
+	 * Like {@link #addNode(Bug)} but fires only one structure change event per affected group.
+	 */
+	public void addNodes(@NotNull final Collection<Bug> bugs) {
+		EventDispatchThreadHelper.checkEDT();
+		final AnalysisTimings.Measurement measurement = _timings.start(AnalysisTimings.TREE_INSERTION);
+		_changedNodes = new HashSet<>();
+		try {
+			for (final Bug bug : bugs) {
+				addNode(bug);
+			}
+		} finally {
+			final Set<VisitableTreeNode> changedNodes = _changedNodes;
+			_changedNodes = null;
+			for (final VisitableTreeNode node : changedNodes) {
+				if (!hasChangedAncestor(node, changedNodes)) {
+					nodeStructureChanged(node);
+				}
+			}
+			flushPsiFileResolver();
+			measurement.stop();
 		}
-		final List<Comparator<Bug>> groupComparators = BugInstanceComparator.getGroupComparators(_groupBy);
-		_grouper.group(bug, groupComparators);
 	}
 
-	@Override
-	public void startGroup(final Bug member, final int depth) {
-		EventDispatchThreadHelper.assertInEDTorADT();
+	private void flushPsiFileResolver() {
+		if (_psiFileResolver != null) {
+			_psiFileResolver.flush();
+		}
+	}
+
+	/**
+	 * Sets the files resolved in background and adds the problems of the leaves; editors showing these files
+	 * are highlighted again.
+	 */
+	private void filesResolved(@NotNull final Map<Bug, VirtualFile> files) {
+		final Set<VirtualFile> changed = new HashSet<>();
+		for (final Map.Entry<Bug, VirtualFile> entry : files.entrySet()) {
+			final BugInstanceLeaf leaf = findLeaf(entry.getKey());
+			if (leaf != null && leaf.getFile() == null) {
+				leaf.setFile(entry.getValue());
+				addProblem(leaf);
+				changed.add(entry.getValue());
+			}
+		}
+		restartHighlighting(_project, changed);
+	}
 
-		final GroupBy groupBy = _groupBy[depth];
-		final String groupName = GroupBy.getGroupName(groupBy, member);
-		final BugInstanceGroupNode groupNode = new BugInstanceGroupNode(groupBy, groupName, _root, member, depth, _project);
+	/**
+	 * Highlights the editors showing {@code files} again.
+	 */
+	public static void restartHighlighting(@NotNull final Project project, @NotNull final Collection<VirtualFile> files) {
+		final DaemonCodeAnalyzer daemonCodeAnalyzer = DaemonCodeAnalyzer.getInstance(project);
+		final PsiManager psiManager = PsiManager.getInstance(project);
+		for (final VirtualFile file : files) {
+			final PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+			if (psiFile != null) {
+				daemonCodeAnalyzer.restart(psiFile);
+			}
+		}
+	}
 
-		addGroupIfAbsent(Arrays.toString(BugInstanceUtil.getGroupPath(member, depth, _groupBy)), depth, groupNode);
+	/**
+	 * Removes the leaves whose primary class is one of {@code classNames} and their problems. Groups which
+	 * become empty are removed too. Fires only one structure change event per affected group.
+	 *
+	 * @return the files of the removed problems
+	 */
+	@NotNull
+	public Set<VirtualFile> removeNodes(@NotNull final Set<String> classNames) {
+		return removeNodes(leaf -> classNames.contains(getPrimaryClassName(leaf)));
+	}
 
-		_root.addChild(groupNode);
-		nodeStructureChanged(_root);
+	@NotNull
+	private Set<VirtualFile> removeNodes(@NotNull final Predicate<BugInstanceLeaf> filter) {
+		if (!_detached) {
+			EventDispatchThreadHelper.checkEDT();
+		}
+		final Set<VirtualFile> ret = new HashSet<>();
+		final Set<VisitableTreeNode> changedNodes = new HashSet<>();
+		final Map<VirtualFile, Set<Bug>> removedBugs = new HashMap<>();
+		for (final BugInstanceGroupNode group : _groups.values()) {
+			final List<BugInstanceLeaf> leaves = group.removeLeaves(filter);
+			if (leaves.isEmpty()) {
+				continue;
+			}
+			_bugCount -= leaves.size();
+			changedNodes.add(group);
+			for (final BugInstanceLeaf leaf : leaves) {
+				if (_searchIndex != null) {
+					_searchIndex.remove(leaf.getBug());
+				}
+				final VirtualFile file = getFile(leaf);
+				if (file != null) {
+					removedBugs.computeIfAbsent(file, k -> new HashSet<>()).add(leaf.getBug());
+				}
+			}
+		}
+
+		boolean removed;
+		do { // remove empty groups bottom up
+			removed = false;
+			final Iterator<BugInstanceGroupNode> groups = _groups.values().iterator();
+			while (groups.hasNext()) {
+				final BugInstanceGroupNode group = groups.next();
+				if (group.isLeaf()) {
+					final VisitableTreeNode parent = group.getParent();
+					parent.getTreeNode().removeChild(group);
+					groups.remove();
+					changedNodes.remove(group);
+					changedNodes.add(parent);
+					removed = true;
+				}
+			}
+		} while (removed);
+
+		if (!_detached) {
+			for (final Map.Entry<VirtualFile, Set<Bug>> entry : removedBugs.entrySet()) {
+				_problemCache.removeProblems(entry.getKey(), entry.getValue());
+				ret.add(entry.getKey());
+			}
+			if (_addedDuringRegroup != null) {
+				_addedDuringRegroup.removeIf(filter);
+				_removedDuringRegroup.add(filter);
+			}
+			for (final VisitableTreeNode node : changedNodes) {
+				if (!hasChangedAncestor(node, changedNodes)) {
+					nodeStructureChanged(node);
+				}
+			}
+		}
+		return ret;
+	}
 
-		startSubGroup(depth + 1, member, member);
+	/**
+	 * Replaces the leaves of the classes {@code classNames} by {@code bugs}, see {@link #removeNodes(Set)}.
+	 * Bugs which were already added while the analysis was running are kept.
+	 *
+	 * @return the files of the removed and of the added problems
+	 */
+	@NotNull
+	public Set<VirtualFile> mergeNodes(@NotNull final Set<String> classNames, @NotNull final Collection<Bug> bugs) {
+		final Set<Bug> merged = new HashSet<>(bugs);
+		final Set<VirtualFile> ret = removeNodes(leaf -> classNames.contains(getPrimaryClassName(leaf)) && !merged.contains(leaf.getBug()));
+		final List<Bug> added = new ArrayList<>();
+		for (final Bug bug : bugs) {
+			if (findLeaf(bug) == null) {
+				added.add(bug);
+			}
+		}
+		addNodes(added);
+		for (final Bug bug : bugs) {
+			final BugInstanceLeaf leaf = findLeaf(bug);
+			if (leaf != null && leaf.getFile() != null) {
+				ret.add(leaf.getFile());
+			}
+		}
+		return ret;
 	}
 
-	@Override
-	public void startSubGroup(final int depth, final Bug member, final Bug parent) {
-		EventDispatchThreadHelper.assertInEDTorADT();
+	/**
+	 * A leaf copied by a regroup while its file was resolved may miss the file, the resolver still knows it.
+	 */
+	@Nullable
+	private VirtualFile getFile(@NotNull final BugInstanceLeaf leaf) {
+		final VirtualFile ret = leaf.getFile();
+		if (ret == null && _psiFileResolver != null) {
+			return _psiFileResolver.getCached(leaf.getBug());
+		}
+		return ret;
+	}
 
-		String groupName = GroupBy.getGroupName(_groupBy[depth - 1], member);
-		final BugInstanceGroupNode parentGroup = _root.findChildNode(parent, depth - 1, groupName);
+	@Nullable
+	private static String getPrimaryClassName(@NotNull final BugInstanceLeaf leaf) {
+		return leaf.getBug().getPrimaryClassName();
+	}
 
-		//final BugInstanceGroupNode parentGroup = ((RootNode) _root).getChildByBugInstance(parent, depth - 1);
-		//final BugInstanceGroupNode parentGroup = ((RootNode) _root).getChildByGroupName(GroupBy.getGroupName(_groupBy[depth - 1], parent), depth - 1);
-		//final BugInstanceGroupNode parentGroup = _groups.get(depth-1 + Arrays.toString(getGroupPath(member)));
+	private static boolean hasChangedAncestor(@NotNull final VisitableTreeNode node, @NotNull final Set<VisitableTreeNode> changedNodes) {
+		TreeNode parent = node.getParent();
+		while (parent != null) {
+			if (changedNodes.contains(parent)) {
+				return true;
+			}
+			parent = parent.getParent();
+		}
+		return false;
+	}
 
-		if (parentGroup != null) {
-			final GroupBy groupBy = _groupBy[depth];
-			groupName = GroupBy.getGroupName(groupBy, member);
-			final BugInstanceGroupNode childGroup = new BugInstanceGroupNode(groupBy, groupName, parentGroup, member, depth, _project);
+	private void structureChanged(@NotNull final VisitableTreeNode node) {
+		if (_detached) {
+			return;
+		}
+		if (_changedNodes != null) {
+			_changedNodes.add(node);
+		} else {
+			nodeStructureChanged(node);
+		}
+	}
 
-			addGroupIfAbsent(Arrays.toString(BugInstanceUtil.getGroupPath(parent, depth, _groupBy)), depth, childGroup);
-			//addGroupIfAbsent(GroupBy.getGroupName(_groupBy[0], parent), depth, childGroup);
+	/**
+	 * Walks down the group path of {@code bug}, creating missing groups on the way, and adds the bug to the
+	 * deepest group. Each level is a single hash lookup, so this is O(depth) regardless of the number of bugs.
+	 *
+	 * @param source the leaf to copy when regrouping, {@code null} to create a new leaf for {@code bug}
+	 */
+	private void group(@NotNull final Bug bug, @Nullable final BugInstanceLeaf source) {
+		if (!_detached) {
+			EventDispatchThreadHelper.checkEDT();
+		}
 
-			parentGroup.addChild(childGroup);
-			nodeStructureChanged(parentGroup);
+		final String[] groupPath = BugInstanceUtil.getFullGroupPath(bug, _groupBy);
+		final StringBuilder key = new StringBuilder();
+		VisitableTreeNode parent = _root;
+		for (int depth = 0; depth < groupPath.length; depth++) {
+			appendGroupPathKey(key, groupPath[depth]);
+			final String groupKey = key.toString();
+			BugInstanceGroupNode group = _groups.get(groupKey);
+			if (group == null) {
+				group = new BugInstanceGroupNode(_groupBy[depth], groupPath[depth], parent, bug, depth, _project);
+				_groups.put(groupKey, group);
+				parent.getTreeNode().addChild(group);
+				structureChanged(parent);
+			}
+			parent = group;
+		}
 
-			if (depth < _groupBy.length - 1) {
-				startSubGroup(depth + 1, member, member);
+		if (parent instanceof BugInstanceGroupNode) {
+			final BugInstanceGroupNode parentGroup = (BugInstanceGroupNode) parent;
+			final BugInstanceLeaf leaf;
+			if (source != null) {
+				leaf = new BugInstanceLeaf(bug, source.getFile());
 			} else {
-				addToGroup(depth, member, member);
+				leaf = new BugInstanceLeaf(bug, _psiFileResolver != null ? _psiFileResolver.resolve(bug) : null);
+				if (_searchIndex != null) {
+					_searchIndex.add(bug);
+				}
+			}
+			parentGroup.addLeaf(leaf);
+			if (!_detached) {
+				addProblem(leaf);
+				if (_addedDuringRegroup != null) {
+					_addedDuringRegroup.add(leaf);
+				}
 			}
+			structureChanged(parentGroup);
 		} else {
-			String message =
-					"parentGroup can not be null: groupName = " + groupName + "; depth = " + depth + "; parent = " + parent;
-			LOGGER.error(new NullPointerException(message));
+			LOGGER.error("No group for bug " + bug + " (groupBy = " + Arrays.toString(_groupBy) + ')');
 		}
+	}
 
+	/**
+	 * The key of a group is the key of its parent group followed by its own group name; names are separated by
+	 * a character which never appears in a group name.
+	 */
+	private static void appendGroupPathKey(@NotNull final StringBuilder key, @NotNull final String groupName) {
+		if (key.length() > 0) {
+			key.append('\0');
+		}
+		key.append(groupName);
+	}
+
+	/**
+	 * @return the key of {@code group}, see {@link #appendGroupPathKey(StringBuilder, String)}
+	 */
+	@NotNull
+	public static String getGroupPathKey(@NotNull final BugInstanceGroupNode group) {
+		final List<String> groupNames = new ArrayList<>();
+		TreeNode node = group;
+		while (node instanceof BugInstanceGroupNode) {
+			groupNames.add(((BugInstanceGroupNode) node).getGroupName());
+			node = node.getParent();
+		}
+		final StringBuilder key = new StringBuilder();
+		for (int i = groupNames.size() - 1; i >= 0; i--) {
+			appendGroupPathKey(key, groupNames.get(i));
+		}
+		return key.toString();
+	}
 
+	@Nullable
+	public BugInstanceGroupNode findGroupNode(@NotNull final String groupPathKey) {
+		return _groups.get(groupPathKey);
 	}
 
-	@Override
-	public void addToGroup(final int depth, final Bug member, final Bug parent) {
+	/**
+	 * Starts to regroup this model, see {@link #regroup(GroupBy[], Collection)}. Leaves added from now on are
+	 * remembered and carried over by {@link #finishRegroup(GroupTreeModel)}.
+	 *
+	 * @return the current leaves
+	 */
+	@NotNull
+	public List<BugInstanceLeaf> startRegroup() {
 		EventDispatchThreadHelper.checkEDT();
+		final List<BugInstanceLeaf> ret = new ArrayList<>(_bugCount);
+		for (final BugInstanceGroupNode group : _groups.values()) {
+			ret.addAll(group.getLeaves());
+		}
+		_addedDuringRegroup = new ArrayList<>();
+		_removedDuringRegroup = new ArrayList<>();
+		return ret;
+	}
 
-		final String groupName = GroupBy.getGroupName(_groupBy[depth], member);
-		final BugInstanceGroupNode parentGroup = _root.findChildNode(parent, depth, groupName);
+	/**
+	 * Groups copies of {@code leaves} by {@code groupBy} into a new, detached model. The shown tree is not touched
+	 * and the already resolved files are reused, so this can (and should) run in background.
+	 * Problems do not depend on grouping, so the problem cache stays as it is.
+	 */
+	@NotNull
+	public GroupTreeModel regroup(@NotNull final GroupBy[] groupBy, @NotNull final Collection<BugInstanceLeaf> leaves) {
+		final GroupTreeModel ret = new GroupTreeModel(new RootNode(_project.getName()), groupBy, _project, true);
+		ret.addCopies(leaves);
+		return ret;
+	}
 
-		if (parentGroup != null) {
-			final BugInstanceNode childNode = new BugInstanceNode(member, parentGroup, _project);
-			parentGroup.addChild(childNode);
-			addProblem(childNode);
-			nodeStructureChanged(parentGroup);
-		} else {
-			//noinspection ThrowableInstanceNeverThrown
-			LOGGER.error("parentSubGroup can not be null. ", new NullPointerException());
+	private void addCopies(@NotNull final Collection<BugInstanceLeaf> leaves) {
+		for (final BugInstanceLeaf leaf : leaves) {
+			ProgressManager.checkCanceled();
+			_bugCount++;
+			group(leaf.getBug(), leaf);
 		}
 	}
 
-	@Override
-	public Comparator<Bug> currentGroupComparatorChain(final int depth) {
-		return BugInstanceComparator.getComparatorChain(depth, getGroupBy());
+	/**
+	 * Ends a regroup without {@link #finishRegroup(GroupTreeModel)}, f. e. if it was canceled or failed;
+	 * the groups and the grouping of this model stay as they are.
+	 */
+	public void cancelRegroup() {
+		EventDispatchThreadHelper.checkEDT();
+		_addedDuringRegroup = null;
+		_removedDuringRegroup = null;
 	}
 
-	@Override
-	public List<Bug> availableGroups(final int depth, @NotNull final Bug bug) {
-    final List<Bug> result = new ArrayList<>();
-
-		//final GroupBy groupBy = _groupBy[0];
-		//final String groupName = GroupBy.getGroupName(groupBy, bug);
-		final String groupName = Arrays.toString(BugInstanceUtil.getGroupPath(bug, depth, _groupBy));
+	/**
+	 * Replaces the groups of this model by the groups of {@code regrouped} in a single step, including the leaves
+	 * added since {@link #startRegroup()}. Listeners get one structure change event for the root.
+	 */
+	public void finishRegroup(@NotNull final GroupTreeModel regrouped) {
+		EventDispatchThreadHelper.checkEDT();
+		if (_addedDuringRegroup != null) {
+			for (final Predicate<BugInstanceLeaf> filter : _removedDuringRegroup) {
+				regrouped.removeNodes(filter);
+			}
+			regrouped.addCopies(_addedDuringRegroup);
+			_addedDuringRegroup = null;
+			_removedDuringRegroup = null;
+		}
+		_groupBy = regrouped._groupBy;
+		_bugCount = regrouped._bugCount;
+		_groups.clear();
+		_groups.putAll(regrouped._groups);
+		_root.removeAllChilds();
+		for (final VisitableTreeNode group : regrouped._root.getChildsList()) {
+			((BugInstanceGroupNode) group).setParent(_root);
+			_root.addChild(group);
+		}
+		for (final BugInstanceGroupNode group : _groups.values()) { // copies of leaves resolved during the regroup
+			for (final BugInstanceLeaf leaf : group.getLeaves()) {
+				if (leaf.getFile() == null) {
+					final VirtualFile file = getFile(leaf);
+					if (file != null) {
+						leaf.setFile(file);
+					}
+				}
+			}
+		}
+		nodeStructureChanged(_root);
+	}
 
-		if (_groups.containsKey(groupName)) {
-			final Map<Integer, List<BugInstanceGroupNode>> map = _groups.get(groupName);
+	/**
+	 * @return the index of all bugs of this model, {@code null} for detached models
+	 */
+	@Nullable
+	public BugSearchIndex getSearchIndex() {
+		return _searchIndex;
+	}
 
-			if (map.containsKey(depth)) {
-				final List<BugInstanceGroupNode> groupNodes = map.get(depth);
+	/**
+	 * Collects the groups whose name matches {@code groupNameMatcher} and the leaves of {@code bugs} in tree order,
+	 * without creating any bug node. Only the groups are walked; the leaves of {@code bugs} are looked up by their
+	 * group path, so the cost does not grow with the number of bugs in the tree.
+	 */
+	@NotNull
+	public SearchResult getSearchResult(@NotNull final Predicate<String> groupNameMatcher, @NotNull final Set<Bug> bugs) {
+		EventDispatchThreadHelper.checkEDT();
+		final List<BugInstanceGroupNode> groups = new ArrayList<>(_groups.size()); // in tree order
+		for (final VisitableTreeNode child : _root.getChildsList()) {
+			collectGroups((BugInstanceGroupNode) child, groups);
+		}
+		final Map<BugInstanceGroupNode, Integer> orderByGroup = new IdentityHashMap<>(groups.size());
+		for (int i = 0; i < groups.size(); i++) {
+			orderByGroup.put(groups.get(i), i);
+		}
 
-				for (final BugInstanceGroupNode node : groupNodes) {
-					result.add(node.getBug());
+		// group order in the upper, leaf index + 1 (0 for the group itself) in the lower half, so sorting gives tree order
+		final long[] matches = new long[groups.size() + bugs.size()];
+		int count = 0;
+		for (int i = 0; i < groups.size(); i++) {
+			if (groupNameMatcher.test(groups.get(i).getSimpleName())) {
+				matches[count++] = (long) i << 32;
+			}
+		}
+		for (final Bug bug : bugs) {
+			final BugInstanceGroupNode group = findLeafGroup(bug);
+			final Integer order = group != null ? orderByGroup.get(group) : null;
+			if (order != null) {
+				final int leafIndex = group.indexOfLeaf(bug);
+				if (leafIndex != -1) {
+					matches[count++] = ((long) order << 32) | (leafIndex + 1);
 				}
 			}
 		}
+		Arrays.sort(matches, 0, count);
 
-		return result;
+		final SearchResult ret = new SearchResult();
+		for (int i = 0; i < count; i++) {
+			ret.add(groups.get((int) (matches[i] >>> 32)), (int) matches[i] - 1);
+		}
+		return ret;
 	}
 
-	public void setGroupBy(final GroupBy[] groupBy) {
-		_groupBy = groupBy.clone();
+	private static void collectGroups(
+			@NotNull final BugInstanceGroupNode group,
+			@NotNull final List<BugInstanceGroupNode> groups
+	) {
+		groups.add(group);
+		for (final VisitableTreeNode child : group.getGroups()) {
+			collectGroups((BugInstanceGroupNode) child, groups);
+		}
+	}
+
+	@NotNull
+	public AnalysisTimings getTimings() {
+		return _timings;
 	}
 
 	public GroupBy[] getGroupBy() {
@@ -244,8 +593,17 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 
 		//_sortedCollection.clear();
 		_bugCount = 0;
+		_addedDuringRegroup = null;
+		_removedDuringRegroup = null;
+		_timings = new AnalysisTimings();
 		_groups.clear();
-		_problems.clear();
+		_problemCache.clear();
+		if (_searchIndex != null) {
+			_searchIndex.clear();
+		}
+		if (_psiFileResolver != null) {
+			_psiFileResolver.clear();
+		}
 		_root.removeAllChilds();
 		nodeStructureChanged(_root);
 		reload();
@@ -254,29 +612,31 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 
 	@Nullable
 	public BugInstanceNode findNodeByBugInstance(final Bug bug) {
-		final String[] fullGroupPath = BugInstanceUtil.getFullGroupPath(bug, _groupBy);
-		final String[] groupNameKey = BugInstanceUtil.getGroupPath(bug, fullGroupPath.length - 1, _groupBy);
-
-		final Map<Integer, List<BugInstanceGroupNode>> map = _groups.get(Arrays.toString(groupNameKey));
-		if (map != null) {
-			for (final Entry<Integer, List<BugInstanceGroupNode>> entry : map.entrySet()) {
-
-				final List<BugInstanceGroupNode> groupNodes = entry.getValue();
-				for (final BugInstanceGroupNode groupNode : groupNodes) {
-
-					final List<VisitableTreeNode> bugInstanceNodes = groupNode.getChildsList();
-					for (final VisitableTreeNode node : bugInstanceNodes) {
-						final Bug otherBug = ((BugInstanceNode) node).getBug();
-						if (otherBug.equals(bug)) {
-							return (BugInstanceNode) node;
-						}
-					}
-				}
+		final BugInstanceGroupNode groupNode = findLeafGroup(bug);
+		if (groupNode != null) {
+			final BugInstanceLeaf leaf = groupNode.findLeaf(bug);
+			if (leaf != null) {
+				return leaf.getNode(groupNode, _project);
 			}
 		}
 		return null;
 	}
 
+	@Nullable
+	private BugInstanceLeaf findLeaf(@NotNull final Bug bug) {
+		final BugInstanceGroupNode groupNode = findLeafGroup(bug);
+		return groupNode != null ? groupNode.findLeaf(bug) : null;
+	}
+
+	@Nullable
+	private BugInstanceGroupNode findLeafGroup(@NotNull final Bug bug) {
+		final StringBuilder key = new StringBuilder();
+		for (final String groupName : BugInstanceUtil.getFullGroupPath(bug, _groupBy)) {
+			appendGroupPathKey(key, groupName);
+		}
+		return _groups.get(key.toString());
+	}
+
 	@NotNull
 	public Collection<Bug> getBugs() {
 		return _root.getAllChildBugs();
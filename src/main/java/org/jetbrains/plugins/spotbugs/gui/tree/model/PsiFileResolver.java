@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.gui.tree.model;
+
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
+import org.jetbrains.plugins.spotbugs.core.Bug;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Resolves the files of the bugs of a {@link GroupTreeModel} in background. Bugs of the same class
+ * (and module) share one lookup; the lookups are batched per module and run in parallel non-blocking read
+ * actions, so they neither block the EDT nor write actions. Only the {@code VirtualFile}s are kept, the PSI of the
+ * files can be released. All methods must be called on EDT.
+ */
+final class PsiFileResolver {
+
+	private static final int BATCH_SIZE = 100;
+
+	@NotNull
+	private final Project _project;
+
+	/**
+	 * Invoked on EDT with the bugs of each finished batch and their files; the files are not {@code null}.
+	 */
+	@NotNull
+	private final Consumer<Map<Bug, VirtualFile>> _onResolved;
+
+	@NotNull
+	private final Executor _executor;
+
+	/**
+	 * Files by {@link #getKey(Bug)}, {@link Optional#empty()} if there is no file.
+	 */
+	@NotNull
+	private final Map<String, Optional<VirtualFile>> _cache;
+
+	/**
+	 * Bugs by {@link #getKey(Bug)} of the lookups queued or running.
+	 */
+	@NotNull
+	private final Map<String, List<Bug>> _waiting;
+
+	/**
+	 * Keys queued since the last {@link #flush()} per module.
+	 */
+	@NotNull
+	private final Map<Module, List<String>> _queued;
+
+	/**
+	 * Incremented by {@link #clear()}; results of batches started before are dropped.
+	 */
+	private int _generation;
+
+
+	PsiFileResolver(@NotNull final Project project, @NotNull final Consumer<Map<Bug, VirtualFile>> onResolved) {
+		_project = project;
+		_onResolved = onResolved;
+		final int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		_executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("SpotBugs PsiFile Resolver", threadCount);
+		_cache = new HashMap<>();
+		_waiting = new HashMap<>();
+		_queued = new LinkedHashMap<>();
+	}
+
+
+	/**
+	 * @return the file of {@code bug} if it was resolved already; otherwise {@code null} and the lookup is queued
+	 * (unless it is known that there is no file), see {@link #flush()}
+	 */
+	@Nullable
+	VirtualFile resolve(@NotNull final Bug bug) {
+		EventDispatchThreadHelper.checkEDT();
+		final String key = getKey(bug);
+		final Optional<VirtualFile> cached = _cache.get(key);
+		if (cached != null && (!cached.isPresent() || cached.get().isValid())) {
+			return cached.orElse(null);
+		}
+		List<Bug> waiting = _waiting.get(key);
+		if (waiting == null) {
+			waiting = new ArrayList<>(1);
+			_waiting.put(key, waiting);
+			_queued.computeIfAbsent(bug.getModule(), k -> new ArrayList<>()).add(key);
+		}
+		waiting.add(bug);
+		return null;
+	}
+
+
+	/**
+	 * @return the file of {@code bug} if it was resolved already, does not queue a lookup
+	 */
+	@Nullable
+	VirtualFile getCached(@NotNull final Bug bug) {
+		final Optional<VirtualFile> cached = _cache.get(getKey(bug));
+		return cached != null ? cached.filter(VirtualFile::isValid).orElse(null) : null;
+	}
+
+
+	/**
+	 * Starts the lookups queued by {@link #resolve(Bug)}.
+	 */
+	void flush() {
+		EventDispatchThreadHelper.checkEDT();
+		for (final List<String> keys : _queued.values()) {
+			for (int i = 0; i < keys.size(); i += BATCH_SIZE) {
+				submit(new ArrayList<>(keys.subList(i, Math.min(i + BATCH_SIZE, keys.size()))));
+			}
+		}
+		_queued.clear();
+	}
+
+
+	private void submit(@NotNull final List<String> keys) {
+		final int generation = _generation;
+		final List<Bug> bugs = new ArrayList<>(keys.size()); // one bug per key
+		for (final String key : keys) {
+			bugs.add(_waiting.get(key).get(0));
+		}
+		ReadAction.nonBlocking(() -> {
+			final Map<String, VirtualFile> ret = new HashMap<>(keys.size());
+			for (int i = 0; i < keys.size(); i++) {
+				final PsiFile psiFile = BugInstanceNode.findPsiFile(_project, bugs.get(i));
+				ret.put(keys.get(i), psiFile != null ? psiFile.getVirtualFile() : null);
+			}
+			return ret;
+		})
+				.inSmartMode(_project)
+				.expireWith(_project)
+				.finishOnUiThread(ModalityState.defaultModalityState(), files -> {
+					if (generation == _generation) {
+						resolved(files);
+					}
+				})
+				.submit(_executor)
+				// also invoked if the lookup was cancelled, e.g. because the project was closed
+				.onError(error -> EventDispatchThreadHelper.invokeLater(() -> {
+					if (generation == _generation) {
+						failed(keys);
+					}
+				}));
+	}
+
+
+	private void resolved(@NotNull final Map<String, VirtualFile> files) {
+		final Map<Bug, VirtualFile> ret = new HashMap<>();
+		for (final Map.Entry<String, VirtualFile> entry : files.entrySet()) {
+			final VirtualFile file = entry.getValue();
+			_cache.put(entry.getKey(), Optional.ofNullable(file));
+			final List<Bug> bugs = _waiting.remove(entry.getKey());
+			if (file != null && bugs != null) {
+				for (final Bug bug : bugs) {
+					ret.put(bug, file);
+				}
+			}
+		}
+		if (!ret.isEmpty()) {
+			_onResolved.accept(ret);
+		}
+	}
+
+
+	/**
+	 * Forgets the bugs of a batch which did not finish, so that {@link #resolve(Bug)} queues their lookups again.
+	 */
+	private void failed(@NotNull final List<String> keys) {
+		for (final String key : keys) {
+			_waiting.remove(key);
+		}
+	}
+
+
+	/**
+	 * Forgets all files and drops the lookups queued or running.
+	 */
+	void clear() {
+		EventDispatchThreadHelper.checkEDT();
+		_generation++;
+		_cache.clear();
+		_waiting.clear();
+		_queued.clear();
+	}
+
+
+	@NotNull
+	private static String getKey(@NotNull final Bug bug) {
+		final Module module = bug.getModule();
+		final String sourcePath = String.valueOf(bug.getSourcePath());
+		return module != null ? module.getName() + '\0' + sourcePath : sourcePath;
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.gui.tree.model;
+
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.tree.TreePath;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matches of a quick search in tree order, see {@link GroupTreeModel#getSearchResult(java.util.function.Predicate, java.util.Set)}.
+ * A match is a group or a bug of a group; bug nodes are created only by {@link #getPath(int)}.
+ */
+public final class SearchResult {
+
+	private final List<BugInstanceGroupNode> _groups;
+
+	/**
+	 * Index of the leaf in the group of the same position, -1 if the group itself matches.
+	 */
+	private final TIntArrayList _leafIndices;
+
+
+	SearchResult() {
+		_groups = new ArrayList<>();
+		_leafIndices = new TIntArrayList();
+	}
+
+
+	void add(@NotNull final BugInstanceGroupNode group, final int leafIndex) {
+		_groups.add(group);
+		_leafIndices.add(leafIndex);
+	}
+
+
+	public int size() {
+		return _groups.size();
+	}
+
+
+	@NotNull
+	public TreePath getPath(final int index) {
+		final BugInstanceGroupNode group = _groups.get(index);
+		final int leafIndex = _leafIndices.get(index);
+		if (leafIndex == -1) {
+			return BugInstanceGroupNode.getPath(group);
+		}
+		return BugInstanceGroupNode.getPath(group.getLeaves().get(leafIndex).getNode(group, group.getProject()));
+	}
+
+
+	/**
+	 * @return the position of the match shown at {@code path}, -1 if it is not a match
+	 */
+	public int indexOf(@Nullable final TreePath path) {
+		if (path == null) {
+			return -1;
+		}
+		final Object node = path.getLastPathComponent();
+		final BugInstanceGroupNode group;
+		final int leafIndex;
+		if (node instanceof BugInstanceNode && ((BugInstanceNode) node).getParent() instanceof BugInstanceGroupNode) {
+			group = (BugInstanceGroupNode) ((BugInstanceNode) node).getParent();
+			leafIndex = group.indexOfLeaf(((BugInstanceNode) node).getBug());
+			if (leafIndex == -1) {
+				return -1;
+			}
+		} else if (node instanceof BugInstanceGroupNode) {
+			group = (BugInstanceGroupNode) node;
+			leafIndex = -1;
+		} else {
+			return -1;
+		}
+		for (int i = 0; i < _groups.size(); i++) {
+			if (_groups.get(i) == group && _leafIndices.get(i) == leafIndex) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -33,6 +33,7 @@ import com.intellij.psi.PsiFile;
 import com.intellij.ui.PopupHandler;
 import com.intellij.util.EditSourceOnDoubleClickHandler;
 import com.intellij.util.OpenSourceUtil;
+import com.intellij.util.ui.JBUI;
 import com.intellij.util.ui.UIUtil;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NonNls;
@@ -97,6 +98,12 @@ public class BugTree extends Tree implements DataProvider, OccurenceNavigator {
 		setRootVisible(true);
 		setShowsRootHandles(true);
 		setCellRenderer(new TreeNodeCellRenderer());
+		/*
+		 * With a fixed row height the tree asks the model only for the rows in view,
+		 * so the leaves of large groups are created on demand (see BugInstanceLeaf).
+		 */
+		setRowHeight(Math.max(JBUI.scale(18), getFontMetrics(getFont()).getHeight() + JBUI.scale(2)));
+		setLargeModel(true);
 
 		installHandlers();
 	}
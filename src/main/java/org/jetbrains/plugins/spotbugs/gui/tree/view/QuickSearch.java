@@ -160,6 +160,23 @@ abstract class QuickSearch<E> {
 	abstract void setSelectedElement(final int index);
 
 
+	/**
+	 * Prepares the elements for searching {@code text}, {@code onFinished} is invoked on EDT once they are.
+	 * The default implementation compares the elements directly, so it invokes {@code onFinished} immediately.
+	 */
+	void search(@NotNull final String text, @NotNull final Runnable onFinished) {
+		onFinished.run();
+	}
+
+
+	/**
+	 * @return {@code true} if the element at {@code index} matches {@code text}
+	 */
+	boolean matches(final int index, final String text) {
+		return compare(getElementAt(index), text);
+	}
+
+
 	private SearchPopup createSearchPopup(final String searchText) {
 		return new SearchPopup(searchText);
 	}
@@ -431,8 +448,7 @@ abstract class QuickSearch<E> {
 		}
 
 		for (int i = cursor; i < count; i++) {
-			final E element = getElementAt(i);
-			if (compare(element, text)) {
+			if (matches(i, text)) {
 				addToRecentSearches(text);
 				return i;
 			}
@@ -440,8 +456,7 @@ abstract class QuickSearch<E> {
 
 		// if not found, search from begin to cursor
 		for (int i = 0; i < cursor; i++) {
-			final E element = getElementAt(i);
-			if (compare(element, text)) {
+			if (matches(i, text)) {
 				//setCursor(i);
 				addToRecentSearches(text);
 				return i;
@@ -460,8 +475,7 @@ abstract class QuickSearch<E> {
 		}
 
 		for (int i = getCursor() + 1; i < count; i++) {
-			final E element = getElementAt(i);
-			if (compare(element, text)) {
+			if (matches(i, text)) {
 				return i;
 			}
 		}
@@ -477,8 +491,7 @@ abstract class QuickSearch<E> {
 		}
 
 		for (int i = getCursor() - 1; i >= 0; i--) {
-			final E element = getElementAt(i);
-			if (compare(element, text)) {
+			if (matches(i, text)) {
 				return i;
 			}
 		}
@@ -624,27 +637,36 @@ abstract class QuickSearch<E> {
 				void doFind() {
 					final String text = _searchField.getText().trim();
 					if (!text.isEmpty()) {
-						final int found = find(text);
-						if (found == -1) {
-							_noMatchForeground = getNoMatchForeground();
-							_searchField.setForeground(_noMatchForeground);
-							_toolBar.setVisible(false);
-							remove(_toolBar);
-							updatePopupBounds();
-						} else {
-							_searchField.setForeground(_foregroundColor);
-							_toolBar.setVisible(true);
-							add(_toolBar, BorderLayout.LINE_END);
-							QuickSearch.this.setCursor(found);
-							setSelectedElement(found);
-							updatePopupBounds();
-						}
+						search(text, () -> {
+							if (_popup == SearchPopup.this && text.equals(_searchField.getText().trim())) {
+								showFound(text);
+							}
+						});
 					} else {
 						hidePopup();
 					}
 				}
 
 
+				void showFound(final String text) {
+					final int found = find(text);
+					if (found == -1) {
+						_noMatchForeground = getNoMatchForeground();
+						_searchField.setForeground(_noMatchForeground);
+						_toolBar.setVisible(false);
+						remove(_toolBar);
+						updatePopupBounds();
+					} else {
+						_searchField.setForeground(_foregroundColor);
+						_toolBar.setVisible(true);
+						add(_toolBar, BorderLayout.LINE_END);
+						QuickSearch.this.setCursor(found);
+						setSelectedElement(found);
+						updatePopupBounds();
+					}
+				}
+
+
 				void startTimer() {
 					updatePopupBounds();
 					if (getSearchDelay() > 0) {
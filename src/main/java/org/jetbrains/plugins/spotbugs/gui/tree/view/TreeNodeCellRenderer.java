@@ -238,7 +238,7 @@ public class TreeNodeCellRenderer extends JPanel implements TreeCellRenderer/*,
 
 				setToolTipText(bugInstanceNode.getTooltip());
 				setTitle(bugInstanceNode.getSimpleName());
-				setHits("");
+				setHits(bugInstanceNode.getBug().isStale() ? "(stale)" : "");
 
 			} else if (value instanceof RootNode) {
 				final RootNode rootNode = (RootNode) value;
@@ -19,9 +19,17 @@
  */
 package org.jetbrains.plugins.spotbugs.gui.tree.view;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
+import org.jetbrains.plugins.spotbugs.core.Bug;
 import org.jetbrains.plugins.spotbugs.gui.tree.model.AbstractTreeNode;
+import org.jetbrains.plugins.spotbugs.gui.tree.model.BugSearchIndex;
+import org.jetbrains.plugins.spotbugs.gui.tree.model.GroupTreeModel;
+import org.jetbrains.plugins.spotbugs.gui.tree.model.SearchResult;
 import org.jetbrains.plugins.spotbugs.gui.tree.model.VisitableTreeNode;
 
 import javax.swing.JTree;
@@ -32,6 +40,7 @@ import javax.swing.tree.TreePath;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -46,6 +55,13 @@ final class TreeQuickSearch extends QuickSearch<AbstractTreeNode<VisitableTreeNo
 	private JTree _tree;
 	private List<TreePath> _elementsCache;
 
+	/**
+	 * Matches of {@link #_resultText} if the tree shows a {@link GroupTreeModel}, these are the elements then.
+	 */
+	private SearchResult _result;
+	private String _resultText;
+	private ProgressIndicator _searchIndicator;
+
 
 	private TreeQuickSearch() {
 	}
@@ -76,6 +92,9 @@ final class TreeQuickSearch extends QuickSearch<AbstractTreeNode<VisitableTreeNo
 
 	@Override
 	protected int getElementCount() {
+		if (getSearchIndex() != null) {
+			return _result != null ? _result.size() : 0;
+		}
 		return getElementsCache().size();
 	}
 
@@ -102,7 +121,76 @@ final class TreeQuickSearch extends QuickSearch<AbstractTreeNode<VisitableTreeNo
 		}
 
 		//noinspection unchecked
-		return (AbstractTreeNode<VisitableTreeNode>) getElementsCache().get(index).getLastPathComponent();
+		return (AbstractTreeNode<VisitableTreeNode>) getPath(index).getLastPathComponent();
+	}
+
+
+	@NotNull
+	private TreePath getPath(final int index) {
+		if (getSearchIndex() != null) {
+			return _result.getPath(index);
+		}
+		return getElementsCache().get(index);
+	}
+
+
+	private BugSearchIndex getSearchIndex() {
+		final TreeModel model = _tree.getModel();
+		return model instanceof GroupTreeModel ? ((GroupTreeModel) model).getSearchIndex() : null;
+	}
+
+
+	/**
+	 * Queries the search index in background; only the matches are walked (in tree order) on EDT.
+	 * A running query is canceled by the next one.
+	 */
+	@Override
+	void search(@NotNull final String text, @NotNull final Runnable onFinished) {
+		final BugSearchIndex index = getSearchIndex();
+		if (index == null) {
+			onFinished.run();
+			return;
+		}
+		cancelSearch();
+		final GroupTreeModel model = (GroupTreeModel) _tree.getModel();
+		final ProgressIndicator indicator = new EmptyProgressIndicator();
+		_searchIndicator = indicator;
+		ApplicationManager.getApplication().executeOnPooledThread(() -> {
+			final Set<Bug> bugs;
+			try {
+				bugs = index.search(text, indicator);
+			} catch (final ProcessCanceledException ignore) {
+				return;
+			}
+			EventDispatchThreadHelper.invokeLater(() -> {
+				if (indicator.isCanceled() || _tree.getModel() != model) {
+					return;
+				}
+				_searchIndicator = null;
+				_result = model.getSearchResult(BugSearchIndex.createMatcher(text), bugs);
+				_resultText = text;
+				setCursor(_result.indexOf(_tree.getSelectionPath())); // stay on the selection if it still matches
+				onFinished.run();
+			});
+		});
+	}
+
+
+	@Override
+	boolean matches(final int index, final String text) {
+		if (getSearchIndex() != null) {
+			return text.equals(_resultText);
+		}
+		return super.matches(index, text);
+	}
+
+
+	private void cancelSearch() {
+		if (_searchIndicator != null) {
+			_searchIndicator.cancel();
+			//noinspection AssignmentToNull
+			_searchIndicator = null;
+		}
 	}
 
 
@@ -126,7 +214,7 @@ final class TreeQuickSearch extends QuickSearch<AbstractTreeNode<VisitableTreeNo
 
 	@Override
 	protected void setSelectedElement(final int index) {
-		final TreePath path = getElementsCache().get(index);
+		final TreePath path = getPath(index);
 		_tree.setExpandsSelectedPaths(true);
 		//_tree.addSelectionPath(path);
 		_tree.setSelectionPath(path);
@@ -143,12 +231,15 @@ final class TreeQuickSearch extends QuickSearch<AbstractTreeNode<VisitableTreeNo
 	}
 
 
+	@SuppressWarnings("AssignmentToNull")
 	private void clearElementsCache() {
 		if (_elementsCache != null) {
 			_elementsCache.clear();
-			//noinspection AssignmentToNull
 			_elementsCache = null;
 		}
+		cancelSearch();
+		_result = null;
+		_resultText = null;
 	}
 
 
@@ -27,18 +27,15 @@ import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiDeclarationStatement;
 import com.intellij.psi.PsiDocCommentOwner;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiFile;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.spotbugs.common.ExtendedProblemDescriptor;
-import org.jetbrains.plugins.spotbugs.gui.toolwindow.view.ToolWindowPanel;
+import org.jetbrains.plugins.spotbugs.core.ProblemCacheService;
 import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
 import javax.swing.Icon;
-import java.util.List;
-import java.util.Map;
 
 public class ClearBugIntentionAction extends SuppressReportBugIntentionAction {
 
@@ -48,9 +45,7 @@ public class ClearBugIntentionAction extends SuppressReportBugIntentionAction {
 
 	@Override
 	public void invoke(@NotNull final Project project, final Editor editor, @NotNull final PsiElement element) throws IncorrectOperationException {
-		final ToolWindowPanel toolWindow = ToolWindowPanel.getInstance(project);
-		final Map<PsiFile, List<ExtendedProblemDescriptor>> problems = toolWindow.getProblems();
-		problems.get(element.getContainingFile()).remove(getProblemDescriptor());
+		project.getService(ProblemCacheService.class).removeProblem(getProblemDescriptor());
 		DaemonCodeAnalyzer.getInstance(project).restart();
 	}
 
@@ -64,13 +64,11 @@ import org.jetbrains.plugins.spotbugs.common.FindBugsPluginConstants;
 import org.jetbrains.plugins.spotbugs.common.util.FileModificationServiceUtil;
 import org.jetbrains.plugins.spotbugs.common.util.IdeaUtilImpl;
 import org.jetbrains.plugins.spotbugs.core.ModuleSettings;
+import org.jetbrains.plugins.spotbugs.core.ProblemCacheService;
 import org.jetbrains.plugins.spotbugs.core.ProjectSettings;
-import org.jetbrains.plugins.spotbugs.gui.toolwindow.view.ToolWindowPanel;
 import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
 import javax.swing.Icon;
-import java.util.List;
-import java.util.Map;
 
 @SuppressWarnings({"RedundantInterfaceDeclaration"})
 @edu.umd.cs.findbugs.annotations.SuppressFBWarnings({"RI_REDUNDANT_INTERFACES"})
@@ -92,7 +90,7 @@ public class SuppressReportBugIntentionAction extends SuppressIntentionAction im
 	}
 
 	private static String getBugId(final ExtendedProblemDescriptor problemDescriptor) {
-		return problemDescriptor.getBug().getInstance().getBugPattern().getType();
+		return problemDescriptor.getBug().getType();
 	}
 
 	@Override
@@ -182,9 +180,7 @@ public class SuppressReportBugIntentionAction extends SuppressIntentionAction im
 		} else {
 			Messages.showErrorDialog(editor.getComponent(), "Add suppress annotation is not supported for Java 1.3 and older", "Unsupported");
 		}
-		final ToolWindowPanel toolWindow = ToolWindowPanel.getInstance(project);
-		final Map<PsiFile, List<ExtendedProblemDescriptor>> problems = toolWindow.getProblems();
-		problems.get(element.getContainingFile()).remove(getProblemDescriptor());
+		project.getService(ProblemCacheService.class).removeProblem(getProblemDescriptor());
 		DaemonCodeAnalyzer.getInstance(project).restart();
 	}
 
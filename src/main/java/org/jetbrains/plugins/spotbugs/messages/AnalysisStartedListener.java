@@ -33,7 +33,10 @@ public interface AnalysisStartedListener {
 
 	/**
 	 * Invoked by EDT.
+	 *
+	 * @param merge true if the result of the analysis replaces only the bugs of the analyzed classes
+	 *              (see {@link org.jetbrains.plugins.spotbugs.core.FindBugsResult#getMergeScope()})
 	 */
-	void analysisStarted();
+	void analysisStarted(final boolean merge);
 
 }
\ No newline at end of file
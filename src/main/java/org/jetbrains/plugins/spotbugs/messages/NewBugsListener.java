@@ -23,11 +23,18 @@ import com.intellij.util.messages.Topic;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.core.Bug;
 
-public interface NewBugListener {
-	Topic<NewBugListener> TOPIC = Topic.create("SpotBugs New Bug", NewBugListener.class);
+import java.util.List;
+
+/**
+ * @see org.jetbrains.plugins.spotbugs.core.NewBugsQueue
+ */
+public interface NewBugsListener {
+	Topic<NewBugsListener> TOPIC = Topic.create("SpotBugs New Bugs", NewBugsListener.class);
 
 	/**
 	 * Invoked by EDT.
+	 *
+	 * @param bugs the new bugs in the order they were found
 	 */
-	void newBug(@NotNull Bug bug, int analyzedClassCount);
+	void newBugs(@NotNull List<Bug> bugs, int analyzedClassCount);
 }
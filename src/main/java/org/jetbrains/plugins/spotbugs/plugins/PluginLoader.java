@@ -19,45 +19,50 @@
  */
 package org.jetbrains.plugins.spotbugs.plugins;
 
-import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.spotbugs.core.AbstractSettings;
+import org.jetbrains.plugins.spotbugs.core.SettingsFingerprint;
+import org.jetbrains.plugins.spotbugs.core.UserPreferencesCache;
 
 import java.lang.ref.WeakReference;
 
+/**
+ * Loads the configured SpotBugs plugins. Plugins are global state, so they are only reloaded when
+ * the plugin settings or the plugin files differ from the last load, regardless of which project or
+ * module requests them.
+ */
 public final class PluginLoader {
 	private static WeakReference<Project> projectRef; // @GuardedBy PluginLoader.class
-	private static WeakReference<Module> moduleRef; // @GuardedBy PluginLoader.class
+	private static String loadedFingerprint; // @GuardedBy PluginLoader.class
 
 	private PluginLoader() {
 	}
 
 	public synchronized static void invalidate() {
 		projectRef = null;
-		moduleRef = null;
+		loadedFingerprint = null;
+		UserPreferencesCache.invalidate();
 	}
 
 	public synchronized static boolean load(
 			@NotNull final Project project,
-			@Nullable final Module module,
 			@NotNull final AbstractSettings settings,
 			final boolean addEditSettingsLinkToErrorMessage
 	) {
 
-		Project latestProject = projectRef == null ? null : projectRef.get();
-		Module latestModule = moduleRef == null ? null : moduleRef.get();
-		if (latestProject != project || latestModule != module) {
+		final String fingerprint = SettingsFingerprint.ofPlugins(settings.plugins);
+		if (!fingerprint.equals(loadedFingerprint)) {
 			final PluginLoaderImpl pluginLoader = new PluginLoaderImpl(addEditSettingsLinkToErrorMessage);
 			pluginLoader.load(settings.plugins);
-      projectRef = new WeakReference<>(project);
-			moduleRef = null;
-			if (module != null) {
-        moduleRef = new WeakReference<>(module);
+			projectRef = new WeakReference<>(project);
+			final boolean ret = pluginLoader.showErrorNotificationIfNecessary(project);
+			if (ret) { // otherwise the next load tries (and reports) the failed plugins again
+				loadedFingerprint = fingerprint;
 			}
-			return pluginLoader.showErrorNotificationIfNecessary(project);
+			return ret;
 		}
+		projectRef = new WeakReference<>(project);
 		return true;
 	}
 
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.plugins;
+
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.PluginException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.util.FindBugsCustomPluginUtil;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * What {@link AbstractPluginLoader} needs to know of a plugin jar before it decides whether to load it:
+ * reading it requires to load and unload the plugin, so it is kept per jar as long as size and modification
+ * time of the jar are unchanged.
+ */
+final class PluginMetadata {
+
+	private static final Map<String, PluginMetadata> CACHE = new HashMap<>(); // @GuardedBy PluginMetadata.class
+
+	@NotNull
+	final String pluginId;
+
+	@NotNull
+	final String url;
+
+	@Nullable
+	final String shortDescription;
+
+	@Nullable
+	final String detailedDescription;
+
+	@Nullable
+	final String website;
+
+	private final long length;
+	private final long lastModified;
+
+	private PluginMetadata(@NotNull final Plugin plugin, final long length, final long lastModified) {
+		pluginId = plugin.getPluginId();
+		url = FindBugsCustomPluginUtil.getAsString(plugin);
+		shortDescription = plugin.getShortDescription();
+		detailedDescription = plugin.getDetailedDescription();
+		website = plugin.getWebsite();
+		this.length = length;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * @throws PluginException if the plugin could not be loaded, such errors are not cached
+	 */
+	@NotNull
+	static synchronized PluginMetadata get(@NotNull final File pluginFile) throws MalformedURLException, PluginException {
+		final String key = pluginFile.getAbsolutePath();
+		final long length = pluginFile.length();
+		final long lastModified = pluginFile.lastModified();
+		final PluginMetadata cached = CACHE.get(key);
+		if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+			return cached;
+		}
+		final Plugin plugin = FindBugsCustomPluginUtil.loadTemporary(pluginFile);
+		final PluginMetadata ret;
+		try {
+			ret = new PluginMetadata(plugin, length, lastModified);
+		} finally {
+			FindBugsCustomPluginUtil.unload(plugin);
+		}
+		CACHE.put(key, ret);
+		return ret;
+	}
+}
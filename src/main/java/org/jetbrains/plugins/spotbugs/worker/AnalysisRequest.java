@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.worker;
+
+import edu.umd.cs.findbugs.Project;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Everything an {@link AnalysisWorker} needs to analyze one project: the class files, the aux classpath,
+ * the source directories and the {@link edu.umd.cs.findbugs.config.UserPreferences} in their properties
+ * format (detector enablement, filter settings and filter files).
+ */
+public final class AnalysisRequest {
+
+	@NotNull
+	private final String projectName;
+
+	@NotNull
+	private final List<String> files;
+
+	@NotNull
+	private final List<String> auxClasspath;
+
+	@NotNull
+	private final List<String> sourceDirs;
+
+	@NotNull
+	private final byte[] userPreferences;
+
+	public AnalysisRequest(@NotNull final Project project, @NotNull final byte[] userPreferences) {
+		this(project.getProjectName(), project.getFileList(), project.getAuxClasspathEntryList(), project.getSourceDirList(), userPreferences);
+	}
+
+	private AnalysisRequest(
+			@NotNull final String projectName,
+			@NotNull final List<String> files,
+			@NotNull final List<String> auxClasspath,
+			@NotNull final List<String> sourceDirs,
+			@NotNull final byte[] userPreferences
+	) {
+		this.projectName = projectName;
+		this.files = files;
+		this.auxClasspath = auxClasspath;
+		this.sourceDirs = sourceDirs;
+		this.userPreferences = userPreferences;
+	}
+
+	@NotNull
+	Project createProject() {
+		final Project ret = new Project();
+		ret.setProjectName(projectName);
+		// like FindBugsProject.addFiles: Project.addFile checks for duplicates with a linear search
+		ret.getFileList().addAll(new LinkedHashSet<>(files));
+		for (final String entry : auxClasspath) {
+			ret.addAuxClasspathEntry(entry);
+		}
+		ret.addSourceDirs(sourceDirs);
+		return ret;
+	}
+
+	@NotNull
+	byte[] getUserPreferences() {
+		return userPreferences;
+	}
+
+	public void write(@NotNull final DataOutputStream out) throws IOException {
+		out.writeUTF(projectName);
+		writeStrings(out, files);
+		writeStrings(out, auxClasspath);
+		writeStrings(out, sourceDirs);
+		out.writeInt(userPreferences.length);
+		out.write(userPreferences);
+		out.flush();
+	}
+
+	@NotNull
+	static AnalysisRequest read(@NotNull final DataInputStream in) throws IOException {
+		final String projectName = in.readUTF();
+		final List<String> files = readStrings(in);
+		final List<String> auxClasspath = readStrings(in);
+		final List<String> sourceDirs = readStrings(in);
+		final byte[] userPreferences = new byte[in.readInt()];
+		in.readFully(userPreferences);
+		return new AnalysisRequest(projectName, files, auxClasspath, sourceDirs, userPreferences);
+	}
+
+	private static void writeStrings(@NotNull final DataOutputStream out, @NotNull final Collection<String> values) throws IOException {
+		out.writeInt(values.size());
+		for (final String value : values) {
+			out.writeUTF(value);
+		}
+	}
+
+	@NotNull
+	private static List<String> readStrings(@NotNull final DataInputStream in) throws IOException {
+		final int size = in.readInt();
+		final List<String> ret = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			ret.add(in.readUTF());
+		}
+		return ret;
+	}
+}
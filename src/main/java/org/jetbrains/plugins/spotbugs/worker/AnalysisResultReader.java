@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.worker;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.FindBugsProgress;
+import edu.umd.cs.findbugs.SAXBugCollectionHandler;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.jetbrains.annotations.NotNull;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Reads a result written by {@link StreamingReporter} as if the analysis had run in this JVM: each bug is passed on
+ * as soon as it is parsed and the progress events are forwarded. Priority and rank thresholds as well as the
+ * filter files were already applied by the worker.
+ */
+public final class AnalysisResultReader {
+
+	private AnalysisResultReader() {
+	}
+
+	/**
+	 * @param profile receives the nanoseconds the worker spent per detector and analysis engine class
+	 * @return the parsed bug collection, without bugs (they went to {@code bugs}) but with
+	 * the project stats and errors of the analysis
+	 */
+	@NotNull
+	public static SortedBugCollection read(
+			@NotNull final InputStream in,
+			@NotNull final Consumer<BugInstance> bugs,
+			@NotNull final FindBugsProgress progress,
+			@NotNull final ObjLongConsumer<String> profile
+	) throws IOException {
+
+		final SortedBugCollection result = new SortedBugCollection() {
+			@Override
+			public boolean add(@NotNull final BugInstance bugInstance, final boolean updateActiveTime) {
+				bugs.accept(bugInstance);
+				return true;
+			}
+		};
+		final SAXBugCollectionHandler handler = new SAXBugCollectionHandler(result) {
+			@Override
+			public void processingInstruction(final String target, final String data) {
+				if (StreamingReporter.PROGRESS_TARGET.equals(target)) {
+					progress(progress, data);
+				} else if (StreamingReporter.PROFILE_TARGET.equals(target)) {
+					final int separator = data.indexOf(' ');
+					profile.accept(data.substring(0, separator), Long.parseLong(data.substring(separator + 1)));
+				}
+			}
+		};
+		try {
+			final XMLReader xmlReader = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+			xmlReader.setContentHandler(handler);
+			xmlReader.setErrorHandler(handler);
+			xmlReader.parse(new InputSource(new InputStreamReader(in, StandardCharsets.UTF_8)));
+		} catch (final ParserConfigurationException | SAXException e) {
+			throw new IOException("Could not read analysis result", e);
+		}
+		return result;
+	}
+
+	private static void progress(@NotNull final FindBugsProgress progress, @NotNull final String data) {
+		final int separator = data.indexOf(' ');
+		final String event = separator == -1 ? data : data.substring(0, separator);
+		final String argument = separator == -1 ? "" : data.substring(separator + 1);
+		switch (event) {
+			case StreamingReporter.REPORT_NUMBER_OF_ARCHIVES:
+				progress.reportNumberOfArchives(Integer.parseInt(argument));
+				break;
+			case StreamingReporter.FINISH_ARCHIVE:
+				progress.finishArchive();
+				break;
+			case StreamingReporter.PREDICT_PASS_COUNT:
+				final String[] counts = argument.split(",");
+				final int[] classesPerPass = new int[counts.length];
+				for (int i = 0; i < counts.length; i++) {
+					classesPerPass[i] = Integer.parseInt(counts[i]);
+				}
+				progress.predictPassCount(classesPerPass);
+				break;
+			case StreamingReporter.START_ANALYSIS:
+				progress.startAnalysis(Integer.parseInt(argument));
+				break;
+			case StreamingReporter.FINISH_CLASS:
+				progress.finishClass();
+				break;
+			case StreamingReporter.FINISH_PER_CLASS_ANALYSIS:
+				progress.finishPerClassAnalysis();
+				break;
+			default:
+				// unknown event of a newer worker, ignore
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.worker;
+
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.PluginException;
+import edu.umd.cs.findbugs.Project;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import org.dom4j.DocumentException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Main class of the analysis worker JVMs started by {@code AnalysisWorkerPool}. The arguments are the URLs of the
+ * SpotBugs plugins to load. Then {@link AnalysisRequest}s are read from stdin, one after another, and each result
+ * is streamed to stdout (see {@link StreamingReporter}, framed by {@link ChunkedOutputStream}) until stdin is closed.
+ * <p>
+ * This class must not use any IntelliJ classes, only SpotBugs and the JDK are on the classpath of the worker.
+ */
+public final class AnalysisWorker {
+
+	private AnalysisWorker() {
+	}
+
+	public static void main(final String[] args) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out));
+		// stdout is reserved for results, detectors printing something must not corrupt them
+		System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+
+		for (final String pluginUrl : args) {
+			loadPlugin(pluginUrl);
+		}
+		while (true) {
+			final AnalysisRequest request;
+			try {
+				request = AnalysisRequest.read(in);
+			} catch (final EOFException ignored) {
+				return; // the IDE closed the pipe
+			}
+			try (ChunkedOutputStream result = new ChunkedOutputStream(out)) {
+				analyze(request, result);
+			}
+		}
+	}
+
+	private static void loadPlugin(@NotNull final String pluginUrl) {
+		try {
+			final Plugin plugin = Plugin.loadCustomPlugin(new URL(pluginUrl), null);
+			if (plugin != null) {
+				plugin.setGloballyEnabled(true);
+			}
+		} catch (final MalformedURLException | PluginException e) {
+			System.err.println("Could not load plugin: " + pluginUrl);
+			e.printStackTrace();
+		}
+	}
+
+	private static void analyze(@NotNull final AnalysisRequest request, @NotNull final OutputStream out) throws IOException {
+		final Project project = request.createProject();
+		final UserPreferences userPrefs = UserPreferences.createDefaultUserPreferences();
+		userPrefs.read(new ByteArrayInputStream(request.getUserPreferences()));
+
+		final StreamingReporter reporter = new StreamingReporter(project, out);
+		reporter.setPriorityThreshold(userPrefs.getUserDetectorThreshold());
+		reporter.setRankThreshold(userPrefs.getFilterSettings().getMinRank());
+		reporter.start();
+
+		final FindBugs2 engine = new FindBugs2() {
+			@Override
+			protected void configureFilters(final UserPreferences userPreferences) {
+				// done by configureFilter, execute() would add the filter files of the preferences a second time
+			}
+		};
+		try {
+			engine.setNoClassOk(true);
+			engine.setMergeSimilarWarnings(false);
+			engine.setBugReporter(reporter);
+			engine.setProject(project);
+			engine.setProgressCallback(reporter);
+			configureFilter(engine, userPrefs);
+			engine.setDetectorFactoryCollection(DetectorFactoryCollection.instance());
+			engine.setUserPreferences(userPrefs);
+			engine.execute();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} finally {
+			engine.dispose();
+		}
+		reporter.end();
+	}
+
+	private static void configureFilter(@NotNull final FindBugs2 engine, @NotNull final UserPreferences userPrefs) {
+		for (final Map.Entry<String, Boolean> excludeFile : userPrefs.getExcludeFilterFiles().entrySet()) {
+			if (excludeFile.getValue()) {
+				try {
+					engine.addFilter(excludeFile.getKey(), false);
+				} catch (final IOException e) {
+					System.err.println("ExcludeFilter configuration failed.");
+					e.printStackTrace();
+				}
+			}
+		}
+		for (final Map.Entry<String, Boolean> includeFile : userPrefs.getIncludeFilterFiles().entrySet()) {
+			if (includeFile.getValue()) {
+				try {
+					engine.addFilter(includeFile.getKey(), true);
+				} catch (final IOException e) {
+					System.err.println("IncludeFilter configuration failed.");
+					e.printStackTrace();
+				}
+			}
+		}
+		for (final Map.Entry<String, Boolean> excludeBugsFile : userPrefs.getExcludeBugsFiles().entrySet()) {
+			if (excludeBugsFile.getValue()) {
+				try {
+					engine.excludeBaselineBugs(excludeBugsFile.getKey());
+				} catch (final IOException | DocumentException e) {
+					System.err.println("ExcludeBaseLineBug files configuration failed.");
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.worker;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the chunks written by {@link ChunkedOutputStream} and reports the end of the stream at the end chunk,
+ * the underlying stream stays open. Blocks only if no data of the current chunk is available.
+ */
+public final class ChunkedInputStream extends InputStream {
+
+	@NotNull
+	private final DataInputStream in;
+
+	private int remaining;
+	private boolean end;
+
+	public ChunkedInputStream(@NotNull final InputStream in) {
+		this.in = new DataInputStream(in);
+	}
+
+	private boolean nextChunk() throws IOException {
+		while (remaining == 0 && !end) {
+			remaining = in.readInt();
+			if (remaining == 0) {
+				end = true;
+			}
+		}
+		return !end || remaining > 0;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextChunk()) {
+			return -1;
+		}
+		final int ret = in.read();
+		if (ret == -1) {
+			throw new EOFException();
+		}
+		remaining--;
+		return ret;
+	}
+
+	@Override
+	public int read(@NotNull final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!nextChunk()) {
+			return -1;
+		}
+		final int ret = in.read(b, off, Math.min(len, remaining));
+		if (ret == -1) {
+			throw new EOFException();
+		}
+		remaining -= ret;
+		return ret;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return Math.min(remaining, in.available());
+	}
+
+	/**
+	 * Skips the rest of the stream up to the end chunk.
+	 */
+	@Override
+	public void close() throws IOException {
+		final byte[] skip = new byte[8192];
+		//noinspection StatementWithEmptyBody
+		while (read(skip, 0, skip.length) != -1) {
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.worker;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Frames the data written to it as length prefixed chunks, so several results can be sent over one
+ * (long-lived) pipe. {@link #flush()} sends the buffered data as one chunk, {@link #close()} sends the
+ * empty end chunk but does not close the underlying stream.
+ *
+ * @see ChunkedInputStream
+ */
+public final class ChunkedOutputStream extends OutputStream {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	@NotNull
+	private final DataOutputStream out;
+
+	@NotNull
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int count;
+	private boolean closed;
+
+	public ChunkedOutputStream(@NotNull final OutputStream out) {
+		this.out = new DataOutputStream(out);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (count == buffer.length) {
+			writeChunk();
+		}
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(@NotNull final byte[] b, final int off, final int len) throws IOException {
+		if (len > buffer.length - count) {
+			writeChunk();
+			if (len > buffer.length) {
+				out.writeInt(len);
+				out.write(b, off, len);
+				return;
+			}
+		}
+		System.arraycopy(b, off, buffer, count, len);
+		count += len;
+	}
+
+	private void writeChunk() throws IOException {
+		if (count > 0) {
+			out.writeInt(count);
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writeChunk();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			writeChunk();
+			out.writeInt(0);
+			out.flush();
+		}
+	}
+}
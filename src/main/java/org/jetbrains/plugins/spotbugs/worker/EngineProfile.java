@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.worker;
+
+import edu.umd.cs.findbugs.log.Profiler;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Access to the time SpotBugs measured per detector and analysis engine class.
+ */
+public final class EngineProfile {
+
+	private EngineProfile() {
+	}
+
+	/**
+	 * @return the total (exclusive) nanoseconds per profiled class name
+	 */
+	@NotNull
+	public static Map<String, Long> getTotalTimes(@NotNull final Profiler profiler) {
+		/*
+		 * Profiler has no public accessor for the profiled classes, but report() sorts all of them
+		 * with the given comparator. Nothing is printed because the filter accepts no profile.
+		 */
+		final Set<Class<?>> classes = new HashSet<>();
+		profiler.report((c1, c2) -> {
+			classes.add(c1);
+			classes.add(c2);
+			return c1.getName().compareTo(c2.getName());
+		}, profile -> false, new PrintStream(new NullOutputStream()));
+
+		final Map<String, Long> ret = new HashMap<>();
+		for (final Class<?> c : classes) {
+			final long nanos = profiler.getProfile(c).getTotalTime();
+			if (nanos > 0) {
+				ret.merge(c.getName(), nanos, Long::sum);
+			}
+		}
+		return ret;
+	}
+
+	private static final class NullOutputStream extends OutputStream {
+		@Override
+		public void write(final int b) {
+		}
+
+		@Override
+		public void write(@NotNull final byte[] b, final int off, final int len) {
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.worker;
+
+import edu.umd.cs.findbugs.AbstractBugReporter;
+import edu.umd.cs.findbugs.AnalysisError;
+import edu.umd.cs.findbugs.BugCollection;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.FindBugsProgress;
+import edu.umd.cs.findbugs.Project;
+import edu.umd.cs.findbugs.ProjectStats;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.xml.OutputStreamXMLOutput;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Writes the result of a worker analysis as regular bug collection XML while the analysis is running:
+ * the prologue first, each bug when it is reported and the epilogue (errors and summary) at the end.
+ * Progress is interleaved as processing instructions, see {@link AnalysisResultReader}.
+ * The bugs are not kept in memory.
+ */
+final class StreamingReporter extends AbstractBugReporter implements FindBugsProgress {
+
+	static final String PROGRESS_TARGET = "spotbugs-progress";
+	static final String REPORT_NUMBER_OF_ARCHIVES = "reportNumberOfArchives";
+	static final String FINISH_ARCHIVE = "finishArchive";
+	static final String PREDICT_PASS_COUNT = "predictPassCount";
+	static final String START_ANALYSIS = "startAnalysis";
+	static final String FINISH_CLASS = "finishClass";
+	static final String FINISH_PER_CLASS_ANALYSIS = "finishPerClassAnalysis";
+	static final String PROFILE_TARGET = "spotbugs-profile";
+
+	@NotNull
+	private final SortedBugCollection bugCollection;
+
+	@NotNull
+	private final Writer writer;
+
+	@NotNull
+	private final OutputStreamXMLOutput xmlOutput;
+
+	StreamingReporter(@NotNull final Project project, @NotNull final OutputStream out) {
+		bugCollection = new SortedBugCollection(project);
+		writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		xmlOutput = new OutputStreamXMLOutput(writer);
+	}
+
+	void start() throws IOException {
+		bugCollection.writePrologue(xmlOutput);
+		xmlOutput.flush();
+	}
+
+	/**
+	 * Writes the time per detector and analysis engine (see {@link EngineProfile}), the epilogue and closes the output.
+	 */
+	void end() throws IOException {
+		for (final Map.Entry<String, Long> entry : EngineProfile.getTotalTimes(getProjectStats().getProfiler()).entrySet()) {
+			writer.write("<?" + PROFILE_TARGET + ' ' + entry.getKey() + ' ' + entry.getValue() + "?>\n");
+		}
+		bugCollection.writeEpilogue(xmlOutput);
+		xmlOutput.finish();
+	}
+
+	@Override
+	protected void doReportBug(@NotNull final BugInstance bug) {
+		try {
+			bugCollection.getProjectStats().addBug(bug);
+			bug.writeXML(xmlOutput, bugCollection, false);
+			xmlOutput.flush();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void progress(@NotNull final String event, @NotNull final String data, final boolean flush) {
+		try {
+			writer.write("<?" + PROGRESS_TARGET + ' ' + event + (data.isEmpty() ? "" : " " + data) + "?>\n");
+			if (flush) {
+				writer.flush();
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reportNumberOfArchives(final int numArchives) {
+		progress(REPORT_NUMBER_OF_ARCHIVES, String.valueOf(numArchives), true);
+	}
+
+	@Override
+	public void startArchive(final String name) {
+	}
+
+	@Override
+	public void finishArchive() {
+		progress(FINISH_ARCHIVE, "", false);
+	}
+
+	@Override
+	public void predictPassCount(final int[] classesPerPass) {
+		final StringBuilder data = new StringBuilder();
+		for (final int count : classesPerPass) {
+			if (data.length() > 0) {
+				data.append(',');
+			}
+			data.append(count);
+		}
+		progress(PREDICT_PASS_COUNT, data.toString(), true);
+	}
+
+	@Override
+	public void startAnalysis(final int numClasses) {
+		progress(START_ANALYSIS, String.valueOf(numClasses), true);
+	}
+
+	@Override
+	public void finishClass() {
+		progress(FINISH_CLASS, "", false);
+	}
+
+	@Override
+	public void finishPerClassAnalysis() {
+		progress(FINISH_PER_CLASS_ANALYSIS, "", true);
+	}
+
+	@Override
+	public void reportAnalysisError(final AnalysisError error) {
+		bugCollection.addError(error);
+	}
+
+	@Override
+	public void reportMissingClass(final String missingClass) {
+		bugCollection.addMissingClass(missingClass);
+	}
+
+	@Override
+	public void reportQueuedErrors() {
+		for (final Error error : getQueuedErrors()) {
+			bugCollection.addError(error.getMessage(), error.getCause());
+		}
+		for (final String missingClass : getMissingClasses()) {
+			bugCollection.addMissingClass(missingClass);
+		}
+	}
+
+	@Override
+	public void observeClass(final ClassDescriptor classDescriptor) {
+	}
+
+	@Override
+	public void finish() {
+	}
+
+	@Override
+	public ProjectStats getProjectStats() {
+		return bugCollection.getProjectStats();
+	}
+
+	@Override
+	public BugCollection getBugCollection() {
+		return bugCollection;
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.common.util;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.HTMLBugReporter;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.SourceLineAnnotation;
+import net.sf.saxon.TransformerFactoryImpl;
+import org.dom4j.io.DocumentSource;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.InputStream;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ContentHandlerXMLOutputTest {
+
+	/**
+	 * The HTML export must not change compared to the transformation of {@link SortedBugCollection#toDocument()}.
+	 */
+	@Test
+	public void testSameHtmlAsDocument() throws Exception {
+		final SortedBugCollection bugCollection = new SortedBugCollection();
+		bugCollection.setWithMessages(true);
+		bugCollection.getProject().setProjectName("test <project>");
+		bugCollection.add(new BugInstance("NP_NULL_ON_SOME_PATH", Priorities.HIGH_PRIORITY)
+				.addClass("org.example.Foo")
+				.addMethod("org.example.Foo", "bar", "(Ljava/lang/String;)V", false)
+				.addSourceLine(new SourceLineAnnotation("org.example.Foo", "Foo.java", 12, 14, 3, 9)));
+		bugCollection.add(new BugInstance("DM_STRING_CTOR", Priorities.NORMAL_PRIORITY)
+				.addClass("org.example.Foo$Inner")
+				.addField("org.example.Foo$Inner", "name", "Ljava/lang/String;", false)
+				.addString("a <quoted> & \"escaped\" string"));
+		bugCollection.addMissingClass("org.example.Missing");
+
+		final Templates templates = newTemplates();
+
+		final StringWriter expected = new StringWriter();
+		templates.newTransformer().transform(new DocumentSource(bugCollection.toDocument()), new StreamResult(expected));
+
+		final StringWriter actual = new StringWriter();
+		final TransformerHandler handler = new TransformerFactoryImpl().newTransformerHandler(templates);
+		handler.setResult(new StreamResult(actual));
+		bugCollection.writeXML(new ContentHandlerXMLOutput(handler));
+
+		assertThat(actual.toString()).contains("DM_STRING_CTOR").isEqualTo(expected.toString());
+	}
+
+	@NotNull
+	private static Templates newTemplates() throws Exception {
+		try (InputStream stylesheet = HTMLBugReporter.class.getResourceAsStream("/plain.xsl")) {
+			return new TransformerFactoryImpl().newTemplates(new StreamSource(stylesheet, "plain.xsl"));
+		}
+	}
+}
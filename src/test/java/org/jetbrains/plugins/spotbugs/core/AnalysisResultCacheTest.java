@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class AnalysisResultCacheTest {
+
+	@Rule
+	public final TemporaryFolder temp = new TemporaryFolder();
+
+	private File bugsFile;
+	private File indexFile;
+	private List<String> roots;
+	private File classA;
+	private File classB;
+	private List<String> files;
+
+	@Before
+	public void setUp() throws IOException {
+		final File cacheDir = temp.newFolder("cache");
+		bugsFile = new File(cacheDir, "module.xml");
+		indexFile = new File(cacheDir, "module.index");
+		final File outputDir = temp.newFolder("classes");
+		roots = Collections.singletonList(outputDir.getPath().replace('\\', '/') + "/");
+		classA = write(new File(outputDir, "org/example/A.class"), "class A");
+		classB = write(new File(outputDir, "org/example/B.class"), "class B");
+		files = Arrays.asList(classA.getPath(), classB.getPath());
+
+		final BugStore bugStore = new BugStore(new SortedBugCollection());
+		bugStore.add(newBug("org.example.A"));
+		bugStore.add(newBug("org.example.B"));
+		final AnalysisResultCache cache = load("fingerprint");
+		assertThat(cache.getUnchangedClasses(Collections.emptySet())).isEmpty();
+		cache.store(bugStore);
+	}
+
+	@Test
+	public void testUnchanged() {
+		final AnalysisResultCache cache = load("fingerprint");
+		assertThat(cache.getUnchangedClasses(Collections.emptySet()))
+				.containsEntry("org.example.A", classA.getPath())
+				.containsEntry("org.example.B", classB.getPath())
+				.hasSize(2);
+		final List<BugInstance> bugs = cache.getCachedBugs(Collections.singleton("org.example.A"));
+		assertThat(bugs).hasSize(1);
+		assertThat(bugs.get(0).getPrimaryClass().getClassName()).isEqualTo("org.example.A");
+	}
+
+	@Test
+	public void testChangedContent() throws IOException {
+		write(classB, "class B changed");
+		assertThat(load("fingerprint").getUnchangedClasses(Collections.emptySet())).containsOnlyKeys("org.example.A");
+	}
+
+	@Test
+	public void testSameContentRecompiled() throws IOException {
+		write(classA, "class A");
+		assertThat(classA.setLastModified(classA.lastModified() + 10000)).isTrue();
+		assertThat(load("fingerprint").getUnchangedClasses(Collections.emptySet())).containsOnlyKeys("org.example.A", "org.example.B");
+	}
+
+	/**
+	 * A class file with the cached size and modification time is not read again.
+	 */
+	@Test
+	public void testSameStampNotHashed() throws IOException {
+		final long lastModified = classA.lastModified();
+		write(classA, "class X");
+		assertThat(classA.setLastModified(lastModified)).isTrue();
+		assertThat(load("fingerprint").getUnchangedClasses(Collections.emptySet())).containsOnlyKeys("org.example.A", "org.example.B");
+	}
+
+	@Test
+	public void testFingerprintChanged() {
+		final AnalysisResultCache cache = load("other fingerprint");
+		assertThat(cache.getUnchangedClasses(Collections.emptySet())).isEmpty();
+		assertThat(cache.getCachedBugs(Collections.singleton("org.example.A"))).isEmpty();
+	}
+
+	@Test
+	public void testReanalyzedFile() {
+		assertThat(load("fingerprint").getUnchangedClasses(Collections.singleton(classA.getPath()))).containsOnlyKeys("org.example.B");
+	}
+
+	@Test
+	public void testKeepsEntriesOfClassesNotAnalyzed() {
+		final AnalysisResultCache cache = AnalysisResultCache.load(
+				bugsFile, indexFile, "fingerprint", roots, Collections.emptyList(), Collections.singletonList(classA.getPath()));
+		cache.store(new BugStore(new SortedBugCollection()));
+		final AnalysisResultCache reloaded = load("fingerprint");
+		assertThat(reloaded.getUnchangedClasses(Collections.emptySet())).containsOnlyKeys("org.example.A", "org.example.B");
+		assertThat(reloaded.getCachedBugs(Collections.singleton("org.example.A"))).isEmpty();
+		assertThat(reloaded.getCachedBugs(Collections.singleton("org.example.B"))).hasSize(1);
+	}
+
+	@Test
+	public void testDependencyChanged() throws IOException {
+		final File dependency = storeSample();
+		final long lastModified = dependency.lastModified();
+		write(dependency, getClassFile(Other.class));
+		assertThat(dependency.setLastModified(lastModified + 10000)).isTrue();
+		assertThat(loadSample().getUnchangedClasses(Collections.emptySet())).isEmpty();
+	}
+
+	@Test
+	public void testDependencyRecompiled() throws IOException {
+		final File dependency = storeSample();
+		assertThat(dependency.setLastModified(dependency.lastModified() + 10000)).isTrue();
+		assertThat(loadSample().getUnchangedClasses(Collections.emptySet())).containsOnlyKeys(Sample.class.getName());
+	}
+
+	/**
+	 * Only the classes referenced by the analyzed class are part of its fingerprint.
+	 */
+	@Test
+	public void testUnreferencedDependencyChanged() throws IOException {
+		storeSample();
+		final File other = new File(temp.getRoot(), "dependency/" + getClassFileName(Other.class));
+		write(other, getClassFile(Dependency.class));
+		assertThat(other.setLastModified(other.lastModified() + 10000)).isTrue();
+		assertThat(loadSample().getUnchangedClasses(Collections.emptySet())).containsOnlyKeys(Sample.class.getName());
+	}
+
+	/**
+	 * Caches {@link Sample} of an output directory, which references {@link Dependency} of a dependency directory.
+	 *
+	 * @return the class file of {@link Dependency}
+	 */
+	private File storeSample() throws IOException {
+		final File outputDir = temp.newFolder("sample");
+		final File dependencyDir = temp.newFolder("dependency");
+		write(new File(outputDir, getClassFileName(Sample.class)), getClassFile(Sample.class));
+		write(new File(dependencyDir, getClassFileName(Other.class)), getClassFile(Other.class));
+		final File ret = write(new File(dependencyDir, getClassFileName(Dependency.class)), getClassFile(Dependency.class));
+		final AnalysisResultCache cache = loadSample();
+		assertThat(cache.getUnchangedClasses(Collections.emptySet())).isEmpty();
+		cache.store(new BugStore(new SortedBugCollection()));
+		assertThat(loadSample().getUnchangedClasses(Collections.emptySet())).containsOnlyKeys(Sample.class.getName());
+		return ret;
+	}
+
+	private AnalysisResultCache loadSample() {
+		final File outputDir = new File(temp.getRoot(), "sample");
+		return AnalysisResultCache.load(
+				bugsFile,
+				indexFile,
+				"fingerprint",
+				Collections.singletonList(outputDir.getPath().replace('\\', '/') + "/"),
+				Collections.singletonList(new File(temp.getRoot(), "dependency").getPath()),
+				Collections.singletonList(new File(outputDir, getClassFileName(Sample.class)).getPath())
+		);
+	}
+
+	private AnalysisResultCache load(final String fingerprint) {
+		return AnalysisResultCache.load(bugsFile, indexFile, fingerprint, roots, Collections.emptyList(), files);
+	}
+
+	private static String getClassFileName(final Class<?> clazz) {
+		return clazz.getName().replace('.', '/') + ".class";
+	}
+
+	private static byte[] getClassFile(final Class<?> clazz) throws IOException {
+		try (InputStream in = clazz.getResourceAsStream('/' + getClassFileName(clazz))) {
+			final ByteArrayOutputStream ret = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				ret.write(buffer, 0, read);
+			}
+			return ret.toByteArray();
+		}
+	}
+
+	private static BugInstance newBug(final String className) {
+		return new BugInstance("DM_STRING_CTOR", Priorities.NORMAL_PRIORITY).addClass(className);
+	}
+
+	private static File write(final File file, final String content) throws IOException {
+		return write(file, content.getBytes("UTF-8"));
+	}
+
+	private static File write(final File file, final byte[] content) throws IOException {
+		Files.createDirectories(file.getParentFile().toPath());
+		Files.write(file.toPath(), content);
+		return file;
+	}
+
+	@SuppressWarnings("unused")
+	private static final class Sample {
+		private Dependency dependency;
+	}
+
+	private static final class Dependency {
+	}
+
+	@SuppressWarnings("unused")
+	private static final class Other {
+		private String name;
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class AnalysisTimingsTest {
+
+	@Test
+	public void testWriteCsv() throws IOException {
+		final AnalysisTimings timings = new AnalysisTimings();
+		timings.add(new AnalysisTimings.Phase(AnalysisTimings.CONFIGURE, 2000000, 1000000, 100));
+		timings.add(new AnalysisTimings.Phase("Pass 1, \"prescan\"", 5000000, -1, -1));
+		timings.add(new AnalysisTimings.Phase(AnalysisTimings.CONFIGURE, 3000000, 1000000, 50));
+		timings.addProfile("org.example.Engine", 7000000);
+		timings.addProfile("org.example.Engine", 1000000);
+		timings.addProfile("org.example.Cheap", 1000000);
+
+		final StringBuilder csv = new StringBuilder();
+		timings.writeCsv(csv);
+
+		assertThat(csv.toString()).isEqualTo(
+				"Kind,Name,Plugin,Wall ms,CPU ms,Allocated bytes\n" +
+						"Phase,Configure,,5,2,150\n" +
+						"Phase,\"Pass 1, \"\"prescan\"\"\",,5,,\n" +
+						"Engine,Engine,,8,,\n" +
+						"Engine,Cheap,,1,,\n"
+		);
+	}
+
+	@Test
+	public void testAddAll() {
+		final AnalysisTimings timings = new AnalysisTimings();
+		assertThat(timings.isEmpty()).isTrue();
+		final AnalysisTimings other = new AnalysisTimings();
+		other.add(new AnalysisTimings.Phase(AnalysisTimings.CONFIGURE, 1000000, -1, 10));
+		other.addProfile("org.example.Engine", 1000000);
+		timings.add(new AnalysisTimings.Phase(AnalysisTimings.CONFIGURE, 1000000, 1000000, 10));
+
+		timings.addAll(other);
+
+		assertThat(timings.isEmpty()).isFalse();
+		assertThat(timings.getPhases()).hasSize(1);
+		final AnalysisTimings.Phase phase = timings.getPhases().get(0);
+		assertThat(phase.getWallNanos()).isEqualTo(2000000);
+		assertThat(phase.getCpuNanos()).isEqualTo(-1); // unknown in one of them
+		assertThat(phase.getAllocatedBytes()).isEqualTo(20);
+		assertThat(timings.getProfile()).hasSize(1);
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.ClassAnnotation;
+import edu.umd.cs.findbugs.FieldAnnotation;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.SourceLineAnnotation;
+import edu.umd.cs.findbugs.xml.OutputStreamXMLOutput;
+import edu.umd.cs.findbugs.xml.XMLOutput;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class BugStoreTest {
+
+	@Test
+	public void testColumns() {
+		final BugStore bugStore = new BugStore(new SortedBugCollection());
+		final int method = bugStore.add(newMethodBug());
+		final int field = bugStore.add(newFieldBug());
+
+		assertThat(bugStore.size()).isEqualTo(2);
+		assertThat(bugStore.getFullClassName(method)).isEqualTo("org.example.Foo");
+		assertThat(bugStore.getMethodName(method)).isEqualTo("bar");
+		assertThat(bugStore.getFieldName(method)).isNull();
+		assertThat(bugStore.getType(method)).isEqualTo("NP_NULL_ON_SOME_PATH");
+		assertThat(bugStore.getPriority(method)).isEqualTo(Priorities.HIGH_PRIORITY);
+		assertThat(bugStore.getSourceLines(method)).containsExactly(12, 14);
+		assertThat(bugStore.getSourcePath(method)).isEqualTo("org/example/Foo.java");
+
+		assertThat(bugStore.getFullClassName(field)).isEqualTo("org.example.Foo$Inner");
+		assertThat(bugStore.getClassName(field)).isEqualTo("org.example.Foo");
+		assertThat(bugStore.getFieldName(field)).isEqualTo("name");
+		assertThat(bugStore.getMethodName(field)).isNull();
+	}
+
+	@Test
+	public void testCompact() throws IOException {
+		final BugInstance method = newMethodBug();
+		final BugInstance field = newFieldBug();
+		final BugStore bugStore = new BugStore(new SortedBugCollection());
+		bugStore.add(method);
+		bugStore.add(field);
+
+		bugStore.compact();
+
+		// writing the XML marks the source lines of a field as synthetic, so it must follow the compaction
+		final String methodXml = toXml(method);
+		final String fieldXml = toXml(field);
+
+		assertThat(bugStore.getMethodName(0)).isEqualTo("bar");
+		assertThat(bugStore.getInstance(0)).isNotSameAs(method).isEqualTo(method);
+		assertThat(toXml(bugStore.getInstance(0))).isEqualTo(methodXml);
+		assertThat(bugStore.getInstance(1)).isEqualTo(field);
+		assertThat(toXml(bugStore.getInstance(1))).isEqualTo(fieldXml);
+		assertThat(bugStore.getMessage(1)).isEqualTo(field.getMessageWithoutPrefix());
+	}
+
+	@Test
+	public void testFieldSourceSignature() throws IOException {
+		final BugInstance bug = new BugInstance("SE_BAD_FIELD", Priorities.NORMAL_PRIORITY)
+				.add(newClass("org.example.Foo", "Foo.java"))
+				.addField(new FieldAnnotation("org.example.Foo", "names", "Ljava/util/List;", "Ljava/util/List<Ljava/lang/String;>;", false));
+		final BugStore bugStore = new BugStore(new SortedBugCollection());
+		bugStore.add(bug);
+
+		bugStore.compact();
+
+		assertThat(toXml(bugStore.getInstance(0))).contains("sourceSignature=").isEqualTo(toXml(bug));
+	}
+
+	@Test
+	public void testImportedInstanceHash() throws IOException {
+		final BugInstance bug = newMethodBug();
+		bug.setOldInstanceHash("0123456789abcdef");
+		final BugStore bugStore = new BugStore(new SortedBugCollection());
+		bugStore.add(bug);
+
+		bugStore.compact();
+
+		assertThat(bugStore.getInstance(0).isInstanceHashConsistent()).isFalse();
+		assertThat(toXml(bugStore.getInstance(0))).isEqualTo(toXml(bug));
+	}
+
+	@Test
+	public void testWriteAndReadBugs() throws IOException {
+		final BugInstance method = newMethodBug();
+		final BugInstance imported = newMethodBug();
+		imported.setOldInstanceHash("0123456789abcdef");
+		final BugInstance field = newFieldBug();
+		final BugStore bugStore = new BugStore(new SortedBugCollection());
+		bugStore.add(method);
+		bugStore.add(newFieldBug());
+		bugStore.add(imported);
+		bugStore.add(field);
+		bugStore.remove(1);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		bugStore.writeBugs(new DataOutputStream(bytes));
+		final BugStore restored = new BugStore(new SortedBugCollection());
+		restored.compact();
+		final List<Integer> added = new ArrayList<>();
+		restored.readBugs(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), added::add);
+
+		assertThat(added).containsExactly(0, 1, 2);
+		assertThat(restored.getInstance(0)).isEqualTo(method);
+		assertThat(restored.getMethodName(0)).isEqualTo("bar");
+		assertThat(restored.getSourceLines(0)).containsExactly(12, 14);
+		assertThat(restored.getInstance(1).isInstanceHashConsistent()).isFalse();
+		assertThat(toXml(restored.getInstance(1))).isEqualTo(toXml(imported));
+		assertThat(restored.getFullClassName(2)).isEqualTo("org.example.Foo$Inner");
+		assertThat(restored.getShortDescription(2)).isEqualTo(field.getBugPattern().getShortDescription());
+		assertThat(restored.getPriorityString(2)).isEqualTo(field.getPriorityString());
+		assertThat(toXml(restored.getInstance(2))).isEqualTo(toXml(field));
+	}
+
+	@Test
+	public void testRemove() {
+		final BugStore bugStore = new BugStore(new SortedBugCollection());
+		final BugInstance method = newMethodBug();
+		bugStore.add(method);
+		bugStore.add(newFieldBug());
+		bugStore.compact();
+
+		bugStore.remove(1);
+		bugStore.remove(1);
+
+		assertThat(bugStore.size()).isEqualTo(2);
+		assertThat(bugStore.getBugCount()).isEqualTo(1);
+		assertThat(bugStore.isRemoved(1)).isTrue();
+		assertThat(bugStore.toBugCollection().getCollection()).containsExactly(method);
+	}
+
+	@Test
+	public void testStale() {
+		final BugStore bugStore = new BugStore(new SortedBugCollection());
+		bugStore.add(newMethodBug());
+		bugStore.add(newFieldBug());
+		bugStore.setStale(0);
+		bugStore.setStale(1);
+		bugStore.remove(1);
+
+		assertThat(bugStore.isStale(0)).isTrue();
+		assertThat(bugStore.getStaleBugCount()).isEqualTo(1);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddAfterCompact() {
+		final BugStore bugStore = new BugStore(new SortedBugCollection());
+		bugStore.compact();
+		bugStore.add(newMethodBug());
+	}
+
+	private static BugInstance newMethodBug() {
+		return new BugInstance("NP_NULL_ON_SOME_PATH", Priorities.HIGH_PRIORITY)
+				.add(newClass("org.example.Foo", "Foo.java"))
+				.addMethod("org.example.Foo", "bar", "(Ljava/lang/String;)V", false)
+				.addSourceLine(new SourceLineAnnotation("org.example.Foo", "Foo.java", 12, 14, 3, 9))
+				.addInt(42);
+	}
+
+	private static BugInstance newFieldBug() {
+		return new BugInstance("DM_STRING_CTOR", Priorities.NORMAL_PRIORITY)
+				.addClass("org.example.Foo$Inner")
+				.addField("org.example.Foo$Inner", "name", "Ljava/lang/String;", false)
+				.addString("a <quoted> & \"escaped\" string");
+	}
+
+	/**
+	 * Without an analysis context the source file of a class annotation is unknown.
+	 */
+	private static ClassAnnotation newClass(final String className, final String sourceFile) {
+		final ClassAnnotation ret = new ClassAnnotation(className);
+		ret.setSourceLines(new SourceLineAnnotation(className, sourceFile, -1, -1, -1, -1));
+		return ret;
+	}
+
+	private static String toXml(final BugInstance bug) throws IOException {
+		final StringWriter ret = new StringWriter();
+		final XMLOutput out = new OutputStreamXMLOutput(ret);
+		bug.writeXML(out, new SortedBugCollection(), true);
+		out.finish();
+		return ret.toString();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ClassDependencyIndexTest {
+
+	@Test
+	public void testReadReferences() throws IOException {
+		final Set<String> references = new HashSet<>();
+		try (InputStream in = Sample.class.getResourceAsStream("ClassDependencyIndexTest$Sample.class")) {
+			ClassDependencyIndex.readReferences(in, references);
+		}
+		assertThat(references).contains(
+				ClassDependencyIndexTest.class.getName() + "$Sample", // this class
+				"java.lang.Object", // super class
+				"java.lang.Runnable", // interface
+				"java.util.List", // field type
+				"java.util.Map", // method parameter
+				"java.io.File", // method return type
+				"java.net.URL", // array element type
+				"java.lang.StringBuilder", // instantiated in a method
+				"java.lang.System" // field reference of System.out
+		);
+		assertThat(references).doesNotContain("java.lang.String[]", "[Ljava.net.URL;");
+	}
+
+	@Test(expected = IOException.class)
+	public void testNoClassFile() throws IOException {
+		ClassDependencyIndex.readReferences(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6}), new HashSet<>());
+	}
+
+	@SuppressWarnings("unused")
+	private static final class Sample implements Runnable {
+		private List<String> names;
+		private URL[] urls;
+
+		File toFile(final Map<String, String> paths) {
+			return new File(paths.get("path"));
+		}
+
+		@Override
+		public void run() {
+			System.out.println(new StringBuilder().append(names).append(urls.length));
+		}
+	}
+}
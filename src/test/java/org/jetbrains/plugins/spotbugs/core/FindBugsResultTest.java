@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.Project;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class FindBugsResultTest {
+
+	@Test
+	public void testMergeInto() {
+		final FindBugsResult previous = new FindBugsResult();
+		final BugStore kept = newBugStore(10, "org.example.A", "org.example.B");
+		final BugStore replaced = newBugStore(3, "org.example.C");
+		previous.put(new Project(), kept);
+		previous.put(new Project(), replaced);
+
+		final FindBugsResult result = new FindBugsResult();
+		final BugStore reanalyzed = newBugStore(2, "org.example.A", "org.example.C", "org.example.C");
+		result.put(new Project(), reanalyzed);
+		result.setMergeScope(new HashSet<>(Arrays.asList("org.example.A", "org.example.C")));
+
+		final FindBugsResult merged = result.mergeInto(previous);
+
+		assertThat(merged.getMergeScope()).containsOnly("org.example.A", "org.example.C");
+		assertThat(merged.getResults().values()).containsExactly(kept, reanalyzed); // all bugs of the other store were replaced
+		assertThat(merged.getResultsByModule().values()).containsExactly(
+				Collections.singletonList(kept), Collections.singletonList(reanalyzed)); // the projects have no module
+		assertThat(kept.isRemoved(0)).isTrue();
+		assertThat(classNames(merged.getBugs())).containsOnly("org.example.A", "org.example.B", "org.example.C");
+		assertThat(merged.getBugs()).hasSize(4);
+		// the classes of the merge scope were analyzed before, they are not counted again
+		assertThat(merged.getAnalyzedClassCount()).isEqualTo(13);
+	}
+
+	@Test
+	public void testMergeIntoWithoutScope() {
+		final FindBugsResult previous = new FindBugsResult();
+		previous.put(new Project(), newBugStore(1, "org.example.A"));
+		final FindBugsResult result = new FindBugsResult();
+		result.put(new Project(), newBugStore(1, "org.example.B"));
+
+		assertThat(result.mergeInto(previous)).isSameAs(result);
+		assertThat(result.mergeInto(null)).isSameAs(result);
+	}
+
+	@Test
+	public void testAnalyzedClassCount() {
+		final FindBugsResult result = new FindBugsResult();
+		assertThat(result.getAnalyzedClassCount()).isNull();
+		assertThat(result.getAnalyzedClassCountSafe()).isEqualTo(0);
+		assertThat(result.isBugCollectionEmpty()).isTrue();
+
+		result.put(new Project(), newBugStore(4));
+		result.put(new Project(), newBugStore(5, "org.example.A"));
+		assertThat(result.getAnalyzedClassCount()).isEqualTo(9);
+		assertThat(result.isBugCollectionEmpty()).isFalse();
+	}
+
+	private static BugStore newBugStore(final int classCount, final String... bugClassNames) {
+		final SortedBugCollection bugCollection = new SortedBugCollection();
+		for (int i = 0; i < classCount; i++) {
+			bugCollection.getProjectStats().addClass("org.example.Class" + i, null, false, 10);
+		}
+		final BugStore ret = new BugStore(bugCollection);
+		for (final String className : bugClassNames) {
+			ret.add(new BugInstance("DM_STRING_CTOR", Priorities.NORMAL_PRIORITY).addClass(className));
+		}
+		return ret;
+	}
+
+	private static List<String> classNames(final List<Bug> bugs) {
+		return bugs.stream().map(Bug::getPrimaryClassName).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.gui.tree.model;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.jetbrains.plugins.spotbugs.core.Bug;
+import org.jetbrains.plugins.spotbugs.core.BugStore;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class BugSearchIndexTest {
+
+	private BugSearchIndex index;
+	private Bug fooBar;
+	private Bug fooName;
+	private Bug other;
+
+	@Before
+	public void setUp() {
+		final BugStore bugStore = new BugStore(new SortedBugCollection());
+		fooBar = newBug(bugStore, new BugInstance("NP_NULL_ON_SOME_PATH", Priorities.HIGH_PRIORITY)
+				.addClass("org.example.Foo")
+				.addMethod("org.example.Foo", "computeTotal", "()V", false));
+		fooName = newBug(bugStore, new BugInstance("DM_STRING_CTOR", Priorities.NORMAL_PRIORITY)
+				.addClass("org.example.Foo")
+				.addField("org.example.Foo", "userName", "Ljava/lang/String;", false));
+		other = newBug(bugStore, new BugInstance("DM_STRING_CTOR", Priorities.NORMAL_PRIORITY)
+				.addClass("org.other.Baz")
+				.addMethod("org.other.Baz", "run", "()V", false));
+		index = new BugSearchIndex();
+		index.add(fooBar);
+		index.add(fooName);
+		index.add(other);
+	}
+
+	@Test
+	public void testLiteral() {
+		assertThat(search("example.foo")).containsOnly(fooBar, fooName);
+		assertThat(search("COMPUTETOTAL")).containsOnly(fooBar);
+		assertThat(search("username")).containsOnly(fooName);
+		assertThat(search("DM_STRING_CTOR")).containsOnly(fooName, other);
+		assertThat(search("does not occur")).isEmpty();
+	}
+
+	@Test
+	public void testShorterThanTrigram() {
+		assertThat(search("Ba")).containsOnly(other);
+	}
+
+	@Test
+	public void testRegex() {
+		assertThat(search("org\\.(example|other)\\.")).containsOnly(fooBar, fooName, other);
+		assertThat(search("^run$")).containsOnly(other);
+		assertThat(search("[unclosed")).isEmpty();
+	}
+
+	@Test
+	public void testRemove() {
+		index.remove(fooName);
+		assertThat(search("example.foo")).containsOnly(fooBar);
+		assertThat(search("username")).isEmpty();
+	}
+
+	@Test
+	public void testClear() {
+		assertThat(search("example")).hasSize(2);
+		index.clear();
+		assertThat(search("example")).isEmpty();
+		index.add(other);
+		assertThat(search("o")).containsOnly(other);
+	}
+
+	@Test
+	public void testMatcher() {
+		assertThat(BugSearchIndex.createMatcher("FOO").test("org.example.Foo")).isTrue();
+		assertThat(BugSearchIndex.createMatcher("f.o").test("org.example.Foo")).isTrue();
+		assertThat(BugSearchIndex.createMatcher("bar").test("org.example.Foo")).isFalse();
+	}
+
+	private Set<Bug> search(final String text) {
+		return index.search(text, new EmptyProgressIndicator());
+	}
+
+	private static Bug newBug(final BugStore bugStore, final BugInstance instance) {
+		return new Bug(null, bugStore, bugStore.add(instance));
+	}
+}
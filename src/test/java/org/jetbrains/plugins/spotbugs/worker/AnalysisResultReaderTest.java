@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.worker;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugRanker;
+import edu.umd.cs.findbugs.ClassAnnotation;
+import edu.umd.cs.findbugs.FieldAnnotation;
+import edu.umd.cs.findbugs.FindBugsAnalysisFeatures;
+import edu.umd.cs.findbugs.FindBugsProgress;
+import edu.umd.cs.findbugs.MethodAnnotation;
+import edu.umd.cs.findbugs.PackageMemberAnnotation;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.Project;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.SourceLineAnnotation;
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class AnalysisResultReaderTest {
+
+	@After
+	public void tearDown() {
+		AnalysisContext.removeCurrentAnalysisContext();
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		final BugInstance first = new BugInstance("NP_NULL_ON_SOME_PATH", Priorities.HIGH_PRIORITY)
+				.add(withSourceLines(new ClassAnnotation("org.example.Foo")))
+				.add(withSourceLines(new MethodAnnotation("org.example.Foo", "bar", "(Ljava/lang/String;)V", false)))
+				.addSourceLine(new SourceLineAnnotation("org.example.Foo", "Foo.java", 12, 14, 3, 9));
+		final BugInstance second = new BugInstance("DM_STRING_CTOR", Priorities.NORMAL_PRIORITY)
+				.add(withSourceLines(new ClassAnnotation("org.example.Foo$Inner")))
+				.add(withSourceLines(new FieldAnnotation("org.example.Foo$Inner", "name", "Ljava/lang/String;", false)))
+				.addString("a <quoted> & \"escaped\" string");
+
+		final Project project = new Project();
+		project.setProjectName("test");
+		// the reporter reads the analysis features of the current context, relaxed mode skips the class hierarchy lookups
+		final AnalysisContext analysisContext = new AnalysisContext(project);
+		analysisContext.setBoolProperty(FindBugsAnalysisFeatures.RELAXED_REPORTING_MODE, true);
+		AnalysisContext.setCurrentAnalysisContext(analysisContext);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final StreamingReporter reporter = new StreamingReporter(project, out);
+		reporter.setPriorityThreshold(Priorities.LOW_PRIORITY);
+		reporter.setRankThreshold(BugRanker.VISIBLE_RANK_MAX);
+		reporter.start();
+		reporter.reportNumberOfArchives(1);
+		reporter.finishArchive();
+		reporter.predictPassCount(new int[]{3, 2});
+		reporter.startAnalysis(2);
+		reporter.getProjectStats().addClass("org.example.Foo", null, false, 10);
+		reporter.getProjectStats().addClass("org.example.Foo$Inner", null, false, 5);
+		reporter.reportBug(first);
+		reporter.finishClass();
+		reporter.reportBug(second);
+		reporter.finishClass();
+		reporter.finishPerClassAnalysis();
+		reporter.reportMissingClass("org.example.Missing");
+		reporter.end();
+		// the result is read in the IDE process, which has no analysis context
+		AnalysisContext.removeCurrentAnalysisContext();
+
+		final List<BugInstance> bugs = new ArrayList<>();
+		final RecordingProgress progress = new RecordingProgress();
+		final SortedBugCollection result = AnalysisResultReader.read(new ByteArrayInputStream(out.toByteArray()), bugs::add, progress, (name, nanos) -> {
+		});
+
+		assertThat(bugs).containsExactly(first, second);
+		assertThat(bugs.get(1).getPrimaryField().getFieldName()).isEqualTo("name");
+		assertThat(progress.events).containsExactly(
+				"reportNumberOfArchives 1",
+				"finishArchive",
+				"predictPassCount [3, 2]",
+				"startAnalysis 2",
+				"finishClass",
+				"finishClass",
+				"finishPerClassAnalysis"
+		);
+		assertThat(result.getCollection()).isEmpty();
+		assertThat(result.getProjectStats().getNumClasses()).isEqualTo(2);
+		assertThat((Iterable<String>) result::missingClassIterator).containsExactly("org.example.Missing");
+	}
+
+	/**
+	 * Without source lines the annotations would look them up in the analysis cache of the current context.
+	 */
+	@NotNull
+	private static <T extends PackageMemberAnnotation> T withSourceLines(@NotNull final T annotation) {
+		annotation.setSourceLines(new SourceLineAnnotation(annotation.getClassName(), "Foo.java", -1, -1, -1, -1));
+		return annotation;
+	}
+
+	private static final class RecordingProgress implements FindBugsProgress {
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void reportNumberOfArchives(final int numArchives) {
+			events.add("reportNumberOfArchives " + numArchives);
+		}
+
+		@Override
+		public void startArchive(final String name) {
+			events.add("startArchive " + name);
+		}
+
+		@Override
+		public void finishArchive() {
+			events.add("finishArchive");
+		}
+
+		@Override
+		public void predictPassCount(final int[] classesPerPass) {
+			events.add("predictPassCount " + Arrays.toString(classesPerPass));
+		}
+
+		@Override
+		public void startAnalysis(final int numClasses) {
+			events.add("startAnalysis " + numClasses);
+		}
+
+		@Override
+		public void finishClass() {
+			events.add("finishClass");
+		}
+
+		@Override
+		public void finishPerClassAnalysis() {
+			events.add("finishPerClassAnalysis");
+		}
+	}
+}
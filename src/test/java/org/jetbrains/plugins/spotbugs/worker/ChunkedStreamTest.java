@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.worker;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ChunkedStreamTest {
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		final byte[] first = randomBytes(20000, 1);
+		final byte[] second = randomBytes(10, 2);
+		final ByteArrayOutputStream pipe = new ByteArrayOutputStream();
+		try (ChunkedOutputStream out = new ChunkedOutputStream(pipe)) {
+			out.write(first[0]);
+			out.write(first, 1, 100);
+			out.flush();
+			out.write(first, 101, first.length - 101); // larger than the buffer
+		}
+		try (ChunkedOutputStream out = new ChunkedOutputStream(pipe)) {
+			out.write(second);
+		}
+
+		final InputStream in = new ByteArrayInputStream(pipe.toByteArray());
+		assertThat(readAll(new ChunkedInputStream(in))).isEqualTo(first);
+		assertThat(readAll(new ChunkedInputStream(in))).isEqualTo(second);
+		assertThat(in.read()).isEqualTo(-1);
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		final ByteArrayOutputStream pipe = new ByteArrayOutputStream();
+		new ChunkedOutputStream(pipe).close();
+		final ChunkedInputStream in = new ChunkedInputStream(new ByteArrayInputStream(pipe.toByteArray()));
+		assertThat(in.read()).isEqualTo(-1);
+		assertThat(in.read(new byte[1], 0, 1)).isEqualTo(-1);
+	}
+
+	@Test
+	public void testCloseSkipsRest() throws IOException {
+		final byte[] first = randomBytes(30000, 3);
+		final byte[] second = randomBytes(5000, 4);
+		final ByteArrayOutputStream pipe = new ByteArrayOutputStream();
+		try (ChunkedOutputStream out = new ChunkedOutputStream(pipe)) {
+			out.write(first);
+		}
+		try (ChunkedOutputStream out = new ChunkedOutputStream(pipe)) {
+			out.write(second);
+		}
+
+		final InputStream in = new ByteArrayInputStream(pipe.toByteArray());
+		try (ChunkedInputStream result = new ChunkedInputStream(in)) {
+			assertThat(result.read()).isEqualTo(first[0] & 0xFF);
+		}
+		assertThat(readAll(new ChunkedInputStream(in))).isEqualTo(second);
+	}
+
+	private static byte[] readAll(final InputStream in) throws IOException {
+		final ByteArrayOutputStream ret = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[777];
+		int read;
+		while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+			ret.write(buffer, 0, read);
+		}
+		return ret.toByteArray();
+	}
+
+	private static byte[] randomBytes(final int length, final long seed) {
+		final byte[] ret = new byte[length];
+		new Random(seed).nextBytes(ret);
+		return ret;
+	}
+}